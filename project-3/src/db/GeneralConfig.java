@@ -1,15 +1,27 @@
 package db;
 
+import db.PhysicalPlanConfig.PageFormat;
+import db.PhysicalPlanConfig.ReaderImplementation;
+import db.PhysicalPlanConfig.RunGeneration;
+
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Scanner;
+import java.util.Set;
 
 /**
  * A config class which contains the in/out/tmp directories and whether or not to build indices, stats, queries, etc.
  */
 public class GeneralConfig {
 
+    /**
+     * The policies used to choose which page the buffer pool evicts.
+     */
+    public enum EvictionImplementation {CLOCK, LRU_K}
+
     private static final Path INPUT_PATH = Paths.get("resources/samples-4/input");
     private static final Path OUTPUT_PATH = Paths.get("resources/samples-4/output");
     private static final Path TEMP_PATH = Paths.get("resources/samples-4/tmp");
@@ -23,9 +35,23 @@ public class GeneralConfig {
     public Path dbPath;
 
     public boolean buildIndexes;
+    public boolean buildZoneMaps;
+
+    /**
+     * The tables which are rewritten using compressed pages when the database is loaded.
+     */
+    public Set<String> compressedTables;
     public boolean gatherStats;
     public boolean evaluateQueries;
 
+    public int bufferPoolPages;
+    public EvictionImplementation evictionImplementation;
+
+    /**
+     * The settings of the physical plans of the queries, the defaults unless changed in the config file.
+     */
+    public PhysicalPlanConfig planConfig;
+
     public GeneralConfig(Path inputDir, Path outputDir, Path tempDir) {
         this.inputDir = inputDir;
         this.outputDir = outputDir;
@@ -34,12 +60,32 @@ public class GeneralConfig {
         this.dbPath = inputDir.resolve("db");
 
         this.buildIndexes = false;
+        this.buildZoneMaps = false;
+        this.compressedTables = new HashSet<>();
         this.gatherStats = true;
         this.evaluateQueries = true;
+
+        this.bufferPoolPages = 0;
+        this.evictionImplementation = EvictionImplementation.CLOCK;
+        this.planConfig = PhysicalPlanConfig.createDefault();
     }
 
     /**
      * Initialise the config from the config file.
+     * <p>
+     * The first three lines are the input, output and temp directories. Any following lines are optional settings,
+     * each a name and a value separated by whitespace:
+     * <pre>
+     * bufferPoolPages 64
+     * evictionImplementation LRU_K
+     * compressedTables Sailors Reserves
+     * sortThreads 4
+     * spillFormat COMPRESSED
+     * </pre>
+     * Without a buffer pool size, or with a size of 0, no buffer pool is used. The compressed tables are listed by name
+     * and may be split over several lines. The readerImplementation, readAheadPages, spillFormat, runGeneration,
+     * sortThreads, asyncSortIO, joinThreads and materializePages settings set the fields of the same name of the plan
+     * config.
      *
      * @param configFile the config file to read.
      * @return the parsed config file.
@@ -53,13 +99,71 @@ public class GeneralConfig {
 
             GeneralConfig config = new GeneralConfig(inputDir, outputDir, tempDir);
             config.buildIndexes = true;
+            config.buildZoneMaps = true;
             config.gatherStats = true;
             config.evaluateQueries = true;
 
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine().trim();
+
+                if (!line.isEmpty()) {
+                    config.setOption(line.split("\\s+"));
+                }
+            }
+
             return config;
         } catch (IOException e) {
             e.printStackTrace();
             return DEFAULT_CONFIG;
         }
     }
+
+    /**
+     * Set one of the optional settings of the config file.
+     *
+     * @param option The name of the setting followed by its value.
+     */
+    private void setOption(String[] option) {
+        if (option.length < 2) {
+            throw new RuntimeException("Missing value for config option " + option[0]);
+        }
+
+        switch (option[0]) {
+            case "bufferPoolPages":
+                this.bufferPoolPages = Integer.parseInt(option[1]);
+                break;
+            case "evictionImplementation":
+                this.evictionImplementation = EvictionImplementation.valueOf(option[1]);
+                break;
+            case "compressedTables":
+                this.compressedTables.addAll(Arrays.asList(option).subList(1, option.length));
+                break;
+            case "readerImplementation":
+                this.planConfig.readerImplementation = ReaderImplementation.valueOf(option[1]);
+                break;
+            case "readAheadPages":
+                this.planConfig.readAheadPages = Integer.parseInt(option[1]);
+                break;
+            case "spillFormat":
+                this.planConfig.spillFormat = PageFormat.valueOf(option[1]);
+                break;
+            case "runGeneration":
+                this.planConfig.runGeneration = RunGeneration.valueOf(option[1]);
+                break;
+            case "sortThreads":
+                this.planConfig.sortThreads = Integer.parseInt(option[1]);
+                break;
+            case "asyncSortIO":
+                this.planConfig.asyncSortIO = Boolean.parseBoolean(option[1]);
+                break;
+            case "joinThreads":
+                this.planConfig.joinThreads = Integer.parseInt(option[1]);
+                break;
+            case "materializePages":
+                this.planConfig.materializePages = Integer.parseInt(option[1]);
+                break;
+            default:
+                throw new RuntimeException("Unknown config option " + option[0]);
+        }
+    }
 }
@@ -11,7 +11,10 @@ public class PhysicalPlanConfig {
     public enum JoinImplementation {
         TNLJ,
         BNLJ,
-        SMJ
+        SMJ,
+        HJ,
+        HHJ,
+        INLJ
     }
 
     /**
@@ -22,22 +25,128 @@ public class PhysicalPlanConfig {
         EXTERNAL
     }
 
-    public static final PhysicalPlanConfig DEFAULT_CONFIG = new PhysicalPlanConfig(
-            null,
-            SortImplementation.EXTERNAL,
-            5,
-            5,
-            true
-    );
+    /**
+     * The way duplicates are removed, by sorting the tuples or by hashing them.
+     */
+    public enum DistinctImplementation {
+        SORT,
+        HASH
+    }
+
+    /**
+     * The way external sorts split their input into the sorted runs of their first pass.
+     */
+    public enum RunGeneration {
+        BLOCK,
+        REPLACEMENT_SELECTION
+    }
+
+    /**
+     * The way binary pages are read from disk.
+     */
+    public enum ReaderImplementation {
+        CHANNEL,
+        MEMORY_MAPPED
+    }
+
+    /**
+     * The layout of pages on disk, either raw ints or compressed column by column.
+     */
+    public enum PageFormat {
+        BINARY,
+        COMPRESSED
+    }
+
+    public static final PhysicalPlanConfig DEFAULT_CONFIG = createDefault();
 
     public JoinImplementation joinImplementation;
     public SortImplementation sortImplementation;
 
+    /**
+     * The way duplicates are removed, null lets the planner choose from the estimated number of distinct tuples.
+     */
+    public DistinctImplementation distinctImplementation = null;
+
     public int joinParameter;
     public int sortParameter;
 
     public boolean useIndices = false;
 
+    public ReaderImplementation readerImplementation = ReaderImplementation.CHANNEL;
+
+    /**
+     * The number of pages full table scans read ahead on a background thread, 0 disables read ahead.
+     */
+    public int readAheadPages = 0;
+
+    /**
+     * Whether scans under a selection skip the pages whose zone map shows they hold no matching tuples.
+     */
+    public boolean useZoneMaps = true;
+
+    /**
+     * The format of the temporary files written by external sorts.
+     */
+    public PageFormat spillFormat = PageFormat.BINARY;
+
+    /**
+     * The way external sorts build their first runs, either by sorting one buffer at a time or by replacement
+     * selection, which gives runs about twice as long on random input.
+     */
+    public RunGeneration runGeneration = RunGeneration.BLOCK;
+
+    /**
+     * The number of threads an external sort builds and merges its runs on, the sort buffer is split between them. 1
+     * sorts on the calling thread.
+     */
+    public int sortThreads = 1;
+
+    /**
+     * Whether external sorts double buffer the pages of their binary runs, reading and writing them on background
+     * threads while the merge works on the other page. Each run then takes two pages of the sort buffer.
+     */
+    public boolean asyncSortIO = false;
+
+    /**
+     * The largest number of pages the smaller relation of an equi-join may take for the planner to use a hash join.
+     */
+    public int hashJoinPages = 1024;
+
+    /**
+     * The number of threads a block nested loop join splits its outer block across, 1 joins on the calling thread.
+     */
+    public int joinThreads = 1;
+
+    /**
+     * Whether a block nested loop join on several threads returns tuples in the same order as on a single one.
+     */
+    public boolean preserveJoinOrder = true;
+
+    /**
+     * The number of pages of the inner relation of a nested loop join kept in memory when it is materialized, larger
+     * inner relations are written to a temporary file. 0 disables materialization and rescans the inner relation.
+     */
+    public int materializePages = 64;
+
+    /**
+     * Whether hash and sort merge joins build a Bloom filter on the keys of their outer relation, which the scan
+     * feeding the inner relation uses to drop the tuples which can not be joined.
+     */
+    public boolean useRuntimeFilters = true;
+
+    /**
+     * @return a new config with the default settings, which may be changed without affecting {@link #DEFAULT_CONFIG}.
+     */
+    public static PhysicalPlanConfig createDefault() {
+        return new PhysicalPlanConfig(
+                null,
+                SortImplementation.EXTERNAL,
+                5,
+                5,
+                true
+        );
+    }
+
     /**
      * @param join the join type
      * @param sort the sort type
@@ -2,6 +2,7 @@ package db;
 
 import db.Utilities.Utilities;
 import db.datastore.Database;
+import db.datastore.buffer.BufferPool;
 import db.datastore.tuple.TupleWriter;
 import db.datastore.tuple.binary.BinaryTupleWriter;
 import db.datastore.tuple.string.StringTupleWriter;
@@ -43,12 +44,24 @@ public class Project3 {
         Path filePath = args.length >= 1 ? Paths.get(args[0]) : Paths.get("resources/samples-4/interpreter_config_file.txt").toAbsolutePath();
         GeneralConfig config = GeneralConfig.fromFile(filePath);
 
+        if (config.bufferPoolPages > 0) {
+            Database.setBufferPool(BufferPool.create(config.bufferPoolPages, config.evictionImplementation));
+        }
+
         Database DB = Database.loadDatabase(config.dbPath);
 
+        for (String table : config.compressedTables) {
+            DB.compressTable(table);
+        }
+
         if (config.buildIndexes) {
             DB.buildIndexes();
         }
 
+        if (config.buildZoneMaps) {
+            DB.buildZoneMaps();
+        }
+
         DB.writeStatistics();
 
         if (config.evaluateQueries) {
@@ -73,7 +86,7 @@ public class Project3 {
         int i = 1;
 
         // Load plan config
-        PhysicalPlanConfig planConfig = PhysicalPlanConfig.DEFAULT_CONFIG;
+        PhysicalPlanConfig planConfig = config.planConfig;
 
         // Create directories if needed
         try {
@@ -0,0 +1,34 @@
+package db.Utilities;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the background threads of the operators and the importer. They are daemon threads, so an idle pool never
+ * keeps the program from exiting.
+ */
+public class DaemonThreads {
+    private DaemonThreads() {
+    }
+
+    /**
+     * @param name the name of every thread created
+     * @return a factory of named daemon threads
+     */
+    public static ThreadFactory factory(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * @param name the name of every thread of the pool
+     * @return a pool which creates named daemon threads as needed and reuses idle ones
+     */
+    public static ExecutorService cachedPool(String name) {
+        return Executors.newCachedThreadPool(factory(name));
+    }
+}
@@ -18,8 +18,6 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
@@ -43,48 +41,28 @@ public class Utilities {
     }
 
     /**
-     * Compare two lists by comparing fields in the specified order
-     * @param keys list of indices used to compare both lists
+     * Compare two field arrays by comparing fields in the specified order
+     * @param keys indices used to compare both arrays
      * @return Standard comparator contract : 0 if A == B, -1 if A < B, 1 if A > B
      */
-    public static int compareLists(List<Integer> A, List<Integer> B, List<Integer> keys) {
-        if (A == B)
-            return 0;
-
-        for (int i : keys) {
-            int a = A.get(i);
-            int b = B.get(i);
-
-            int result = Integer.compare(a, b);
-
-            if (result != 0) {
-                return result;
-            }
-        }
-
-        return 0;
+    public static int compareFields(int[] A, int[] B, int[] keys) {
+        return compareFields(A, B, keys, keys);
     }
 
     /**
-     * Compare two lists by comparing fields in the specified order
-     * @param keysA list of indices used to compare list A
-     * @param keysB list of indices used to compare list B
+     * Compare two field arrays by comparing fields in the specified order
+     * @param keysA indices used to compare array A
+     * @param keysB indices used to compare array B
      * @return Standard comparator contract : 0 if A == B, -1 if A < B, 1 if A > B
      */
-    public static int compareLists(List<Integer> A, List<Integer> B, List<Integer> keysA, List<Integer> keysB) {
+    public static int compareFields(int[] A, int[] B, int[] keysA, int[] keysB) {
         if (A == B)
             return 0;
 
-        assert keysA.size() == keysB.size();
-
-        Iterator<Integer> iterA = keysA.iterator();
-        Iterator<Integer> iterB = keysB.iterator();
-
-        while (iterA.hasNext()) {
-            int a = A.get( iterA.next() );
-            int b = B.get( iterB.next() );
+        assert keysA.length == keysB.length;
 
-            int result = Integer.compare(a, b);
+        for (int i = 0; i < keysA.length; i++) {
+            int result = Integer.compare(A[keysA[i]], B[keysB[i]]);
 
             if (result != 0) {
                 return result;
@@ -94,35 +72,6 @@ public class Utilities {
         return 0;
     }
 
-    /**
-     * Get the index of the tuple which has the lowest value according to the provided comparator
-     * @return index of lowest order tuple in list
-     */
-    public static int getFirstTuple(List<Tuple> tuples, Comparator<Tuple> comparator) {
-        int currentMin = -1;
-
-        // First pass : check if all values are null
-        for (int i = 0; i < tuples.size(); i++) {
-            if (tuples.get(i) != null) {
-                currentMin = i;
-                break;
-            }
-        }
-
-        if (currentMin == -1) {
-            throw new RuntimeException("All tuples are null");
-        }
-
-        for (int i = currentMin + 1; i < tuples.size(); i++) {
-            Tuple t = tuples.get(i);
-            if (t != null && comparator.compare(t, tuples.get(currentMin)) < 0) {
-                currentMin = i;
-            }
-        }
-
-        return currentMin;
-    }
-
     /**
      * There the files in the specified directory.
      *
@@ -168,7 +117,7 @@ public class Utilities {
             assert leftIndex.isPresent();
             assert rightIndex.isPresent();
 
-            if (!tuple.fields.get(leftIndex.get()).equals(tuple.fields.get(rightIndex.get()))) {
+            if (tuple.get(leftIndex.get()) != tuple.get(rightIndex.get())) {
                 return false;
             }
         }
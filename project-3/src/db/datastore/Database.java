@@ -1,12 +1,17 @@
 package db.datastore;
 
+import db.datastore.buffer.BufferPool;
 import db.datastore.index.BulkLoader;
 import db.datastore.stats.StatsGatherer;
 import db.datastore.stats.TableStats;
+import db.datastore.tuple.compressed.CompressedTupleWriter;
+import db.operators.physical.Operator;
+import db.operators.physical.physical.ScanOperator;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 /**
@@ -16,6 +21,8 @@ import java.util.*;
 public class Database {
     public static final int PAGE_SIZE = 4096;
 
+    private static BufferPool bufferPool = null;
+
     private final Path dbPath;
 
     private final Map<String, TableInfo> tables;
@@ -128,6 +135,62 @@ public class Database {
         }
     }
 
+    /**
+     * Rewrite a binary table using compressed pages, the table keeps the compressed format from then on.
+     *
+     * @param tableName the name of the table.
+     */
+    public void compressTable(String tableName) {
+        TableInfo table = this.tables.get(tableName);
+
+        if (table == null) {
+            throw new RuntimeException("Unknown table " + tableName);
+        }
+
+        if (!table.binary || table.isCompressed()) {
+            return;
+        }
+
+        Path compressedFile = table.file.resolveSibling(table.tableName + ".tmp");
+
+        Operator scan = new ScanOperator(table);
+        CompressedTupleWriter writer = CompressedTupleWriter.get(table.header, compressedFile);
+        scan.dump(writer);
+        writer.flush();
+        writer.close();
+        scan.close();
+
+        try {
+            Files.move(compressedFile, table.file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        invalidatePages(table.file);
+        table.formatChanged();
+    }
+
+    /**
+     * Replace the contents of a table with the tuples of a text file, the stats and zone map of the table are
+     * gathered while it is written.
+     *
+     * @param tableName the name of the table.
+     * @param source    the text file, holding one tuple per line.
+     * @param threads   the number of threads parsing the text.
+     */
+    public void importTable(String tableName, Path source, int threads) {
+        new TableImporter(this.tables.get(tableName), threads).importFile(source);
+    }
+
+    /**
+     * Build the per page zone map of every base table and save it next to the table.
+     */
+    public void buildZoneMaps() {
+        for (TableInfo table : this.tables.values()) {
+            table.buildZoneMap();
+        }
+    }
+
     /**
      * Compute statistics for every base table and save them inside main folder.
      */
@@ -149,4 +212,33 @@ public class Database {
     public List<TableInfo> getTables() {
         return new ArrayList<>(tables.values());
     }
+
+    /**
+     * @return The buffer pool shared by every reader, or null if pages are read straight from disk.
+     */
+    public static BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Set the buffer pool shared by every reader.
+     *
+     * @param pool The buffer pool, or null to read pages straight from disk.
+     */
+    public static void setBufferPool(BufferPool pool) {
+        bufferPool = pool;
+    }
+
+    /**
+     * Drop any cached pages of a file which is about to be, or has been, rewritten.
+     *
+     * @param file The path of the file.
+     */
+    public static void invalidatePages(Path file) {
+        BufferPool pool = bufferPool;
+
+        if (pool != null) {
+            pool.invalidate(file);
+        }
+    }
 }
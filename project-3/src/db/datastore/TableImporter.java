@@ -0,0 +1,335 @@
+package db.datastore;
+
+import db.Utilities.DaemonThreads;
+import db.datastore.stats.TableStats;
+import db.datastore.stats.ZoneMap;
+import db.datastore.tuple.TupleBatch;
+import db.datastore.tuple.binary.BinaryTupleWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads a table in string form, as read by {@link db.datastore.tuple.string.StringTupleReader}, into the binary page
+ * format.
+ * <p>
+ * The text file is read in blocks which end on a line break. The blocks are parsed straight from their bytes by a pool
+ * of threads, while the calling thread writes the parsed blocks out in order. The stats and the zone map of the table
+ * are gathered as the pages are written, so the new table never has to be scanned again.
+ * <p>
+ * Any index on the table is out of date once it has been imported, and has to be built again.
+ */
+public class TableImporter {
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    private final TableInfo table;
+    private final int columns;
+    private final int threads;
+    private final int tuplesPerPage;
+
+    private int[] minimums;
+    private int[] maximums;
+    private long tuples;
+
+    /**
+     * Create a new importer for a table.
+     *
+     * @param table   The table to replace with the imported tuples.
+     * @param threads The number of threads parsing the text.
+     */
+    public TableImporter(TableInfo table, int threads) {
+        this.table = table;
+        this.columns = table.header.size();
+        this.threads = Math.max(1, threads);
+        this.tuplesPerPage = (Database.PAGE_SIZE / 4 - 2) / this.columns;
+    }
+
+    /**
+     * Import a text file into a table of a database, and update the statistics file of the database.
+     *
+     * @param args [databaseFolder] [tableName] [textFile] and optionally [threads]
+     */
+    public static void main(String args[]) {
+        if (args.length < 3) {
+            System.err.println("Usage: TableImporter [databaseFolder] [tableName] [textFile] [threads]");
+            return;
+        }
+
+        int threads = args.length >= 4 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        Database database = Database.loadDatabase(Paths.get(args[0]));
+
+        long start = System.currentTimeMillis();
+        database.importTable(args[1], Paths.get(args[2]), threads);
+        long end = System.currentTimeMillis();
+
+        System.out.println(database.getTable(args[1]).getStats() + " imported in " + (end - start) + " ms");
+
+        database.writeStatistics();
+    }
+
+    /**
+     * Replace the contents of the table with the tuples of a text file, one tuple per line.
+     *
+     * @param source The text file to import.
+     * @return The stats of the imported table.
+     */
+    public TableStats importFile(Path source) {
+        this.minimums = new int[0];
+        this.maximums = new int[0];
+        this.tuples = 0;
+
+        ExecutorService parsers = Executors.newFixedThreadPool(this.threads, DaemonThreads.factory("import"));
+
+        Deque<Future<TupleBatch>> parsed = new ArrayDeque<>();
+
+        BinaryTupleWriter writer = null;
+
+        try (FileChannel input = FileChannel.open(source, StandardOpenOption.READ)) {
+            // The writer does not truncate the file, a shorter table would keep the old pages at its end
+            Files.deleteIfExists(this.table.file);
+            writer = BinaryTupleWriter.get(this.table.header, this.table.file);
+
+            byte[] carry = new byte[0];
+            boolean end = false;
+
+            while (!end) {
+                byte[] block = Arrays.copyOf(carry, carry.length + BLOCK_SIZE);
+                ByteBuffer buffer = ByteBuffer.wrap(block, carry.length, BLOCK_SIZE);
+
+                while (buffer.hasRemaining()) {
+                    if (input.read(buffer) == -1) {
+                        end = true;
+                        break;
+                    }
+                }
+
+                int length = buffer.position();
+                int lineEnd = end ? length : lastLineEnd(block, length);
+
+                if (lineEnd == 0) {
+                    // A line longer than a block, keep reading until its end is found
+                    carry = Arrays.copyOf(block, length);
+                    continue;
+                }
+
+                carry = Arrays.copyOfRange(block, lineEnd, length);
+                parsed.add(parsers.submit(() -> this.parse(block, lineEnd)));
+
+                // Bound the number of parsed blocks waiting to be written
+                while (parsed.size() > this.threads * 2) {
+                    this.write(writer, parsed.removeFirst().get());
+                }
+            }
+
+            while (!parsed.isEmpty()) {
+                this.write(writer, parsed.removeFirst().get());
+            }
+
+            writer.flush();
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            parsers.shutdownNow();
+
+            if (writer != null) {
+                writer.close();
+            }
+        }
+
+        return this.finish();
+    }
+
+    /**
+     * Parse the tuples of a block of text. Values are separated by commas or whitespace, and each line holds a tuple.
+     *
+     * @param block  The text.
+     * @param length The number of bytes of text in the block.
+     * @return The parsed tuples.
+     */
+    TupleBatch parse(byte[] block, int length) {
+        // Every value takes at least a digit and a separator
+        TupleBatch batch = new TupleBatch(this.columns, length / (2 * this.columns) + 1);
+
+        int row = 0;
+        int column = 0;
+        int i = 0;
+
+        while (i < length) {
+            byte b = block[i];
+
+            if (b == '-' || (b >= '0' && b <= '9')) {
+                boolean negative = b == '-';
+                long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+                long value = 0;
+                int start = negative ? ++i : i;
+
+                while (i < length && block[i] >= '0' && block[i] <= '9') {
+                    value = value * 10 + (block[i] - '0');
+                    i += 1;
+
+                    if (value > limit) {
+                        throw new RuntimeException("Value out of range in " + this.table.tableName + " tuple " + row);
+                    }
+                }
+
+                if (i == start) {
+                    throw new RuntimeException("Malformed value in " + this.table.tableName + " tuple " + row);
+                }
+
+                if (column == this.columns) {
+                    throw new RuntimeException("Too many values in " + this.table.tableName + " tuple " + row);
+                }
+
+                batch.columns[column][row] = (int) (negative ? -value : value);
+                column += 1;
+            } else if (b == '\n') {
+                if (column > 0) {
+                    this.checkComplete(column, row);
+                    row += 1;
+                    column = 0;
+                }
+
+                i += 1;
+            } else if (b == ',' || b == ' ' || b == '\t' || b == '\r') {
+                i += 1;
+            } else {
+                throw new RuntimeException("Unexpected character '" + (char) b + "' in " + this.table.tableName);
+            }
+        }
+
+        if (column > 0) {
+            this.checkComplete(column, row);
+            row += 1;
+        }
+
+        batch.setSize(row);
+
+        return batch;
+    }
+
+    /**
+     * Make sure a line held a value for every column.
+     *
+     * @param column The number of values on the line.
+     * @param row    The index of the tuple in its block.
+     */
+    private void checkComplete(int column, int row) {
+        if (column != this.columns) {
+            throw new RuntimeException("Expected " + this.columns + " values but found " + column + " in "
+                    + this.table.tableName + " tuple " + row);
+        }
+    }
+
+    /**
+     * Write parsed tuples to the table, and add them to the zone of the page they land on.
+     *
+     * @param writer The table writer.
+     * @param batch  The parsed tuples.
+     */
+    private void write(BinaryTupleWriter writer, TupleBatch batch) {
+        writer.write(batch);
+
+        for (int row = 0; row < batch.size(); row++) {
+            int page = (int) (this.tuples / this.tuplesPerPage);
+            this.ensurePages(page + 1);
+
+            int base = page * this.columns;
+
+            for (int column = 0; column < this.columns; column++) {
+                int value = batch.columns[column][row];
+
+                this.minimums[base + column] = Math.min(this.minimums[base + column], value);
+                this.maximums[base + column] = Math.max(this.maximums[base + column], value);
+            }
+
+            this.tuples += 1;
+        }
+    }
+
+    /**
+     * Save the zone map and work out the stats of the whole table from the zones.
+     *
+     * @return The stats of the table.
+     */
+    private TableStats finish() {
+        int pages;
+
+        try {
+            pages = (int) (Files.size(this.table.file) / Database.PAGE_SIZE);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        this.ensurePages(pages);
+
+        int[] minimums = Arrays.copyOf(this.minimums, pages * this.columns);
+        int[] maximums = Arrays.copyOf(this.maximums, pages * this.columns);
+
+        TableStats stats = new TableStats(this.table);
+        stats.count = (int) this.tuples;
+
+        for (int zone = 0; zone < minimums.length; zone++) {
+            int column = zone % this.columns;
+
+            stats.minimums[column] = Math.min(stats.minimums[column], minimums[zone]);
+            stats.maximums[column] = Math.max(stats.maximums[column], maximums[zone]);
+        }
+
+        ZoneMap zoneMap = ZoneMap.save(this.table, pages, minimums, maximums);
+        this.table.imported(stats, zoneMap);
+
+        return stats;
+    }
+
+    /**
+     * Grow the zones to cover a number of pages, new zones are empty.
+     *
+     * @param pages The number of pages.
+     */
+    private void ensurePages(int pages) {
+        int size = pages * this.columns;
+
+        if (this.minimums.length >= size) {
+            return;
+        }
+
+        int oldSize = this.minimums.length;
+        int newSize = Math.max(size, oldSize * 2);
+
+        this.minimums = Arrays.copyOf(this.minimums, newSize);
+        this.maximums = Arrays.copyOf(this.maximums, newSize);
+
+        Arrays.fill(this.minimums, oldSize, newSize, Integer.MAX_VALUE);
+        Arrays.fill(this.maximums, oldSize, newSize, Integer.MIN_VALUE);
+    }
+
+    /**
+     * @param block  The text.
+     * @param length The number of bytes of text in the block.
+     * @return The index after the last line break of the block, or 0 if it has none.
+     */
+    private static int lastLineEnd(byte[] block, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (block[i] == '\n') {
+                return i + 1;
+            }
+        }
+
+        return 0;
+    }
+}
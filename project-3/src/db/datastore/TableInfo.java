@@ -2,6 +2,8 @@ package db.datastore;
 
 import db.datastore.stats.StatsGatherer;
 import db.datastore.stats.TableStats;
+import db.datastore.stats.ZoneMap;
+import db.datastore.tuple.compressed.CompressedTupleReader;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -18,6 +20,9 @@ public class TableInfo {
     public final boolean binary;
     public List<IndexInfo> indices;
     private TableStats stats;
+    private ZoneMap zoneMap;
+    private boolean zoneMapLoaded;
+    private Boolean compressed;
 
     /**
      * Create a new table info reference.
@@ -49,4 +54,63 @@ public class TableInfo {
 
         return this.stats;
     }
+
+    /**
+     * Get the zone map for this table, reading it from disk the first time.
+     *
+     * @return the table's zone map, or null if it has none or it is out of date.
+     */
+    public ZoneMap getZoneMap() {
+        if (!this.zoneMapLoaded) {
+            this.zoneMap = ZoneMap.load(this);
+            this.zoneMapLoaded = true;
+        }
+
+        return this.zoneMap;
+    }
+
+    /**
+     * Build the zone map for this table and write it to disk, this must be called whenever the table is rewritten.
+     * <p>
+     * Zone maps are only built for tables stored as binary pages.
+     */
+    public void buildZoneMap() {
+        if (this.binary && !this.isCompressed()) {
+            this.zoneMap = ZoneMap.build(this);
+            this.zoneMapLoaded = true;
+        }
+    }
+
+    /**
+     * @return whether the table file is stored as compressed pages rather than binary pages.
+     */
+    public boolean isCompressed() {
+        if (this.compressed == null) {
+            this.compressed = this.binary && CompressedTupleReader.isCompressed(this.file);
+        }
+
+        return this.compressed;
+    }
+
+    /**
+     * Use the stats and zone map gathered while the table file was being written, rather than scanning it again.
+     *
+     * @param stats   the stats of the new table file.
+     * @param zoneMap the zone map of the new table file.
+     */
+    void imported(TableStats stats, ZoneMap zoneMap) {
+        this.stats = stats;
+        this.zoneMap = zoneMap;
+        this.zoneMapLoaded = true;
+        this.compressed = false;
+    }
+
+    /**
+     * Forget anything read from the table file, as it has been rewritten in another format.
+     */
+    void formatChanged() {
+        this.compressed = null;
+        this.zoneMap = null;
+        this.zoneMapLoaded = false;
+    }
 }
@@ -0,0 +1,367 @@
+package db.datastore.buffer;
+
+import db.GeneralConfig.EvictionImplementation;
+import db.datastore.Database;
+import db.performance.DiskIOStatistics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A fixed size cache of file pages, shared by every reader of the database.
+ * <p>
+ * Pages are identified by their file and page index. A page is pinned while it is in use and can only be evicted
+ * once every reader has unpinned it, the {@link EvictionPolicy} then decides which unpinned page is replaced.
+ * <p>
+ * The pool only caches reads, anything which writes a file must call {@link #invalidate(Path)} so that stale pages
+ * are dropped.
+ * <p>
+ * Pages are read from disk without holding the lock of the pool. A frame is claimed for the page first, and readers
+ * asking for the same page meanwhile wait until it has been read.
+ */
+public class BufferPool {
+    /**
+     * The number of accesses remembered by the LRU-K policy.
+     */
+    private static final int LRU_K = 2;
+
+    private final Frame[] frames;
+    private final Map<PageKey, Frame> pages;
+    private final Deque<Frame> free;
+    private final EvictionPolicy policy;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Create a pool with the given number of frames.
+     *
+     * @param capacity The number of pages held by the pool.
+     * @param policy   The eviction policy, sized for the same number of frames.
+     */
+    public BufferPool(int capacity, EvictionPolicy policy) {
+        assert capacity > 0;
+
+        this.frames = new Frame[capacity];
+        this.pages = new HashMap<>(capacity * 2);
+        this.free = new ArrayDeque<>(capacity);
+        this.policy = policy;
+
+        for (int i = 0; i < capacity; i++) {
+            this.frames[i] = new Frame(i);
+            this.free.add(this.frames[i]);
+        }
+
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+    /**
+     * Create a pool with the given number of frames and eviction policy.
+     *
+     * @param capacity The number of pages held by the pool.
+     * @param eviction The eviction policy to use.
+     * @return The pool.
+     */
+    public static BufferPool create(int capacity, EvictionImplementation eviction) {
+        switch (eviction) {
+            case LRU_K:
+                return new BufferPool(capacity, new LruKEvictionPolicy(capacity, LRU_K));
+            case CLOCK:
+            default:
+                return new BufferPool(capacity, new ClockEvictionPolicy(capacity));
+        }
+    }
+
+    /**
+     * Get a page of a file and pin it, reading it through the channel if it is not in the pool.
+     * <p>
+     * If every frame is pinned the page is read into a private buffer which is not cached.
+     *
+     * @param channel   A channel open on the file, used on a miss.
+     * @param file      The path of the file.
+     * @param pageIndex The index of the page in the file.
+     * @return The pinned page, or null if the page is past the end of the file.
+     */
+    public PinnedPage pin(FileChannel channel, Path file, long pageIndex) {
+        PageKey key = new PageKey(file.toAbsolutePath().normalize(), pageIndex);
+        Frame frame = this.claim(key);
+
+        if (frame.index == -1) {
+            return readPage(channel, frame, pageIndex) ? new PinnedPage(frame) : null;
+        }
+
+        if (frame.loading) {
+            boolean read = readPage(channel, frame, pageIndex);
+
+            synchronized (this) {
+                frame.loading = false;
+                this.notifyAll();
+
+                if (!read) {
+                    if (frame.key != null) {
+                        this.pages.remove(frame.key);
+                        frame.key = null;
+                    }
+
+                    frame.pins = 0;
+                    this.free.add(frame);
+                    return null;
+                }
+            }
+        }
+
+        return new PinnedPage(frame);
+    }
+
+    /**
+     * Pin the frame holding a page, or claim a frame for it which the caller must then read the page into.
+     * <p>
+     * A claimed frame is marked as loading, an unpooled frame with an index of -1 is returned if every frame is pinned.
+     *
+     * @param key The page.
+     * @return The pinned frame.
+     */
+    private synchronized Frame claim(PageKey key) {
+        Frame frame = this.pages.get(key);
+
+        // Another reader is reading the page, if that fails the page is claimed again
+        while (frame != null && frame.loading) {
+            try {
+                this.wait();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+
+            frame = this.pages.get(key);
+        }
+
+        if (frame != null) {
+            this.hits += 1;
+            DiskIOStatistics.bufferPoolHits.increment();
+
+            frame.pins += 1;
+            this.policy.recordAccess(frame.index);
+
+            return frame;
+        }
+
+        this.misses += 1;
+        DiskIOStatistics.bufferPoolMisses.increment();
+
+        frame = this.free.poll();
+
+        if (frame == null) {
+            int victim = this.policy.chooseVictim(i -> this.frames[i].pins == 0);
+
+            if (victim == -1) {
+                return new Frame(-1);
+            }
+
+            frame = this.frames[victim];
+            this.pages.remove(frame.key);
+            frame.key = null;
+        }
+
+        frame.key = key;
+        frame.pins = 1;
+        frame.loading = true;
+        this.pages.put(key, frame);
+        this.policy.recordLoad(frame.index);
+
+        return frame;
+    }
+
+    /**
+     * Release a page, it may be evicted once every reader has released it.
+     *
+     * @param page The page returned by {@link #pin(FileChannel, Path, long)}.
+     */
+    public synchronized void unpin(PinnedPage page) {
+        Frame frame = page.frame;
+
+        if (frame.index == -1) {
+            return;
+        }
+
+        assert frame.pins > 0;
+        frame.pins -= 1;
+
+        // The page was invalidated while pinned, the frame can now be reused.
+        if (frame.pins == 0 && frame.key == null) {
+            this.free.add(frame);
+        }
+    }
+
+    /**
+     * Drop every page of the file from the pool, pages which are still pinned stay valid for their readers.
+     *
+     * @param file The path of the file.
+     */
+    public synchronized void invalidate(Path file) {
+        Path normalized = file.toAbsolutePath().normalize();
+
+        for (Frame frame : this.frames) {
+            if (frame.key != null && frame.key.file.equals(normalized)) {
+                this.pages.remove(frame.key);
+                frame.key = null;
+
+                if (frame.pins == 0) {
+                    this.free.add(frame);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The number of requests which were served from the pool.
+     */
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * @return The number of requests which had to read the page from disk.
+     */
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * @return The number of pages the pool can hold.
+     */
+    public int getCapacity() {
+        return this.frames.length;
+    }
+
+    /**
+     * Read a page from the channel into the frame's buffer.
+     *
+     * @param channel   The channel to read from.
+     * @param frame     The frame to fill.
+     * @param pageIndex The index of the page in the file.
+     * @return Whether or not a full page was read.
+     */
+    private static boolean readPage(FileChannel channel, Frame frame, long pageIndex) {
+        ByteBuffer buffer = frame.buffer;
+        buffer.clear();
+
+        try {
+            long position = pageIndex * Database.PAGE_SIZE;
+
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) == -1) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        if (buffer.hasRemaining()) {
+            if (buffer.position() != 0) {
+                System.err.println("Error reading page " + pageIndex + ": read only " + buffer.position() + " bytes");
+            }
+
+            return false;
+        }
+
+        DiskIOStatistics.reads.increment();
+
+        return true;
+    }
+
+    /**
+     * A page which has been pinned in the pool, it must be released with {@link #unpin(PinnedPage)}.
+     */
+    public static class PinnedPage {
+        private final Frame frame;
+
+        /**
+         * A view of the page for this reader alone, so readers do not share a buffer position.
+         */
+        public final IntBuffer ints;
+
+        /**
+         * @param frame The frame holding the page.
+         */
+        private PinnedPage(Frame frame) {
+            this.frame = frame;
+            this.ints = frame.ints.duplicate();
+        }
+    }
+
+    /**
+     * A slot in the pool which holds one page.
+     */
+    private static class Frame {
+        private final int index;
+        private final ByteBuffer buffer;
+        private final IntBuffer ints;
+
+        private PageKey key;
+        private int pins;
+
+        /**
+         * Whether the page is being read into the frame, only the reader which claimed it may touch it until then.
+         */
+        private boolean loading;
+
+        /**
+         * @param index The index of the frame in the pool, -1 for a page which is not cached.
+         */
+        private Frame(int index) {
+            this.index = index;
+            this.buffer = ByteBuffer.allocateDirect(Database.PAGE_SIZE);
+            this.ints = this.buffer.asIntBuffer();
+            this.key = null;
+            this.pins = 0;
+            this.loading = false;
+        }
+    }
+
+    /**
+     * Identifies a page by its file and index.
+     */
+    private static class PageKey {
+        private final Path file;
+        private final long page;
+
+        /**
+         * @param file The normalized path of the file.
+         * @param page The index of the page in the file.
+         */
+        private PageKey(Path file, long page) {
+            this.file = file;
+            this.page = page;
+        }
+
+        /**
+         * @inheritDoc
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof PageKey)) return false;
+
+            PageKey pageKey = (PageKey) o;
+
+            return page == pageKey.page && file.equals(pageKey.file);
+        }
+
+        /**
+         * @inheritDoc
+         */
+        @Override
+        public int hashCode() {
+            return 31 * file.hashCode() + Long.hashCode(page);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package db.datastore.buffer;
+
+import java.util.function.IntPredicate;
+
+/**
+ * The CLOCK approximation of LRU. Each frame has a reference bit which is set when it is used, a clock hand sweeps
+ * the frames clearing the bits and evicts the first frame whose bit is already clear.
+ *
+ * @inheritDoc
+ */
+public class ClockEvictionPolicy implements EvictionPolicy {
+    private final boolean[] referenced;
+    private int hand;
+
+    /**
+     * @param frames The number of frames in the pool.
+     */
+    public ClockEvictionPolicy(int frames) {
+        this.referenced = new boolean[frames];
+        this.hand = 0;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void recordLoad(int frame) {
+        this.referenced[frame] = true;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void recordAccess(int frame) {
+        this.referenced[frame] = true;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public int chooseVictim(IntPredicate evictable) {
+        // After one full sweep every evictable frame has had its bit cleared.
+        for (int i = 0; i < 2 * this.referenced.length; i++) {
+            int frame = this.hand;
+            this.hand = (this.hand + 1) % this.referenced.length;
+
+            if (evictable.test(frame)) {
+                if (this.referenced[frame]) {
+                    this.referenced[frame] = false;
+                } else {
+                    return frame;
+                }
+            }
+        }
+
+        return -1;
+    }
+}
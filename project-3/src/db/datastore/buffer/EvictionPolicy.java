@@ -0,0 +1,32 @@
+package db.datastore.buffer;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Decides which frame of the {@link BufferPool} is reused when a page has to be loaded and the pool is full.
+ * <p>
+ * Frames are identified by their index in the pool.
+ */
+public interface EvictionPolicy {
+    /**
+     * Record that a new page has been loaded into the frame, discarding any history of the previous page.
+     *
+     * @param frame The frame index.
+     */
+    void recordLoad(int frame);
+
+    /**
+     * Record that the page held by the frame has been requested again.
+     *
+     * @param frame The frame index.
+     */
+    void recordAccess(int frame);
+
+    /**
+     * Choose the frame whose page is to be evicted.
+     *
+     * @param evictable Whether or not the frame can be evicted, ie. its page is not pinned.
+     * @return The frame index, or -1 if no frame can be evicted.
+     */
+    int chooseVictim(IntPredicate evictable);
+}
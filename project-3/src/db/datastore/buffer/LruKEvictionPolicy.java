@@ -0,0 +1,87 @@
+package db.datastore.buffer;
+
+import java.util.function.IntPredicate;
+
+/**
+ * The LRU-K policy, which evicts the frame whose K-th most recent access is the oldest.
+ * <p>
+ * Frames accessed fewer than K times are evicted first, least recently used first. This keeps pages which are used
+ * repeatedly in the pool while a single long scan passes through it.
+ *
+ * @inheritDoc
+ */
+public class LruKEvictionPolicy implements EvictionPolicy {
+    private final int k;
+
+    /**
+     * The last K access times of each frame, stored as a ring.
+     */
+    private final long[][] history;
+    private final int[] accesses;
+    private final long[] lastAccess;
+
+    private long time;
+
+    /**
+     * @param frames The number of frames in the pool.
+     * @param k      The number of accesses which are remembered per frame, must be at least 1.
+     */
+    public LruKEvictionPolicy(int frames, int k) {
+        assert k >= 1;
+
+        this.k = k;
+        this.history = new long[frames][k];
+        this.accesses = new int[frames];
+        this.lastAccess = new long[frames];
+        this.time = 0;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void recordLoad(int frame) {
+        this.accesses[frame] = 0;
+        this.recordAccess(frame);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void recordAccess(int frame) {
+        this.time += 1;
+
+        this.history[frame][this.accesses[frame] % this.k] = this.time;
+        this.accesses[frame] += 1;
+        this.lastAccess[frame] = this.time;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public int chooseVictim(IntPredicate evictable) {
+        int victim = -1;
+        long victimKth = Long.MAX_VALUE;
+        long victimLast = Long.MAX_VALUE;
+
+        for (int frame = 0; frame < this.accesses.length; frame++) {
+            if (!evictable.test(frame)) {
+                continue;
+            }
+
+            // Frames with fewer than K accesses have an infinite backward K-distance.
+            long kth = this.accesses[frame] < this.k ? 0 : this.history[frame][this.accesses[frame] % this.k];
+            long last = this.lastAccess[frame];
+
+            if (kth < victimKth || (kth == victimKth && last < victimLast)) {
+                victim = frame;
+                victimKth = kth;
+                victimLast = last;
+            }
+        }
+
+        return victim;
+    }
+}
@@ -1,9 +1,11 @@
 package db.datastore.index;
 
 import db.datastore.Database;
+import db.datastore.buffer.BufferPool;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.util.*;
@@ -21,9 +23,13 @@ public class BTree {
     private IndexNode root;
 
     private FileChannel channel;
+    private Path file;
+    private ByteBuffer buffer;
 
-    private BTree(FileChannel channel, int order, int nbLeaves, int rootIndex) {
+    private BTree(Path file, FileChannel channel, int order, int nbLeaves, int rootIndex) {
+        this.file = file;
         this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(Database.PAGE_SIZE);
 
         this.order = order;
         this.nbLeaves = nbLeaves;
@@ -47,7 +53,7 @@ public class BTree {
             int nbLeaves = buf.getInt();
             int order = buf.getInt();
 
-            return new BTree(channel, order, nbLeaves, rootAddress);
+            return new BTree(file, channel, order, nbLeaves, rootAddress);
         } catch (IOException e) {
             e.printStackTrace();
             return null;
@@ -55,28 +61,49 @@ public class BTree {
     }
 
     /**
-     * Read a specific node from index file
+     * Read a specific node from index file, through the buffer pool if there is one.
      *
      * @param indexInFile Page index in file
      * @return A LeafNode or IndexNode read from file
      */
     private BTreeNode readNode(int indexInFile) {
-        ByteBuffer buf = ByteBuffer.allocateDirect(Database.PAGE_SIZE);
-        try {
-            channel.read(buf, indexInFile * Database.PAGE_SIZE);
-            buf.flip();
+        BufferPool pool = Database.getBufferPool();
 
-            if (indexInFile <= nbLeaves) {
-                return LeafNode.deserialize(buf.asIntBuffer());
-            } else {
-                return IndexNode.deserialize(buf.asIntBuffer());
+        if (pool != null) {
+            BufferPool.PinnedPage page = pool.pin(channel, file, indexInFile);
+
+            try {
+                return deserializeNode(indexInFile, page.ints);
+            } finally {
+                pool.unpin(page);
             }
+        }
+
+        try {
+            buffer.clear();
+            channel.read(buffer, (long) indexInFile * Database.PAGE_SIZE);
+            buffer.flip();
+
+            return deserializeNode(indexInFile, buffer.asIntBuffer());
         } catch (IOException e) {
             e.printStackTrace();
             return null;
         }
     }
 
+    /**
+     * @param indexInFile Page index in file
+     * @param page        The contents of the page.
+     * @return A LeafNode or IndexNode read from the page
+     */
+    private BTreeNode deserializeNode(int indexInFile, IntBuffer page) {
+        if (indexInFile <= nbLeaves) {
+            return LeafNode.deserialize(page);
+        } else {
+            return IndexNode.deserialize(page);
+        }
+    }
+
     /**
      * Search for the data entry with specified key in the tree structure.
      * Corresponding index and leaf pages will be loaded from disk when needed.
@@ -103,6 +130,79 @@ public class BTree {
         return leafNode.search(key);
     }
 
+    /**
+     * Search for the data entries of a block of keys at once. The keys are looked up in sorted order, so each index
+     * node on the way is read once per block and the leaves are read front to back, each at most once.
+     *
+     * @param keys The search keys, in any order and possibly repeated
+     * @return The data entry of each key, at the same position as the key, or null where the key is not found
+     */
+    public DataEntry[] search(int[] keys) {
+        DataEntry[] entries = new DataEntry[keys.length];
+
+        // Sort the keys along with their positions
+        long[] probes = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            probes[i] = ((long) keys[i] << 32) | i;
+        }
+
+        Arrays.sort(probes);
+
+        Map<Integer, IndexNode> indexNodes = new HashMap<>();
+        int leafAddress = -1;
+        List<DataEntry> leafEntries = Collections.emptyList();
+        int position = 0;
+
+        for (long probe : probes) {
+            int key = (int) (probe >> 32);
+
+            // A key past the end of the current leaf needs a new leaf, found through the cached index nodes
+            if (leafEntries.isEmpty() || key > leafEntries.get(leafEntries.size() - 1).key) {
+                int nextLeaf = findLeaf(key, indexNodes);
+
+                if (nextLeaf != leafAddress) {
+                    leafAddress = nextLeaf;
+                    leafEntries = ((LeafNode) readNode(leafAddress)).getDataEntries();
+                    position = 0;
+                }
+            }
+
+            while (position < leafEntries.size() && leafEntries.get(position).key < key) {
+                position++;
+            }
+
+            if (position < leafEntries.size() && leafEntries.get(position).key == key) {
+                entries[(int) probe] = leafEntries.get(position);
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * Walk down from the root to the leaf which would hold the key.
+     *
+     * @param key        The search key
+     * @param indexNodes The index nodes read so far, by page index, new ones are added
+     * @return The page index of the leaf
+     */
+    private int findLeaf(int key, Map<Integer, IndexNode> indexNodes) {
+        int next = root.search(key);
+
+        while (next > nbLeaves) {
+            IndexNode node = indexNodes.get(next);
+
+            if (node == null) {
+                node = (IndexNode) readNode(next);
+                indexNodes.put(next, node);
+            }
+
+            next = node.search(key);
+        }
+
+        return next;
+    }
+
     public BTreeDataIterator iteratorForRange(Integer low, Integer high) {
         return new BTreeDataIterator(low, high);
     }
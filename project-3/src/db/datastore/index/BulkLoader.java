@@ -54,12 +54,19 @@ public class BulkLoader {
      * @param DB Database to read table info from
      * @param parameters Parameters for the index (table and attribute name, tree order, clustering)
      * @param folder Index output folder
-     * @return The file that was created to store the index tree
+     * @return The file that was created to store the index tree, or null if the table is compressed
      */
     public static Path buildIndex(Database DB, IndexInfo parameters, Path folder) {
         Path outputFile = folder.resolve(parameters.tableName + "." + parameters.attributeName);
+        TableInfo table = DB.getTable(parameters.tableName);
 
-        BulkLoader builder = new BulkLoader(DB.getTable(parameters.tableName), parameters);
+        // Record ids address tuples by their binary page and offset, which compressed pages do not have
+        if (table.isCompressed()) {
+            System.err.println("Can not build an index on the compressed table " + parameters.tableName);
+            return null;
+        }
+
+        BulkLoader builder = new BulkLoader(table, parameters);
         builder.build(outputFile);
 
         return outputFile;
@@ -74,6 +81,8 @@ public class BulkLoader {
         List<DataEntry> entries = loadDataEntries(input);
         input.close();
 
+        Database.invalidatePages(outputFile);
+
         try {
             this.output = FileChannel.open(outputFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
                     StandardOpenOption.TRUNCATE_EXISTING);
@@ -108,9 +117,13 @@ public class BulkLoader {
         // Replace old file with new one
         try {
             Files.move(tempSortOutput, tableInfo.file, StandardCopyOption.REPLACE_EXISTING);
+            Database.invalidatePages(tableInfo.file);
         } catch (IOException e) {
             e.printStackTrace();
         }
+
+        // The pages now hold different tuples, so their ranges must be recomputed
+        tableInfo.buildZoneMap();
     }
 
     /**
@@ -129,7 +142,7 @@ public class BulkLoader {
         Tuple tuple;
         while ((tuple = reader.next()) != null) {
             Rid rid = new Rid(pageId, tupleId);
-            int key = tuple.fields.get(attributeIndex);
+            int key = tuple.get(attributeIndex);
 
             if (!entryMap.containsKey(key)) {
                 entryMap.put(key, new ArrayList<>());
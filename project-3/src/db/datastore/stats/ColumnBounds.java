@@ -0,0 +1,108 @@
+package db.datastore.stats;
+
+import db.Utilities.UnionFind;
+import db.datastore.TableHeader;
+import db.query.visitors.ExpressionBoundsBuilderVisitor;
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThan;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.MinorThan;
+import net.sf.jsqlparser.expression.operators.relational.MinorThanEquals;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.Arrays;
+
+/**
+ * The inclusive range of values a selection allows for each column of a relation.
+ */
+public class ColumnBounds {
+    public final int[] low;
+    public final int[] high;
+
+    /**
+     * Create bounds which allow every value.
+     *
+     * @param columns The number of columns.
+     */
+    public ColumnBounds(int columns) {
+        this.low = new int[columns];
+        this.high = new int[columns];
+
+        Arrays.fill(this.low, Integer.MIN_VALUE);
+        Arrays.fill(this.high, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Compute the bounds of the column value comparisons in a conjunctive selection, any other expression is ignored.
+     *
+     * @param header    The header of the relation the selection applies to.
+     * @param predicate The selection predicate.
+     * @return The bounds, or null if the selection does not bound any column.
+     */
+    public static ColumnBounds fromPredicate(TableHeader header, Expression predicate) {
+        UnionFind unionFind = new UnionFind();
+        addComparisons(unionFind, predicate);
+
+        ColumnBounds bounds = new ColumnBounds(header.size());
+        boolean bounded = false;
+
+        int i = 0;
+        for (String column : header.getQualifiedAttributeNames()) {
+            Integer minimum = unionFind.getMinimum(column);
+            Integer maximum = unionFind.getMaximum(column);
+
+            if (minimum != null) {
+                bounds.low[i] = minimum;
+                bounded = true;
+            }
+
+            if (maximum != null) {
+                bounds.high[i] = maximum;
+                bounded = true;
+            }
+
+            i++;
+        }
+
+        return bounded ? bounds : null;
+    }
+
+    /**
+     * Add every column value comparison of the conjunction to the union find.
+     *
+     * @param unionFind  The union find which collects the bounds.
+     * @param expression The expression to decompose.
+     */
+    private static void addComparisons(UnionFind unionFind, Expression expression) {
+        if (expression instanceof AndExpression) {
+            addComparisons(unionFind, ((AndExpression) expression).getLeftExpression());
+            addComparisons(unionFind, ((AndExpression) expression).getRightExpression());
+        } else if (expression instanceof Parenthesis) {
+            addComparisons(unionFind, ((Parenthesis) expression).getExpression());
+        } else if (isColumnValueComparison(expression)) {
+            ExpressionBoundsBuilderVisitor.progressivelyBuildUnionBounds(unionFind, expression);
+        }
+    }
+
+    /**
+     * @param expression The expression to check.
+     * @return Whether the expression compares a column with a constant.
+     */
+    private static boolean isColumnValueComparison(Expression expression) {
+        if (!(expression instanceof EqualsTo || expression instanceof GreaterThan
+                || expression instanceof GreaterThanEquals || expression instanceof MinorThan
+                || expression instanceof MinorThanEquals)) {
+            return false;
+        }
+
+        Expression left = ((BinaryExpression) expression).getLeftExpression();
+        Expression right = ((BinaryExpression) expression).getRightExpression();
+
+        return (left instanceof Column && right instanceof LongValue) || (left instanceof LongValue && right instanceof Column);
+    }
+}
@@ -41,9 +41,9 @@ public class StatsGatherer {
 
             Tuple tuple = operator.getNextTuple();
 
-            for (int i = 0; i < tuple.fields.size(); i++) {
-                stats.minimums[i] = Math.min(stats.minimums[i], tuple.fields.get(i));
-                stats.maximums[i] = Math.max(stats.maximums[i], tuple.fields.get(i));
+            for (int i = 0; i < tuple.size(); i++) {
+                stats.minimums[i] = Math.min(stats.minimums[i], tuple.get(i));
+                stats.maximums[i] = Math.max(stats.maximums[i], tuple.get(i));
             }
         }
 
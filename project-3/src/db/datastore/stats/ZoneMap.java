@@ -0,0 +1,226 @@
+package db.datastore.stats;
+
+import db.datastore.Database;
+import db.datastore.TableInfo;
+import db.performance.DiskIOStatistics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The minimum and maximum value of every column on every page of a binary table.
+ * <p>
+ * The zone map is stored in a sidecar file next to the table. It records the size and modification time of the table
+ * when it was built, a zone map which no longer matches its table is ignored rather than used to skip pages.
+ */
+public class ZoneMap {
+    private static final String EXTENSION = ".zones";
+
+    private final int pages;
+    private final int columns;
+
+    private final int[] minimums;
+    private final int[] maximums;
+
+    /**
+     * @param pages    The number of pages in the table.
+     * @param columns  The number of columns in the table.
+     * @param minimums The minimum of each column on each page, indexed by page * columns + column.
+     * @param maximums The maximum of each column on each page, indexed by page * columns + column.
+     */
+    private ZoneMap(int pages, int columns, int[] minimums, int[] maximums) {
+        this.pages = pages;
+        this.columns = columns;
+        this.minimums = minimums;
+        this.maximums = maximums;
+    }
+
+    /**
+     * Scan a binary table page by page and write its zone map next to it.
+     *
+     * @param table The table to build the zone map for.
+     * @return The zone map.
+     */
+    public static ZoneMap build(TableInfo table) {
+        int columns = table.header.size();
+
+        try (FileChannel channel = FileChannel.open(table.file, StandardOpenOption.READ)) {
+            int pages = (int) (channel.size() / Database.PAGE_SIZE);
+
+            int[] minimums = new int[pages * columns];
+            int[] maximums = new int[pages * columns];
+
+            Arrays.fill(minimums, Integer.MAX_VALUE);
+            Arrays.fill(maximums, Integer.MIN_VALUE);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(Database.PAGE_SIZE);
+            IntBuffer ints = buffer.asIntBuffer();
+
+            for (int page = 0; page < pages; page++) {
+                buffer.clear();
+
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) == -1) {
+                        break;
+                    }
+                }
+
+                DiskIOStatistics.reads.increment();
+
+                int tupleSize = ints.get(0);
+                int tuples = ints.get(1);
+
+                for (int tuple = 0; tuple < tuples; tuple++) {
+                    for (int column = 0; column < columns; column++) {
+                        int value = ints.get(2 + tuple * tupleSize + column);
+                        int zone = page * columns + column;
+
+                        minimums[zone] = Math.min(minimums[zone], value);
+                        maximums[zone] = Math.max(maximums[zone], value);
+                    }
+                }
+            }
+
+            ZoneMap zoneMap = new ZoneMap(pages, columns, minimums, maximums);
+            zoneMap.write(table.file);
+
+            return zoneMap;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Create a zone map from bounds gathered while writing a table, and write it next to the table.
+     *
+     * @param table    The table, which must already be written.
+     * @param pages    The number of pages in the table.
+     * @param minimums The minimum of each column on each page, indexed by page * columns + column.
+     * @param maximums The maximum of each column on each page, indexed by page * columns + column.
+     * @return The zone map.
+     */
+    public static ZoneMap save(TableInfo table, int pages, int[] minimums, int[] maximums) {
+        ZoneMap zoneMap = new ZoneMap(pages, table.header.size(), minimums, maximums);
+
+        try {
+            zoneMap.write(table.file);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        return zoneMap;
+    }
+
+    /**
+     * Read the zone map of a table from its sidecar file.
+     *
+     * @param table The table whose zone map is to be read.
+     * @return The zone map, or null if there is none, it is out of date or it can not be read.
+     */
+    public static ZoneMap load(TableInfo table) {
+        Path file = getFile(table.file);
+
+        if (!table.binary || !Files.exists(file)) {
+            return null;
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            long size = input.readLong();
+            long modified = input.readLong();
+
+            if (size != Files.size(table.file) || modified != Files.getLastModifiedTime(table.file).toMillis()) {
+                return null;
+            }
+
+            int pages = input.readInt();
+            int columns = input.readInt();
+
+            // The header is followed by a minimum and a maximum for every column of every page
+            if (columns != table.header.size() || pages < 0 || (long) pages * columns * 8 != Files.size(file) - 24) {
+                return null;
+            }
+
+            int[] minimums = new int[pages * columns];
+            int[] maximums = new int[pages * columns];
+
+            for (int i = 0; i < minimums.length; i++) {
+                minimums[i] = input.readInt();
+                maximums[i] = input.readInt();
+            }
+
+            return new ZoneMap(pages, columns, minimums, maximums);
+        } catch (IOException e) {
+            // An unreadable zone map is treated like a missing one, the table is scanned in full
+            return null;
+        }
+    }
+
+    /**
+     * Check whether a page may hold a tuple within the bounds, pages not covered by the zone map always may.
+     *
+     * @param page   The index of the page.
+     * @param bounds The bounds on each column.
+     * @return False if no tuple on the page can be within the bounds.
+     */
+    public boolean mayMatch(long page, ColumnBounds bounds) {
+        if (page >= this.pages) {
+            return true;
+        }
+
+        int base = (int) page * this.columns;
+
+        for (int column = 0; column < this.columns; column++) {
+            if (this.maximums[base + column] < bounds.low[column] || this.minimums[base + column] > bounds.high[column]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return The number of pages in the table.
+     */
+    public int getNumberOfPages() {
+        return this.pages;
+    }
+
+    /**
+     * Write the zone map to the sidecar file of a table.
+     *
+     * @param tableFile The file of the table.
+     * @throws IOException If the sidecar can not be written.
+     */
+    private void write(Path tableFile) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(getFile(tableFile))))) {
+            output.writeLong(Files.size(tableFile));
+            output.writeLong(Files.getLastModifiedTime(tableFile).toMillis());
+
+            output.writeInt(this.pages);
+            output.writeInt(this.columns);
+
+            for (int i = 0; i < this.minimums.length; i++) {
+                output.writeInt(this.minimums[i]);
+                output.writeInt(this.maximums[i]);
+            }
+        }
+    }
+
+    /**
+     * @param tableFile The file of the table.
+     * @return The path of the zone map sidecar.
+     */
+    public static Path getFile(Path tableFile) {
+        return tableFile.resolveSibling(tableFile.getFileName() + EXTENSION);
+    }
+}
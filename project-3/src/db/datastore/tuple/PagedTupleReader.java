@@ -0,0 +1,60 @@
+package db.datastore.tuple;
+
+import db.PhysicalPlanConfig.ReaderImplementation;
+import db.datastore.tuple.binary.BinaryTupleReader;
+import db.datastore.tuple.binary.MappedBinaryTupleReader;
+
+import java.nio.file.Path;
+import java.util.function.LongPredicate;
+
+/**
+ * Read tuples from a file which is laid out in fixed size pages, allowing tuples to be addressed by page and offset.
+ *
+ * @inheritDoc
+ */
+public interface PagedTupleReader extends TupleReader {
+    /**
+     * Move the read header to the tuple at the given page index and tuple index.
+     *
+     * @param pageIndex  the page index
+     * @param tupleIndex the tuple index
+     */
+    void seek(long pageIndex, long tupleIndex);
+
+    /**
+     * Skip the pages rejected by the filter when moving on to the next page, explicit seeks are not filtered.
+     *
+     * @param filter Given a page index, whether the page should be read. Null to read every page.
+     */
+    void setPageFilter(LongPredicate filter);
+
+    /**
+     * Get a new reader for a binary file.
+     *
+     * @param path           The path for the binary file.
+     * @param implementation The way in which pages are read from the file.
+     * @return The instance of the reader.
+     */
+    static PagedTupleReader get(Path path, ReaderImplementation implementation) {
+        return get(path, implementation, 0);
+    }
+
+    /**
+     * Get a new reader for a binary file.
+     *
+     * @param path           The path for the binary file.
+     * @param implementation The way in which pages are read from the file.
+     * @param readAheadPages The number of pages read ahead on a background thread by the channel reader, 0 to
+     *                       read pages as they are needed. Mapped files are read ahead by the OS.
+     * @return The instance of the reader.
+     */
+    static PagedTupleReader get(Path path, ReaderImplementation implementation, int readAheadPages) {
+        switch (implementation) {
+            case MEMORY_MAPPED:
+                return MappedBinaryTupleReader.get(path);
+            case CHANNEL:
+            default:
+                return BinaryTupleReader.get(path, readAheadPages);
+        }
+    }
+}
@@ -1,21 +1,56 @@
 package db.datastore.tuple;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * A class which represents just 1 tuple, with convenience methods.
  * <p>
+ * The values are stored in a primitive array to avoid boxing every field which is read from disk.
+ * <p>
  * This class overrides {@link #equals(Object)} and {@link #hashCode()} so it can be used in hashmaps.
  * The internal data is not immutable however so proceed with care.
  */
 public class Tuple {
-    public final List<Integer> fields;
+    public final int[] fields;
 
-    public Tuple(List<Integer> fields) {
+    /**
+     * Create a tuple which is backed directly by the provided array, no copy is made.
+     *
+     * @param fields The values of the tuple.
+     */
+    public Tuple(int[] fields) {
         this.fields = fields;
     }
 
+    /**
+     * Create a tuple from a list of values, the values are copied into a new backing array.
+     *
+     * @param fields The values of the tuple.
+     */
+    public Tuple(List<Integer> fields) {
+        this.fields = new int[fields.size()];
+
+        for (int i = 0; i < this.fields.length; i++) {
+            this.fields[i] = fields.get(i);
+        }
+    }
+
+    /**
+     * @return The number of fields in the tuple.
+     */
+    public int size() {
+        return this.fields.length;
+    }
+
+    /**
+     * @param index The index of the field.
+     * @return The value of the field at the index.
+     */
+    public int get(int index) {
+        return this.fields[index];
+    }
+
     /**
      * A method to join two tuples into a single tuple.
      *
@@ -23,8 +58,11 @@ public class Tuple {
      * @return The joined tuple.
      */
     public Tuple join(Tuple joinTarget) {
-        ArrayList<Integer> fields = new ArrayList<>(this.fields);
-        fields.addAll(joinTarget.fields);
+        int[] fields = new int[this.fields.length + joinTarget.fields.length];
+
+        System.arraycopy(this.fields, 0, fields, 0, this.fields.length);
+        System.arraycopy(joinTarget.fields, 0, fields, this.fields.length, joinTarget.fields.length);
+
         return new Tuple(fields);
     }
 
@@ -35,10 +73,10 @@ public class Tuple {
     public String toString() {
         StringBuilder builder = new StringBuilder();
 
-        builder.append(fields.get(0));
+        builder.append(fields[0]);
 
-        for (int i = 1; i < fields.size(); i++) {
-            builder.append(" | " + fields.get(i));
+        for (int i = 1; i < fields.length; i++) {
+            builder.append(" | ").append(fields[i]);
         }
         return builder.toString();
     }
@@ -53,7 +91,7 @@ public class Tuple {
 
         Tuple tuple = (Tuple) o;
 
-        return fields.equals(tuple.fields);
+        return Arrays.equals(fields, tuple.fields);
     }
 
     /**
@@ -61,6 +99,6 @@ public class Tuple {
      */
     @Override
     public int hashCode() {
-        return fields.hashCode();
+        return Arrays.hashCode(fields);
     }
 }
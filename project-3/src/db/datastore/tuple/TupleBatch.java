@@ -0,0 +1,199 @@
+package db.datastore.tuple;
+
+/**
+ * A block of tuples stored column by column, used to pass many tuples between operators in a single call.
+ * <p>
+ * The value of column c for row r is stored at {@code columns[c][r]}. Only the first {@link #size()} rows are valid,
+ * the remaining rows up to the capacity are scratch space.
+ * <p>
+ * Batches are owned by the operator which produced them and are reused between calls, so the contents are only valid
+ * until the next batch is requested from that operator.
+ */
+public class TupleBatch {
+    /**
+     * The number of rows in the batches generated by the operators.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    public final int[][] columns;
+
+    private final int capacity;
+    private int size;
+
+    /**
+     * Create an empty batch.
+     *
+     * @param width    The number of columns per tuple.
+     * @param capacity The maximum number of rows in the batch.
+     */
+    public TupleBatch(int width, int capacity) {
+        this(new int[width][capacity], capacity, 0);
+    }
+
+    /**
+     * Create a batch which is backed directly by the provided column arrays, no copy is made.
+     *
+     * @param columns  The column arrays, each must be at least capacity long.
+     * @param capacity The maximum number of rows in the batch.
+     * @param size     The number of valid rows in the batch.
+     */
+    public TupleBatch(int[][] columns, int capacity, int size) {
+        this.columns = columns;
+        this.capacity = capacity;
+        this.size = size;
+    }
+
+    /**
+     * @return The number of columns per tuple.
+     */
+    public int width() {
+        return this.columns.length;
+    }
+
+    /**
+     * @return The number of valid rows in the batch.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return The maximum number of rows in the batch.
+     */
+    public int capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * @return Whether or not the batch has no rows.
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * @return Whether or not the batch has no space left for more rows.
+     */
+    public boolean isFull() {
+        return this.size >= this.capacity;
+    }
+
+    /**
+     * Remove all rows from the batch.
+     */
+    public void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * Discard all rows at or after the provided row.
+     *
+     * @param size The new number of valid rows, must not be larger than the current size.
+     */
+    public void truncate(int size) {
+        assert size <= this.size;
+        this.size = size;
+    }
+
+    /**
+     * Set the number of valid rows, used after the column arrays have been written to directly.
+     *
+     * @param size The new number of valid rows.
+     */
+    public void setSize(int size) {
+        assert size <= this.capacity;
+        this.size = size;
+    }
+
+    /**
+     * @param column The column index.
+     * @param row    The row index.
+     * @return The value at that position.
+     */
+    public int get(int column, int row) {
+        return this.columns[column][row];
+    }
+
+    /**
+     * Append a tuple to the end of the batch.
+     *
+     * @param tuple The tuple, it must have as many fields as the batch has columns.
+     * @return The row index of the tuple.
+     */
+    public int add(Tuple tuple) {
+        int row = this.size++;
+
+        for (int i = 0; i < tuple.fields.length; i++) {
+            this.columns[i][row] = tuple.fields[i];
+        }
+
+        return row;
+    }
+
+    /**
+     * Append the join of two tuples to the end of the batch, without creating the joined tuple.
+     *
+     * @param left  The left hand tuple, its fields come first.
+     * @param right The right hand tuple.
+     * @return The row index of the joined tuple.
+     */
+    public int addJoined(Tuple left, Tuple right) {
+        int row = this.size++;
+        int offset = left.fields.length;
+
+        for (int i = 0; i < offset; i++) {
+            this.columns[i][row] = left.fields[i];
+        }
+
+        for (int i = 0; i < right.fields.length; i++) {
+            this.columns[offset + i][row] = right.fields[i];
+        }
+
+        return row;
+    }
+
+    /**
+     * Append a range of rows of another batch to the end of this one.
+     *
+     * @param source The batch to copy from, it must have as many columns as this batch.
+     * @param from   The first row to copy.
+     * @param to     The row after the last row to copy, the range must fit in the remaining space.
+     */
+    public void addRows(TupleBatch source, int from, int to) {
+        assert this.size + (to - from) <= this.capacity;
+
+        for (int i = 0; i < this.columns.length; i++) {
+            System.arraycopy(source.columns[i], from, this.columns[i], this.size, to - from);
+        }
+
+        this.size += to - from;
+    }
+
+    /**
+     * Copy a row to another position in the batch, used to compact the batch after filtering.
+     *
+     * @param from The source row.
+     * @param to   The destination row.
+     */
+    public void moveRow(int from, int to) {
+        for (int[] column : this.columns) {
+            column[to] = column[from];
+        }
+    }
+
+    /**
+     * Copy a row out of the batch into a new tuple.
+     *
+     * @param row The row index.
+     * @return The tuple.
+     */
+    public Tuple getTuple(int row) {
+        int[] fields = new int[this.columns.length];
+
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = this.columns[i][row];
+        }
+
+        return new Tuple(fields);
+    }
+}
@@ -11,6 +11,24 @@ public interface TupleReader {
      */
     Tuple next();
 
+    /**
+     * Append tuples to the batch until it is full or there are no more tuples.
+     *
+     * @param batch The batch to fill.
+     * @return The number of tuples which were added.
+     */
+    default int next(TupleBatch batch) {
+        int read = 0;
+        Tuple tuple;
+
+        while (!batch.isFull() && (tuple = this.next()) != null) {
+            batch.add(tuple);
+            read++;
+        }
+
+        return read;
+    }
+
     /**
      * Retrieve or generate the next tuple in the table. This does not increment the head pointer.
      * <p>
@@ -11,6 +11,17 @@ public interface TupleWriter {
      */
     void write(Tuple tuple);
 
+    /**
+     * Write every row of the batch to disk, in order.
+     *
+     * @param batch The batch to write.
+     */
+    default void write(TupleBatch batch) {
+        for (int row = 0; row < batch.size(); row++) {
+            this.write(batch.getTuple(row));
+        }
+    }
+
     /**
      * Persist any cached writes to disk.
      */
@@ -1,26 +1,38 @@
 package db.datastore.tuple.binary;
 
 import db.datastore.Database;
+import db.datastore.buffer.BufferPool;
+import db.datastore.tuple.PagedTupleReader;
 import db.datastore.tuple.Tuple;
-import db.datastore.tuple.TupleReader;
+import db.datastore.tuple.TupleBatch;
 import db.performance.DiskIOStatistics;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.function.LongPredicate;
 
 /**
  * @inheritDoc
  */
-public class BinaryTupleReader implements TupleReader {
+public class BinaryTupleReader implements PagedTupleReader {
     private final Path path;
     private final FileChannel channel;
 
-    private final ByteBuffer bb;
+    private final ReadAheadPageSource readAhead;
+
+    private final BufferPool pool;
+    private BufferPool.PinnedPage pinned;
+    private long nextPage;
+
+    private ByteBuffer bb;
+    private IntBuffer ib;
+    private final int[] page;
+
+    private LongPredicate pageFilter;
 
     private long index;
     private long pageNumber;
@@ -29,14 +41,42 @@ public class BinaryTupleReader implements TupleReader {
     /**
      * Create a new reader from the file at the specified path
      *
-     * @param path    The file path, used for logging.
+     * @param path    The file path, used for logging and to identify its pages in the buffer pool.
      * @param channel The file input channel.
      */
     public BinaryTupleReader(Path path, FileChannel channel) {
+        this(path, channel, 0);
+    }
+
+    /**
+     * Create a new reader from the file at the specified path, optionally reading pages ahead on a background thread.
+     * <p>
+     * Without read ahead the pages are loaded through the database buffer pool, if one has been set.
+     *
+     * @param path           The file path, used for logging and to identify its pages in the buffer pool.
+     * @param channel        The file input channel.
+     * @param readAheadPages The number of pages to read ahead of the consumer, 0 to read them as they are needed.
+     */
+    public BinaryTupleReader(Path path, FileChannel channel, int readAheadPages) {
         this.path = path;
         this.channel = channel;
 
-        this.bb = ByteBuffer.allocateDirect(Database.PAGE_SIZE);
+        if (readAheadPages > 0) {
+            this.readAhead = new ReadAheadPageSource(channel, readAheadPages);
+            this.pool = null;
+            this.bb = null;
+            this.ib = null;
+        } else {
+            this.readAhead = null;
+            this.pool = Database.getBufferPool();
+            this.bb = ByteBuffer.allocateDirect(Database.PAGE_SIZE);
+            this.ib = this.bb.asIntBuffer();
+        }
+        this.page = new int[Database.PAGE_SIZE / 4];
+
+        this.pinned = null;
+        this.nextPage = 0;
+        this.pageFilter = null;
 
         this.index = -1;
         this.pageNumber = -1;
@@ -48,8 +88,18 @@ public class BinaryTupleReader implements TupleReader {
      * @return The instance of the reader.
      */
     public static BinaryTupleReader get(Path path) {
+        return get(path, 0);
+    }
+
+    /**
+     * Get a new instance of a binary reader which reads pages ahead on a background thread.
+     * @param path The path for the binary file.
+     * @param readAheadPages The number of pages to read ahead, 0 to read them as they are needed.
+     * @return The instance of the reader.
+     */
+    public static BinaryTupleReader get(Path path, int readAheadPages) {
         try {
-            return new BinaryTupleReader(path, FileChannel.open(path, StandardOpenOption.READ));
+            return new BinaryTupleReader(path, FileChannel.open(path, StandardOpenOption.READ), readAheadPages);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -61,10 +111,7 @@ public class BinaryTupleReader implements TupleReader {
     @Override
     public Tuple peek() {
         if (this.index == -1 || this.getNumberOfTuples() <= this.index) {
-            if (loadPage(channel, bb)) {
-                this.index = 0;
-                this.pageNumber += 1;
-            } else {
+            if (!loadNextPage()) {
                 return null;
             }
         }
@@ -90,6 +137,47 @@ public class BinaryTupleReader implements TupleReader {
         return next;
     }
 
+    /**
+     * The tuples are copied from each page in bulk and then transposed into the batch columns.
+     *
+     * @inheritDoc
+     */
+    @Override
+    public int next(TupleBatch batch) {
+        int read = 0;
+
+        while (!batch.isFull()) {
+            if (this.index == -1 || this.getNumberOfTuples() <= this.index) {
+                if (loadNextPage()) {
+                    continue;
+                } else {
+                    break;
+                }
+            }
+
+            int tupleSize = this.getTupleSize();
+            int start = batch.size();
+            int count = (int) Math.min(this.getNumberOfTuples() - this.index, batch.capacity() - start);
+
+            this.ib.position((int) (2 + tupleSize * this.index));
+            this.ib.get(this.page, 0, count * tupleSize);
+
+            for (int column = 0; column < tupleSize; column++) {
+                int[] values = batch.columns[column];
+
+                for (int row = 0, offset = column; row < count; row++, offset += tupleSize) {
+                    values[start + row] = this.page[offset];
+                }
+            }
+
+            batch.setSize(start + count);
+            this.index += count;
+            read += count;
+        }
+
+        return read;
+    }
+
     /**
      * @inheritDoc
      */
@@ -106,7 +194,7 @@ public class BinaryTupleReader implements TupleReader {
 
 
             if (this.pageNumber != page) {
-                this.channel.position(page * Database.PAGE_SIZE);
+                this.position(page);
                 this.loadPage(channel, bb);
             }
 
@@ -118,15 +206,13 @@ public class BinaryTupleReader implements TupleReader {
     }
 
     /**
-     * Move the read header to the tuple at the given page index and tuple index.
-     *
-     * @param pageIndex the page index
-     * @param tupleIndex the tuple index
+     * @inheritDoc
      */
+    @Override
     public void seek(long pageIndex, long tupleIndex) {
         try {
             if (this.pageNumber != pageIndex) {
-                this.channel.position(pageIndex * Database.PAGE_SIZE);
+                this.position(pageIndex);
                 this.loadPage(channel, bb);
             }
 
@@ -137,11 +223,32 @@ public class BinaryTupleReader implements TupleReader {
         }
     }
 
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void setPageFilter(LongPredicate filter) {
+        this.pageFilter = filter;
+
+        if (this.readAhead != null) {
+            this.readAhead.setPageFilter(filter);
+        }
+    }
+
     /**
      * @inheritDoc
      */
     @Override
     public void close() {
+        if (this.readAhead != null) {
+            this.readAhead.close();
+        }
+
+        if (this.pinned != null) {
+            this.pool.unpin(this.pinned);
+            this.pinned = null;
+        }
+
         try {
             this.channel.close();
         } catch (IOException e) {
@@ -149,6 +256,50 @@ public class BinaryTupleReader implements TupleReader {
         }
     }
 
+    /**
+     * Move on to the page after the current one, skipping any pages rejected by the page filter.
+     * <p>
+     * With read ahead the pages are skipped by the I/O thread, so it keeps running. Pages it read before the filter
+     * was set are skipped as they come off its queue.
+     *
+     * @return Whether or not the page loaded.
+     */
+    private boolean loadNextPage() {
+        if (this.readAhead != null) {
+            do {
+                if (!loadPage(channel, bb)) {
+                    return false;
+                }
+            } while (this.pageFilter != null && !this.pageFilter.test(this.readAhead.getPageIndex()));
+
+            this.index = 0;
+            this.pageNumber = this.readAhead.getPageIndex();
+            return true;
+        }
+
+        long next = this.pageNumber + 1;
+
+        if (this.pageFilter != null && !this.pageFilter.test(next)) {
+            do {
+                next += 1;
+            } while (!this.pageFilter.test(next));
+
+            try {
+                this.position(next);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        if (!loadPage(channel, bb)) {
+            return false;
+        }
+
+        this.index = 0;
+        this.pageNumber = next;
+        return true;
+    }
+
     /**
      * Load the next page from the channel.
      * @param channel The file channel to pull the page from/
@@ -156,6 +307,36 @@ public class BinaryTupleReader implements TupleReader {
      * @return Whether or not the page loaded.
      */
     private boolean loadPage(FileChannel channel, ByteBuffer bb) {
+        if (this.readAhead != null) {
+            ByteBuffer next = this.readAhead.nextPage();
+
+            if (next == null) {
+                return false;
+            }
+
+            this.bb = next;
+            this.ib = next.asIntBuffer();
+            return true;
+        }
+
+        if (this.pool != null) {
+            BufferPool.PinnedPage next = this.pool.pin(channel, path, this.nextPage);
+
+            if (next == null) {
+                return false;
+            }
+
+            // The previous page stays pinned until now, so it is still readable after the end of the file.
+            if (this.pinned != null) {
+                this.pool.unpin(this.pinned);
+            }
+
+            this.pinned = next;
+            this.ib = next.ints;
+            this.nextPage += 1;
+            return true;
+        }
+
         try {
             long len = channel.read(bb);
 
@@ -175,11 +356,34 @@ public class BinaryTupleReader implements TupleReader {
             return false;
         }
 
-        DiskIOStatistics.reads += 1;
+        DiskIOStatistics.reads.increment();
 
         return true;
     }
 
+    /**
+     * Move the file pointer so that the page with the given index is loaded next.
+     *
+     * @param pageIndex the page index.
+     * @throws IOException if the channel can not be repositioned.
+     */
+    private void position(long pageIndex) throws IOException {
+        if (this.readAhead != null) {
+            this.readAhead.seek(pageIndex);
+        } else if (this.pool != null) {
+            this.nextPage = pageIndex;
+        } else {
+            this.channel.position(pageIndex * Database.PAGE_SIZE);
+        }
+    }
+
+    /**
+     * @return The number of times the consumer had to wait for a page which was being read ahead.
+     */
+    public int getReadAheadStalls() {
+        return this.readAhead != null ? this.readAhead.getStalls() : 0;
+    }
+
     /**
      * @return The number of tuples which can fit on a page.
      */
@@ -191,14 +395,14 @@ public class BinaryTupleReader implements TupleReader {
      * @return The number of columns per tuple.
      */
     private int getTupleSize() {
-        return this.bb.asIntBuffer().get(0);
+        return this.ib.get(0);
     }
 
     /**
      * @return The number of tuples in the current page.
      */
     public int getNumberOfTuples() {
-        return this.bb.asIntBuffer().get(1);
+        return this.ib.get(1);
     }
 
     /**
@@ -210,14 +414,12 @@ public class BinaryTupleReader implements TupleReader {
             return null;
         }
 
-        long startOffset = 2 + this.getTupleSize() * index;
+        int tupleSize = this.getTupleSize();
+        int[] fields = new int[tupleSize];
 
-        List<Integer> tupleBacking = new ArrayList<>(this.getTupleSize());
-
-        for (long i = startOffset; i < startOffset + this.getTupleSize(); i++) {
-            tupleBacking.add(this.bb.asIntBuffer().get((int) i));
-        }
+        this.ib.position((int) (2 + tupleSize * index));
+        this.ib.get(fields);
 
-        return new Tuple(tupleBacking);
+        return new Tuple(fields);
     }
 }
@@ -3,11 +3,13 @@ package db.datastore.tuple.binary;
 import db.datastore.Database;
 import db.datastore.TableHeader;
 import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
 import db.datastore.tuple.TupleWriter;
 import db.performance.DiskIOStatistics;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
@@ -21,7 +23,10 @@ public class BinaryTupleWriter implements TupleWriter {
     private final TableHeader header;
     private final FileChannel channel;
 
-    private final ByteBuffer bb;
+    private final WriteBehindPageSink writeBehind;
+
+    private ByteBuffer bb;
+    private IntBuffer ib;
 
     private int tuples_written;
 
@@ -32,10 +37,24 @@ public class BinaryTupleWriter implements TupleWriter {
      * @param channel The output channel.
      */
     public BinaryTupleWriter(TableHeader header, FileChannel channel) {
+        this(header, channel, false);
+    }
+
+    /**
+     * Create a new writer with the provided header and write it to the specified channel, optionally writing full
+     * pages on a background thread while the next page is filled.
+     *
+     * @param header      The header of the input tuples.
+     * @param channel     The output channel.
+     * @param writeBehind Whether pages are written on a background thread.
+     */
+    public BinaryTupleWriter(TableHeader header, FileChannel channel, boolean writeBehind) {
         this.header = header;
         this.channel = channel;
+        this.writeBehind = writeBehind ? new WriteBehindPageSink(channel) : null;
 
         this.bb = ByteBuffer.allocateDirect(Database.PAGE_SIZE);
+        this.ib = this.bb.asIntBuffer();
 
         this.clearPage();
 
@@ -49,10 +68,24 @@ public class BinaryTupleWriter implements TupleWriter {
      * @return The writer instance.
      */
     public static BinaryTupleWriter get(TableHeader header, Path file) {
+        return get(header, file, false);
+    }
+
+    /**
+     * Create a new writer outputting binary tuples to the specified file object
+     * @param header The relation header, used to properly size the buffers
+     * @param file The output file. Will be created if it doesn't exist
+     * @param writeBehind Whether pages are written on a background thread
+     * @return The writer instance.
+     */
+    public static BinaryTupleWriter get(TableHeader header, Path file, boolean writeBehind) {
+        // Any pages cached from an earlier version of the file are now stale
+        Database.invalidatePages(file);
+
         try {
             // Create file if it doesn't exist
             return new BinaryTupleWriter(header, FileChannel.open(
-                    file, StandardOpenOption.CREATE, StandardOpenOption.WRITE));
+                    file, StandardOpenOption.CREATE, StandardOpenOption.WRITE), writeBehind);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -66,11 +99,10 @@ public class BinaryTupleWriter implements TupleWriter {
         int offset = this.getTupleOffset();
 
         this.tuples_written += 1;
-        this.bb.asIntBuffer().put(1, this.tuples_written);
+        this.ib.put(1, this.tuples_written);
 
-        for (int i = 0; i < tuple.fields.size(); i++) {
-            this.bb.asIntBuffer().put(offset + i, tuple.fields.get(i));
-        }
+        this.ib.position(offset);
+        this.ib.put(tuple.fields);
 
         if (this.getRemainingCapacity() <= 0) {
             this.flush();
@@ -78,19 +110,52 @@ public class BinaryTupleWriter implements TupleWriter {
     }
 
     /**
+     * The rows are written straight from the batch columns onto the page, without creating tuples.
+     *
+     * @inheritDoc
+     */
+    @Override
+    public void write(TupleBatch batch) {
+        int tupleSize = this.header.size();
+
+        for (int row = 0; row < batch.size(); row++) {
+            int offset = this.getTupleOffset();
+
+            for (int column = 0; column < tupleSize; column++) {
+                this.ib.put(offset + column, batch.columns[column][row]);
+            }
+
+            this.tuples_written += 1;
+            this.ib.put(1, this.tuples_written);
+
+            if (this.getRemainingCapacity() <= 0) {
+                this.flush();
+            }
+        }
+    }
+
+    /**
+     * With write behind the page is handed over to the background thread and filling continues on the spare buffer.
+     *
      * @inheritDoc
      */
     @Override
     public void flush() {
         try {
-            while (this.bb.hasRemaining()) {
-                this.channel.write(this.bb);
+            if (this.writeBehind != null) {
+                this.bb = this.writeBehind.write(this.bb);
+                this.ib = this.bb.asIntBuffer();
+            } else {
+                while (this.bb.hasRemaining()) {
+                    this.channel.write(this.bb);
+                }
+
+                this.bb.clear();
             }
 
-            this.bb.clear();
             this.clearPage();
 
-            DiskIOStatistics.writes += 1;
+            DiskIOStatistics.writes.increment();
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -102,6 +167,10 @@ public class BinaryTupleWriter implements TupleWriter {
     @Override
     public void close() {
         try {
+            if (this.writeBehind != null) {
+                this.writeBehind.finish();
+            }
+
             this.channel.close();
         } catch (IOException e) {
             e.printStackTrace();
@@ -113,12 +182,12 @@ public class BinaryTupleWriter implements TupleWriter {
      */
     private void clearPage() {
         for (int i = 0; i < Database.PAGE_SIZE / 4; i++) {
-            this.bb.asIntBuffer().put(i, 0);
+            this.ib.put(i, 0);
         }
 
         this.tuples_written = 0;
-        this.bb.asIntBuffer().put(0, this.header.tableIdentifiers.size());
-        this.bb.asIntBuffer().put(1, 0);
+        this.ib.put(0, this.header.tableIdentifiers.size());
+        this.ib.put(1, 0);
     }
 
     /**
@@ -0,0 +1,255 @@
+package db.datastore.tuple.binary;
+
+import db.datastore.Database;
+import db.datastore.tuple.PagedTupleReader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.performance.DiskIOStatistics;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongPredicate;
+
+/**
+ * Reads the same binary format as {@link BinaryTupleReader}, but maps the file into memory instead of reading it
+ * a page at a time.
+ * <p>
+ * Moving to another page is just an offset calculation, so seeks cost no system calls. The file is mapped in
+ * segments as a single mapping can not exceed 2GB.
+ *
+ * @inheritDoc
+ */
+public class MappedBinaryTupleReader implements PagedTupleReader {
+    private static final int INTS_PER_PAGE = Database.PAGE_SIZE / 4;
+    private static final int PAGES_PER_SEGMENT = (1 << 30) / Database.PAGE_SIZE;
+
+    private final long numberOfPages;
+
+    private IntBuffer[] segments;
+
+    private IntBuffer page;
+    private int pageOffset;
+    private long pageNumber;
+    private int pageTuples;
+    private int tupleSize;
+
+    private LongPredicate pageFilter;
+
+    private long index;
+
+    /**
+     * Create a new reader by mapping the file behind the channel, the channel is not needed after this.
+     *
+     * @param channel The file input channel.
+     */
+    public MappedBinaryTupleReader(FileChannel channel) {
+        try {
+            long size = channel.size();
+
+            this.numberOfPages = size / Database.PAGE_SIZE;
+            this.segments = new IntBuffer[(int) ((this.numberOfPages + PAGES_PER_SEGMENT - 1) / PAGES_PER_SEGMENT)];
+
+            for (int i = 0; i < this.segments.length; i++) {
+                long start = (long) i * PAGES_PER_SEGMENT * Database.PAGE_SIZE;
+                long length = Math.min((long) PAGES_PER_SEGMENT * Database.PAGE_SIZE, this.numberOfPages * Database.PAGE_SIZE - start);
+
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                this.segments[i] = buffer.asIntBuffer();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        this.pageNumber = -1;
+        this.index = 0;
+    }
+
+    /**
+     * Get a new instance of a memory mapped binary reader.
+     *
+     * @param path The path for the binary file.
+     * @return The instance of the reader.
+     */
+    public static MappedBinaryTupleReader get(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new MappedBinaryTupleReader(channel);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Tuple peek() {
+        if (!this.nextTupleOnPage()) {
+            return null;
+        }
+
+        int[] fields = new int[this.tupleSize];
+
+        this.page.position((int) (this.pageOffset + 2 + this.tupleSize * this.index));
+        this.page.get(fields);
+
+        return new Tuple(fields);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public boolean hasNext() {
+        return this.nextTupleOnPage();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Tuple next() {
+        Tuple next = this.peek();
+
+        if (next != null) {
+            this.index += 1;
+        }
+
+        return next;
+    }
+
+    /**
+     * The tuples are copied straight out of the mapped page into the batch columns.
+     *
+     * @inheritDoc
+     */
+    @Override
+    public int next(TupleBatch batch) {
+        int read = 0;
+
+        while (!batch.isFull() && this.nextTupleOnPage()) {
+            int start = batch.size();
+            int count = (int) Math.min(this.pageTuples - this.index, batch.capacity() - start);
+            int base = (int) (this.pageOffset + 2 + this.tupleSize * this.index);
+
+            for (int column = 0; column < this.tupleSize; column++) {
+                int[] values = batch.columns[column];
+
+                for (int row = 0, offset = base + column; row < count; row++, offset += this.tupleSize) {
+                    values[start + row] = this.page.get(offset);
+                }
+            }
+
+            batch.setSize(start + count);
+            this.index += count;
+            read += count;
+        }
+
+        return read;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void seek(long index) {
+        if (this.numberOfPages == 0) {
+            return;
+        }
+
+        if (this.pageNumber == -1) {
+            this.loadPage(0);
+        }
+
+        int capacity = (Database.PAGE_SIZE - 8) / 4 / this.tupleSize;
+
+        this.seek(index / capacity, index % capacity);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void seek(long pageIndex, long tupleIndex) {
+        if (this.pageNumber != pageIndex) {
+            this.loadPage(pageIndex);
+        }
+
+        this.index = tupleIndex;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void setPageFilter(LongPredicate filter) {
+        this.pageFilter = filter;
+    }
+
+    /**
+     * Release the mapping, the memory is unmapped once the buffers are garbage collected.
+     *
+     * @inheritDoc
+     */
+    @Override
+    public void close() {
+        this.segments = new IntBuffer[0];
+        this.page = null;
+    }
+
+    /**
+     * @return The number of tuples in the current page.
+     */
+    public int getNumberOfTuples() {
+        return this.pageTuples;
+    }
+
+    /**
+     * Make sure the read header points to a tuple, moving on to the next page if the current one has been read.
+     *
+     * @return Whether or not there is a tuple at the read header.
+     */
+    private boolean nextTupleOnPage() {
+        while (this.pageNumber == -1 || this.index >= this.pageTuples) {
+            long next = this.pageNumber + 1;
+
+            while (next < this.numberOfPages && this.pageFilter != null && !this.pageFilter.test(next)) {
+                next += 1;
+            }
+
+            if (next >= this.numberOfPages) {
+                return false;
+            }
+
+            this.loadPage(next);
+            this.index = 0;
+        }
+
+        return true;
+    }
+
+    /**
+     * Point the page view at the page with the given index, a page past the end of the file is treated as empty.
+     *
+     * @param pageIndex The index of the page in the file.
+     */
+    private void loadPage(long pageIndex) {
+        if (pageIndex >= this.numberOfPages) {
+            this.pageNumber = pageIndex;
+            this.pageTuples = 0;
+            return;
+        }
+
+        this.page = this.segments[(int) (pageIndex / PAGES_PER_SEGMENT)];
+        this.pageOffset = (int) (pageIndex % PAGES_PER_SEGMENT) * INTS_PER_PAGE;
+        this.pageNumber = pageIndex;
+
+        this.tupleSize = this.page.get(this.pageOffset);
+        this.pageTuples = this.page.get(this.pageOffset + 1);
+
+        DiskIOStatistics.reads.increment();
+    }
+}
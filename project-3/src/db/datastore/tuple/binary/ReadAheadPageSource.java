@@ -0,0 +1,359 @@
+package db.datastore.tuple.binary;
+
+import db.Utilities.DaemonThreads;
+import db.datastore.Database;
+import db.performance.DiskIOStatistics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.LongPredicate;
+
+/**
+ * Reads pages from a channel on a background thread, keeping a fixed number of pages ahead of the consumer.
+ * <p>
+ * The pages live in a ring of buffers, each holding a chunk of pages. The I/O thread takes an empty
+ * buffer, fills it with the next pages and hands it over to the consumer, who returns it once all of its pages have
+ * been used. Handing over chunks rather than single pages keeps the cost of waking the other thread low.
+ * <p>
+ * The I/O thread skips the pages rejected by the page filter, so filtering pages does not stop the read ahead. The
+ * pages are read at their own offsets rather than from the position of the channel.
+ * <p>
+ * Whenever the consumer asks for a page which has not been read yet it has to wait, these stalls are counted in
+ * {@link DiskIOStatistics}. The pages must only be consumed from a single thread.
+ */
+public class ReadAheadPageSource {
+    private static final ExecutorService IO_THREADS = DaemonThreads.cachedPool("read-ahead");
+
+    /**
+     * Marks the end of the file in the filled queue, and asks the I/O thread to stop in the empty queue.
+     */
+    private static final Chunk END = new Chunk(0);
+
+    private final FileChannel channel;
+
+    private final List<Chunk> ring;
+    private final BlockingQueue<Chunk> empty;
+    private final BlockingQueue<Chunk> filled;
+
+    private Chunk current;
+    private int currentPage;
+
+    /** The page the I/O thread starts from, which is read even if the filter rejects it */
+    private long startPage;
+    private volatile LongPredicate pageFilter;
+
+    private Future<?> reader;
+    private boolean finished;
+
+    private volatile boolean stopped;
+    private volatile IOException error;
+
+    private int stalls;
+
+    /**
+     * Create a new page source, the I/O thread is started on the first request for a page.
+     *
+     * @param channel The channel to read, pages are read from its current position.
+     * @param pages   The number of pages which are read ahead of the consumer.
+     */
+    public ReadAheadPageSource(FileChannel channel, int pages) {
+        assert pages > 0;
+
+        // Read ahead in two halves, so one can be refilled while the other is consumed.
+        int chunks = pages > 1 ? 2 : 1;
+        int pagesPerChunk = (pages + chunks - 1) / chunks;
+
+        this.channel = channel;
+        this.ring = new ArrayList<>(chunks + 1);
+        this.empty = new ArrayBlockingQueue<>(chunks + 2);
+        this.filled = new ArrayBlockingQueue<>(chunks + 2);
+
+        // One extra chunk is held by the consumer while the others are being filled.
+        for (int i = 0; i < chunks + 1; i++) {
+            Chunk chunk = new Chunk(pagesPerChunk);
+            this.ring.add(chunk);
+            this.empty.add(chunk);
+        }
+
+        this.current = null;
+        this.currentPage = 0;
+        this.startPage = -1;
+        this.pageFilter = null;
+        this.reader = null;
+        this.finished = false;
+        this.stalls = 0;
+    }
+
+    /**
+     * Get the next page from the channel, waiting for it to be read if necessary.
+     * <p>
+     * The returned buffer is only valid until the next call.
+     *
+     * @return The buffer holding the page, or null if the end of the file has been reached.
+     */
+    public ByteBuffer nextPage() {
+        if (this.finished) {
+            return null;
+        }
+
+        if (this.reader == null) {
+            this.start();
+        }
+
+        if (this.current != null && this.currentPage < this.current.count) {
+            DiskIOStatistics.reads.increment();
+            return this.current.pages[this.currentPage++];
+        }
+
+        if (this.current != null) {
+            this.empty.add(this.current);
+            this.current = null;
+        }
+
+        Chunk chunk = this.filled.poll();
+
+        if (chunk == null) {
+            this.stalls += 1;
+            DiskIOStatistics.readAheadStalls.increment();
+
+            try {
+                chunk = this.filled.take();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        if (chunk == END) {
+            this.finished = true;
+
+            if (this.error != null) {
+                throw new RuntimeException(this.error);
+            }
+
+            return null;
+        }
+
+        DiskIOStatistics.reads.increment();
+
+        this.current = chunk;
+        this.currentPage = 1;
+        return chunk.pages[0];
+    }
+
+    /**
+     * @return The index in the file of the page last returned by {@link #nextPage()}.
+     */
+    public long getPageIndex() {
+        return this.current.indices[this.currentPage - 1];
+    }
+
+    /**
+     * Discard any pages which have been read ahead and continue reading from the given page.
+     *
+     * @param pageIndex The index of the next page to be returned, it is returned even if the filter rejects it.
+     */
+    public void seek(long pageIndex) {
+        this.stop();
+
+        this.startPage = pageIndex;
+    }
+
+    /**
+     * Skip the pages rejected by the filter, this takes effect for pages which have not been read ahead yet.
+     *
+     * @param filter Given a page index, whether the page should be read. Null to read every page.
+     */
+    public void setPageFilter(LongPredicate filter) {
+        this.pageFilter = filter;
+    }
+
+    /**
+     * Stop the I/O thread, this does not close the channel.
+     */
+    public void close() {
+        this.stop();
+    }
+
+    /**
+     * @return The number of times the consumer had to wait for a page to be read.
+     */
+    public int getStalls() {
+        return this.stalls;
+    }
+
+    /**
+     * Start reading pages from the current position of the channel.
+     */
+    private void start() {
+        if (this.startPage == -1) {
+            try {
+                this.startPage = this.channel.position() / Database.PAGE_SIZE;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+
+            // Only a page asked for through seek is read regardless of the filter
+            if (!this.accept(this.startPage)) {
+                this.startPage = this.nextAccepted(this.startPage);
+            }
+        }
+
+        this.stopped = false;
+        this.error = null;
+        this.finished = false;
+        this.reader = IO_THREADS.submit(this::readPages);
+    }
+
+    /**
+     * Stop the I/O thread and move every chunk back into the empty queue.
+     */
+    private void stop() {
+        if (this.reader != null) {
+            this.stopped = true;
+            this.empty.add(END);
+
+            try {
+                this.reader.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+
+            this.reader = null;
+        }
+
+        this.current = null;
+        this.finished = false;
+
+        this.filled.clear();
+        this.empty.clear();
+        this.empty.addAll(this.ring);
+    }
+
+    /**
+     * @param pageIndex The index of a page.
+     * @return Whether the page filter accepts the page.
+     */
+    private boolean accept(long pageIndex) {
+        LongPredicate filter = this.pageFilter;
+
+        return filter == null || filter.test(pageIndex);
+    }
+
+    /**
+     * @param pageIndex The index of a page.
+     * @return The index of the first page after it which the page filter accepts.
+     */
+    private long nextAccepted(long pageIndex) {
+        do {
+            pageIndex += 1;
+        } while (!this.accept(pageIndex));
+
+        return pageIndex;
+    }
+
+    /**
+     * The body of the I/O thread, fill empty chunks with pages until the end of the file or until stopped.
+     * <p>
+     * Every run of consecutive pages accepted by the filter is read into the chunk at once.
+     */
+    private void readPages() {
+        long pageIndex = this.startPage;
+
+        try {
+            while (true) {
+                Chunk chunk = this.empty.take();
+
+                if (chunk == END || this.stopped) {
+                    return;
+                }
+
+                ByteBuffer buffer = chunk.buffer;
+                boolean end = false;
+
+                chunk.count = 0;
+
+                while (chunk.count < chunk.pages.length && !end) {
+                    int run = 1;
+                    while (chunk.count + run < chunk.pages.length && this.accept(pageIndex + run)) {
+                        run += 1;
+                    }
+
+                    buffer.limit((chunk.count + run) * Database.PAGE_SIZE);
+                    buffer.position(chunk.count * Database.PAGE_SIZE);
+
+                    long offset = pageIndex * Database.PAGE_SIZE;
+                    while (buffer.hasRemaining()) {
+                        int read = this.channel.read(buffer, offset);
+
+                        if (read == -1) {
+                            break;
+                        }
+
+                        offset += read;
+                    }
+
+                    if (buffer.position() % Database.PAGE_SIZE != 0) {
+                        this.error = new IOException("Read only part of a page, " + buffer.position() + " bytes");
+                    }
+
+                    for (int page = chunk.count; page < buffer.position() / Database.PAGE_SIZE; page++) {
+                        chunk.indices[page] = pageIndex + page - chunk.count;
+                    }
+
+                    chunk.count = buffer.position() / Database.PAGE_SIZE;
+                    end = buffer.hasRemaining();
+                    pageIndex = this.nextAccepted(pageIndex + run - 1);
+                }
+
+                if (chunk.count > 0) {
+                    this.filled.add(chunk);
+                }
+
+                if (end) {
+                    this.filled.add(END);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            this.error = e;
+            this.filled.add(END);
+        } catch (InterruptedException e) {
+            this.filled.add(END);
+        }
+    }
+
+    /**
+     * A buffer holding pages, along with a view of each page and its index in the file.
+     */
+    private static class Chunk {
+        private final ByteBuffer buffer;
+        private final ByteBuffer[] pages;
+        private final long[] indices;
+        private int count;
+
+        /**
+         * @param pages The number of pages the chunk can hold.
+         */
+        private Chunk(int pages) {
+            this.buffer = ByteBuffer.allocateDirect(pages * Database.PAGE_SIZE);
+            this.pages = new ByteBuffer[pages];
+            this.indices = new long[pages];
+            this.count = 0;
+
+            for (int i = 0; i < pages; i++) {
+                ByteBuffer page = this.buffer.duplicate();
+                page.position(i * Database.PAGE_SIZE);
+                page.limit((i + 1) * Database.PAGE_SIZE);
+                this.pages[i] = page.slice();
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package db.datastore.tuple.binary;
+
+import db.Utilities.DaemonThreads;
+import db.datastore.Database;
+import db.performance.DiskIOStatistics;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Writes pages to a channel on a background thread, so the writer can fill the next page while the last one is
+ * written out.
+ * <p>
+ * The sink owns a second page buffer. Handing over a full page starts writing it and returns the spare buffer, which
+ * is only free once the write before has finished. Whenever the writer has to wait for it, the stall is counted in
+ * {@link DiskIOStatistics}. Pages must only be handed over from a single thread at a time.
+ */
+public class WriteBehindPageSink {
+    private static final ExecutorService IO_THREADS = DaemonThreads.cachedPool("write-behind");
+
+    private final FileChannel channel;
+
+    private ByteBuffer spare;
+    private Future<?> pending;
+
+    private int stalls;
+
+    /**
+     * @param channel The channel to write, pages are written from its current position.
+     */
+    public WriteBehindPageSink(FileChannel channel) {
+        this.channel = channel;
+        this.spare = ByteBuffer.allocateDirect(Database.PAGE_SIZE);
+        this.pending = null;
+        this.stalls = 0;
+    }
+
+    /**
+     * Start writing a full page, waiting for the previous one to finish first.
+     * <p>
+     * The page must not be touched until it is handed back by a later call.
+     *
+     * @param page The page, from its position to its limit.
+     * @return An empty buffer to fill with the next page.
+     */
+    public ByteBuffer write(ByteBuffer page) {
+        this.finish();
+
+        ByteBuffer free = this.spare;
+        this.spare = page;
+
+        this.pending = IO_THREADS.submit(() -> {
+            while (page.hasRemaining()) {
+                this.channel.write(page);
+            }
+
+            return null;
+        });
+
+        free.clear();
+        return free;
+    }
+
+    /**
+     * Wait until every page handed over has been written, this does not close the channel.
+     */
+    public void finish() {
+        if (this.pending == null) {
+            return;
+        }
+
+        if (!this.pending.isDone()) {
+            this.stalls += 1;
+            DiskIOStatistics.writeBehindStalls.increment();
+        }
+
+        try {
+            this.pending.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            this.pending = null;
+        }
+    }
+
+    /**
+     * @return The number of times the writer had to wait for a page to be written.
+     */
+    public int getStalls() {
+        return this.stalls;
+    }
+}
@@ -0,0 +1,385 @@
+package db.datastore.tuple.compressed;
+
+import db.datastore.Database;
+
+/**
+ * The layout of a compressed page, and the column encodings used to fill it.
+ * <p>
+ * A page has the same size as a binary page. It starts with {@link #MAGIC}, which can never be the column count of a
+ * binary page, followed by the number of columns and the number of tuples. Every column is then stored on its own,
+ * starting at a word boundary, using whichever of these encodings is the smallest:
+ * <ul>
+ * <li>Frame of reference: the minimum value, followed by every value minus the minimum, bit packed.</li>
+ * <li>Delta: the first value and the minimum difference between neighbours, followed by each difference minus the
+ * minimum, bit packed. Sorted columns compress very well this way.</li>
+ * <li>Run length: the minimum value, followed by the value and length of each run, bit packed.</li>
+ * </ul>
+ * Each column starts with a word holding the encoding in its lowest byte and the bit widths in the bytes above.
+ */
+final class CompressedPage {
+    static final int MAGIC = 0xC0DEC0DE;
+
+    static final int WORDS = Database.PAGE_SIZE / 4;
+    static final int HEADER_WORDS = 3;
+
+    private static final int FRAME_OF_REFERENCE = 1;
+    private static final int DELTA = 2;
+    private static final int RUN_LENGTH = 3;
+
+    private CompressedPage() {
+    }
+
+    /**
+     * The number of words the frame of reference encoding of a column takes, this is an upper bound on the size of
+     * the column as it is never larger than the encoding which is chosen.
+     *
+     * @param count   The number of values.
+     * @param minimum The minimum value.
+     * @param maximum The maximum value.
+     * @return The number of words.
+     */
+    static int frameOfReferenceWords(int count, int minimum, int maximum) {
+        return 2 + packedWords(count, width((long) maximum - minimum));
+    }
+
+    /**
+     * Encode the columns onto the page.
+     *
+     * @param columns The values of each column.
+     * @param count   The number of tuples.
+     * @param page    The page to fill, it must be large enough to hold the frame of reference encoding.
+     */
+    static void encode(int[][] columns, int count, int[] page) {
+        page[0] = MAGIC;
+        page[1] = columns.length;
+        page[2] = count;
+
+        int position = HEADER_WORDS;
+
+        for (int[] values : columns) {
+            position = encodeColumn(values, count, page, position);
+        }
+    }
+
+    /**
+     * Decode the columns of a page.
+     *
+     * @param page    The page to decode.
+     * @param columns The arrays to fill with the values of each column, they must be able to hold every tuple.
+     */
+    static void decode(int[] page, int[][] columns) {
+        int count = page[2];
+        int position = HEADER_WORDS;
+
+        for (int[] values : columns) {
+            position = decodeColumn(page, position, count, values);
+        }
+    }
+
+    /**
+     * @param page The page.
+     * @return The number of columns on the page.
+     */
+    static int getColumns(int[] page) {
+        return page[1];
+    }
+
+    /**
+     * @param page The page.
+     * @return The number of tuples on the page.
+     */
+    static int getTuples(int[] page) {
+        return page[2];
+    }
+
+    /**
+     * Encode a column with the smallest encoding.
+     *
+     * @param values   The values of the column.
+     * @param count    The number of values.
+     * @param page     The page to write to.
+     * @param position The word to start writing at.
+     * @return The word after the column.
+     */
+    private static int encodeColumn(int[] values, int count, int[] page, int position) {
+        int minimum = Integer.MAX_VALUE;
+        int maximum = Integer.MIN_VALUE;
+
+        long minimumDelta = Long.MAX_VALUE;
+        long maximumDelta = Long.MIN_VALUE;
+
+        int runs = count > 0 ? 1 : 0;
+        int longestRun = count > 0 ? 1 : 0;
+        int run = 1;
+
+        for (int i = 0; i < count; i++) {
+            minimum = Math.min(minimum, values[i]);
+            maximum = Math.max(maximum, values[i]);
+
+            if (i > 0) {
+                long delta = (long) values[i] - values[i - 1];
+                minimumDelta = Math.min(minimumDelta, delta);
+                maximumDelta = Math.max(maximumDelta, delta);
+
+                if (values[i] == values[i - 1]) {
+                    run += 1;
+                    longestRun = Math.max(longestRun, run);
+                } else {
+                    runs += 1;
+                    run = 1;
+                }
+            }
+        }
+
+        if (count == 0) {
+            minimum = 0;
+            maximum = 0;
+        }
+
+        int valueWidth = width((long) maximum - minimum);
+        int bestWords = 2 + packedWords(count, valueWidth);
+        int encoding = FRAME_OF_REFERENCE;
+
+        int deltaWidth = 0;
+        if (count > 1 && minimumDelta >= Integer.MIN_VALUE && maximumDelta <= Integer.MAX_VALUE) {
+            deltaWidth = width(maximumDelta - minimumDelta);
+            int words = 3 + packedWords(count - 1, deltaWidth);
+
+            if (words < bestWords) {
+                bestWords = words;
+                encoding = DELTA;
+            }
+        }
+
+        int lengthWidth = width(longestRun - 1);
+        if (count > 0) {
+            int words = 3 + packedWords(runs, valueWidth) + packedWords(runs, lengthWidth);
+
+            if (words < bestWords) {
+                encoding = RUN_LENGTH;
+            }
+        }
+
+        switch (encoding) {
+            case DELTA:
+                page[position++] = DELTA | deltaWidth << 8;
+                page[position++] = values[0];
+                page[position++] = (int) minimumDelta;
+                return packDeltas(values, count, minimumDelta, deltaWidth, page, position);
+            case RUN_LENGTH:
+                page[position++] = RUN_LENGTH | valueWidth << 8 | lengthWidth << 16;
+                page[position++] = minimum;
+                page[position++] = runs;
+                return packRuns(values, count, minimum, valueWidth, lengthWidth, page, position);
+            case FRAME_OF_REFERENCE:
+            default:
+                page[position++] = FRAME_OF_REFERENCE | valueWidth << 8;
+                page[position++] = minimum;
+                return pack(values, 0, count, minimum, valueWidth, page, position);
+        }
+    }
+
+    /**
+     * Decode a column.
+     *
+     * @param page     The page to read from.
+     * @param position The first word of the column.
+     * @param count    The number of values.
+     * @param values   The array to fill.
+     * @return The word after the column.
+     */
+    private static int decodeColumn(int[] page, int position, int count, int[] values) {
+        int header = page[position++];
+        int encoding = header & 0xFF;
+        int width = (header >>> 8) & 0xFF;
+
+        switch (encoding) {
+            case DELTA: {
+                int first = page[position++];
+                int minimumDelta = page[position++];
+
+                values[0] = first;
+                position = unpack(page, position, count - 1, minimumDelta, width, values, 1);
+
+                // Turn the differences back into values, overflow wraps around to the original value.
+                for (int i = 1; i < count; i++) {
+                    values[i] += values[i - 1];
+                }
+
+                return position;
+            }
+            case RUN_LENGTH: {
+                int lengthWidth = (header >>> 16) & 0xFF;
+                int minimum = page[position++];
+                int runs = page[position++];
+
+                int[] runValues = new int[runs];
+                int[] runLengths = new int[runs];
+
+                position = unpack(page, position, runs, minimum, width, runValues, 0);
+                position = unpack(page, position, runs, 1, lengthWidth, runLengths, 0);
+
+                int i = 0;
+                for (int run = 0; run < runs; run++) {
+                    for (int j = 0; j < runLengths[run]; j++) {
+                        values[i++] = runValues[run];
+                    }
+                }
+
+                return position;
+            }
+            case FRAME_OF_REFERENCE:
+            default: {
+                int minimum = page[position++];
+                return unpack(page, position, count, minimum, width, values, 0);
+            }
+        }
+    }
+
+    /**
+     * @param range The difference between the largest and smallest value.
+     * @return The number of bits needed to store any value of the range.
+     */
+    private static int width(long range) {
+        return 64 - Long.numberOfLeadingZeros(range);
+    }
+
+    /**
+     * @param count The number of values.
+     * @param width The bits per value.
+     * @return The number of words needed to pack the values.
+     */
+    private static int packedWords(int count, int width) {
+        return (int) (((long) count * width + 31) / 32);
+    }
+
+    /**
+     * Bit pack values relative to a base, lowest bits first.
+     *
+     * @param values   The values to pack.
+     * @param offset   The first value to pack.
+     * @param count    The number of values.
+     * @param base     The value subtracted from every value.
+     * @param width    The bits per value.
+     * @param page     The page to write to.
+     * @param position The word to start writing at.
+     * @return The word after the packed values.
+     */
+    private static int pack(int[] values, int offset, int count, long base, int width, int[] page, int position) {
+        if (width == 0) {
+            return position;
+        }
+
+        long mask = (1L << width) - 1;
+        long buffer = 0;
+        int bits = 0;
+
+        for (int i = offset; i < offset + count; i++) {
+            buffer |= ((values[i] - base) & mask) << bits;
+            bits += width;
+
+            if (bits >= 32) {
+                page[position++] = (int) buffer;
+                buffer >>>= 32;
+                bits -= 32;
+            }
+        }
+
+        if (bits > 0) {
+            page[position++] = (int) buffer;
+        }
+
+        return position;
+    }
+
+    /**
+     * Bit pack the differences between neighbouring values.
+     */
+    private static int packDeltas(int[] values, int count, long minimumDelta, int width, int[] page, int position) {
+        if (width == 0) {
+            return position;
+        }
+
+        long mask = (1L << width) - 1;
+        long buffer = 0;
+        int bits = 0;
+
+        for (int i = 1; i < count; i++) {
+            buffer |= ((long) values[i] - values[i - 1] - minimumDelta & mask) << bits;
+            bits += width;
+
+            if (bits >= 32) {
+                page[position++] = (int) buffer;
+                buffer >>>= 32;
+                bits -= 32;
+            }
+        }
+
+        if (bits > 0) {
+            page[position++] = (int) buffer;
+        }
+
+        return position;
+    }
+
+    /**
+     * Bit pack the value of every run, followed by the length of every run minus one.
+     */
+    private static int packRuns(int[] values, int count, int minimum, int valueWidth, int lengthWidth, int[] page, int position) {
+        int runs = 0;
+        int[] runValues = new int[count];
+        int[] runLengths = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && values[i] == values[i - 1]) {
+                runLengths[runs - 1] += 1;
+            } else {
+                runValues[runs] = values[i];
+                runLengths[runs] = 1;
+                runs += 1;
+            }
+        }
+
+        position = pack(runValues, 0, runs, minimum, valueWidth, page, position);
+        return pack(runLengths, 0, runs, 1, lengthWidth, page, position);
+    }
+
+    /**
+     * Unpack bit packed values and add the base back to each of them.
+     *
+     * @param page     The page to read from.
+     * @param position The first word of the packed values.
+     * @param count    The number of values.
+     * @param base     The value added to every value.
+     * @param width    The bits per value.
+     * @param values   The array to fill.
+     * @param offset   The index of the first value in the array.
+     * @return The word after the packed values.
+     */
+    private static int unpack(int[] page, int position, int count, int base, int width, int[] values, int offset) {
+        if (width == 0) {
+            for (int i = offset; i < offset + count; i++) {
+                values[i] = base;
+            }
+
+            return position;
+        }
+
+        long mask = (1L << width) - 1;
+        long buffer = 0;
+        int bits = 0;
+
+        for (int i = offset; i < offset + count; i++) {
+            while (bits < width) {
+                buffer |= (page[position++] & 0xFFFFFFFFL) << bits;
+                bits += 32;
+            }
+
+            values[i] = (int) (base + (buffer & mask));
+            buffer >>>= width;
+            bits -= width;
+        }
+
+        return position;
+    }
+}
@@ -0,0 +1,326 @@
+package db.datastore.tuple.compressed;
+
+import db.datastore.Database;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.datastore.tuple.TupleReader;
+import db.performance.DiskIOStatistics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads tuples in the compressed page format described in {@link CompressedPage}.
+ * <p>
+ * Each page is decoded into columns when it is loaded. Pages hold a varying number of tuples, so the index of the first
+ * tuple of each page is recorded as the pages are read, seeking past the pages read so far only reads page headers.
+ *
+ * @inheritDoc
+ */
+public class CompressedTupleReader implements TupleReader {
+    private final Path path;
+    private final FileChannel channel;
+    private final long numberOfPages;
+
+    private final ByteBuffer bb;
+    private final IntBuffer ib;
+    private final ByteBuffer headerBuffer;
+    private final int[] page;
+
+    private int[][] columns;
+
+    private long[] pageStarts;
+    private int knownPages;
+    private long knownTuples;
+
+    private long pageNumber;
+    private int pageTuples;
+    private int index;
+
+    /**
+     * Create a new reader from the file at the specified path
+     *
+     * @param path    The file path, used for logging.
+     * @param channel The file input channel.
+     */
+    public CompressedTupleReader(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+
+        try {
+            this.numberOfPages = channel.size() / Database.PAGE_SIZE;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        this.bb = ByteBuffer.allocateDirect(Database.PAGE_SIZE);
+        this.ib = this.bb.asIntBuffer();
+        this.headerBuffer = ByteBuffer.allocate(CompressedPage.HEADER_WORDS * 4);
+        this.page = new int[CompressedPage.WORDS];
+
+        this.columns = new int[0][0];
+
+        this.pageStarts = new long[16];
+        this.knownPages = 0;
+        this.knownTuples = 0;
+
+        this.pageNumber = -1;
+        this.pageTuples = 0;
+        this.index = 0;
+    }
+
+    /**
+     * Get a new instance of a compressed reader.
+     *
+     * @param path The path for the compressed file.
+     * @return The instance of the reader.
+     */
+    public static CompressedTupleReader get(Path path) {
+        try {
+            return new CompressedTupleReader(path, FileChannel.open(path, StandardOpenOption.READ));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Check whether a file holds compressed pages, by looking at the start of its first page.
+     *
+     * @param path The path of the file.
+     * @return True if the file exists and starts with a compressed page.
+     */
+    public static boolean isCompressed(Path path) {
+        if (!Files.exists(path)) {
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4);
+
+            if (channel.read(buffer, 0) < 4) {
+                return false;
+            }
+
+            return buffer.getInt(0) == CompressedPage.MAGIC;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Tuple peek() {
+        if (!this.nextTupleOnPage()) {
+            return null;
+        }
+
+        int[] fields = new int[this.columns.length];
+
+        for (int column = 0; column < fields.length; column++) {
+            fields[column] = this.columns[column][this.index];
+        }
+
+        return new Tuple(fields);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public boolean hasNext() {
+        return this.nextTupleOnPage();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Tuple next() {
+        Tuple next = this.peek();
+
+        if (next != null) {
+            this.index += 1;
+        }
+
+        return next;
+    }
+
+    /**
+     * The decoded columns are copied straight into the batch.
+     *
+     * @inheritDoc
+     */
+    @Override
+    public int next(TupleBatch batch) {
+        int read = 0;
+
+        while (!batch.isFull() && this.nextTupleOnPage()) {
+            int start = batch.size();
+            int count = Math.min(this.pageTuples - this.index, batch.capacity() - start);
+
+            for (int column = 0; column < this.columns.length; column++) {
+                System.arraycopy(this.columns[column], this.index, batch.columns[column], start, count);
+            }
+
+            batch.setSize(start + count);
+            this.index += count;
+            read += count;
+        }
+
+        return read;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void seek(long index) {
+        while (this.knownTuples <= index && this.knownPages < this.numberOfPages) {
+            this.readHeader(this.knownPages);
+        }
+
+        if (index >= this.knownTuples) {
+            // Past the last tuple, leave the reader at the end of the file.
+            this.pageNumber = this.numberOfPages;
+            this.pageTuples = 0;
+            this.index = 0;
+            return;
+        }
+
+        int page = Arrays.binarySearch(this.pageStarts, 0, this.knownPages, index);
+
+        if (page < 0) {
+            page = -page - 2;
+        }
+
+        if (this.pageNumber != page) {
+            this.loadPage(page);
+        }
+
+        this.index = (int) (index - this.pageStarts[page]);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void close() {
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Make sure the read header points to a tuple, moving on to the next page if the current one has been read.
+     *
+     * @return Whether or not there is a tuple at the read header.
+     */
+    private boolean nextTupleOnPage() {
+        while (this.pageNumber == -1 || this.index >= this.pageTuples) {
+            if (this.pageNumber + 1 >= this.numberOfPages) {
+                return false;
+            }
+
+            this.loadPage(this.pageNumber + 1);
+            this.index = 0;
+        }
+
+        return true;
+    }
+
+    /**
+     * Read and decode a page.
+     *
+     * @param pageIndex The index of the page in the file.
+     */
+    private void loadPage(long pageIndex) {
+        this.bb.clear();
+
+        try {
+            while (this.bb.hasRemaining()) {
+                if (this.channel.read(this.bb, pageIndex * Database.PAGE_SIZE + this.bb.position()) == -1) {
+                    throw new IOException("Error reading compressed file: " + this.path + " page " + pageIndex + " is incomplete");
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        DiskIOStatistics.reads.increment();
+
+        this.ib.clear();
+        this.ib.get(this.page);
+
+        if (this.page[0] != CompressedPage.MAGIC) {
+            throw new RuntimeException("Not a compressed page: " + this.path + " page " + pageIndex);
+        }
+
+        int columnCount = CompressedPage.getColumns(this.page);
+        int tuples = CompressedPage.getTuples(this.page);
+
+        if (this.columns.length != columnCount || this.columns.length > 0 && this.columns[0].length < tuples) {
+            this.columns = new int[columnCount][Math.max(tuples, this.columns.length > 0 ? this.columns[0].length : 0)];
+        }
+
+        CompressedPage.decode(this.page, this.columns);
+
+        this.recordPage(pageIndex, tuples);
+
+        this.pageNumber = pageIndex;
+        this.pageTuples = tuples;
+    }
+
+    /**
+     * Read only the header of a page, to find out how many tuples it holds.
+     *
+     * @param pageIndex The index of the page in the file.
+     */
+    private void readHeader(long pageIndex) {
+        this.headerBuffer.clear();
+
+        try {
+            while (this.headerBuffer.hasRemaining()) {
+                if (this.channel.read(this.headerBuffer, pageIndex * Database.PAGE_SIZE + this.headerBuffer.position()) == -1) {
+                    throw new IOException("Error reading compressed file: " + this.path + " page " + pageIndex + " is incomplete");
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        DiskIOStatistics.reads.increment();
+
+        this.recordPage(pageIndex, this.headerBuffer.getInt(8));
+    }
+
+    /**
+     * Record where a page starts, if it is the page after the last one seen.
+     *
+     * @param pageIndex The index of the page in the file.
+     * @param tuples    The number of tuples on the page.
+     */
+    private void recordPage(long pageIndex, int tuples) {
+        if (pageIndex != this.knownPages) {
+            return;
+        }
+
+        if (this.knownPages == this.pageStarts.length) {
+            this.pageStarts = Arrays.copyOf(this.pageStarts, this.pageStarts.length * 2);
+        }
+
+        this.pageStarts[this.knownPages] = this.knownTuples;
+        this.knownPages += 1;
+        this.knownTuples += tuples;
+    }
+}
@@ -0,0 +1,217 @@
+package db.datastore.tuple.compressed;
+
+import db.datastore.Database;
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.datastore.tuple.TupleWriter;
+import db.performance.DiskIOStatistics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes tuples in the compressed page format described in {@link CompressedPage}.
+ * <p>
+ * Tuples are collected column by column until the page would overflow, the page is then encoded and written. The size
+ * of the page is tracked using the frame of reference encoding, which is never smaller than the encoding chosen.
+ *
+ * @inheritDoc
+ */
+public class CompressedTupleWriter implements TupleWriter {
+    /**
+     * Caps the number of tuples on a page, as columns of a single value take no space at all.
+     */
+    private static final int MAX_TUPLES = 8192;
+
+    private final FileChannel channel;
+    private final int columnCount;
+
+    private final ByteBuffer bb;
+    private final IntBuffer ib;
+    private final int[] page;
+
+    private final int[][] columns;
+    private final int[] minimums;
+    private final int[] maximums;
+
+    private int count;
+
+    /**
+     * Create a new writer with the provided header and write it to the specified channel.
+     *
+     * @param header  The header of the input tuples.
+     * @param channel The output channel.
+     */
+    public CompressedTupleWriter(TableHeader header, FileChannel channel) {
+        this.channel = channel;
+        this.columnCount = header.size();
+
+        this.bb = ByteBuffer.allocateDirect(Database.PAGE_SIZE);
+        this.ib = this.bb.asIntBuffer();
+        this.page = new int[CompressedPage.WORDS];
+
+        this.columns = new int[this.columnCount][MAX_TUPLES];
+        this.minimums = new int[this.columnCount];
+        this.maximums = new int[this.columnCount];
+
+        this.clearPage();
+    }
+
+    /**
+     * Create a new writer outputting compressed tuples to the specified file, replacing any previous contents.
+     *
+     * @param header The relation header.
+     * @param file   The output file. Will be created if it doesn't exist
+     * @return The writer instance.
+     */
+    public static CompressedTupleWriter get(TableHeader header, Path file) {
+        Database.invalidatePages(file);
+
+        try {
+            return new CompressedTupleWriter(header, FileChannel.open(
+                    file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void write(Tuple tuple) {
+        if (!this.fits(tuple.fields)) {
+            this.flush();
+        }
+
+        for (int column = 0; column < this.columnCount; column++) {
+            this.add(column, tuple.fields[column]);
+        }
+
+        this.count += 1;
+    }
+
+    /**
+     * The rows are appended straight from the batch columns, without creating tuples.
+     *
+     * @inheritDoc
+     */
+    @Override
+    public void write(TupleBatch batch) {
+        int[] row = new int[this.columnCount];
+
+        for (int i = 0; i < batch.size(); i++) {
+            for (int column = 0; column < this.columnCount; column++) {
+                row[column] = batch.columns[column][i];
+            }
+
+            if (!this.fits(row)) {
+                this.flush();
+            }
+
+            for (int column = 0; column < this.columnCount; column++) {
+                this.add(column, row[column]);
+            }
+
+            this.count += 1;
+        }
+    }
+
+    /**
+     * Encode and write the current page, if it holds any tuples.
+     *
+     * @inheritDoc
+     */
+    @Override
+    public void flush() {
+        if (this.count == 0) {
+            return;
+        }
+
+        Arrays.fill(this.page, 0);
+        CompressedPage.encode(this.columns, this.count, this.page);
+
+        this.bb.clear();
+        this.ib.clear();
+        this.ib.put(this.page);
+
+        try {
+            while (this.bb.hasRemaining()) {
+                this.channel.write(this.bb);
+            }
+
+            DiskIOStatistics.writes.increment();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        this.clearPage();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void close() {
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Check whether the page still has room for a row.
+     *
+     * @param row The values of the row.
+     * @return Whether the page would still fit after adding the row.
+     */
+    private boolean fits(int[] row) {
+        if (this.count >= MAX_TUPLES) {
+            return false;
+        }
+
+        int words = CompressedPage.HEADER_WORDS;
+
+        for (int column = 0; column < this.columnCount; column++) {
+            int value = row[column];
+            int minimum = this.count == 0 ? value : Math.min(this.minimums[column], value);
+            int maximum = this.count == 0 ? value : Math.max(this.maximums[column], value);
+
+            words += CompressedPage.frameOfReferenceWords(this.count + 1, minimum, maximum);
+        }
+
+        return words <= CompressedPage.WORDS || this.count == 0;
+    }
+
+    /**
+     * Append a value to a column of the page.
+     *
+     * @param column The column index.
+     * @param value  The value.
+     */
+    private void add(int column, int value) {
+        if (this.count == 0) {
+            this.minimums[column] = value;
+            this.maximums[column] = value;
+        } else {
+            this.minimums[column] = Math.min(this.minimums[column], value);
+            this.maximums[column] = Math.max(this.maximums[column], value);
+        }
+
+        this.columns[column][this.count] = value;
+    }
+
+    /**
+     * Start a new, empty page.
+     */
+    private void clearPage() {
+        this.count = 0;
+    }
+}
@@ -7,7 +7,6 @@ import db.datastore.tuple.TupleReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.Scanner;
 
 /**
@@ -100,11 +99,11 @@ public class StringTupleReader implements TupleReader {
     private Tuple getNextTuple() {
         if (this.tableFile.hasNextLine()) {
             int cellNumber = this.header.columnNames.size();
-            ArrayList<Integer> row = new ArrayList<>();
+            int[] row = new int[cellNumber];
 
             for (int i = 0; i < cellNumber; i++) {
                 if (this.tableFile.hasNextInt()) {
-                    row.add(this.tableFile.nextInt());
+                    row[i] = this.tableFile.nextInt();
                 } else {
                     return null;
                 }
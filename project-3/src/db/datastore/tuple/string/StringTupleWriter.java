@@ -8,6 +8,7 @@ import java.io.OutputStream;
 import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.stream.Collectors;
 
 /**
@@ -51,8 +52,8 @@ public class StringTupleWriter implements TupleWriter {
      */
     @Override
     public void write(Tuple tuple) {
-        String line = tuple.fields.stream()
-                .map(Object::toString)
+        String line = Arrays.stream(tuple.fields)
+                .mapToObj(Integer::toString)
                 .collect(Collectors.joining(","));
 
         this.output.println(line);
@@ -0,0 +1,125 @@
+package db.operators;
+
+import db.Utilities.Utilities;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.List;
+
+/**
+ * An aggregate function of a query, computed over an integer column, or over whole tuples for COUNT(*).
+ */
+public class Aggregate {
+    /**
+     * The supported aggregate functions, AVG is rounded towards zero as its result is an integer.
+     */
+    public enum Type {
+        COUNT,
+        SUM,
+        MIN,
+        MAX,
+        AVG
+    }
+
+    public final Type type;
+
+    /**
+     * The column the function is computed over, both are null for COUNT(*).
+     */
+    public final String tableIdentifier;
+    public final String columnName;
+
+    /**
+     * @param type            the aggregate function.
+     * @param tableIdentifier the table alias of the column, or null for COUNT(*).
+     * @param columnName      the column, or null for COUNT(*).
+     */
+    public Aggregate(Type type, String tableIdentifier, String columnName) {
+        this.type = type;
+        this.tableIdentifier = tableIdentifier;
+        this.columnName = columnName;
+    }
+
+    /**
+     * Read an aggregate from a function of the SELECT clause.
+     *
+     * @param function the parsed function.
+     * @return the aggregate.
+     */
+    @SuppressWarnings("unchecked")
+    public static Aggregate fromFunction(Function function) {
+        Type type;
+
+        try {
+            type = Type.valueOf(function.getName().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unsupported aggregate function " + function);
+        }
+
+        if (function.isDistinct()) {
+            throw new RuntimeException("Unsupported aggregate function " + function);
+        }
+
+        if (function.isAllColumns()) {
+            if (type != Type.COUNT) {
+                throw new RuntimeException("Only COUNT can be computed over *: " + function);
+            }
+
+            return new Aggregate(type, null, null);
+        }
+
+        List<Expression> parameters = function.getParameters() == null ? null : function.getParameters().getExpressions();
+
+        if (parameters == null || parameters.size() != 1 || !(parameters.get(0) instanceof Column)) {
+            throw new RuntimeException("Aggregates must be computed over a single column: " + function);
+        }
+
+        Column column = (Column) parameters.get(0);
+
+        return new Aggregate(type, Utilities.getIdentifier(column.getTable()), column.getColumnName());
+    }
+
+    /**
+     * @return whether the function is computed over whole tuples rather than a column.
+     */
+    public boolean isCountAll() {
+        return this.columnName == null;
+    }
+
+    /**
+     * The aggregate column of the result belongs to the table of its argument, so that its qualified name has no
+     * other dot than the one after the table, as in S.SUM(A).
+     *
+     * @return the table identifier of the aggregate column, empty for COUNT(*).
+     */
+    public String getResultTable() {
+        return this.isCountAll() ? "" : this.tableIdentifier;
+    }
+
+    /**
+     * @return the name of the aggregate column of the result, such as SUM(A).
+     */
+    public String getResultColumn() {
+        return this.type + "(" + (this.isCountAll() ? "*" : this.columnName) + ")";
+    }
+
+    /**
+     * @return the name of the aggregate as written in a query, such as SUM(S.A).
+     */
+    public String getName() {
+        if (this.isCountAll()) {
+            return this.type + "(*)";
+        }
+
+        return this.type + "(" + this.tableIdentifier + "." + this.columnName + ")";
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public String toString() {
+        return this.getName();
+    }
+}
@@ -0,0 +1,80 @@
+package db.operators.logical;
+
+import db.datastore.TableHeader;
+import db.operators.Aggregate;
+import db.operators.UnaryNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A logical node which groups tuples and computes aggregates for every group. Its tuples hold the group columns,
+ * followed by one column per aggregate, such as S.SUM(A) or COUNT(*).
+ *
+ * @inheritDoc
+ */
+public class LogicalAggregateOperator implements LogicalOperator, UnaryNode<LogicalOperator> {
+    private final LogicalOperator source;
+    private final TableHeader groupHeader;
+    private final List<Aggregate> aggregates;
+    private final TableHeader header;
+
+    /**
+     * @param source      the child operator
+     * @param groupHeader the columns the tuples are grouped on, empty to aggregate the whole relation.
+     * @param aggregates  the aggregates computed for every group.
+     */
+    public LogicalAggregateOperator(LogicalOperator source, TableHeader groupHeader, List<Aggregate> aggregates) {
+        this.source = source;
+        this.groupHeader = groupHeader;
+        this.aggregates = aggregates;
+
+        List<String> tables = new ArrayList<>(groupHeader.tableIdentifiers);
+        List<String> columns = new ArrayList<>(groupHeader.columnNames);
+
+        for (Aggregate aggregate : aggregates) {
+            tables.add(aggregate.getResultTable());
+            columns.add(aggregate.getResultColumn());
+        }
+
+        this.header = new TableHeader(tables, columns);
+    }
+
+    /**
+     * @return the columns the tuples are grouped on.
+     */
+    public TableHeader getGroupHeader() {
+        return groupHeader;
+    }
+
+    /**
+     * @return the aggregates computed for every group.
+     */
+    public List<Aggregate> getAggregates() {
+        return aggregates;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public TableHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void accept(LogicalTreeVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public LogicalOperator getChild() {
+        return source;
+    }
+}
@@ -0,0 +1,69 @@
+package db.operators.logical;
+
+import db.datastore.TableHeader;
+import db.operators.UnaryNode;
+
+/**
+ * A logical node which keeps only a range of the tuples of its child, as given by LIMIT and OFFSET.
+ *
+ * @inheritDoc
+ */
+public class LogicalLimitOperator implements LogicalOperator, UnaryNode<LogicalOperator> {
+    /**
+     * The limit of LIMIT ALL, or of an OFFSET without a LIMIT, which returns every tuple after the offset.
+     */
+    public static final long ALL = Long.MAX_VALUE;
+
+    private final LogicalOperator source;
+    private final long offset;
+    private final long limit;
+
+    /**
+     * @param source the child operator.
+     * @param offset the number of tuples skipped before the first one which is returned.
+     * @param limit  the maximum number of tuples returned.
+     */
+    public LogicalLimitOperator(LogicalOperator source, long offset, long limit) {
+        this.source = source;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * @return the number of tuples skipped before the first one which is returned.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the maximum number of tuples returned.
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public LogicalOperator getChild() {
+        return source;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public TableHeader getHeader() {
+        return source.getHeader();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void accept(LogicalTreeVisitor visitor) {
+        visitor.visit(this);
+    }
+}
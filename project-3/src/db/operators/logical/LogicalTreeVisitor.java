@@ -33,4 +33,14 @@ public interface LogicalTreeVisitor {
      * @param node the distinct operator to visit.
      */
     void visit(LogicalDistinctOperator node);
+
+    /**
+     * @param node the aggregate operator to visit.
+     */
+    void visit(LogicalAggregateOperator node);
+
+    /**
+     * @param node the limit operator to visit.
+     */
+    void visit(LogicalLimitOperator node);
 }
@@ -1,6 +1,7 @@
 package db.operators.physical;
 
 import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
 
 /**
  * An operator class which provides default implementations of several simple methods:
@@ -9,12 +10,14 @@ import db.datastore.tuple.Tuple;
  */
 public abstract class AbstractOperator implements Operator {
     protected Tuple next;
+    private TupleBatch batch;
 
     /**
      * Create a new operator with no cached tuples.
      */
     public AbstractOperator() {
         this.next = null;
+        this.batch = null;
     }
 
     /**
@@ -45,4 +48,67 @@ public abstract class AbstractOperator implements Operator {
 
         return this.next;
     }
+
+    /**
+     * Any tuple which has already been peeked is returned at the head of the batch, the rest of that batch is built
+     * one tuple at a time.
+     *
+     * @inheritDoc
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        if (this.next == null) {
+            return this.generateNextBatch();
+        }
+
+        TupleBatch batch = this.getBatchBuffer();
+        batch.clear();
+        batch.add(this.next);
+        this.next = null;
+
+        return this.fillBatch(batch);
+    }
+
+    /**
+     * Compute a batch of tuples from the underlying operator/file.
+     * <p>
+     * By default the batch is built by calling {@link #generateNextTuple()}, db.operators which can do better
+     * override this.
+     *
+     * @return a non empty batch, or null if there are no more tuples.
+     */
+    protected TupleBatch generateNextBatch() {
+        TupleBatch batch = this.getBatchBuffer();
+        batch.clear();
+
+        return this.fillBatch(batch);
+    }
+
+    /**
+     * Get the batch owned by this operator, it is created on first use and reused afterwards.
+     *
+     * @return the cleared or partially filled batch.
+     */
+    protected TupleBatch getBatchBuffer() {
+        if (this.batch == null) {
+            this.batch = new TupleBatch(this.getHeader().size(), TupleBatch.DEFAULT_CAPACITY);
+        }
+
+        return this.batch;
+    }
+
+    /**
+     * Append tuples from {@link #generateNextTuple()} until the batch is full or the operator is exhausted.
+     *
+     * @param batch the batch to fill.
+     * @return the batch, or null if it is empty.
+     */
+    private TupleBatch fillBatch(TupleBatch batch) {
+        Tuple tuple;
+        while (!batch.isFull() && (tuple = this.generateNextTuple()) != null) {
+            batch.add(tuple);
+        }
+
+        return batch.isEmpty() ? null : batch;
+    }
 }
@@ -2,6 +2,7 @@ package db.operators.physical;
 
 import db.datastore.TableHeader;
 import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
 import db.datastore.tuple.TupleWriter;
 
 /**
@@ -35,6 +36,28 @@ public interface Operator {
      */
     Tuple peekNextTuple();
 
+    /**
+     * Retrieve or generate the next batch of tuples in the table.
+     * <p>
+     * The batch is owned by the operator and is only valid until the next call on this operator. The caller may
+     * modify the batch in place, eg. to filter it.
+     * <p>
+     * This default implementation builds the batch one tuple at a time, so tuple at a time db.operators can be
+     * used in batch pipelines.
+     *
+     * @return The next non empty batch, or a null if there are no more tuples.
+     */
+    default TupleBatch getNextBatch() {
+        TupleBatch batch = new TupleBatch(this.getHeader().size(), TupleBatch.DEFAULT_CAPACITY);
+
+        Tuple record;
+        while (!batch.isFull() && (record = this.getNextTuple()) != null) {
+            batch.add(record);
+        }
+
+        return batch.isEmpty() ? null : batch;
+    }
+
     /**
      * Indicate whether or not there is a next tuple to retrieve.
      *
@@ -79,10 +102,11 @@ public interface Operator {
      * @return The number of tuples outputted.
      */
     default int dump(TupleWriter writer) {
-        Tuple record;
-        int i;
-        for (i = 0; (record = this.getNextTuple()) != null; i++) {
-            writer.write(record);
+        TupleBatch batch;
+        int i = 0;
+        while ((batch = this.getNextBatch()) != null) {
+            writer.write(batch);
+            i += batch.size();
         }
 
         writer.flush();
@@ -3,11 +3,15 @@ package db.operators.physical;
 import db.operators.physical.bag.JoinOperator;
 import db.operators.physical.bag.ProjectionOperator;
 import db.operators.physical.bag.SelectionOperator;
+import db.operators.physical.extended.AggregateOperator;
 import db.operators.physical.extended.DistinctOperator;
+import db.operators.physical.extended.HashDistinctOperator;
+import db.operators.physical.extended.LimitOperator;
 import db.operators.physical.extended.SortOperator;
 import db.operators.physical.physical.IndexScanOperator;
 import db.operators.physical.physical.ScanOperator;
 import db.operators.physical.utility.BlockCacheOperator;
+import db.operators.physical.utility.MaterializeOperator;
 
 /**
  * A visitor for the physical operators.
@@ -38,6 +42,21 @@ public interface PhysicalTreeVisitor {
      */
     void visit(DistinctOperator node);
 
+    /**
+     * @param node the hash distinct node to visit.
+     */
+    void visit(HashDistinctOperator node);
+
+    /**
+     * @param node the aggregate node to visit.
+     */
+    void visit(AggregateOperator node);
+
+    /**
+     * @param node the limit node to visit.
+     */
+    void visit(LimitOperator node);
+
     /**
      * @param node the sort node to visit.
      */
@@ -48,6 +67,11 @@ public interface PhysicalTreeVisitor {
      */
     void visit(BlockCacheOperator node);
 
+    /**
+     * @param node the materialization node to visit.
+     */
+    void visit(MaterializeOperator node);
+
     /**
      * @param node the index scan node to visit.
      */
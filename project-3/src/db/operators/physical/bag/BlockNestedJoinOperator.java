@@ -1,8 +1,10 @@
 package db.operators.physical.bag;
 
+import db.Utilities.DaemonThreads;
 import db.datastore.Database;
 import db.datastore.TableHeader;
 import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
 import db.operators.logical.LogicalJoinOperator;
 import db.operators.physical.AbstractOperator;
 import db.operators.physical.Operator;
@@ -11,14 +13,30 @@ import db.operators.physical.utility.BlockCacheOperator;
 import db.query.visitors.ExpressionEvaluator;
 import net.sf.jsqlparser.expression.Expression;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
 /**
  * This operator performs a join between the tuples of the two child db.operators.
  * <p>
- * It uses the block nested loop join.
+ * It uses the block nested loop join. With more than one thread, each chunk of right tuples is joined with slices of
+ * the left block on a pool of workers, each with its own evaluator.
  *
  * @inheritDoc
  */
 public class BlockNestedJoinOperator extends AbstractOperator implements JoinOperator {
+    private static final ExecutorService JOIN_THREADS = DaemonThreads.cachedPool("join");
+
+    /**
+     * The number of left and right pairs the workers evaluate at a time, which bounds the output buffered per chunk.
+     */
+    private static final int PAIRS_PER_CHUNK = 1 << 16;
+
     private final BlockCacheOperator left;
     private final Operator right;
 
@@ -27,6 +45,21 @@ public class BlockNestedJoinOperator extends AbstractOperator implements JoinOpe
 
     private Tuple rightTuple;
 
+    private final int threads;
+    private final boolean preserveOrder;
+
+    /**
+     * One evaluator per worker, as evaluators are not thread safe. Null if there is no join condition.
+     */
+    private final ExpressionEvaluator[] workerEvaluators;
+
+    /**
+     * The joined batches computed by the workers and not returned yet, along with the position in the first one.
+     */
+    private final Deque<TupleBatch> pending;
+    private int pendingRow;
+    private boolean done;
+
     /**
      * Create an object which joins left and right tuples and filters results based on a conditional clause
      *
@@ -47,15 +80,38 @@ public class BlockNestedJoinOperator extends AbstractOperator implements JoinOpe
      * @param pagesBuffered The number of pages of tuples which live in the cache.
      */
     public BlockNestedJoinOperator(Operator left, Operator right, Expression expression, int pagesBuffered) {
+        this(left, right, expression, pagesBuffered, 1, true);
+    }
+
+    /**
+     * Create an object which joins left and right tuples and filters results based on a conditional clause
+     *
+     * @param left          The operator which generates the left hand tuples.
+     * @param right         The operator which generates the right hand tuples.
+     * @param expression    The expression to evaluate the resulting tuples on.
+     * @param pagesBuffered The number of pages of tuples which live in the cache.
+     * @param threads       The number of workers the left block is split across, 1 joins on the calling thread.
+     * @param preserveOrder Whether the workers' output is merged back into the order of a single threaded join.
+     */
+    public BlockNestedJoinOperator(Operator left, Operator right, Expression expression, int pagesBuffered, int threads, boolean preserveOrder) {
         this.left = new BlockCacheOperator(left, pagesBuffered * Database.PAGE_SIZE);
         this.right = right;
         this.resultHeader = LogicalJoinOperator.computeHeader(left.getHeader(), right.getHeader());
+        this.threads = Math.max(1, threads);
+        this.preserveOrder = preserveOrder;
+        this.pending = new ArrayDeque<>();
         this.reset();
 
         if (expression != null) {
             this.evaluator = new ExpressionEvaluator(expression, this.getHeader());
+            this.workerEvaluators = new ExpressionEvaluator[this.threads];
+
+            for (int i = 0; i < this.threads; i++) {
+                this.workerEvaluators[i] = new ExpressionEvaluator(expression, this.getHeader());
+            }
         } else {
             this.evaluator = null;
+            this.workerEvaluators = null;
         }
     }
 
@@ -66,6 +122,22 @@ public class BlockNestedJoinOperator extends AbstractOperator implements JoinOpe
      */
     @Override
     protected Tuple generateNextTuple() {
+        if (this.threads > 1) {
+            if (!this.fillPending()) {
+                return null;
+            }
+
+            TupleBatch head = this.pending.peekFirst();
+            Tuple tuple = head.getTuple(this.pendingRow++);
+
+            if (this.pendingRow >= head.size()) {
+                this.pending.removeFirst();
+                this.pendingRow = 0;
+            }
+
+            return tuple;
+        }
+
         while (true) {
             if (rightTuple == null) {
                 return null;
@@ -86,6 +158,7 @@ public class BlockNestedJoinOperator extends AbstractOperator implements JoinOpe
 
                 // if we're out of left and right tuples, then we're done.
                 if (!this.left.loadNextBlock()) {
+                    this.rightTuple = null;
                     return null;
                 }
             }
@@ -96,6 +169,238 @@ public class BlockNestedJoinOperator extends AbstractOperator implements JoinOpe
         }
     }
 
+    /**
+     * The joined rows are written into the batch and filtered there, so no tuples are created for pairs which
+     * fail the predicate.
+     *
+     * @inheritDoc
+     */
+    @Override
+    protected TupleBatch generateNextBatch() {
+        if (this.threads > 1) {
+            return this.nextPendingBatch();
+        }
+
+        TupleBatch batch = this.getBatchBuffer();
+        batch.clear();
+
+        while (!batch.isFull() && rightTuple != null) {
+            // Iterate through the left block, joining each to the right tuple until the batch is full
+            while (!batch.isFull() && this.left.hasNext()) {
+                int row = batch.addJoined(this.left.getNextTuple(), rightTuple);
+
+                if (evaluator != null && !evaluator.matches(batch, row)) {
+                    batch.truncate(row);
+                }
+            }
+
+            if (batch.isFull()) {
+                break;
+            }
+
+            // If the right tuples have run out, reset the right stream and load the next left block
+            if (!this.right.hasNextTuple()) {
+                this.right.reset();
+
+                // if we're out of left and right tuples, then we're done.
+                if (!this.left.loadNextBlock()) {
+                    this.rightTuple = null;
+                    break;
+                }
+            }
+
+            // Block is empty so load next right tuple.
+            this.rightTuple = this.right.getNextTuple();
+            this.left.resetPage();
+        }
+
+        return batch.isEmpty() ? null : batch;
+    }
+
+    /**
+     * @return the next batch computed by the workers, or null if the join is done.
+     */
+    private TupleBatch nextPendingBatch() {
+        if (!this.fillPending()) {
+            return null;
+        }
+
+        TupleBatch head = this.pending.removeFirst();
+
+        if (this.pendingRow == 0) {
+            return head;
+        }
+
+        // Some rows were already returned one at a time
+        TupleBatch batch = this.getBatchBuffer();
+        batch.clear();
+        batch.addRows(head, this.pendingRow, head.size());
+        this.pendingRow = 0;
+
+        return batch;
+    }
+
+    /**
+     * Run the workers on chunks of right tuples until some joined tuples are pending.
+     *
+     * @return false if the join is done.
+     */
+    private boolean fillPending() {
+        while (this.pending.isEmpty()) {
+            if (this.done) {
+                return false;
+            }
+
+            List<Tuple> block = this.left.getBlock();
+
+            if (block.isEmpty()) {
+                this.done = true;
+                return false;
+            }
+
+            List<Tuple> chunk = new ArrayList<>();
+            int chunkSize = Math.max(1, PAIRS_PER_CHUNK / block.size());
+
+            Tuple tuple;
+            while (chunk.size() < chunkSize && (tuple = this.right.getNextTuple()) != null) {
+                chunk.add(tuple);
+            }
+
+            if (chunk.isEmpty()) {
+                // The right tuples have run out, reset the right stream and load the next left block
+                this.right.reset();
+
+                if (!this.left.loadNextBlock()) {
+                    this.done = true;
+                    return false;
+                }
+
+                continue;
+            }
+
+            this.joinChunk(block, chunk);
+        }
+
+        return true;
+    }
+
+    /**
+     * Join a chunk of right tuples with the left block, the block is split in one slice per worker.
+     *
+     * @param block The left block.
+     * @param chunk The right tuples.
+     */
+    private void joinChunk(List<Tuple> block, List<Tuple> chunk) {
+        int slices = Math.min(this.threads, block.size());
+        List<Future<JoinedSlice>> futures = new ArrayList<>(slices);
+
+        for (int i = 0; i < slices; i++) {
+            List<Tuple> slice = block.subList(block.size() * i / slices, block.size() * (i + 1) / slices);
+            ExpressionEvaluator sliceEvaluator = this.workerEvaluators != null ? this.workerEvaluators[i] : null;
+
+            futures.add(JOIN_THREADS.submit(() -> this.joinSlice(slice, chunk, sliceEvaluator)));
+        }
+
+        List<JoinedSlice> joined = new ArrayList<>(slices);
+
+        try {
+            for (Future<JoinedSlice> future : futures) {
+                joined.add(future.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+
+        if (!this.preserveOrder) {
+            for (JoinedSlice slice : joined) {
+                for (TupleBatch batch : slice.batches) {
+                    if (!batch.isEmpty()) {
+                        this.pending.addLast(batch);
+                    }
+                }
+            }
+
+            return;
+        }
+
+        // A single threaded join outputs all matches of a right tuple in left order, so take them slice by slice
+        int[] starts = new int[slices];
+
+        for (int row = 0; row < chunk.size(); row++) {
+            for (int i = 0; i < slices; i++) {
+                JoinedSlice slice = joined.get(i);
+                int end = slice.ends[row];
+
+                while (starts[i] < end) {
+                    TupleBatch source = slice.batches.get(starts[i] / TupleBatch.DEFAULT_CAPACITY);
+                    int from = starts[i] % TupleBatch.DEFAULT_CAPACITY;
+                    int to = Math.min(source.size(), from + end - starts[i]);
+
+                    TupleBatch target = this.pending.peekLast();
+
+                    if (target == null || target.isFull()) {
+                        target = new TupleBatch(this.resultHeader.size(), TupleBatch.DEFAULT_CAPACITY);
+                        this.pending.addLast(target);
+                    }
+
+                    to = Math.min(to, from + target.capacity() - target.size());
+                    target.addRows(source, from, to);
+                    starts[i] += to - from;
+                }
+            }
+        }
+    }
+
+    /**
+     * Join a slice of the left block with a chunk of right tuples, runs on a worker.
+     *
+     * @param slice          The left tuples.
+     * @param chunk          The right tuples.
+     * @param sliceEvaluator The evaluator owned by this worker, or null if there is no condition.
+     * @return The joined tuples.
+     */
+    private JoinedSlice joinSlice(List<Tuple> slice, List<Tuple> chunk, ExpressionEvaluator sliceEvaluator) {
+        JoinedSlice joined = new JoinedSlice(chunk.size());
+        TupleBatch batch = null;
+        int count = 0;
+
+        for (int row = 0; row < chunk.size(); row++) {
+            Tuple rightTuple = chunk.get(row);
+
+            for (Tuple leftTuple : slice) {
+                if (batch == null || batch.isFull()) {
+                    batch = new TupleBatch(this.resultHeader.size(), TupleBatch.DEFAULT_CAPACITY);
+                    joined.batches.add(batch);
+                }
+
+                int joinedRow = batch.addJoined(leftTuple, rightTuple);
+
+                if (sliceEvaluator != null && !sliceEvaluator.matches(batch, joinedRow)) {
+                    batch.truncate(joinedRow);
+                } else {
+                    count++;
+                }
+            }
+
+            joined.ends[row] = count;
+        }
+
+        return joined;
+    }
+
+    /**
+     * The output of a worker: full batches of joined tuples, and the number of tuples joined up to each right tuple.
+     */
+    private static class JoinedSlice {
+        final List<TupleBatch> batches;
+        final int[] ends;
+
+        JoinedSlice(int chunkSize) {
+            this.batches = new ArrayList<>();
+            this.ends = new int[chunkSize];
+        }
+    }
+
 
     /**
      * @inheritDoc
@@ -110,8 +415,13 @@ public class BlockNestedJoinOperator extends AbstractOperator implements JoinOpe
      */
     @Override
     public boolean reset() {
+        this.pending.clear();
+        this.pendingRow = 0;
+        this.done = false;
+
         if (left.reset() && right.reset()) {
-            this.rightTuple = this.right.getNextTuple();
+            // The workers read the right tuples in chunks themselves
+            this.rightTuple = this.threads > 1 ? null : this.right.getNextTuple();
             return true;
         } else {
             return false;
@@ -0,0 +1,126 @@
+package db.operators.physical.bag;
+
+import db.Utilities.Utilities;
+import db.datastore.TableHeader;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The column equalities between the two sides of a join condition, which a hash join uses as its key.
+ */
+public class EquiJoinKeys {
+    public final int[] leftKeys;
+    public final int[] rightKeys;
+
+    /**
+     * The rest of the join condition, or null if the equalities are the whole condition.
+     */
+    public final Expression residual;
+
+    /**
+     * @param leftKeys  The key column indices in the left tuples.
+     * @param rightKeys The key column indices in the right tuples.
+     * @param residual  The rest of the join condition.
+     */
+    private EquiJoinKeys(int[] leftKeys, int[] rightKeys, Expression residual) {
+        this.leftKeys = leftKeys;
+        this.rightKeys = rightKeys;
+        this.residual = residual;
+    }
+
+    /**
+     * Split a conjunctive join condition into the equalities between a left and a right column, and everything else.
+     *
+     * @param condition   The join condition, may be null.
+     * @param leftHeader  The header of the left tuples.
+     * @param rightHeader The header of the right tuples.
+     * @return The keys of the join.
+     */
+    public static EquiJoinKeys fromCondition(Expression condition, TableHeader leftHeader, TableHeader rightHeader) {
+        List<Integer> leftKeys = new ArrayList<>();
+        List<Integer> rightKeys = new ArrayList<>();
+        List<Expression> residual = new ArrayList<>();
+
+        split(condition, leftHeader, rightHeader, leftKeys, rightKeys, residual);
+
+        Expression residualExpression = null;
+        for (Expression expression : residual) {
+            residualExpression = Utilities.joinExpression(residualExpression, expression);
+        }
+
+        return new EquiJoinKeys(
+                leftKeys.stream().mapToInt(Integer::intValue).toArray(),
+                rightKeys.stream().mapToInt(Integer::intValue).toArray(),
+                residualExpression
+        );
+    }
+
+    /**
+     * @return Whether the condition holds no equality between the two sides.
+     */
+    public boolean isEmpty() {
+        return this.leftKeys.length == 0;
+    }
+
+    /**
+     * Sort the conjuncts of an expression into key columns and residual expressions.
+     */
+    private static void split(Expression expression, TableHeader leftHeader, TableHeader rightHeader,
+                              List<Integer> leftKeys, List<Integer> rightKeys, List<Expression> residual) {
+        if (expression == null) {
+            return;
+        }
+
+        if (expression instanceof AndExpression) {
+            split(((AndExpression) expression).getLeftExpression(), leftHeader, rightHeader, leftKeys, rightKeys, residual);
+            split(((AndExpression) expression).getRightExpression(), leftHeader, rightHeader, leftKeys, rightKeys, residual);
+            return;
+        }
+
+        if (expression instanceof Parenthesis) {
+            split(((Parenthesis) expression).getExpression(), leftHeader, rightHeader, leftKeys, rightKeys, residual);
+            return;
+        }
+
+        if (expression instanceof EqualsTo) {
+            Expression a = ((EqualsTo) expression).getLeftExpression();
+            Expression b = ((EqualsTo) expression).getRightExpression();
+
+            if (a instanceof Column && b instanceof Column) {
+                Optional<Integer> leftA = resolve(leftHeader, (Column) a);
+                Optional<Integer> rightB = resolve(rightHeader, (Column) b);
+
+                if (leftA.isPresent() && rightB.isPresent()) {
+                    leftKeys.add(leftA.get());
+                    rightKeys.add(rightB.get());
+                    return;
+                }
+
+                Optional<Integer> leftB = resolve(leftHeader, (Column) b);
+                Optional<Integer> rightA = resolve(rightHeader, (Column) a);
+
+                if (leftB.isPresent() && rightA.isPresent()) {
+                    leftKeys.add(leftB.get());
+                    rightKeys.add(rightA.get());
+                    return;
+                }
+            }
+        }
+
+        residual.add(expression);
+    }
+
+    /**
+     * @return The index of the column in the header, if it is there.
+     */
+    private static Optional<Integer> resolve(TableHeader header, Column column) {
+        return header.resolve(column.getTable().getName(), column.getColumnName());
+    }
+}
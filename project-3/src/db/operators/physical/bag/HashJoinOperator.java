@@ -0,0 +1,232 @@
+package db.operators.physical.bag;
+
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.operators.logical.LogicalJoinOperator;
+import db.operators.physical.AbstractOperator;
+import db.operators.physical.Operator;
+import db.operators.physical.PhysicalTreeVisitor;
+import db.operators.physical.utility.TupleHashTable;
+import db.query.visitors.ExpressionEvaluator;
+import net.sf.jsqlparser.expression.Expression;
+
+/**
+ * A join which builds an in-memory hash table on the left relation, keyed on the equalities of the join condition,
+ * and probes it with each tuple of the right relation.
+ * <p>
+ * The whole left relation is held in memory, so it should be the smaller of the two. The join condition must hold at
+ * least one equality between a left and a right column.
+ *
+ * @inheritDoc
+ */
+public class HashJoinOperator extends AbstractOperator implements JoinOperator {
+    private final Operator left;
+    private final Operator right;
+
+    private final TableHeader resultHeader;
+    private final Expression predicate;
+    private final EquiJoinKeys keys;
+    private final ExpressionEvaluator evaluator;
+
+    private final TupleHashTable table;
+    private boolean built;
+
+    private Tuple rightTuple;
+    private int entry;
+
+    /**
+     * Create an object which joins left and right tuples on the equalities of the join condition.
+     *
+     * @param left       The operator which generates the left hand tuples, these are held in memory.
+     * @param right      The operator which generates the right hand tuples.
+     * @param expression The join condition, it must contain an equality between a left and a right column.
+     */
+    public HashJoinOperator(Operator left, Operator right, Expression expression) {
+        this.left = left;
+        this.right = right;
+        this.resultHeader = LogicalJoinOperator.computeHeader(left.getHeader(), right.getHeader());
+        this.predicate = expression;
+
+        this.keys = EquiJoinKeys.fromCondition(expression, left.getHeader(), right.getHeader());
+
+        if (this.keys.isEmpty()) {
+            throw new IllegalArgumentException("A hash join needs an equality between its relations: " + expression);
+        }
+
+        if (this.keys.residual != null) {
+            this.evaluator = new ExpressionEvaluator(this.keys.residual, this.getHeader());
+        } else {
+            this.evaluator = null;
+        }
+
+        this.table = new TupleHashTable(this.keys.leftKeys);
+        this.built = false;
+
+        this.rightTuple = null;
+        this.entry = -1;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    protected Tuple generateNextTuple() {
+        this.build();
+
+        while (true) {
+            while (this.entry != -1) {
+                Tuple joinedTuple = this.table.get(this.entry).join(this.rightTuple);
+                this.entry = this.table.findNext(this.entry, this.rightTuple.fields, this.keys.rightKeys);
+
+                if (this.evaluator == null || this.evaluator.matches(joinedTuple)) {
+                    return joinedTuple;
+                }
+            }
+
+            if (!this.nextProbe()) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * The matches are written into the batch and filtered there, so no tuples are created for pairs which fail the
+     * rest of the join condition.
+     *
+     * @inheritDoc
+     */
+    @Override
+    protected TupleBatch generateNextBatch() {
+        this.build();
+
+        TupleBatch batch = this.getBatchBuffer();
+        batch.clear();
+
+        while (!batch.isFull()) {
+            while (!batch.isFull() && this.entry != -1) {
+                int row = batch.addJoined(this.table.get(this.entry), this.rightTuple);
+                this.entry = this.table.findNext(this.entry, this.rightTuple.fields, this.keys.rightKeys);
+
+                if (this.evaluator != null && !this.evaluator.matches(batch, row)) {
+                    batch.truncate(row);
+                }
+            }
+
+            if (!batch.isFull() && !this.nextProbe()) {
+                break;
+            }
+        }
+
+        return batch.isEmpty() ? null : batch;
+    }
+
+    /**
+     * Read the left relation into the hash table, the first time tuples are requested.
+     */
+    private void build() {
+        if (this.built) {
+            return;
+        }
+
+        TupleBatch batch;
+        while ((batch = this.left.getNextBatch()) != null) {
+            for (int row = 0; row < batch.size(); row++) {
+                this.table.insert(batch.getTuple(row));
+            }
+        }
+
+        this.built = true;
+    }
+
+    /**
+     * Move on to the next right tuple and look up its first match.
+     *
+     * @return False if there are no more right tuples.
+     */
+    private boolean nextProbe() {
+        if (this.table.size() == 0) {
+            // Nothing can match, so there is no point in reading the right relation
+            return false;
+        }
+
+        this.rightTuple = this.right.getNextTuple();
+
+        if (this.rightTuple == null) {
+            return false;
+        }
+
+        this.entry = this.table.find(this.rightTuple.fields, this.keys.rightKeys);
+        return true;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public TableHeader getHeader() {
+        return this.resultHeader;
+    }
+
+    /**
+     * The hash table is kept, only the right relation is read again.
+     *
+     * @inheritDoc
+     */
+    @Override
+    public boolean reset() {
+        this.rightTuple = null;
+        this.entry = -1;
+
+        return this.right.reset();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void accept(PhysicalTreeVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void close() {
+        this.left.close();
+        this.right.close();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Expression getPredicate() {
+        return this.predicate;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Operator getLeft() {
+        return this.left;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Operator getRight() {
+        return this.right;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public String getJoinType() {
+        return "HJ";
+    }
+}
@@ -0,0 +1,407 @@
+package db.operators.physical.bag;
+
+import db.PhysicalPlanConfig.PageFormat;
+import db.PhysicalPlanConfig.ReaderImplementation;
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.operators.logical.LogicalJoinOperator;
+import db.operators.physical.AbstractOperator;
+import db.operators.physical.Operator;
+import db.operators.physical.PhysicalTreeVisitor;
+import db.operators.physical.utility.ExternalBlockCacheOperator;
+import db.operators.physical.utility.HashPartitions;
+import db.operators.physical.utility.TupleHashTable;
+import db.query.visitors.ExpressionEvaluator;
+import net.sf.jsqlparser.expression.Expression;
+
+import java.nio.file.Path;
+
+/**
+ * A hash join which keeps within a fixed number of buffer pages, by splitting both relations into partitions on the
+ * hash of their join key.
+ * <p>
+ * The left relation is partitioned first, every partition starts out in memory. Whenever the partitions in memory
+ * outgrow the buffer, the largest one is written to a temporary file, as are the left tuples which later fall into
+ * it. The right relation is then partitioned the same way: tuples of partitions in memory are joined straight away,
+ * the others are written to temporary files. Each pair of partitions on disk is joined afterwards by another hybrid
+ * hash join, which partitions on different bits of the hash. Partitions which can not be split any further, because
+ * their tuples share a key, are joined with a block nested loop join.
+ * <p>
+ * Both files of a partition on disk are written at the same time, so each spilled partition takes two pages of the
+ * buffer, see {@link HashPartitions}.
+ *
+ * @inheritDoc
+ */
+public class HybridHashJoinOperator extends AbstractOperator implements JoinOperator {
+    private static final int NONE = -1;
+    private static final int LEFT = 0;
+    private static final int RIGHT = 1;
+
+    private final Operator left;
+    private final Operator right;
+
+    private final TableHeader resultHeader;
+    private final Expression predicate;
+    private final EquiJoinKeys keys;
+    private final ExpressionEvaluator evaluator;
+
+    private final int bufferPages;
+    private final Path tempFolder;
+    private final ReaderImplementation readerImplementation;
+    private final PageFormat spillFormat;
+    private final int level;
+
+    private final HashPartitions partitions;
+    private int leftTuples;
+
+    private boolean built;
+    private boolean probed;
+
+    private Tuple rightTuple;
+    private TupleHashTable probeTable;
+    private int entry;
+
+    private int partition;
+    private Operator partitionJoin;
+
+    /**
+     * Create an object which joins left and right tuples on the equalities of the join condition.
+     *
+     * @param left                 The operator which generates the left hand tuples, which are partitioned first.
+     * @param right                The operator which generates the right hand tuples.
+     * @param expression           The join condition, it must contain an equality between a left and a right column.
+     * @param bufferPages          The number of pages of tuples held in memory.
+     * @param tempFolder           The folder which holds the partitions written to disk.
+     * @param readerImplementation The way pages of the partitions are read back from disk.
+     * @param spillFormat          The format of the pages of the partitions.
+     */
+    public HybridHashJoinOperator(Operator left, Operator right, Expression expression, int bufferPages, Path tempFolder,
+                                  ReaderImplementation readerImplementation, PageFormat spillFormat) {
+        this(left, right, expression, bufferPages, tempFolder, readerImplementation, spillFormat, 0);
+    }
+
+    /**
+     * @param level The number of times the relations have already been partitioned.
+     */
+    private HybridHashJoinOperator(Operator left, Operator right, Expression expression, int bufferPages, Path tempFolder,
+                                   ReaderImplementation readerImplementation, PageFormat spillFormat, int level) {
+        this.left = left;
+        this.right = right;
+        this.resultHeader = LogicalJoinOperator.computeHeader(left.getHeader(), right.getHeader());
+        this.predicate = expression;
+
+        this.keys = EquiJoinKeys.fromCondition(expression, left.getHeader(), right.getHeader());
+
+        if (this.keys.isEmpty()) {
+            throw new IllegalArgumentException("A hash join needs an equality between its relations: " + expression);
+        }
+
+        if (this.keys.residual != null) {
+            this.evaluator = new ExpressionEvaluator(this.keys.residual, this.getHeader());
+        } else {
+            this.evaluator = null;
+        }
+
+        this.bufferPages = Math.max(1, bufferPages);
+        this.tempFolder = tempFolder;
+        this.readerImplementation = readerImplementation;
+        this.spillFormat = spillFormat;
+        this.level = level;
+
+        this.partitions = new HashPartitions("Hash", this.keys.leftKeys,
+                new TableHeader[]{left.getHeader(), right.getHeader()}, this.bufferPages, level, tempFolder,
+                readerImplementation, spillFormat);
+
+        this.clear();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    protected Tuple generateNextTuple() {
+        this.build();
+
+        while (true) {
+            if (!this.probed) {
+                while (this.entry != NONE) {
+                    Tuple joinedTuple = this.probeTable.get(this.entry).join(this.rightTuple);
+                    this.entry = this.probeTable.findNext(this.entry, this.rightTuple.fields, this.keys.rightKeys);
+
+                    if (this.evaluator == null || this.evaluator.matches(joinedTuple)) {
+                        return joinedTuple;
+                    }
+                }
+
+                this.nextProbe();
+            } else if (this.partitionJoin != null) {
+                Tuple joinedTuple = this.partitionJoin.getNextTuple();
+
+                if (joinedTuple != null) {
+                    return joinedTuple;
+                }
+
+                this.finishPartition();
+            } else if (!this.nextPartition()) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * The matches of partitions in memory are written into the batch and filtered there, so no tuples are created
+     * for pairs which fail the rest of the join condition.
+     *
+     * @inheritDoc
+     */
+    @Override
+    protected TupleBatch generateNextBatch() {
+        this.build();
+
+        TupleBatch batch = this.getBatchBuffer();
+        batch.clear();
+
+        while (!batch.isFull() && !this.probed) {
+            while (!batch.isFull() && this.entry != NONE) {
+                int row = batch.addJoined(this.probeTable.get(this.entry), this.rightTuple);
+                this.entry = this.probeTable.findNext(this.entry, this.rightTuple.fields, this.keys.rightKeys);
+
+                if (this.evaluator != null && !this.evaluator.matches(batch, row)) {
+                    batch.truncate(row);
+                }
+            }
+
+            if (!batch.isFull()) {
+                this.nextProbe();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            return batch;
+        }
+
+        // Pass on the batches of the joins of the partitions on disk
+        while (true) {
+            if (this.partitionJoin != null) {
+                TupleBatch partitionBatch = this.partitionJoin.getNextBatch();
+
+                if (partitionBatch != null) {
+                    return partitionBatch;
+                }
+
+                this.finishPartition();
+            } else if (!this.nextPartition()) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Partition the left relation, the first time tuples are requested.
+     */
+    private void build() {
+        if (this.built) {
+            return;
+        }
+
+        TupleBatch batch;
+        while ((batch = this.left.getNextBatch()) != null) {
+            for (int row = 0; row < batch.size(); row++) {
+                Tuple tuple = batch.getTuple(row);
+                int hash = TupleHashTable.hash(tuple.fields, this.keys.leftKeys);
+                int partition = this.partitions.partitionOf(hash);
+
+                this.leftTuples += 1;
+
+                if (this.partitions.get(partition) != null) {
+                    this.partitions.get(partition).insert(tuple, hash);
+                    this.partitions.entryAdded();
+                } else {
+                    this.partitions.write(partition, LEFT, tuple);
+                }
+            }
+        }
+
+        this.built = true;
+    }
+
+    /**
+     * Move on to the next right tuple, joining it with its partition in memory or writing it out to its partition on
+     * disk. Once the right relation has been read the partitions on disk can be joined.
+     */
+    private void nextProbe() {
+        this.entry = NONE;
+
+        while ((this.rightTuple = this.right.getNextTuple()) != null) {
+            int hash = TupleHashTable.hash(this.rightTuple.fields, this.keys.rightKeys);
+            int partition = this.partitions.partitionOf(hash);
+
+            if (this.partitions.get(partition) != null) {
+                this.probeTable = this.partitions.get(partition);
+                this.entry = this.probeTable.find(this.rightTuple.fields, this.keys.rightKeys);
+
+                if (this.entry != NONE) {
+                    return;
+                }
+            } else if (this.partitions.getSpillSize(partition, LEFT) > 0) {
+                // Right tuples can only match if the left partition holds any tuples
+                this.partitions.write(partition, RIGHT, this.rightTuple);
+            }
+        }
+
+        // The partitions in memory are no longer needed
+        for (int i = 0; i < this.partitions.getPartitionCount(); i++) {
+            if (!this.partitions.isSpilled(i)) {
+                this.partitions.release(i);
+            }
+        }
+
+        this.probeTable = null;
+        this.probed = true;
+        this.partition = NONE;
+    }
+
+    /**
+     * Start joining the next pair of partitions on disk.
+     *
+     * @return False if every partition has been joined.
+     */
+    private boolean nextPartition() {
+        while (++this.partition < this.partitions.getPartitionCount()) {
+            if (!this.partitions.isSpilled(this.partition)) {
+                continue;
+            }
+
+            this.partitions.flush(this.partition);
+
+            ExternalBlockCacheOperator leftSpill = this.partitions.getSpill(this.partition, LEFT);
+            ExternalBlockCacheOperator rightSpill = this.partitions.getSpill(this.partition, RIGHT);
+
+            int leftSize = this.partitions.getSpillSize(this.partition, LEFT);
+
+            if (leftSize == 0 || this.partitions.getSpillSize(this.partition, RIGHT) == 0) {
+                this.finishPartition();
+                continue;
+            }
+
+            if (!this.partitions.canPartitionAgain() || leftSize == this.leftTuples) {
+                // Partitioning no longer splits the tuples, they most likely share a single key
+                this.partitionJoin = new BlockNestedJoinOperator(leftSpill, rightSpill, this.predicate, this.bufferPages);
+            } else {
+                this.partitionJoin = new HybridHashJoinOperator(leftSpill, rightSpill, this.predicate, this.bufferPages,
+                        this.tempFolder, this.readerImplementation, this.spillFormat, this.level + 1);
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Release the join of the current pair of partitions, and delete their files.
+     */
+    private void finishPartition() {
+        if (this.partitionJoin != null) {
+            this.partitionJoin.close();
+            this.partitionJoin = null;
+        }
+
+        this.partitions.release(this.partition);
+    }
+
+    /**
+     * Delete any partitions left on disk and start over with every partition in memory.
+     */
+    private void clear() {
+        if (this.partitionJoin != null) {
+            this.partitionJoin.close();
+        }
+
+        this.partitions.clear();
+        this.leftTuples = 0;
+
+        this.built = false;
+        this.probed = false;
+
+        this.rightTuple = null;
+        this.probeTable = null;
+        this.entry = NONE;
+
+        this.partition = NONE;
+        this.partitionJoin = null;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public TableHeader getHeader() {
+        return this.resultHeader;
+    }
+
+    /**
+     * Both relations are partitioned again, as the partitions are dropped once they have been joined.
+     *
+     * @inheritDoc
+     */
+    @Override
+    public boolean reset() {
+        this.clear();
+        this.next = null;
+
+        return this.left.reset() && this.right.reset();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void accept(PhysicalTreeVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void close() {
+        this.clear();
+
+        this.left.close();
+        this.right.close();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Expression getPredicate() {
+        return this.predicate;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Operator getLeft() {
+        return this.left;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Operator getRight() {
+        return this.right;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public String getJoinType() {
+        return "HHJ";
+    }
+}
@@ -0,0 +1,307 @@
+package db.operators.physical.bag;
+
+import db.PhysicalPlanConfig.ReaderImplementation;
+import db.datastore.IndexInfo;
+import db.datastore.TableHeader;
+import db.datastore.index.BTree;
+import db.datastore.index.DataEntry;
+import db.datastore.index.Rid;
+import db.datastore.tuple.PagedTupleReader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.operators.logical.LogicalJoinOperator;
+import db.operators.physical.AbstractOperator;
+import db.operators.physical.Operator;
+import db.operators.physical.PhysicalTreeVisitor;
+import db.operators.physical.physical.ScanOperator;
+import db.query.visitors.ExpressionEvaluator;
+import net.sf.jsqlparser.expression.Expression;
+
+import java.util.Arrays;
+
+/**
+ * A join which looks up each left tuple in a B+ tree index on the right table, and reads only the right tuples whose
+ * indexed attribute is equal to the left tuple's join key.
+ * <p>
+ * The right relation is never scanned, so this join pays off when the left relation is small compared to the right
+ * one. The join condition must hold an equality between a left column and the indexed right column.
+ *
+ * @inheritDoc
+ */
+public class IndexNestedLoopJoinOperator extends AbstractOperator implements JoinOperator {
+    private final Operator left;
+    private final ScanOperator right;
+
+    private final TableHeader resultHeader;
+    private final Expression predicate;
+    private final EquiJoinKeys keys;
+    private final ExpressionEvaluator evaluator;
+
+    private final BTree indexTree;
+    private final ReaderImplementation readerImplementation;
+
+    /**
+     * The position, in the join keys, of the equality on the indexed attribute.
+     */
+    private final int probeKey;
+
+    private PagedTupleReader reader;
+
+    /**
+     * The block of left tuples being joined, and the index entries of their keys.
+     */
+    private TupleBatch leftBlock;
+    private DataEntry[] leftEntries;
+    private int leftRow;
+
+    private Tuple leftTuple;
+    private Rid[] rids;
+    private int ridIndex;
+
+    /**
+     * Create an object which joins left tuples with the right tuples found through the index.
+     *
+     * @param left                 The operator which generates the left hand tuples.
+     * @param right                The scan of the right hand table, its tuples are read through the index instead.
+     * @param index                The index on the right table.
+     * @param indexTree            The B+ tree of the index.
+     * @param expression           The join condition, it must contain an equality on the indexed attribute.
+     * @param readerImplementation The way pages are read from the right table file.
+     */
+    public IndexNestedLoopJoinOperator(Operator left, ScanOperator right, IndexInfo index, BTree indexTree,
+                                       Expression expression, ReaderImplementation readerImplementation) {
+        this.left = left;
+        this.right = right;
+        this.resultHeader = LogicalJoinOperator.computeHeader(left.getHeader(), right.getHeader());
+        this.predicate = expression;
+        this.indexTree = indexTree;
+        this.readerImplementation = readerImplementation;
+
+        this.keys = EquiJoinKeys.fromCondition(expression, left.getHeader(), right.getHeader());
+        this.probeKey = findProbeKey(this.keys, right.getHeader().columnNames.indexOf(index.attributeName));
+
+        if (this.probeKey == -1) {
+            throw new IllegalArgumentException("An index join needs an equality on " + index.attributeName + ": " + expression);
+        }
+
+        if (this.keys.residual != null) {
+            this.evaluator = new ExpressionEvaluator(this.keys.residual, this.getHeader());
+        } else {
+            this.evaluator = null;
+        }
+
+        this.reader = null;
+        this.leftBlock = null;
+        this.leftTuple = null;
+        this.rids = null;
+        this.ridIndex = 0;
+    }
+
+    /**
+     * Find which of the join keys compares a left column with the indexed column.
+     *
+     * @param keys        The keys of the join condition.
+     * @param indexColumn The index of the indexed column in the right tuples.
+     * @return The position of the key, or -1 if the condition has no equality on the indexed column.
+     */
+    public static int findProbeKey(EquiJoinKeys keys, int indexColumn) {
+        for (int i = 0; i < keys.rightKeys.length; i++) {
+            if (keys.rightKeys[i] == indexColumn) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    protected Tuple generateNextTuple() {
+        while (true) {
+            while (this.rids != null && this.ridIndex < this.rids.length) {
+                Tuple rightTuple = this.fetch(this.rids[this.ridIndex++]);
+
+                if (!this.otherKeysMatch(rightTuple)) {
+                    continue;
+                }
+
+                Tuple joinedTuple = this.leftTuple.join(rightTuple);
+
+                if (this.evaluator == null || this.evaluator.matches(joinedTuple)) {
+                    return joinedTuple;
+                }
+            }
+
+            if (!this.nextProbe()) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    protected TupleBatch generateNextBatch() {
+        TupleBatch batch = this.getBatchBuffer();
+        batch.clear();
+
+        while (!batch.isFull()) {
+            while (!batch.isFull() && this.rids != null && this.ridIndex < this.rids.length) {
+                Tuple rightTuple = this.fetch(this.rids[this.ridIndex++]);
+
+                if (!this.otherKeysMatch(rightTuple)) {
+                    continue;
+                }
+
+                int row = batch.addJoined(this.leftTuple, rightTuple);
+
+                if (this.evaluator != null && !this.evaluator.matches(batch, row)) {
+                    batch.truncate(row);
+                }
+            }
+
+            if (!batch.isFull() && !this.nextProbe()) {
+                break;
+            }
+        }
+
+        return batch.isEmpty() ? null : batch;
+    }
+
+    /**
+     * Move on to the next left tuple. The keys of a whole block of left tuples are looked up in the index at once,
+     * which reads the index in key order instead of walking down from the root for every tuple.
+     *
+     * @return False if there are no more left tuples.
+     */
+    private boolean nextProbe() {
+        this.leftRow++;
+
+        if (this.leftBlock == null || this.leftRow >= this.leftBlock.size()) {
+            this.leftBlock = this.left.getNextBatch();
+
+            if (this.leftBlock == null) {
+                this.leftTuple = null;
+                this.rids = null;
+                return false;
+            }
+
+            int[] keyColumn = this.leftBlock.columns[this.keys.leftKeys[this.probeKey]];
+            this.leftEntries = this.indexTree.search(Arrays.copyOf(keyColumn, this.leftBlock.size()));
+            this.leftRow = 0;
+        }
+
+        this.leftTuple = this.leftBlock.getTuple(this.leftRow);
+        this.rids = this.leftEntries[this.leftRow] == null ? null : this.leftEntries[this.leftRow].rids;
+        this.ridIndex = 0;
+
+        return true;
+    }
+
+    /**
+     * Read a right tuple, the reader only loads a page when the record is on another page than the last one, so a
+     * clustered index reads each page once per lookup.
+     *
+     * @param rid The record to read.
+     * @return The right tuple.
+     */
+    private Tuple fetch(Rid rid) {
+        if (this.reader == null) {
+            this.reader = PagedTupleReader.get(this.right.getTable().file, this.readerImplementation);
+        }
+
+        this.reader.seek(rid.pageid, rid.tupleid);
+        return this.reader.next();
+    }
+
+    /**
+     * @return Whether the equalities other than the one on the indexed attribute hold.
+     */
+    private boolean otherKeysMatch(Tuple rightTuple) {
+        for (int i = 0; i < this.keys.leftKeys.length; i++) {
+            if (i != this.probeKey && this.leftTuple.fields[this.keys.leftKeys[i]] != rightTuple.fields[this.keys.rightKeys[i]]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public TableHeader getHeader() {
+        return this.resultHeader;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public boolean reset() {
+        this.leftBlock = null;
+        this.leftTuple = null;
+        this.rids = null;
+        this.ridIndex = 0;
+
+        return this.left.reset();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void accept(PhysicalTreeVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void close() {
+        this.left.close();
+        this.right.close();
+
+        if (this.reader != null) {
+            this.reader.close();
+            this.reader = null;
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Expression getPredicate() {
+        return this.predicate;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Operator getLeft() {
+        return this.left;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Operator getRight() {
+        return this.right;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public String getJoinType() {
+        return "INLJ";
+    }
+}
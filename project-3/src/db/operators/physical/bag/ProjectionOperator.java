@@ -2,12 +2,12 @@ package db.operators.physical.bag;
 
 import db.datastore.TableHeader;
 import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
 import db.operators.UnaryNode;
 import db.operators.physical.AbstractOperator;
 import db.operators.physical.Operator;
 import db.operators.physical.PhysicalTreeVisitor;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,7 +24,7 @@ public class ProjectionOperator extends AbstractOperator implements UnaryNode<Op
     private final Operator source;
 
     private final TableHeader newHeader;
-    private final List<Integer> newToOldColumnMapping;
+    private final int[] newToOldColumnMapping;
 
     /**
      * Builds an operator that will project source tuples into the schema defined by the subheader
@@ -37,7 +37,7 @@ public class ProjectionOperator extends AbstractOperator implements UnaryNode<Op
     public ProjectionOperator(Operator source, TableHeader newHeader) {
         this.source = source;
         this.newHeader = newHeader.clone();
-        this.newToOldColumnMapping = new ArrayList<>();
+        this.newToOldColumnMapping = new int[newHeader.size()];
 
         for (int i = 0; i < newHeader.size(); i++) {
             String alias = newHeader.tableIdentifiers.get(i);
@@ -48,7 +48,7 @@ public class ProjectionOperator extends AbstractOperator implements UnaryNode<Op
             List<String> sourceAliases = this.source.getHeader().tableIdentifiers;
 
             if (index.isPresent()) {
-                this.newToOldColumnMapping.add(index.get());
+                this.newToOldColumnMapping[i] = index.get();
                 this.newHeader.tableIdentifiers.set(i, sourceAliases.get(index.get()));
             } else {
                 throw new RuntimeException("Projection mappings are incorrect. " + alias + "." + header + " has no match.");
@@ -64,10 +64,10 @@ public class ProjectionOperator extends AbstractOperator implements UnaryNode<Op
         Tuple tuple = this.source.getNextTuple();
 
         if (tuple != null) {
-            List<Integer> newBackingArray = new ArrayList<>(this.newHeader.size());
+            int[] newBackingArray = new int[this.newToOldColumnMapping.length];
 
-            for (int i = 0; i < this.newHeader.size(); i++) {
-                newBackingArray.add(tuple.fields.get(this.newToOldColumnMapping.get(i)));
+            for (int i = 0; i < newBackingArray.length; i++) {
+                newBackingArray[i] = tuple.fields[this.newToOldColumnMapping[i]];
             }
 
             return (new Tuple(newBackingArray));
@@ -76,6 +76,28 @@ public class ProjectionOperator extends AbstractOperator implements UnaryNode<Op
         }
     }
 
+    /**
+     * The projected batch shares the column arrays of the child's batch, no values are copied.
+     *
+     * @inheritDoc
+     */
+    @Override
+    protected TupleBatch generateNextBatch() {
+        TupleBatch batch = this.source.getNextBatch();
+
+        if (batch == null) {
+            return null;
+        }
+
+        int[][] columns = new int[this.newToOldColumnMapping.length][];
+
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = batch.columns[this.newToOldColumnMapping[i]];
+        }
+
+        return new TupleBatch(columns, batch.capacity(), batch.size());
+    }
+
     /**
      * @inheritDoc
      */
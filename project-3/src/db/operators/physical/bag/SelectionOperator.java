@@ -2,6 +2,7 @@ package db.operators.physical.bag;
 
 import db.datastore.TableHeader;
 import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
 import db.operators.UnaryNode;
 import db.operators.physical.AbstractOperator;
 import db.operators.physical.Operator;
@@ -45,6 +46,37 @@ public class SelectionOperator extends AbstractOperator implements UnaryNode<Ope
         return null;
     }
 
+    /**
+     * The child's batch is filtered in place, rows which match are moved to the front of the batch.
+     *
+     * @inheritDoc
+     */
+    @Override
+    protected TupleBatch generateNextBatch() {
+        TupleBatch batch;
+
+        while ((batch = this.source.getNextBatch()) != null) {
+            int matched = 0;
+
+            for (int row = 0; row < batch.size(); row++) {
+                if (evaluator.matches(batch, row)) {
+                    if (row != matched) {
+                        batch.moveRow(row, matched);
+                    }
+
+                    matched++;
+                }
+            }
+
+            if (matched > 0) {
+                batch.truncate(matched);
+                return batch;
+            }
+        }
+
+        return null;
+    }
+
     /**
      * @inheritDoc
      */
@@ -15,6 +15,9 @@ import net.sf.jsqlparser.expression.Expression;
  * A join which uses the sort merge join to join the child relations.
  * <p>
  * It expects its children to be sorted.
+ * <p>
+ * The normalized key of the current left and right tuples is kept, so a left tuple which is compared with a whole
+ * group of right tuples only has its key encoded once.
  *
  * @inheritDoc
  */
@@ -26,6 +29,9 @@ public class SortMergeJoinOperator extends AbstractOperator implements JoinOpera
     private long lastMatchingRight;
     private ExpressionEvaluator evaluator;
 
+    private Tuple keyedLeft, keyedRight;
+    private long leftKey, rightKey;
+
     /**
      * Create an object which joins left and right tuples and filters results based on a conditional clause
      *
@@ -97,7 +103,17 @@ public class SortMergeJoinOperator extends AbstractOperator implements JoinOpera
                 }
 
             } else {
-                int compareResult = this.tupleComparator.compare(leftTuple, rightTuple);
+                if (leftTuple != this.keyedLeft) {
+                    this.keyedLeft = leftTuple;
+                    this.leftKey = this.tupleComparator.normalize(leftTuple);
+                }
+
+                if (rightTuple != this.keyedRight) {
+                    this.keyedRight = rightTuple;
+                    this.rightKey = this.tupleComparator.normalizeRight(rightTuple);
+                }
+
+                int compareResult = this.tupleComparator.compare(this.leftKey, leftTuple, this.rightKey, rightTuple);
 
                 if (compareResult < 0) {
                     this.left.getNextTuple();
@@ -2,6 +2,7 @@ package db.operators.physical.bag;
 
 import db.datastore.TableHeader;
 import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
 import db.operators.logical.LogicalJoinOperator;
 import db.operators.physical.AbstractOperator;
 import db.operators.physical.Operator;
@@ -91,6 +92,41 @@ public class TupleNestedJoinOperator extends AbstractOperator implements JoinOpe
         return candidate;
     }
 
+    /**
+     * The joined rows are written into the batch and filtered there, so no tuples are created for pairs which
+     * fail the predicate.
+     *
+     * @inheritDoc
+     */
+    @Override
+    protected TupleBatch generateNextBatch() {
+        TupleBatch batch = this.getBatchBuffer();
+        batch.clear();
+
+        while (!batch.isFull() && this.leftTupleCache != null) {
+            Tuple rightTuple = this.right.getNextTuple();
+
+            if (rightTuple == null) {
+                // Increment the left hand operator and rescan the right hand operator.
+                if (this.left.hasNextTuple()) {
+                    this.leftTupleCache = this.left.getNextTuple();
+                    this.right.reset();
+                    continue;
+                } else {
+                    break;
+                }
+            }
+
+            int row = batch.addJoined(this.leftTupleCache, rightTuple);
+
+            if (evaluator != null && !evaluator.matches(batch, row)) {
+                batch.truncate(row);
+            }
+        }
+
+        return batch.isEmpty() ? null : batch;
+    }
+
     /**
      * @inheritDoc
      */
@@ -0,0 +1,30 @@
+package db.operators.physical.extended;
+
+import db.datastore.TableHeader;
+import db.operators.Aggregate;
+import db.operators.UnaryNode;
+import db.operators.physical.Operator;
+
+import java.util.List;
+
+/**
+ * Operators which group the child relation and compute aggregates for every group.
+ *
+ * @inheritDoc
+ */
+public interface AggregateOperator extends Operator, UnaryNode<Operator> {
+    /**
+     * @return The columns the tuples are grouped on.
+     */
+    TableHeader getGroupHeader();
+
+    /**
+     * @return The aggregates computed for every group.
+     */
+    List<Aggregate> getAggregates();
+
+    /**
+     * @return The name of the aggregation type, for the printer.
+     */
+    String getAggregateType();
+}
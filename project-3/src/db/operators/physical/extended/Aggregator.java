@@ -0,0 +1,286 @@
+package db.operators.physical.extended;
+
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.operators.Aggregate;
+import db.operators.physical.utility.TupleHashTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes the aggregates of groups of tuples. The state of a group holds a running value and a count for each
+ * aggregate, as longs so sums do not overflow before an average is taken.
+ * <p>
+ * A state can be written out as a partial tuple: the group key followed by the high and low halves of each value and
+ * its count. An aggregator over partial tuples merges them into the states of their groups, which is how groups
+ * written to disk are finished later on.
+ */
+public class Aggregator {
+    private static final int NONE = -1;
+
+    /**
+     * The number of columns of a partial tuple taken by each aggregate.
+     */
+    private static final int PARTIAL_WIDTH = 3;
+
+    private final List<Aggregate> aggregates;
+    private final int[] groupColumns;
+    private final int[] argumentColumns;
+    private final boolean partialInput;
+
+    private final TableHeader groupHeader;
+    private final TableHeader outputHeader;
+    private final TableHeader partialHeader;
+
+    /**
+     * Create an aggregator over the tuples of a relation.
+     *
+     * @param inputHeader the header of the tuples.
+     * @param groupBy     the columns the tuples are grouped on, empty to aggregate the whole relation.
+     * @param aggregates  the aggregates computed for every group.
+     */
+    public Aggregator(TableHeader inputHeader, TableHeader groupBy, List<Aggregate> aggregates) {
+        this.aggregates = aggregates;
+        this.groupColumns = TupleHashTable.resolveKeys(groupBy, inputHeader);
+        this.argumentColumns = new int[aggregates.size()];
+        this.partialInput = false;
+
+        for (int i = 0; i < this.argumentColumns.length; i++) {
+            Aggregate aggregate = aggregates.get(i);
+
+            if (aggregate.isCountAll()) {
+                this.argumentColumns[i] = NONE;
+            } else {
+                this.argumentColumns[i] = inputHeader.resolve(aggregate.tableIdentifier, aggregate.columnName)
+                        .orElseThrow(() -> new RuntimeException("Aggregate " + aggregate + " has no matching column."));
+            }
+        }
+
+        List<String> tables = new ArrayList<>();
+        List<String> columns = new ArrayList<>();
+
+        for (int column : this.groupColumns) {
+            tables.add(inputHeader.tableIdentifiers.get(column));
+            columns.add(inputHeader.columnNames.get(column));
+        }
+
+        this.groupHeader = new TableHeader(new ArrayList<>(tables), new ArrayList<>(columns));
+
+        List<String> partialTables = new ArrayList<>(tables);
+        List<String> partialColumns = new ArrayList<>(columns);
+
+        for (Aggregate aggregate : aggregates) {
+            tables.add(aggregate.getResultTable());
+            columns.add(aggregate.getResultColumn());
+
+            for (String part : new String[]{"high", "low", "count"}) {
+                partialTables.add(aggregate.getResultTable());
+                partialColumns.add(aggregate.getResultColumn() + "#" + part);
+            }
+        }
+
+        this.outputHeader = new TableHeader(tables, columns);
+        this.partialHeader = new TableHeader(partialTables, partialColumns);
+    }
+
+    /**
+     * Create an aggregator over the partial tuples written by another one.
+     */
+    private Aggregator(Aggregator raw) {
+        this.aggregates = raw.aggregates;
+        this.groupColumns = new int[raw.groupColumns.length];
+        this.argumentColumns = new int[raw.argumentColumns.length];
+        this.partialInput = true;
+
+        for (int i = 0; i < this.groupColumns.length; i++) {
+            this.groupColumns[i] = i;
+        }
+
+        for (int i = 0; i < this.argumentColumns.length; i++) {
+            this.argumentColumns[i] = this.groupColumns.length + PARTIAL_WIDTH * i;
+        }
+
+        this.groupHeader = raw.groupHeader;
+        this.outputHeader = raw.outputHeader;
+        this.partialHeader = raw.partialHeader;
+    }
+
+    /**
+     * @return an aggregator which merges the partial tuples written by this one.
+     */
+    public Aggregator partial() {
+        return this.partialInput ? this : new Aggregator(this);
+    }
+
+    /**
+     * @return the number of columns of a group key.
+     */
+    public int getKeyWidth() {
+        return this.groupColumns.length;
+    }
+
+    /**
+     * @return the group key columns, as named in the input.
+     */
+    public TableHeader getGroupHeader() {
+        return this.groupHeader;
+    }
+
+    /**
+     * @return the header of the results, the group key followed by one column per aggregate.
+     */
+    public TableHeader getOutputHeader() {
+        return this.outputHeader;
+    }
+
+    /**
+     * @return the header of the partial tuples.
+     */
+    public TableHeader getPartialHeader() {
+        return this.partialHeader;
+    }
+
+    /**
+     * @return the aggregates computed for every group.
+     */
+    public List<Aggregate> getAggregates() {
+        return this.aggregates;
+    }
+
+    /**
+     * Copy the group key of a row.
+     *
+     * @param batch the input batch.
+     * @param row   the row.
+     * @param key   the array the key is written to.
+     */
+    public void readKey(TupleBatch batch, int row, int[] key) {
+        for (int i = 0; i < key.length; i++) {
+            key[i] = batch.columns[this.groupColumns[i]][row];
+        }
+    }
+
+    /**
+     * @return the state of a group with no tuples yet.
+     */
+    public long[] newState() {
+        return new long[2 * this.aggregates.size()];
+    }
+
+    /**
+     * Add a row of the input to the state of its group.
+     *
+     * @param state the state of the group.
+     * @param batch the input batch.
+     * @param row   the row.
+     */
+    public void accumulate(long[] state, TupleBatch batch, int row) {
+        for (int i = 0; i < this.argumentColumns.length; i++) {
+            int column = this.argumentColumns[i];
+
+            if (this.partialInput) {
+                long high = batch.columns[column][row];
+                long low = batch.columns[column + 1][row] & 0xFFFFFFFFL;
+
+                this.merge(state, i, (high << 32) | low, batch.columns[column + 2][row]);
+            } else {
+                this.merge(state, i, column == NONE ? 0 : batch.columns[column][row], 1);
+            }
+        }
+    }
+
+    /**
+     * Merge a value covering a number of tuples into the state of one aggregate.
+     */
+    private void merge(long[] state, int aggregate, long value, long count) {
+        if (count == 0) {
+            return;
+        }
+
+        int index = 2 * aggregate;
+        boolean empty = state[index + 1] == 0;
+
+        switch (this.aggregates.get(aggregate).type) {
+            case MIN:
+                state[index] = empty ? value : Math.min(state[index], value);
+                break;
+            case MAX:
+                state[index] = empty ? value : Math.max(state[index], value);
+                break;
+            case SUM:
+            case AVG:
+                state[index] += value;
+                break;
+            default:
+                break;
+        }
+
+        state[index + 1] += count;
+    }
+
+    /**
+     * @param key   the group key.
+     * @param state the state of the group.
+     * @return the partial tuple of the group.
+     */
+    public Tuple toPartial(int[] key, long[] state) {
+        int[] fields = new int[this.partialHeader.size()];
+        System.arraycopy(key, 0, fields, 0, key.length);
+
+        for (int i = 0; i < this.aggregates.size(); i++) {
+            int column = key.length + PARTIAL_WIDTH * i;
+
+            fields[column] = (int) (state[2 * i] >>> 32);
+            fields[column + 1] = (int) state[2 * i];
+            fields[column + 2] = (int) state[2 * i + 1];
+        }
+
+        return new Tuple(fields);
+    }
+
+    /**
+     * @param batch the input batch.
+     * @param row   the row.
+     * @return the partial tuple of a group holding only that row.
+     */
+    public Tuple toPartial(TupleBatch batch, int row) {
+        int[] key = new int[this.groupColumns.length];
+        long[] state = this.newState();
+
+        this.readKey(batch, row, key);
+        this.accumulate(state, batch, row);
+
+        return this.toPartial(key, state);
+    }
+
+    /**
+     * @param key   the group key.
+     * @param state the state of the group.
+     * @return the result tuple of the group. Aggregates over no tuples, other than COUNT, are 0.
+     */
+    public Tuple toOutput(int[] key, long[] state) {
+        int[] fields = new int[this.outputHeader.size()];
+        System.arraycopy(key, 0, fields, 0, key.length);
+
+        for (int i = 0; i < this.aggregates.size(); i++) {
+            long value = state[2 * i];
+            long count = state[2 * i + 1];
+
+            switch (this.aggregates.get(i).type) {
+                case COUNT:
+                    fields[key.length + i] = (int) count;
+                    break;
+                case AVG:
+                    fields[key.length + i] = count == 0 ? 0 : (int) (value / count);
+                    break;
+                default:
+                    fields[key.length + i] = (int) value;
+                    break;
+            }
+        }
+
+        return new Tuple(fields);
+    }
+}
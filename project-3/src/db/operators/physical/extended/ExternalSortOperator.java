@@ -1,36 +1,77 @@
 package db.operators.physical.extended;
 
-import db.Utilities.Utilities;
+import db.PhysicalPlanConfig;
+import db.PhysicalPlanConfig.PageFormat;
+import db.PhysicalPlanConfig.ReaderImplementation;
+import db.PhysicalPlanConfig.RunGeneration;
+import db.PhysicalPlanConfig.SortImplementation;
+import db.Utilities.DaemonThreads;
 import db.datastore.Database;
 import db.datastore.TableHeader;
 import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
 import db.operators.UnaryNode;
 import db.operators.physical.AbstractOperator;
 import db.operators.physical.Operator;
 import db.operators.physical.PhysicalTreeVisitor;
 import db.operators.physical.SeekableOperator;
-import db.operators.physical.utility.BlockCacheOperator;
 import db.operators.physical.utility.ExternalBlockCacheOperator;
+import db.operators.physical.utility.LoserTree;
+import db.operators.physical.utility.RowArena;
+import db.operators.physical.utility.TupleHashTable;
 
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * A merge-sort based sorting operator implementation that guarantees bounded state by only keeping a specified
  * number of pages in memory. Merge passes are saved as temporary files, direct access is abstracted via Cache classes.
+ * <p>
+ * The block runs of the first pass are built in a {@link RowArena} rather than from tuple objects, it is sized so
+ * the rows along with their sort index fit in the buffer pages.
+ * <p>
+ * With more than one thread, the runs of the first pass and the merges of every pass but the last are split between
+ * workers, each with an equal share of the buffer pages.
+ * <p>
+ * With asynchronous I/O every run is double buffered, the next page of an input is read and the last page of the
+ * output is written on background threads while the merge works on the other page. This halves the fan in for the
+ * same buffer, but the merges no longer wait on the disk for every page. A buffer too small for a double buffered two
+ * way merge falls back to synchronous I/O.
  */
 public class ExternalSortOperator extends AbstractOperator implements SortOperator, UnaryNode<Operator>, SeekableOperator {
+    private static final ExecutorService SORT_THREADS = DaemonThreads.cachedPool("sort");
+
+    /** The pages of a two way merge with its output, when every run is double buffered */
+    private static final int MIN_ASYNC_MERGE_PAGES = 6;
+
     private static int nextOperatorId = 1;
 
     private final Operator source;
     private final TableHeader sortHeader;
-    private final Comparator<Tuple> tupleComparator;
+    private final TupleComparator tupleComparator;
+    /** The indices of the sort columns in the tuples of the source */
+    private final int[] sortKeys;
 
     private final Path sortFolder;
     /** The number of pages held in memory during sorting and merging operations */
     private final int bufSize;
+    /** The way pages of the runs are read back from disk */
+    private final ReaderImplementation readerImplementation;
+    /** The format of the pages of the runs */
+    private final PageFormat spillFormat;
+    /** The way the runs of the first pass are built */
+    private final RunGeneration runGeneration;
+    /** The number of workers which build and merge runs, the buffer pages are split between them */
+    private final int threads;
+    /** Whether every run reads and writes through two pages, overlapping the I/O of one with the work on the other */
+    private final boolean asyncIO;
 
     private boolean isSorted;
     /** Temporary merge sort pages follow the nomenclature 'Sort<opId>_<runId>_<blockId>' */
@@ -43,6 +84,12 @@ public class ExternalSortOperator extends AbstractOperator implements SortOperat
 
     private long tupleIndex;
 
+    /**
+     * The last batch read from the source while filling arenas, and its first row which has not been copied yet
+     */
+    private TupleBatch pendingBatch;
+    private int pendingRow;
+
     /**
      * Configure a new operator to handle External sorting. Sorting is only performed when the first tuple is requested
      *
@@ -52,10 +99,31 @@ public class ExternalSortOperator extends AbstractOperator implements SortOperat
      * @param tempFolder Folder to write temporary merged runs to
      */
     public ExternalSortOperator(Operator source, TableHeader sortHeader, int bufferSize, Path tempFolder) {
+        this(source, sortHeader, new PhysicalPlanConfig(null, SortImplementation.EXTERNAL, 0, bufferSize, false), tempFolder);
+    }
+
+    /**
+     * Configure a new operator to handle External sorting. Sorting is only performed when the first tuple is requested
+     *
+     * @param source Operator to read tuples from
+     * @param sortHeader Defines against which attributes the relation will be sorted (no tie-break)
+     * @param config The sort buffer size, which must be >= 3, and the way runs are built, written and read back
+     * @param tempFolder Folder to write temporary merged runs to
+     */
+    public ExternalSortOperator(Operator source, TableHeader sortHeader, PhysicalPlanConfig config, Path tempFolder) {
+        int bufferSize = config.sortParameter;
+
+        this.readerImplementation = config.readerImplementation;
+        this.spillFormat = config.spillFormat;
+        this.runGeneration = config.runGeneration;
+        this.threads = Math.max(1, config.sortThreads);
+        // Compressed pages are always read and written on the calling thread
+        this.asyncIO = config.asyncSortIO && this.spillFormat == PageFormat.BINARY && bufferSize >= MIN_ASYNC_MERGE_PAGES;
         this.source = source;
         this.sortHeader = sortHeader;
 
         this.tupleComparator = new TupleComparator(sortHeader, source.getHeader());
+        this.sortKeys = TupleHashTable.resolveKeys(sortHeader, source.getHeader());
 
         // Cannot perform merge sort with less than three buffer pages
         assert bufferSize >= 3;
@@ -107,119 +175,351 @@ public class ExternalSortOperator extends AbstractOperator implements SortOperat
         return sortedRelationCache.getNextTuple();
     }
 
+    /**
+     * @inheritDoc
+     */
+    @Override
+    protected TupleBatch generateNextBatch() {
+        if (!isSorted) {
+            System.out.println("Beginning sort");
+            performExternalSort();
+            System.out.println("Complete !");
+        }
+
+        TupleBatch batch = sortedRelationCache.getNextBatch();
+
+        if (batch != null) {
+            this.tupleIndex += batch.size();
+        }
+
+        return batch;
+    }
+
     /**
      * Sort and buffer the input tuples from the child relations, using the external sort algorithm.
      */
     private void performExternalSort() {
-        // First pass : read pages from source, sort then in-memory and write the resulting run to disk
-        List<ExternalBlockCacheOperator> previousRuns = new ArrayList<>();
-        int blockId = 1;
+        // First pass : split the source into sorted runs on disk
+        List<ExternalBlockCacheOperator> previousRuns;
+
+        if (runGeneration == RunGeneration.REPLACEMENT_SELECTION) {
+            previousRuns = generateReplacementSelectionRuns();
+        } else if (threads > 1) {
+            previousRuns = generateBlockRunsInParallel();
+        } else {
+            previousRuns = generateBlockRuns();
+        }
 
-        // Create a cache that reads tuples from source one page at a time
-        BlockCacheOperator inputCache = new BlockCacheOperator(source, Database.PAGE_SIZE * bufSize);
+        if (previousRuns.isEmpty()) {
+            // An empty source still needs a run to read from
+            ExternalBlockCacheOperator emptyRun = new ExternalBlockCacheOperator(getHeader(), sortFolder, "Sort" + operatorId + "_1_1", readerImplementation, spillFormat, asyncIO);
+            emptyRun.flush();
+            previousRuns.add(emptyRun);
+        }
+
+        // Second to last pass : merge previous runs using a fixed size buffer
+        int runId = 2;
+
+        System.out.println("Pass 2");
+
+        while (previousRuns.size() >= 2) {
+            previousRuns = performMergePass(previousRuns, runId);
+            runId++;
+        }
+
+        this.isSorted = true;
+
+        this.sortedRelationCache = previousRuns.get(0);
+    }
+
+    /**
+     * Build the runs of the first pass by copying the source into an arena of one buffer at a time and sorting the
+     * arena, so every run but the last holds exactly one buffer of tuples.
+     *
+     * @return the sorted runs.
+     */
+    private List<ExternalBlockCacheOperator> generateBlockRuns() {
+        List<ExternalBlockCacheOperator> runs = new ArrayList<>();
+        RowArena arena = RowArena.forPages(getHeader().size(), bufSize);
+        int blockId = 1;
 
         System.out.println("Pass 1");
 
-        while (inputCache.hasNext()) {
+        while (fillArena(arena)) {
             System.out.println("Sorting " + blockId);
-            InMemorySortOperator inMemorySort = new InMemorySortOperator(inputCache, sortHeader);
-            ExternalBlockCacheOperator tempRun = new ExternalBlockCacheOperator(getHeader(), sortFolder, "Sort" + operatorId + "_1_" + blockId);
+            ExternalBlockCacheOperator tempRun = new ExternalBlockCacheOperator(getHeader(), sortFolder, "Sort" + operatorId + "_1_" + blockId, readerImplementation, spillFormat, asyncIO);
 
-            tempRun.writeSourceToBuffer(inMemorySort);
+            arena.sort(sortKeys);
+            arena.writeTo(tempRun);
 
             tempRun.flush();
-            previousRuns.add(tempRun);
+            runs.add(tempRun);
 
-            inputCache.loadNextBlock();
             blockId++;
         }
 
         // This releases all resources held by source operator
-        inputCache.close();
+        source.close();
 
-        // Second to last pass : merge previous runs using a fixed size buffer
-        int runId = 2;
-        blockId = 1;
+        return runs;
+    }
 
-        System.out.println("Pass 2");
+    /**
+     * Build the runs of the first pass on several workers. The source is read on the calling thread into arenas of an
+     * equal share of the buffer, and each arena is sorted and written to its run by a worker. At most one arena per
+     * worker is held at a time, counting the one being read, so the whole buffer is never exceeded.
+     *
+     * @return the sorted runs.
+     */
+    private List<ExternalBlockCacheOperator> generateBlockRunsInParallel() {
+        List<ExternalBlockCacheOperator> runs = new ArrayList<>();
+        Deque<Future<RowArena>> pending = new ArrayDeque<>();
+        Deque<RowArena> free = new ArrayDeque<>();
 
-        while (previousRuns.size() >= 2) {
-            List<ExternalBlockCacheOperator> currentRuns = new ArrayList<>();
+        int blockId = 1;
+
+        System.out.println("Pass 1");
 
-            // Load N - 1 input files into memory with N = buffer size
-            List<Operator> currentMergeInputs = new ArrayList<>();
-            for (int i = 1; i <= previousRuns.size(); i++) {
-                Operator mergeInput = previousRuns.get(i - 1);
-                currentMergeInputs.add(mergeInput);
+        while (true) {
+            while (pending.size() >= threads - 1) {
+                free.add(await(pending.poll()));
+            }
 
-                if (i % (bufSize - 1) == 0 || i == previousRuns.size()) {
-                    // All necessary pages are loaded : run merge pass
-                    ExternalBlockCacheOperator mergeCache = new ExternalBlockCacheOperator(
-                            getHeader(),
-                            sortFolder,
-                            "Sort" + operatorId + "_" + runId + "_" + blockId
-                    );
+            RowArena arena = free.isEmpty() ? RowArena.forPages(getHeader().size(), Math.max(1, bufSize / threads)) : free.poll();
 
-                    currentRuns.add(mergeCache);
+            if (!fillArena(arena)) {
+                break;
+            }
 
-                    System.out.println("Merging " + i);
+            ExternalBlockCacheOperator tempRun = new ExternalBlockCacheOperator(getHeader(), sortFolder, "Sort" + operatorId + "_1_" + blockId, readerImplementation, spillFormat, asyncIO);
+            runs.add(tempRun);
 
-                    performMultiMerge(currentMergeInputs, mergeCache);
+            pending.add(SORT_THREADS.submit(() -> {
+                arena.sort(sortKeys);
+                arena.writeTo(tempRun);
 
-                    mergeCache.flush();
+                tempRun.flush();
 
-                    for (Operator op : currentMergeInputs) {
-                        op.close();
-                    }
+                return arena;
+            }));
 
-                    currentMergeInputs.clear();
+            blockId++;
+        }
 
-                    System.out.println("Merge done");
+        while (!pending.isEmpty()) {
+            await(pending.poll());
+        }
+
+        // This releases all resources held by source operator
+        source.close();
+
+        return runs;
+    }
 
-                    blockId++;
+    /**
+     * Empty the arena and copy batches of the source into it until it is full. The rows of the last batch which do
+     * not fit are kept for the next arena.
+     *
+     * @param arena the arena.
+     * @return whether any rows were copied, false once the source is exhausted.
+     */
+    private boolean fillArena(RowArena arena) {
+        arena.clear();
+
+        while (!arena.isFull()) {
+            if (pendingBatch == null || pendingRow >= pendingBatch.size()) {
+                pendingBatch = source.getNextBatch();
+                pendingRow = 0;
+
+                if (pendingBatch == null) {
+                    break;
                 }
             }
 
-            previousRuns = currentRuns;
-            runId++;
+            pendingRow += arena.add(pendingBatch, pendingRow);
         }
 
-        this.isSorted = true;
+        return arena.size() > 0;
+    }
 
-        this.sortedRelationCache = previousRuns.get(0);
+    /**
+     * Merge the runs of the previous pass in groups. The last pass merges every run at once on the calling thread.
+     * Earlier passes split the buffer evenly between the workers, each merging one group at a time, which lowers
+     * the fan in but keeps the disk busy with several merges.
+     *
+     * @param runs  the runs of the previous pass.
+     * @param runId the number of this pass, used to name its runs.
+     * @return the merged runs.
+     */
+    private List<ExternalBlockCacheOperator> performMergePass(List<ExternalBlockCacheOperator> runs, int runId) {
+        // Double buffering takes two pages for every input and for the output
+        int pagesPerRun = asyncIO ? 2 : 1;
+
+        // Every worker needs the pages of at least a two way merge, so the fan in never takes more than its share
+        int maxWorkers = Math.max(1, bufSize / (3 * pagesPerRun));
+        int workers = runs.size() <= bufSize / pagesPerRun - 1 ? 1 : Math.min(threads, maxWorkers);
+        int fanIn = bufSize / workers / pagesPerRun - 1;
+
+        List<ExternalBlockCacheOperator> mergedRuns = new ArrayList<>();
+        Deque<Future<?>> pending = new ArrayDeque<>();
+        int blockId = 1;
+
+        for (int from = 0; from < runs.size(); from += fanIn) {
+            List<Operator> mergeInputs = new ArrayList<>(runs.subList(from, Math.min(runs.size(), from + fanIn)));
+
+            ExternalBlockCacheOperator mergeCache = new ExternalBlockCacheOperator(
+                    getHeader(),
+                    sortFolder,
+                    "Sort" + operatorId + "_" + runId + "_" + blockId,
+                    readerImplementation,
+                    spillFormat,
+                    asyncIO
+            );
+
+            mergedRuns.add(mergeCache);
+
+            Runnable merge = () -> {
+                performMultiMerge(mergeInputs, mergeCache);
+
+                mergeCache.flush();
+
+                for (Operator op : mergeInputs) {
+                    op.close();
+                }
+            };
+
+            if (workers == 1) {
+                System.out.println("Merging " + blockId);
+                merge.run();
+            } else {
+                while (pending.size() >= workers) {
+                    await(pending.poll());
+                }
+
+                pending.add(SORT_THREADS.submit(merge));
+            }
+
+            blockId++;
+        }
+
+        while (!pending.isEmpty()) {
+            await(pending.poll());
+        }
+
+        System.out.println("Merge done");
+
+        return mergedRuns;
     }
 
     /**
-     * Merge the input runs and write the results to the output run.
+     * Wait for the task of a worker to finish.
      *
-     * @param inputs the input runs to merge.
-     * @param output the run which will contain the output tuples.
+     * @param task the task.
+     * @return the result of the task.
      */
-    private void performMultiMerge(List<Operator> inputs, ExternalBlockCacheOperator output) {
-        List<Tuple> inputTuples = new ArrayList<>(inputs.size());
-        int inputRemaining = inputs.size();
+    private static <T> T await(Future<T> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Build the runs of the first pass by replacement selection. A heap holds a buffer of tuples, the smallest one is
+     * written to the current run and replaced by the next tuple of the source. A tuple which sorts before the last one
+     * written is held back for the next run.
+     * <p>
+     * Runs are about twice as long as the buffer on random input, and a source which is already sorted, or nearly
+     * so, gives a single run.
+     *
+     * @return the sorted runs.
+     */
+    private List<ExternalBlockCacheOperator> generateReplacementSelectionRuns() {
+        List<ExternalBlockCacheOperator> runs = new ArrayList<>();
+
+        int capacity = Math.max(1, (Database.PAGE_SIZE * bufSize - 2) / 4 / getHeader().size());
+
+        // Tuples held back for a later run sort after every tuple of the current run
+        PriorityQueue<RunEntry> heap = new PriorityQueue<>(capacity, (a, b) -> {
+            int result = Integer.compare(a.run, b.run);
+            return result != 0 ? result : tupleComparator.compare(a.key, a.tuple, b.key, b.tuple);
+        });
+
+        System.out.println("Pass 1");
+
+        Tuple tuple;
+        while (heap.size() < capacity && (tuple = source.getNextTuple()) != null) {
+            heap.add(new RunEntry(1, tupleComparator.normalize(tuple), tuple));
+        }
+
+        ExternalBlockCacheOperator currentRun = null;
+        int currentRunId = 0;
+
+        while (!heap.isEmpty()) {
+            RunEntry smallest = heap.poll();
+
+            if (smallest.run != currentRunId) {
+                if (currentRun != null) {
+                    currentRun.flush();
+                }
+
+                currentRunId = smallest.run;
+                currentRun = new ExternalBlockCacheOperator(getHeader(), sortFolder, "Sort" + operatorId + "_1_" + currentRunId, readerImplementation, spillFormat, asyncIO);
+                runs.add(currentRun);
+
+                System.out.println("Sorting " + currentRunId);
+            }
+
+            currentRun.writeTupleToBuffer(smallest.tuple);
 
-        // Load first tuple from every source
-        for (Operator source : inputs) {
             Tuple next = source.getNextTuple();
-            inputTuples.add(next);
 
-            if (next == null) {
-                inputRemaining--;
+            if (next != null) {
+                long key = tupleComparator.normalize(next);
+                boolean fitsCurrentRun = tupleComparator.compare(key, next, smallest.key, smallest.tuple) >= 0;
+                heap.add(new RunEntry(fitsCurrentRun ? smallest.run : smallest.run + 1, key, next));
             }
         }
 
-        // Perform merging
-        while (inputRemaining > 0) {
-            int iMin = Utilities.getFirstTuple(inputTuples, tupleComparator);
+        if (currentRun != null) {
+            currentRun.flush();
+        }
 
-            output.writeTupleToBuffer(inputTuples.get(iMin));
-            Tuple next = inputs.get(iMin).getNextTuple();
-            inputTuples.set(iMin, next);
+        // This releases all resources held by source operator
+        source.close();
 
-            if (next == null) {
-                inputRemaining--;
-            }
+        return runs;
+    }
+
+    /**
+     * A tuple held in the heap of replacement selection, with its normalized key and the run it is written to.
+     */
+    private static class RunEntry {
+        final int run;
+        final long key;
+        final Tuple tuple;
+
+        RunEntry(int run, long key, Tuple tuple) {
+            this.run = run;
+            this.key = key;
+            this.tuple = tuple;
+        }
+    }
+
+    /**
+     * Merge the input runs and write the results to the output run. The next tuple is picked with a loser tree, so
+     * each one costs O(log k) comparisons for k runs.
+     *
+     * @param inputs the input runs to merge.
+     * @param output the run which will contain the output tuples.
+     */
+    private void performMultiMerge(List<Operator> inputs, ExternalBlockCacheOperator output) {
+        LoserTree merge = new LoserTree(inputs, tupleComparator);
+
+        Tuple next;
+        while ((next = merge.next()) != null) {
+            output.writeTupleToBuffer(next);
         }
     }
 
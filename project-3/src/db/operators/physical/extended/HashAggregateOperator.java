@@ -0,0 +1,352 @@
+package db.operators.physical.extended;
+
+import db.PhysicalPlanConfig;
+import db.PhysicalPlanConfig.PageFormat;
+import db.PhysicalPlanConfig.ReaderImplementation;
+import db.PhysicalPlanConfig.SortImplementation;
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.operators.Aggregate;
+import db.operators.physical.AbstractOperator;
+import db.operators.physical.Operator;
+import db.operators.physical.PhysicalTreeVisitor;
+import db.operators.physical.utility.ExternalBlockCacheOperator;
+import db.operators.physical.utility.HashPartitions;
+import db.operators.physical.utility.TupleHashTable;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This operator computes aggregates over groups of tuples, by keeping the state of every group in hash tables. The
+ * source may be in any order, and the groups are returned in no particular order.
+ * <p>
+ * The groups are split into partitions on the hash of their key. Whenever the groups in memory outgrow the buffer,
+ * the states of the largest partition are written to a temporary file as partial tuples, as are the tuples which
+ * later fall into it. Once the source has been read, the groups in memory are returned, and the partial tuples of
+ * each partition on disk are merged by another hash aggregate which partitions on different bits of the hash.
+ * Partitions which are still too large after a few levels are sorted and merged by a {@link SortAggregateOperator}.
+ * The partitions are kept by {@link HashPartitions}, the state of each group alongside its key.
+ *
+ * @inheritDoc
+ */
+public class HashAggregateOperator extends AbstractOperator implements AggregateOperator {
+    private static final int NONE = -1;
+
+    private final Operator source;
+    private final Aggregator aggregator;
+    private final int[] keys;
+
+    private final int bufferPages;
+    private final Path tempFolder;
+    private final ReaderImplementation readerImplementation;
+    private final PageFormat spillFormat;
+    private final int level;
+
+    private final HashPartitions partitions;
+    private List<List<long[]>> states;
+
+    private boolean built;
+
+    private int partition;
+    private int entry;
+    private Operator partitionAggregate;
+
+    /**
+     * @param source               The child node, its tuples may come in any order.
+     * @param groupBy              The columns the tuples are grouped on, empty to aggregate the whole relation.
+     * @param aggregates           The aggregates computed for every group.
+     * @param bufferPages          The number of pages of groups held in memory.
+     * @param tempFolder           The folder which holds the partitions written to disk.
+     * @param readerImplementation The way pages of the partitions are read back from disk.
+     * @param spillFormat          The format of the pages of the partitions.
+     */
+    public HashAggregateOperator(Operator source, TableHeader groupBy, List<Aggregate> aggregates, int bufferPages,
+                                 Path tempFolder, ReaderImplementation readerImplementation, PageFormat spillFormat) {
+        this(source, new Aggregator(source.getHeader(), groupBy, aggregates), bufferPages, tempFolder,
+                readerImplementation, spillFormat, 0);
+    }
+
+    /**
+     * @param aggregator The aggregator of the tuples of the source.
+     * @param level      The number of times the groups have already been partitioned.
+     */
+    private HashAggregateOperator(Operator source, Aggregator aggregator, int bufferPages, Path tempFolder,
+                                  ReaderImplementation readerImplementation, PageFormat spillFormat, int level) {
+        this.source = source;
+        this.aggregator = aggregator;
+
+        this.keys = new int[aggregator.getKeyWidth()];
+        for (int i = 0; i < this.keys.length; i++) {
+            this.keys[i] = i;
+        }
+
+        this.bufferPages = Math.max(1, bufferPages);
+        this.tempFolder = tempFolder;
+        this.readerImplementation = readerImplementation;
+        this.spillFormat = spillFormat;
+        this.level = level;
+
+        this.partitions = new HashPartitions("Aggregate", this.keys, new TableHeader[]{aggregator.getPartialHeader()},
+                this.bufferPages, level, tempFolder, readerImplementation, spillFormat, this::spillGroups);
+
+        this.clear();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    protected Tuple generateNextTuple() {
+        this.build();
+
+        while (true) {
+            if (this.isInMemoryPartition()) {
+                if (this.entry < this.partitions.get(this.partition).size()) {
+                    int[] key = this.partitions.get(this.partition).get(this.entry).fields;
+                    long[] state = this.states.get(this.partition).get(this.entry++);
+
+                    return this.aggregator.toOutput(key, state);
+                }
+
+                this.finishPartition();
+            } else if (this.partitionAggregate != null) {
+                Tuple tuple = this.partitionAggregate.getNextTuple();
+
+                if (tuple != null) {
+                    return tuple;
+                }
+
+                this.finishPartition();
+            } else if (!this.nextPartition()) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Read the whole source into the groups, the first time tuples are requested. Rows of groups in memory are added
+     * to their state without creating a tuple.
+     */
+    private void build() {
+        if (this.built) {
+            return;
+        }
+
+        int[] key = new int[this.keys.length];
+
+        TupleBatch batch;
+        while ((batch = this.source.getNextBatch()) != null) {
+            for (int row = 0; row < batch.size(); row++) {
+                this.aggregator.readKey(batch, row, key);
+
+                int hash = TupleHashTable.hash(key, this.keys);
+                int partition = this.partitions.partitionOf(hash);
+
+                TupleHashTable table = this.partitions.get(partition);
+
+                if (table != null) {
+                    int entry = table.find(key, this.keys, hash);
+
+                    if (entry == NONE) {
+                        table.insert(new Tuple(key.clone()), hash);
+                        this.states.get(partition).add(this.aggregator.newState());
+                        this.aggregator.accumulate(this.states.get(partition).get(table.size() - 1), batch, row);
+
+                        this.partitions.entryAdded();
+                    } else {
+                        this.aggregator.accumulate(this.states.get(partition).get(entry), batch, row);
+                    }
+                } else {
+                    this.partitions.write(partition, 0, this.aggregator.toPartial(batch, row));
+                }
+            }
+        }
+
+        // Aggregating a whole relation gives one result, even if it is empty
+        if (this.keys.length == 0 && this.partitions.getResidentCount() == 0 && this.partitions.getSpilledCount() == 0) {
+            this.partitions.get(0).insert(new Tuple(key), TupleHashTable.hash(key, this.keys));
+            this.states.get(0).add(this.aggregator.newState());
+        }
+
+        this.built = true;
+    }
+
+    /**
+     * Move on to the next partition, the ones on disk get their own operator to merge their partial tuples.
+     *
+     * @return False if every partition has been returned.
+     */
+    private boolean nextPartition() {
+        while (++this.partition < this.partitions.getPartitionCount()) {
+            this.entry = 0;
+
+            if (this.partitions.get(this.partition) != null) {
+                return true;
+            }
+
+            this.partitions.flush(this.partition);
+            ExternalBlockCacheOperator spill = this.partitions.getSpill(this.partition, 0);
+
+            Aggregator partial = this.aggregator.partial();
+
+            if (!this.partitions.canPartitionAgain()) {
+                Operator sorted = new ExternalSortOperator(spill, partial.getGroupHeader(), this.getSortConfig(),
+                        this.tempFolder);
+
+                this.partitionAggregate = new SortAggregateOperator(sorted, partial);
+            } else {
+                this.partitionAggregate = new HashAggregateOperator(spill, partial, this.bufferPages, this.tempFolder,
+                        this.readerImplementation, this.spillFormat, this.level + 1);
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return Whether the current partition is held in memory.
+     */
+    private boolean isInMemoryPartition() {
+        return this.partition != NONE && this.partition < this.partitions.getPartitionCount()
+                && this.partitions.get(this.partition) != null;
+    }
+
+    /**
+     * Release the current partition, and delete its file if it was on disk.
+     */
+    private void finishPartition() {
+        this.states.set(this.partition, null);
+
+        if (this.partitionAggregate != null) {
+            this.partitionAggregate.close();
+            this.partitionAggregate = null;
+        }
+
+        this.partitions.release(this.partition);
+    }
+
+    /**
+     * Write the groups of a partition which is moved to disk as partial tuples, and drop their states.
+     *
+     * @param partition The index of the partition.
+     * @param table     The keys of the groups of the partition.
+     * @param spill     The file of the partition.
+     */
+    private void spillGroups(int partition, TupleHashTable table, ExternalBlockCacheOperator spill) {
+        List<long[]> tableStates = this.states.get(partition);
+
+        for (int entry = 0; entry < table.size(); entry++) {
+            spill.writeTupleToBuffer(this.aggregator.toPartial(table.get(entry).fields, tableStates.get(entry)));
+        }
+
+        this.states.set(partition, null);
+    }
+
+    /**
+     * @return The settings of the external sort of a partition which can not be split again.
+     */
+    private PhysicalPlanConfig getSortConfig() {
+        PhysicalPlanConfig config = new PhysicalPlanConfig(null, SortImplementation.EXTERNAL, 0, Math.max(3, this.bufferPages), false);
+        config.readerImplementation = this.readerImplementation;
+        config.spillFormat = this.spillFormat;
+
+        return config;
+    }
+
+    /**
+     * Delete any partitions left on disk and start over with every partition in memory.
+     */
+    private void clear() {
+        if (this.partitionAggregate != null) {
+            this.partitionAggregate.close();
+        }
+
+        this.partitions.clear();
+        this.states = new ArrayList<>();
+
+        for (int i = 0; i < this.partitions.getPartitionCount(); i++) {
+            this.states.add(new ArrayList<>());
+        }
+
+        this.built = false;
+
+        this.partition = NONE;
+        this.entry = 0;
+        this.partitionAggregate = null;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public TableHeader getHeader() {
+        return this.aggregator.getOutputHeader();
+    }
+
+    /**
+     * The source is read again, as the groups are dropped once they have been returned.
+     *
+     * @inheritDoc
+     */
+    @Override
+    public boolean reset() {
+        this.clear();
+        this.next = null;
+
+        return this.source.reset();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void accept(PhysicalTreeVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void close() {
+        this.clear();
+        this.source.close();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Operator getChild() {
+        return this.source;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public TableHeader getGroupHeader() {
+        return this.aggregator.getGroupHeader();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public List<Aggregate> getAggregates() {
+        return this.aggregator.getAggregates();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public String getAggregateType() {
+        return "HashAggregate";
+    }
+}
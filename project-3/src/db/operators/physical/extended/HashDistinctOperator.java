@@ -0,0 +1,319 @@
+package db.operators.physical.extended;
+
+import db.PhysicalPlanConfig;
+import db.PhysicalPlanConfig.PageFormat;
+import db.PhysicalPlanConfig.ReaderImplementation;
+import db.PhysicalPlanConfig.SortImplementation;
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.operators.UnaryNode;
+import db.operators.physical.AbstractOperator;
+import db.operators.physical.Operator;
+import db.operators.physical.PhysicalTreeVisitor;
+import db.operators.physical.utility.ExternalBlockCacheOperator;
+import db.operators.physical.utility.HashPartitions;
+import db.operators.physical.utility.TupleHashTable;
+
+import java.nio.file.Path;
+
+/**
+ * This operator removes any duplicate tuples from the input, by keeping the distinct tuples in hash tables. Unlike
+ * {@link DistinctOperator} the input does not need to be sorted, and the output is in no particular order.
+ * <p>
+ * The tuples are split into partitions on their hash. Whenever the distinct tuples in memory outgrow the buffer, the
+ * largest partition is written to a temporary file, as are the tuples which later fall into it. Once the input has
+ * been read, the partitions in memory are returned, and the duplicates of each partition on disk are removed by
+ * another hash distinct which partitions on different bits of the hash. Partitions which are still too large after a
+ * few levels are sorted instead. The partitions are kept by {@link HashPartitions}.
+ *
+ * @inheritDoc
+ */
+public class HashDistinctOperator extends AbstractOperator implements UnaryNode<Operator> {
+    private static final int NONE = -1;
+
+    private final Operator source;
+    private final int[] keys;
+
+    private final int bufferPages;
+    private final Path tempFolder;
+    private final ReaderImplementation readerImplementation;
+    private final PageFormat spillFormat;
+    private final int level;
+
+    private final HashPartitions partitions;
+
+    private boolean built;
+
+    private int partition;
+    private int entry;
+    private Operator partitionDistinct;
+
+    /**
+     * @param source               The child node, its tuples may come in any order.
+     * @param bufferPages          The number of pages of distinct tuples held in memory.
+     * @param tempFolder           The folder which holds the partitions written to disk.
+     * @param readerImplementation The way pages of the partitions are read back from disk.
+     * @param spillFormat          The format of the pages of the partitions.
+     */
+    public HashDistinctOperator(Operator source, int bufferPages, Path tempFolder,
+                                ReaderImplementation readerImplementation, PageFormat spillFormat) {
+        this(source, bufferPages, tempFolder, readerImplementation, spillFormat, 0);
+    }
+
+    /**
+     * @param level The number of times the tuples have already been partitioned.
+     */
+    private HashDistinctOperator(Operator source, int bufferPages, Path tempFolder,
+                                 ReaderImplementation readerImplementation, PageFormat spillFormat, int level) {
+        this.source = source;
+
+        this.keys = new int[source.getHeader().size()];
+        for (int i = 0; i < this.keys.length; i++) {
+            this.keys[i] = i;
+        }
+
+        this.bufferPages = Math.max(1, bufferPages);
+        this.tempFolder = tempFolder;
+        this.readerImplementation = readerImplementation;
+        this.spillFormat = spillFormat;
+        this.level = level;
+
+        this.partitions = new HashPartitions("Distinct", this.keys, new TableHeader[]{source.getHeader()},
+                this.bufferPages, level, tempFolder, readerImplementation, spillFormat);
+
+        this.clear();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    protected Tuple generateNextTuple() {
+        this.build();
+
+        while (true) {
+            if (this.isInMemoryPartition()) {
+                if (this.entry < this.partitions.get(this.partition).size()) {
+                    return this.partitions.get(this.partition).get(this.entry++);
+                }
+
+                this.finishPartition();
+            } else if (this.partitionDistinct != null) {
+                Tuple tuple = this.partitionDistinct.getNextTuple();
+
+                if (tuple != null) {
+                    return tuple;
+                }
+
+                this.finishPartition();
+            } else if (!this.nextPartition()) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    protected TupleBatch generateNextBatch() {
+        this.build();
+
+        TupleBatch batch = this.getBatchBuffer();
+        batch.clear();
+
+        while (true) {
+            if (this.isInMemoryPartition()) {
+                TupleHashTable table = this.partitions.get(this.partition);
+
+                while (!batch.isFull() && this.entry < table.size()) {
+                    batch.add(table.get(this.entry++));
+                }
+
+                if (batch.isFull()) {
+                    return batch;
+                }
+
+                this.finishPartition();
+            } else if (this.partitionDistinct != null) {
+                if (!batch.isEmpty()) {
+                    return batch;
+                }
+
+                // Pass on the batches of the partitions on disk
+                TupleBatch partitionBatch = this.partitionDistinct.getNextBatch();
+
+                if (partitionBatch != null) {
+                    return partitionBatch;
+                }
+
+                this.finishPartition();
+            } else if (!this.nextPartition()) {
+                return batch.isEmpty() ? null : batch;
+            }
+        }
+    }
+
+    /**
+     * Read the whole input into the partitions, the first time tuples are requested. Duplicates of tuples in memory
+     * are dropped before a tuple is created for them.
+     */
+    private void build() {
+        if (this.built) {
+            return;
+        }
+
+        int[] row = new int[this.keys.length];
+
+        TupleBatch batch;
+        while ((batch = this.source.getNextBatch()) != null) {
+            for (int i = 0; i < batch.size(); i++) {
+                for (int column = 0; column < row.length; column++) {
+                    row[column] = batch.columns[column][i];
+                }
+
+                int hash = TupleHashTable.hash(row, this.keys);
+                int partition = this.partitions.partitionOf(hash);
+                TupleHashTable table = this.partitions.get(partition);
+
+                if (table != null) {
+                    if (table.find(row, this.keys, hash) != NONE) {
+                        continue;
+                    }
+
+                    table.insert(new Tuple(row.clone()), hash);
+                    this.partitions.entryAdded();
+                } else {
+                    this.partitions.write(partition, 0, new Tuple(row.clone()));
+                }
+            }
+        }
+
+        this.built = true;
+    }
+
+    /**
+     * Move on to the next partition, the ones on disk get their own operator to remove their duplicates.
+     *
+     * @return False if every partition has been returned.
+     */
+    private boolean nextPartition() {
+        while (++this.partition < this.partitions.getPartitionCount()) {
+            this.entry = 0;
+
+            if (this.partitions.get(this.partition) != null) {
+                return true;
+            }
+
+            this.partitions.flush(this.partition);
+            ExternalBlockCacheOperator spill = this.partitions.getSpill(this.partition, 0);
+
+            if (!this.partitions.canPartitionAgain()) {
+                this.partitionDistinct = new DistinctOperator(new ExternalSortOperator(spill, this.getHeader(),
+                        this.getSortConfig(), this.tempFolder));
+            } else {
+                this.partitionDistinct = new HashDistinctOperator(spill, this.bufferPages, this.tempFolder,
+                        this.readerImplementation, this.spillFormat, this.level + 1);
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return Whether the current partition is held in memory.
+     */
+    private boolean isInMemoryPartition() {
+        return this.partition != NONE && this.partition < this.partitions.getPartitionCount()
+                && this.partitions.get(this.partition) != null;
+    }
+
+    /**
+     * Release the current partition, and delete its file if it was on disk.
+     */
+    private void finishPartition() {
+        if (this.partitionDistinct != null) {
+            this.partitionDistinct.close();
+            this.partitionDistinct = null;
+        }
+
+        this.partitions.release(this.partition);
+    }
+
+    /**
+     * @return The settings of the external sort of a partition which can not be split again.
+     */
+    private PhysicalPlanConfig getSortConfig() {
+        PhysicalPlanConfig config = new PhysicalPlanConfig(null, SortImplementation.EXTERNAL, 0, Math.max(3, this.bufferPages), false);
+        config.readerImplementation = this.readerImplementation;
+        config.spillFormat = this.spillFormat;
+
+        return config;
+    }
+
+    /**
+     * Delete any partitions left on disk and start over with every partition in memory.
+     */
+    private void clear() {
+        if (this.partitionDistinct != null) {
+            this.partitionDistinct.close();
+        }
+
+        this.partitions.clear();
+
+        this.built = false;
+
+        this.partition = NONE;
+        this.entry = 0;
+        this.partitionDistinct = null;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public TableHeader getHeader() {
+        return this.source.getHeader();
+    }
+
+    /**
+     * The input is read again, as the partitions are dropped once they have been returned.
+     *
+     * @inheritDoc
+     */
+    @Override
+    public boolean reset() {
+        this.clear();
+        this.next = null;
+
+        return this.source.reset();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void accept(PhysicalTreeVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void close() {
+        this.clear();
+        this.source.close();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Operator getChild() {
+        return this.source;
+    }
+}
@@ -2,6 +2,7 @@ package db.operators.physical.extended;
 
 import db.datastore.TableHeader;
 import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
 import db.operators.UnaryNode;
 import db.operators.physical.AbstractOperator;
 import db.operators.physical.Operator;
@@ -9,7 +10,6 @@ import db.operators.physical.PhysicalTreeVisitor;
 import db.operators.physical.SeekableOperator;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
@@ -23,7 +23,7 @@ public class InMemorySortOperator extends AbstractOperator implements SortOperat
     private final Operator source;
 
     private final TableHeader sortHeader;
-    private Comparator<Tuple> tupleComparator;
+    private TupleComparator tupleComparator;
 
     private List<Tuple> buffer;
     private Iterator<Tuple> bufferIterator;
@@ -74,6 +74,27 @@ public class InMemorySortOperator extends AbstractOperator implements SortOperat
         }
     }
 
+    /**
+     * @inheritDoc
+     */
+    @Override
+    protected TupleBatch generateNextBatch() {
+        if (!isSorted) {
+            this.buffer();
+        }
+
+        TupleBatch batch = this.getBatchBuffer();
+        batch.clear();
+
+        while (!batch.isFull() && this.bufferIterator.hasNext()) {
+            batch.add(this.bufferIterator.next());
+        }
+
+        this.tupleIndex += batch.size();
+
+        return batch.isEmpty() ? null : batch;
+    }
+
     /**
      * @inheritDoc
      */
@@ -110,7 +131,8 @@ public class InMemorySortOperator extends AbstractOperator implements SortOperat
     }
 
     /**
-     * Read all the tuples from the child operator then sort them using the provided sort headers.
+     * Read all the tuples from the child operator then sort them on their normalized keys, with a radix sort unless
+     * there are only a few of them.
      */
     private void buffer() {
         this.buffer = new ArrayList<>();
@@ -120,7 +142,7 @@ public class InMemorySortOperator extends AbstractOperator implements SortOperat
             this.buffer.add(tuple);
         }
 
-        this.buffer.sort(tupleComparator);
+        this.tupleComparator.sort(this.buffer);
         this.isSorted = true;
 
         this.reset();
@@ -0,0 +1,158 @@
+package db.operators.physical.extended;
+
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.operators.UnaryNode;
+import db.operators.physical.AbstractOperator;
+import db.operators.physical.Operator;
+import db.operators.physical.PhysicalTreeVisitor;
+
+/**
+ * This operator skips a number of tuples of its source and returns at most a given number of the following ones.
+ * <p>
+ * The source is not pulled from once the last tuple has been returned, so a pipeline without blocking operators
+ * below the limit stops reading its tables early.
+ *
+ * @inheritDoc
+ */
+public class LimitOperator extends AbstractOperator implements UnaryNode<Operator> {
+    private final Operator source;
+    private final long offset;
+    private final long limit;
+
+    private long skipped;
+    private long returned;
+
+    /**
+     * @param source The child node.
+     * @param offset The number of tuples skipped before the first one which is returned.
+     * @param limit  The maximum number of tuples returned.
+     */
+    public LimitOperator(Operator source, long offset, long limit) {
+        this.source = source;
+        this.offset = offset;
+        this.limit = limit;
+
+        this.skipped = 0;
+        this.returned = 0;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    protected Tuple generateNextTuple() {
+        while (this.returned < this.limit) {
+            Tuple next = this.source.getNextTuple();
+
+            if (next == null) {
+                return null;
+            }
+
+            if (this.skipped < this.offset) {
+                this.skipped++;
+            } else {
+                this.returned++;
+                return next;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * The batches of the source are passed on, cut down to the range of tuples which are returned.
+     *
+     * @inheritDoc
+     */
+    @Override
+    protected TupleBatch generateNextBatch() {
+        while (this.returned < this.limit) {
+            TupleBatch batch = this.source.getNextBatch();
+
+            if (batch == null) {
+                return null;
+            }
+
+            int from = (int) Math.min(batch.size(), this.offset - this.skipped);
+            int to = from + (int) Math.min(batch.size() - from, this.limit - this.returned);
+
+            this.skipped += from;
+
+            if (from == to) {
+                continue;
+            }
+
+            this.returned += to - from;
+
+            for (int row = from; from > 0 && row < to; row++) {
+                batch.moveRow(row, row - from);
+            }
+
+            batch.truncate(to - from);
+
+            return batch;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The number of tuples skipped before the first one which is returned.
+     */
+    public long getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * @return The maximum number of tuples returned.
+     */
+    public long getLimit() {
+        return this.limit;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public TableHeader getHeader() {
+        return this.source.getHeader();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public boolean reset() {
+        this.skipped = 0;
+        this.returned = 0;
+        this.next = null;
+
+        return this.source.reset();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void accept(PhysicalTreeVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void close() {
+        this.source.close();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Operator getChild() {
+        return this.source;
+    }
+}
@@ -0,0 +1,198 @@
+package db.operators.physical.extended;
+
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.operators.Aggregate;
+import db.operators.physical.AbstractOperator;
+import db.operators.physical.Operator;
+import db.operators.physical.PhysicalTreeVisitor;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This operator computes aggregates over groups of tuples, which must come next to each other. The source has to be
+ * sorted on the group columns, in any order of the columns, and only the state of the current group is held.
+ * <p>
+ * Without group columns the whole relation is one group, and a single tuple is returned even if it is empty.
+ *
+ * @inheritDoc
+ */
+public class SortAggregateOperator extends AbstractOperator implements AggregateOperator {
+    private final Operator source;
+    private final Aggregator aggregator;
+
+    private TupleBatch sourceBatch;
+    private int sourceRow;
+
+    private int[] key;
+    private int[] rowKey;
+    private long[] state;
+    private boolean grouping;
+    private boolean returnedAny;
+
+    /**
+     * @param source     The child node, its tuples must be sorted on the group columns.
+     * @param groupBy    The columns the tuples are grouped on, empty to aggregate the whole relation.
+     * @param aggregates The aggregates computed for every group.
+     */
+    public SortAggregateOperator(Operator source, TableHeader groupBy, List<Aggregate> aggregates) {
+        this(source, new Aggregator(source.getHeader(), groupBy, aggregates));
+    }
+
+    /**
+     * @param source     The child node, its tuples must be sorted on the group columns.
+     * @param aggregator The aggregator of the tuples of the source.
+     */
+    SortAggregateOperator(Operator source, Aggregator aggregator) {
+        this.source = source;
+        this.aggregator = aggregator;
+
+        this.key = new int[aggregator.getKeyWidth()];
+        this.rowKey = new int[aggregator.getKeyWidth()];
+
+        this.clear();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    protected Tuple generateNextTuple() {
+        while (true) {
+            if (this.sourceBatch == null || this.sourceRow >= this.sourceBatch.size()) {
+                this.sourceBatch = this.source.getNextBatch();
+                this.sourceRow = 0;
+
+                if (this.sourceBatch == null) {
+                    return this.finish();
+                }
+            }
+
+            this.aggregator.readKey(this.sourceBatch, this.sourceRow, this.rowKey);
+
+            if (this.grouping && !Arrays.equals(this.key, this.rowKey)) {
+                // The row starts the next group, it is added once this group has been returned
+                Tuple result = this.aggregator.toOutput(this.key, this.state);
+                this.startGroup();
+                this.returnedAny = true;
+
+                return result;
+            }
+
+            if (!this.grouping) {
+                this.startGroup();
+            }
+
+            this.aggregator.accumulate(this.state, this.sourceBatch, this.sourceRow++);
+        }
+    }
+
+    /**
+     * Start a new group with the key of the current row.
+     */
+    private void startGroup() {
+        System.arraycopy(this.rowKey, 0, this.key, 0, this.key.length);
+        this.state = this.aggregator.newState();
+        this.grouping = true;
+    }
+
+    /**
+     * Return the last group, once the source has run out.
+     *
+     * @return The last group, or null if it has already been returned.
+     */
+    private Tuple finish() {
+        Tuple result = null;
+
+        if (this.grouping) {
+            result = this.aggregator.toOutput(this.key, this.state);
+        } else if (!this.returnedAny && this.key.length == 0) {
+            result = this.aggregator.toOutput(this.key, this.aggregator.newState());
+        }
+
+        this.grouping = false;
+        this.returnedAny = true;
+
+        return result;
+    }
+
+    /**
+     * Forget the current group.
+     */
+    private void clear() {
+        this.sourceBatch = null;
+        this.sourceRow = 0;
+        this.state = null;
+        this.grouping = false;
+        this.returnedAny = false;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public TableHeader getHeader() {
+        return this.aggregator.getOutputHeader();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public boolean reset() {
+        this.clear();
+        this.next = null;
+
+        return this.source.reset();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void accept(PhysicalTreeVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void close() {
+        this.source.close();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Operator getChild() {
+        return this.source;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public TableHeader getGroupHeader() {
+        return this.aggregator.getGroupHeader();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public List<Aggregate> getAggregates() {
+        return this.aggregator.getAggregates();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public String getAggregateType() {
+        return "SortAggregate";
+    }
+}
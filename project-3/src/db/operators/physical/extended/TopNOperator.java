@@ -0,0 +1,216 @@
+package db.operators.physical.extended;
+
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.operators.UnaryNode;
+import db.operators.physical.AbstractOperator;
+import db.operators.physical.Operator;
+import db.operators.physical.PhysicalTreeVisitor;
+import db.operators.physical.SeekableOperator;
+import db.operators.physical.utility.TupleHashTable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * This operator returns the first tuples of its source in sorted order, ordered like an {@link InMemorySortOperator}.
+ * <p>
+ * Only a heap of the smallest tuples seen so far is kept, with the largest of them on top. A row of the source which
+ * does not sort before the top of a full heap is dropped without being copied out of its batch, so finding the first
+ * n of N tuples takes O(N log n) time and O(n) memory, and nothing is written to disk.
+ *
+ * @inheritDoc
+ */
+public class TopNOperator extends AbstractOperator implements SortOperator, UnaryNode<Operator>, SeekableOperator {
+    private final Operator source;
+
+    private final TableHeader sortHeader;
+    private final Comparator<Tuple> tupleComparator;
+    private final int[] sortKeys;
+    private final int count;
+
+    private List<Tuple> buffer;
+    private boolean isSorted;
+
+    private int position;
+
+    /**
+     * @param source     The operator which creates the tuples which shall be sorted.
+     * @param sortHeader The header defines the name and sort order of the columns which are to be used for sorting.
+     * @param count      The number of tuples returned.
+     */
+    public TopNOperator(Operator source, TableHeader sortHeader, int count) {
+        this.source = source;
+        this.sortHeader = sortHeader;
+        this.count = count;
+
+        this.tupleComparator = new TupleComparator(sortHeader, source.getHeader());
+        this.sortKeys = TupleHashTable.resolveKeys(sortHeader, source.getHeader());
+
+        this.buffer = new ArrayList<>();
+        this.isSorted = false;
+        this.position = 0;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    protected Tuple generateNextTuple() {
+        if (!this.isSorted) {
+            this.buffer();
+        }
+
+        return this.position < this.buffer.size() ? this.buffer.get(this.position++) : null;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    protected TupleBatch generateNextBatch() {
+        if (!this.isSorted) {
+            this.buffer();
+        }
+
+        TupleBatch batch = this.getBatchBuffer();
+        batch.clear();
+
+        while (!batch.isFull() && this.position < this.buffer.size()) {
+            batch.add(this.buffer.get(this.position++));
+        }
+
+        return batch.isEmpty() ? null : batch;
+    }
+
+    /**
+     * Read all the tuples from the child operator, keeping only the first ones, then sort those.
+     */
+    private void buffer() {
+        PriorityQueue<Tuple> heap = new PriorityQueue<>(Math.max(1, this.count), this.tupleComparator.reversed());
+
+        TupleBatch batch;
+        while (this.count > 0 && (batch = this.source.getNextBatch()) != null) {
+            for (int row = 0; row < batch.size(); row++) {
+                if (heap.size() < this.count) {
+                    heap.add(batch.getTuple(row));
+                } else if (this.compareRow(batch, row, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(batch.getTuple(row));
+                }
+            }
+        }
+
+        this.buffer = new ArrayList<>(heap);
+        this.buffer.sort(this.tupleComparator);
+        this.isSorted = true;
+
+        this.reset();
+    }
+
+    /**
+     * Compare a row of a batch with a tuple on the sort columns.
+     *
+     * @param batch The batch.
+     * @param row   The row.
+     * @param tuple The tuple.
+     * @return Standard comparator contract.
+     */
+    private int compareRow(TupleBatch batch, int row, Tuple tuple) {
+        for (int key : this.sortKeys) {
+            int result = Integer.compare(batch.columns[key][row], tuple.fields[key]);
+
+            if (result != 0) {
+                return result;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return The number of tuples returned.
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public TableHeader getHeader() {
+        return this.source.getHeader();
+    }
+
+    /**
+     * @inheritDoc This does not reset the underlying stream, only rewinds the buffer.
+     */
+    @Override
+    public boolean reset() {
+        this.position = 0;
+        this.next = null;
+        return true;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public long getTupleIndex() {
+        return this.position - 1;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public String getSortType() {
+        return "TopN(" + this.count + ")";
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void accept(PhysicalTreeVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void close() {
+        this.buffer.clear();
+        this.source.close();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Operator getChild() {
+        return this.source;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public TableHeader getSortHeader() {
+        return this.sortHeader;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void seek(long index) {
+        this.position = (int) index;
+        this.next = null;
+    }
+}
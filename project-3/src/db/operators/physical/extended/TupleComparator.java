@@ -4,18 +4,32 @@ import db.Utilities.Utilities;
 import db.datastore.TableHeader;
 import db.datastore.tuple.Tuple;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Optional;
 
 /**
  * A tuple comparator used by the sorting operators
+ * <p>
+ * The first two key columns of a tuple can also be packed into a normalized key, a long which orders tuples the same
+ * way as those columns. Operators which compare a tuple many times encode its key once, and only compare the other key
+ * columns when the normalized keys are equal.
  */
 public class TupleComparator implements Comparator<Tuple> {
+    /**
+     * The number of key columns packed into a normalized key.
+     */
+    private static final int NORMALIZED_COLUMNS = 2;
+
+    /**
+     * Shorter lists are sorted by comparison, as the counting passes of a radix sort cost more than they save.
+     */
+    private static final int RADIX_THRESHOLD = 512;
 
-    private List<Integer> comparisonKeys1;
-    private List<Integer> comparisonKeys2;
+    private final int[] comparisonKeys1;
+    private final int[] comparisonKeys2;
 
     /**
      * Build a comparator that compares fields in the order specified by the sortHeader parameter.
@@ -26,8 +40,8 @@ public class TupleComparator implements Comparator<Tuple> {
      * @param tupleHeader2 Header structure of the right tuples to be compared
      */
     public TupleComparator(TableHeader sortHeader1, TableHeader tupleHeader1, TableHeader sortHeader2, TableHeader tupleHeader2) {
-        comparisonKeys1 = new ArrayList<>();
-        comparisonKeys2 = new ArrayList<>();
+        comparisonKeys1 = new int[sortHeader1.size()];
+        comparisonKeys2 = new int[sortHeader1.size()];
 
         // Build the internal comparison key list
         for (int i = 0; i < sortHeader1.size(); i++) {
@@ -41,8 +55,8 @@ public class TupleComparator implements Comparator<Tuple> {
             Optional<Integer> index2 = tupleHeader2.resolve(alias2, header2);
 
             if (index1.isPresent() && index2.isPresent()) {
-                comparisonKeys1.add(index1.get());
-                comparisonKeys2.add(index2.get());
+                comparisonKeys1[i] = index1.get();
+                comparisonKeys2[i] = index2.get();
             } else {
                 throw new RuntimeException("Sort mappings are incorrect. " + alias1 + "." + header1 + " or " + alias2 + "." + header2 + " has no match.");
             }
@@ -64,6 +78,203 @@ public class TupleComparator implements Comparator<Tuple> {
      */
     @Override
     public int compare(Tuple o1, Tuple o2) {
-        return Utilities.compareLists(o1.fields, o2.fields, comparisonKeys1, comparisonKeys2);
+        return Utilities.compareFields(o1.fields, o2.fields, comparisonKeys1, comparisonKeys2);
+    }
+
+    /**
+     * @param tuple a tuple with the layout of the left header.
+     * @return the normalized key of the tuple.
+     */
+    public long normalize(Tuple tuple) {
+        return normalize(tuple.fields, comparisonKeys1);
+    }
+
+    /**
+     * @param tuple a tuple with the layout of the right header.
+     * @return the normalized key of the tuple.
+     */
+    public long normalizeRight(Tuple tuple) {
+        return normalize(tuple.fields, comparisonKeys2);
+    }
+
+    /**
+     * Pack the first key column into the high half of a long, and the second into the low half with its sign bit
+     * flipped, so comparing the longs compares both columns in order.
+     *
+     * @param fields the fields of the tuple.
+     * @param keys   the key columns of the tuple.
+     * @return the normalized key.
+     */
+    private static long normalize(int[] fields, int[] keys) {
+        long high = keys.length > 0 ? fields[keys[0]] : 0;
+        long low = keys.length > 1 ? (fields[keys[1]] ^ Integer.MIN_VALUE) & 0xFFFFFFFFL : 0;
+
+        return (high << 32) | low;
+    }
+
+    /**
+     * Compare two tuples by their normalized keys, falling back to the other key columns on a tie.
+     *
+     * @param key1 the normalized key of the left tuple.
+     * @param o1   the left tuple.
+     * @param key2 the normalized key of the right tuple.
+     * @param o2   the right tuple.
+     * @return Standard comparator contract.
+     */
+    public int compare(long key1, Tuple o1, long key2, Tuple o2) {
+        int result = Long.compare(key1, key2);
+
+        if (result != 0 || comparisonKeys1.length <= NORMALIZED_COLUMNS) {
+            return result;
+        }
+
+        for (int i = NORMALIZED_COLUMNS; i < comparisonKeys1.length; i++) {
+            result = Integer.compare(o1.fields[comparisonKeys1[i]], o2.fields[comparisonKeys2[i]]);
+
+            if (result != 0) {
+                return result;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Sort tuples with the layout of the left header. Short lists are sorted by comparing normalized keys, longer ones
+     * by a radix sort on the normalized keys. Either sort is stable.
+     *
+     * @param tuples the tuples, sorted in place.
+     */
+    public void sort(List<Tuple> tuples) {
+        if (tuples.size() < RADIX_THRESHOLD) {
+            comparisonSort(tuples);
+        } else {
+            radixSort(tuples);
+        }
+    }
+
+    /**
+     * Sort tuples by comparison, encoding the normalized key of every tuple once rather than reading the key columns
+     * on each comparison.
+     *
+     * @param tuples the tuples, sorted in place.
+     */
+    private void comparisonSort(List<Tuple> tuples) {
+        KeyedTuple[] keyed = new KeyedTuple[tuples.size()];
+
+        int i = 0;
+        for (Tuple tuple : tuples) {
+            keyed[i++] = new KeyedTuple(normalize(tuple), tuple);
+        }
+
+        Arrays.sort(keyed, (a, b) -> compare(a.key, a.tuple, b.key, b.tuple));
+
+        ListIterator<Tuple> iterator = tuples.listIterator();
+        for (KeyedTuple entry : keyed) {
+            iterator.next();
+            iterator.set(entry.tuple);
+        }
+    }
+
+    /**
+     * Sort tuples with a least significant digit radix sort on their normalized keys. The keys and the row of every
+     * key are kept in two flat arrays, which are distributed by one byte of the key per pass, so the tuples are only
+     * touched to encode the keys and to put them in order at the end. A byte which is the same in every key is
+     * skipped, as is common in the high bytes of small values.
+     * <p>
+     * Tuples with equal normalized keys are then sorted on the other key columns by comparison.
+     *
+     * @param tuples the tuples, sorted in place.
+     */
+    private void radixSort(List<Tuple> tuples) {
+        int n = tuples.size();
+        Tuple[] input = tuples.toArray(new Tuple[n]);
+
+        long[] keys = new long[n];
+        int[] rows = new int[n];
+        int[][] counts = new int[8][256];
+
+        for (int i = 0; i < n; i++) {
+            // Flipping the sign bit makes the keys order as unsigned values, one byte at a time
+            long key = normalize(input[i]) ^ Long.MIN_VALUE;
+
+            keys[i] = key;
+            rows[i] = i;
+
+            for (int digit = 0; digit < 8; digit++) {
+                counts[digit][(int) (key >>> (8 * digit)) & 0xFF]++;
+            }
+        }
+
+        long[] keyBuffer = new long[n];
+        int[] rowBuffer = new int[n];
+
+        for (int digit = 0; digit < 8; digit++) {
+            int shift = 8 * digit;
+            int[] offsets = counts[digit];
+
+            if (offsets[(int) (keys[0] >>> shift) & 0xFF] == n) {
+                continue;
+            }
+
+            int offset = 0;
+            for (int value = 0; value < 256; value++) {
+                int count = offsets[value];
+                offsets[value] = offset;
+                offset += count;
+            }
+
+            for (int i = 0; i < n; i++) {
+                int target = offsets[(int) (keys[i] >>> shift) & 0xFF]++;
+                keyBuffer[target] = keys[i];
+                rowBuffer[target] = rows[i];
+            }
+
+            long[] sortedKeys = keyBuffer;
+            keyBuffer = keys;
+            keys = sortedKeys;
+
+            int[] sortedRows = rowBuffer;
+            rowBuffer = rows;
+            rows = sortedRows;
+        }
+
+        Tuple[] sorted = new Tuple[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = input[rows[i]];
+        }
+
+        if (comparisonKeys1.length > NORMALIZED_COLUMNS) {
+            int start = 0;
+
+            for (int i = 1; i <= n; i++) {
+                if (i == n || keys[i] != keys[start]) {
+                    if (i - start > 1) {
+                        Arrays.sort(sorted, start, i, this);
+                    }
+
+                    start = i;
+                }
+            }
+        }
+
+        ListIterator<Tuple> iterator = tuples.listIterator();
+        for (Tuple tuple : sorted) {
+            iterator.next();
+            iterator.set(tuple);
+        }
+    }
+
+    /**
+     * A tuple along with its normalized key.
+     */
+    private static class KeyedTuple {
+        final long key;
+        final Tuple tuple;
+
+        KeyedTuple(long key, Tuple tuple) {
+            this.key = key;
+            this.tuple = tuple;
+        }
     }
 }
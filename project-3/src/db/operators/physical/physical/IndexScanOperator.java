@@ -1,15 +1,20 @@
 package db.operators.physical.physical;
 
+import db.PhysicalPlanConfig.ReaderImplementation;
 import db.datastore.IndexInfo;
 import db.datastore.TableHeader;
 import db.datastore.TableInfo;
 import db.datastore.index.BTree;
 import db.datastore.index.Rid;
+import db.datastore.tuple.PagedTupleReader;
 import db.datastore.tuple.Tuple;
-import db.datastore.tuple.binary.BinaryTupleReader;
 import db.operators.logical.LogicalScanOperator;
 import db.operators.physical.AbstractOperator;
 import db.operators.physical.PhysicalTreeVisitor;
+import db.operators.physical.utility.RuntimeFilter;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * An operator that uses an index on a table to scan through
@@ -23,8 +28,10 @@ public class IndexScanOperator extends AbstractOperator {
     private final Integer highVal;
     private final IndexInfo index;
     private final TableHeader header;
+    private final ReaderImplementation readerImplementation;
+    private final List<RuntimeFilter> runtimeFilters = new ArrayList<>();
 
-    private BinaryTupleReader reader;
+    private PagedTupleReader reader;
     private BTree.BTreeDataIterator indexTreeIterator;
 
     /**
@@ -34,6 +41,18 @@ public class IndexScanOperator extends AbstractOperator {
      * @param highVal The maximum value (inclusive) tuples should contain for the key of indexTree
      */
     public IndexScanOperator(TableInfo tableInfo, String tableAlias, IndexInfo index, BTree indexTree, Integer lowVal, Integer highVal) {
+        this(tableInfo, tableAlias, index, indexTree, lowVal, highVal, ReaderImplementation.CHANNEL);
+    }
+
+    /**
+     * @param tableInfo The table that this operator is scanning
+     * @param indexTree The B+ tree that serves as the index for the table we are pulling tuples from
+     * @param lowVal The minimum value (inclusive) tuples should contain for the key of indexTree
+     * @param highVal The maximum value (inclusive) tuples should contain for the key of indexTree
+     * @param readerImplementation The way pages are read from the table file
+     */
+    public IndexScanOperator(TableInfo tableInfo, String tableAlias, IndexInfo index, BTree indexTree, Integer lowVal, Integer highVal, ReaderImplementation readerImplementation) {
+        this.readerImplementation = readerImplementation;
         this.tableInfo = tableInfo;
         this.indexTree = indexTree;
         this.lowVal = lowVal;
@@ -50,11 +69,39 @@ public class IndexScanOperator extends AbstractOperator {
      */
     @Override
     protected Tuple generateNextTuple() {
-        if (this.index.isClustered) {
-            return generateNextTupleClustered();
-        } else {
-            return generateNextTupleUnclustered();
+        Tuple tuple;
+
+        do {
+            if (this.index.isClustered) {
+                tuple = generateNextTupleClustered();
+            } else {
+                tuple = generateNextTupleUnclustered();
+            }
+        } while (tuple != null && !this.passesRuntimeFilters(tuple));
+
+        return tuple;
+    }
+
+    /**
+     * Drop the tuples which a runtime filter shows can not be joined, once the filter has been built.
+     *
+     * @param filter the filter, on a column of this scan's tuples.
+     */
+    public void addRuntimeFilter(RuntimeFilter filter) {
+        this.runtimeFilters.add(filter);
+    }
+
+    /**
+     * @return whether the tuple passes every runtime filter.
+     */
+    private boolean passesRuntimeFilters(Tuple tuple) {
+        for (RuntimeFilter filter : this.runtimeFilters) {
+            if (!filter.mightMatch(tuple.fields[filter.getProbeColumn()])) {
+                return false;
+            }
         }
+
+        return true;
     }
 
     /**
@@ -109,8 +156,8 @@ public class IndexScanOperator extends AbstractOperator {
      */
     private Tuple generateNextTupleClustered() {
         int index = this.tableInfo.header.resolve(this.tableInfo.tableName, this.index.attributeName).get();
-        boolean boundedByLow = (lowVal == null) || (this.reader.peek().fields.get(index) >= lowVal);
-        boolean boundedByHigh = (highVal == null) || (this.reader.peek().fields.get(index) <= highVal);
+        boolean boundedByLow = (lowVal == null) || (this.reader.peek().get(index) >= lowVal);
+        boolean boundedByHigh = (highVal == null) || (this.reader.peek().get(index) <= highVal);
         if (boundedByLow && boundedByHigh) {
             return this.reader.next();
         } else {
@@ -154,7 +201,7 @@ public class IndexScanOperator extends AbstractOperator {
      */
     private boolean resetUnclustered() {
         close();
-        this.reader = BinaryTupleReader.get(this.tableInfo.file);
+        this.reader = PagedTupleReader.get(this.tableInfo.file, this.readerImplementation);
         indexTreeIterator = indexTree.iteratorForRange(lowVal, highVal);
         return true;
     }
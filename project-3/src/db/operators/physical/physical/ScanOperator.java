@@ -1,14 +1,23 @@
 package db.operators.physical.physical;
 
+import db.PhysicalPlanConfig.ReaderImplementation;
 import db.datastore.TableHeader;
 import db.datastore.TableInfo;
+import db.datastore.stats.ColumnBounds;
+import db.datastore.stats.ZoneMap;
+import db.datastore.tuple.PagedTupleReader;
 import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
 import db.datastore.tuple.TupleReader;
-import db.datastore.tuple.binary.BinaryTupleReader;
+import db.datastore.tuple.compressed.CompressedTupleReader;
 import db.datastore.tuple.string.StringTupleReader;
 import db.operators.logical.LogicalScanOperator;
 import db.operators.physical.AbstractOperator;
 import db.operators.physical.PhysicalTreeVisitor;
+import db.operators.physical.utility.RuntimeFilter;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * An operator which reads a file and parses it according to the schema in the catalogue, producing tuples.
@@ -18,6 +27,10 @@ import db.operators.physical.PhysicalTreeVisitor;
 public class ScanOperator extends AbstractOperator {
     private final TableInfo table;
     private final TableHeader header;
+    private final ReaderImplementation readerImplementation;
+    private final int readAheadPages;
+    private final ColumnBounds bounds;
+    private final List<RuntimeFilter> runtimeFilters = new ArrayList<>();
     private TupleReader reader;
 
     /**
@@ -25,8 +38,44 @@ public class ScanOperator extends AbstractOperator {
      * @param tableAlias the renamed name of the table.
      */
     public ScanOperator(TableInfo table, String tableAlias) {
+        this(table, tableAlias, ReaderImplementation.CHANNEL);
+    }
+
+    /**
+     * @param table                the table's info
+     * @param tableAlias           the renamed name of the table.
+     * @param readerImplementation the way pages are read from binary tables.
+     */
+    public ScanOperator(TableInfo table, String tableAlias, ReaderImplementation readerImplementation) {
+        this(table, tableAlias, readerImplementation, 0);
+    }
+
+    /**
+     * @param table                the table's info
+     * @param tableAlias           the renamed name of the table.
+     * @param readerImplementation the way pages are read from binary tables.
+     * @param readAheadPages       the number of pages to read ahead on a background thread, 0 to disable.
+     */
+    public ScanOperator(TableInfo table, String tableAlias, ReaderImplementation readerImplementation, int readAheadPages) {
+        this(table, tableAlias, readerImplementation, readAheadPages, null);
+    }
+
+    /**
+     * The scan may skip pages which the table's zone map shows hold no tuple within the bounds, so some tuples outside
+     * of the bounds are still returned and must be filtered by a selection.
+     *
+     * @param table                the table's info
+     * @param tableAlias           the renamed name of the table.
+     * @param readerImplementation the way pages are read from binary tables.
+     * @param readAheadPages       the number of pages to read ahead on a background thread, 0 to disable.
+     * @param bounds               the bounds of the selection above the scan, null to read every page.
+     */
+    public ScanOperator(TableInfo table, String tableAlias, ReaderImplementation readerImplementation, int readAheadPages, ColumnBounds bounds) {
         this.table = table;
         this.header = LogicalScanOperator.computeHeader(table.header, tableAlias);
+        this.readerImplementation = readerImplementation;
+        this.readAheadPages = readAheadPages;
+        this.bounds = bounds;
         this.reset();
     }
 
@@ -36,6 +85,9 @@ public class ScanOperator extends AbstractOperator {
     public ScanOperator(TableInfo tableInfo) {
         this.table = tableInfo;
         this.header = tableInfo.header;
+        this.readerImplementation = ReaderImplementation.CHANNEL;
+        this.readAheadPages = 0;
+        this.bounds = null;
         this.reset();
     }
 
@@ -47,7 +99,85 @@ public class ScanOperator extends AbstractOperator {
      */
     @Override
     protected Tuple generateNextTuple() {
-        return this.reader.next();
+        Tuple tuple;
+
+        do {
+            tuple = this.reader.next();
+        } while (tuple != null && !this.passesRuntimeFilters(tuple));
+
+        return tuple;
+    }
+
+    /**
+     * The batch is filled directly by the reader, the rows dropped by runtime filters are removed in place.
+     *
+     * @inheritDoc
+     */
+    @Override
+    protected TupleBatch generateNextBatch() {
+        TupleBatch batch = this.getBatchBuffer();
+
+        do {
+            batch.clear();
+            this.reader.next(batch);
+
+            if (batch.isEmpty()) {
+                return null;
+            }
+
+            for (RuntimeFilter filter : this.runtimeFilters) {
+                if (filter.isReady()) {
+                    applyRuntimeFilter(filter, batch);
+                }
+            }
+        } while (batch.isEmpty());
+
+        return batch;
+    }
+
+    /**
+     * Drop the tuples which a runtime filter shows can not be joined, once the filter has been built.
+     *
+     * @param filter the filter, on a column of this scan's tuples.
+     */
+    public void addRuntimeFilter(RuntimeFilter filter) {
+        this.runtimeFilters.add(filter);
+    }
+
+    /**
+     * @return whether the tuple passes every runtime filter.
+     */
+    private boolean passesRuntimeFilters(Tuple tuple) {
+        for (RuntimeFilter filter : this.runtimeFilters) {
+            if (!filter.mightMatch(tuple.fields[filter.getProbeColumn()])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Remove the rows of a batch which do not pass a runtime filter.
+     *
+     * @param filter the filter.
+     * @param batch  the batch, compacted in place.
+     */
+    private static void applyRuntimeFilter(RuntimeFilter filter, TupleBatch batch) {
+        int[] keys = batch.columns[filter.getProbeColumn()];
+        int kept = 0;
+
+        for (int row = 0; row < batch.size(); row++) {
+            if (filter.mightMatch(keys[row])) {
+                if (row != kept) {
+                    batch.moveRow(row, kept);
+                }
+
+                kept++;
+            }
+        }
+
+        batch.truncate(kept);
     }
 
     /**
@@ -73,8 +203,17 @@ public class ScanOperator extends AbstractOperator {
             this.reader.close();
         }
 
-        if (this.table.binary) {
-            this.reader = BinaryTupleReader.get(this.table.file);
+        if (this.table.isCompressed()) {
+            this.reader = CompressedTupleReader.get(this.table.file);
+        } else if (this.table.binary) {
+            PagedTupleReader pagedReader = PagedTupleReader.get(this.table.file, this.readerImplementation, this.readAheadPages);
+            ZoneMap zoneMap = this.bounds != null ? this.table.getZoneMap() : null;
+
+            if (zoneMap != null) {
+                pagedReader.setPageFilter(page -> zoneMap.mayMatch(page, this.bounds));
+            }
+
+            this.reader = pagedReader;
         } else {
             this.reader = StringTupleReader.get(this.table.header, this.table.file);
         }
@@ -104,6 +104,17 @@ public class BlockCacheOperator extends AbstractOperator implements UnaryNode<Op
         return this.index < this.block.size();
     }
 
+    /**
+     * @return the tuples of the current block, the first block is loaded if needed.
+     */
+    public List<Tuple> getBlock() {
+        if (!this.blockLoaded) {
+            this.loadNextBlock();
+        }
+
+        return this.block;
+    }
+
     /**
      * Erase current buffer contents and read a block from source
      *
@@ -0,0 +1,77 @@
+package db.operators.physical.utility;
+
+/**
+ * A set of int keys which may answer that a key is present when it is not, but never that a present key is absent.
+ * <p>
+ * Each key sets a few bits of a bit array, picked by double hashing, and a key can only be present if all of its bits
+ * are set.
+ */
+public class BloomFilter {
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASHES = 5;
+
+    private final long[] bits;
+    private final int mask;
+
+    /**
+     * @param expectedKeys the number of keys which will be added, the size of the filter is based on it.
+     */
+    public BloomFilter(int expectedKeys) {
+        long wanted = Math.max(64L, (long) expectedKeys * BITS_PER_KEY);
+        int size = (int) Math.min(1L << 30, Long.highestOneBit(wanted - 1) << 1);
+
+        this.bits = new long[size / 64];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @param key the key to add.
+     */
+    public void add(int key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & this.mask;
+            this.bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /**
+     * @param key the key to look for.
+     * @return false if the key was never added, true if it may have been.
+     */
+    public boolean mightContain(int key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & this.mask;
+
+            if ((this.bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the number of bits in the filter.
+     */
+    public int size() {
+        return this.mask + 1;
+    }
+
+    /**
+     * Spread the bits of a key over a long, so that close keys do not share bits.
+     */
+    private static long mix(int key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 31;
+        hash *= 0xBF58476D1CE4E5B9L;
+        return hash ^ (hash >>> 29);
+    }
+}
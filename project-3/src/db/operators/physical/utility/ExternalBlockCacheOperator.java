@@ -1,12 +1,17 @@
 package db.operators.physical.utility;
 
+import db.PhysicalPlanConfig.PageFormat;
+import db.PhysicalPlanConfig.ReaderImplementation;
 import db.datastore.Database;
 import db.datastore.TableHeader;
+import db.datastore.tuple.PagedTupleReader;
 import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
 import db.datastore.tuple.TupleReader;
 import db.datastore.tuple.TupleWriter;
-import db.datastore.tuple.binary.BinaryTupleReader;
 import db.datastore.tuple.binary.BinaryTupleWriter;
+import db.datastore.tuple.compressed.CompressedTupleReader;
+import db.datastore.tuple.compressed.CompressedTupleWriter;
 import db.datastore.tuple.string.StringTupleReader;
 import db.datastore.tuple.string.StringTupleWriter;
 import db.operators.physical.AbstractOperator;
@@ -28,6 +33,9 @@ import java.util.UUID;
 public class ExternalBlockCacheOperator extends AbstractOperator implements SeekableOperator {
     private final TableHeader header;
     private final Path bufferFile;
+    private final ReaderImplementation readerImplementation;
+    private final PageFormat pageFormat;
+    private final boolean asyncIO;
 
     private TupleWriter writer;
     private TupleReader reader;
@@ -44,7 +52,50 @@ public class ExternalBlockCacheOperator extends AbstractOperator implements Seek
      * @param fileName      Buffer file name
      */
     public ExternalBlockCacheOperator(TableHeader header, Path tempDirectory, String fileName) {
+        this(header, tempDirectory, fileName, ReaderImplementation.CHANNEL);
+    }
+
+    /**
+     * Create a new cache operator using specified buffer file name
+     *
+     * @param header               Tuple layout
+     * @param tempDirectory        Buffer directory
+     * @param fileName             Buffer file name
+     * @param readerImplementation The way pages are read back once the buffer is flushed
+     */
+    public ExternalBlockCacheOperator(TableHeader header, Path tempDirectory, String fileName, ReaderImplementation readerImplementation) {
+        this(header, tempDirectory, fileName, readerImplementation, PageFormat.BINARY);
+    }
+
+    /**
+     * Create a new cache operator using specified buffer file name
+     *
+     * @param header               Tuple layout
+     * @param tempDirectory        Buffer directory
+     * @param fileName             Buffer file name
+     * @param readerImplementation The way binary pages are read back once the buffer is flushed
+     * @param pageFormat           The format of the pages written to the buffer file
+     */
+    public ExternalBlockCacheOperator(TableHeader header, Path tempDirectory, String fileName, ReaderImplementation readerImplementation, PageFormat pageFormat) {
+        this(header, tempDirectory, fileName, readerImplementation, pageFormat, false);
+    }
+
+    /**
+     * Create a new cache operator using specified buffer file name
+     *
+     * @param header               Tuple layout
+     * @param tempDirectory        Buffer directory
+     * @param fileName             Buffer file name
+     * @param readerImplementation The way binary pages are read back once the buffer is flushed
+     * @param pageFormat           The format of the pages written to the buffer file
+     * @param asyncIO              Whether binary pages are double buffered, written behind and read ahead of the
+     *                             operator on background threads
+     */
+    public ExternalBlockCacheOperator(TableHeader header, Path tempDirectory, String fileName, ReaderImplementation readerImplementation, PageFormat pageFormat, boolean asyncIO) {
         this.header = header;
+        this.readerImplementation = readerImplementation;
+        this.pageFormat = pageFormat;
+        this.asyncIO = asyncIO;
 
         if (!Files.exists(tempDirectory)) {
             try {
@@ -83,6 +134,7 @@ public class ExternalBlockCacheOperator extends AbstractOperator implements Seek
         try {
             this.close();
             Files.deleteIfExists(bufferFile);
+            Database.invalidatePages(bufferFile);
         } catch (IOException e) {
             System.out.println("Failed to delete:" + bufferFile);
         }
@@ -112,6 +164,23 @@ public class ExternalBlockCacheOperator extends AbstractOperator implements Seek
         return this.reader.next();
     }
 
+    /**
+     * @inheritDoc
+     */
+    @Override
+    protected TupleBatch generateNextBatch() {
+        if (!flushed) {
+            this.flush();
+        }
+
+        TupleBatch batch = this.getBatchBuffer();
+        batch.clear();
+
+        this.reader.next(batch);
+
+        return batch.isEmpty() ? null : batch;
+    }
+
     /**
      * Write the tuple the underlying buffer file. It can only write to open streams.
      *
@@ -125,6 +194,19 @@ public class ExternalBlockCacheOperator extends AbstractOperator implements Seek
         this.writer.write(tuple);
     }
 
+    /**
+     * Write the rows of the batch to the underlying buffer file. It can only write to open streams.
+     *
+     * @param batch the batch to write.
+     */
+    public void writeBatchToBuffer(TupleBatch batch) {
+        if (flushed) {
+            throw new RuntimeException("Cant write to flushed buffer.");
+        }
+
+        this.writer.write(batch);
+    }
+
     /**
      * Dump contents of source into buffer file.
      *
@@ -196,8 +278,10 @@ public class ExternalBlockCacheOperator extends AbstractOperator implements Seek
      * @return a reader for the buffer
      */
     private TupleReader getReader(TableHeader header, Path path) {
-        if (USE_BINARY_PAGES)
-            return BinaryTupleReader.get(path);
+        if (USE_BINARY_PAGES && pageFormat == PageFormat.COMPRESSED)
+            return CompressedTupleReader.get(path);
+        else if (USE_BINARY_PAGES)
+            return PagedTupleReader.get(path, readerImplementation, asyncIO ? 1 : 0);
         else
             return StringTupleReader.get(header, path);
     }
@@ -210,8 +294,10 @@ public class ExternalBlockCacheOperator extends AbstractOperator implements Seek
      * @return the writer
      */
     private TupleWriter getWriter(TableHeader header, Path path) {
-        if (USE_BINARY_PAGES)
-            return BinaryTupleWriter.get(header, path);
+        if (USE_BINARY_PAGES && pageFormat == PageFormat.COMPRESSED)
+            return CompressedTupleWriter.get(header, path);
+        else if (USE_BINARY_PAGES)
+            return BinaryTupleWriter.get(header, path, asyncIO);
         else
             return StringTupleWriter.get(path);
     }
@@ -0,0 +1,294 @@
+package db.operators.physical.utility;
+
+import db.PhysicalPlanConfig.PageFormat;
+import db.PhysicalPlanConfig.ReaderImplementation;
+import db.datastore.Database;
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hash tables split into partitions on the hash of their key, which keep within a fixed number of buffer pages by
+ * moving whole partitions to temporary files. This is the partitioning shared by the hash operators which spill.
+ * <p>
+ * Every partition starts out in memory. Whenever the entries in memory outgrow the buffer, the largest partition is
+ * written to disk, and the tuples which later fall into it are written to its files rather than inserted. A partition
+ * on disk has a file for every side, such as the two relations of a join, and the writer of each file holds a page of
+ * the buffer. The pages left over hold the entries in memory.
+ * <p>
+ * The partitions on disk are processed afterwards by another operator, which partitions them again on different bits
+ * of the hash at the next level.
+ */
+public class HashPartitions {
+    /**
+     * The number of levels of partitioning, after which a partition is no longer split.
+     */
+    public static final int MAX_LEVEL = 4;
+
+    private static final AtomicInteger nextId = new AtomicInteger(1);
+
+    /**
+     * Writes the entries of a partition which is moved to disk.
+     */
+    public interface SpillWriter {
+        /**
+         * @param partition The index of the partition.
+         * @param table     The entries of the partition.
+         * @param spill     The file of the first side of the partition.
+         */
+        void write(int partition, TupleHashTable table, ExternalBlockCacheOperator spill);
+    }
+
+    private final String name;
+    private final int[] keys;
+    private final TableHeader[] sides;
+    private final int bufferPages;
+    private final int level;
+    private final Path tempFolder;
+    private final ReaderImplementation readerImplementation;
+    private final PageFormat spillFormat;
+    private final SpillWriter writer;
+
+    private final int partitionCount;
+    private final int entriesPerPage;
+
+    private TupleHashTable[] tables;
+    private ExternalBlockCacheOperator[][] spills;
+    private int[][] spillSizes;
+    private int spilled;
+    private int resident;
+
+    /**
+     * Create partitions whose entries are written to the first side as they are when spilled.
+     *
+     * @param name                 The prefix of the names of the files.
+     * @param keys                 The indices of the key columns of the entries.
+     * @param sides                The headers of the files of a partition on disk, the first is that of the entries.
+     * @param bufferPages          The number of pages held in memory, including those of the writers.
+     * @param level                The number of times the tuples have already been partitioned.
+     * @param tempFolder           The folder which holds the partitions written to disk.
+     * @param readerImplementation The way pages of the partitions are read back from disk.
+     * @param spillFormat          The format of the pages of the partitions.
+     */
+    public HashPartitions(String name, int[] keys, TableHeader[] sides, int bufferPages, int level, Path tempFolder,
+                          ReaderImplementation readerImplementation, PageFormat spillFormat) {
+        this(name, keys, sides, bufferPages, level, tempFolder, readerImplementation, spillFormat,
+                (partition, table, spill) -> {
+                    for (int entry = 0; entry < table.size(); entry++) {
+                        spill.writeTupleToBuffer(table.get(entry));
+                    }
+                });
+    }
+
+    /**
+     * Create partitions whose entries are written by the given writer when spilled.
+     *
+     * @param writer Writes the entries of a partition to the file of its first side, one tuple per entry.
+     */
+    public HashPartitions(String name, int[] keys, TableHeader[] sides, int bufferPages, int level, Path tempFolder,
+                          ReaderImplementation readerImplementation, PageFormat spillFormat, SpillWriter writer) {
+        this.name = name + nextId.getAndIncrement();
+        this.keys = keys;
+        this.sides = sides;
+        this.bufferPages = Math.max(1, bufferPages);
+        this.level = level;
+        this.tempFolder = tempFolder;
+        this.readerImplementation = readerImplementation;
+        this.spillFormat = spillFormat;
+        this.writer = writer;
+
+        // Leave at least a page for the entries in memory once every partition is on disk
+        this.partitionCount = Math.max(2, (this.bufferPages - 1) / sides.length);
+        this.entriesPerPage = Math.max(1, (Database.PAGE_SIZE / 4 - 2) / Math.max(1, sides[0].size()));
+
+        this.clear();
+    }
+
+    /**
+     * Pick the partition of a key, using different bits of the hash at every level of partitioning.
+     *
+     * @param hash The hash of the key.
+     * @return The partition index.
+     */
+    public int partitionOf(int hash) {
+        int mixed = Integer.rotateLeft(hash, 8 * this.level + 5) * 0x85EBCA6B;
+        mixed ^= mixed >>> 15;
+
+        return (mixed & Integer.MAX_VALUE) % this.partitionCount;
+    }
+
+    /**
+     * @param partition The index of the partition.
+     * @return The entries of the partition, or null if it is on disk or has been released.
+     */
+    public TupleHashTable get(int partition) {
+        return this.tables[partition];
+    }
+
+    /**
+     * Count an entry inserted into a partition in memory, and write partitions to disk until the rest fit.
+     */
+    public void entryAdded() {
+        this.resident += 1;
+
+        while (this.resident > this.getResidentCapacity()) {
+            this.spillLargestPartition();
+        }
+    }
+
+    /**
+     * @param partition The index of the partition.
+     * @return Whether the partition has been written to disk.
+     */
+    public boolean isSpilled(int partition) {
+        return this.spills[partition] != null;
+    }
+
+    /**
+     * Write a tuple to a file of a partition on disk.
+     *
+     * @param partition The index of the partition.
+     * @param side      The index of the file of the partition.
+     * @param tuple     The tuple.
+     */
+    public void write(int partition, int side, Tuple tuple) {
+        this.spills[partition][side].writeTupleToBuffer(tuple);
+        this.spillSizes[partition][side] += 1;
+    }
+
+    /**
+     * Finish writing the files of a partition on disk, so they can be read back.
+     *
+     * @param partition The index of the partition.
+     */
+    public void flush(int partition) {
+        for (ExternalBlockCacheOperator spill : this.spills[partition]) {
+            spill.flush();
+        }
+    }
+
+    /**
+     * @param partition The index of the partition.
+     * @param side      The index of the file of the partition.
+     * @return The file, or null if the partition is not on disk.
+     */
+    public ExternalBlockCacheOperator getSpill(int partition, int side) {
+        return this.spills[partition] != null ? this.spills[partition][side] : null;
+    }
+
+    /**
+     * @param partition The index of the partition.
+     * @param side      The index of the file of the partition.
+     * @return The number of tuples written to the file.
+     */
+    public int getSpillSize(int partition, int side) {
+        return this.spillSizes[partition][side];
+    }
+
+    /**
+     * Drop a partition once it has been used, deleting its files if it is on disk.
+     *
+     * @param partition The index of the partition.
+     */
+    public void release(int partition) {
+        this.tables[partition] = null;
+
+        if (this.spills[partition] != null) {
+            for (ExternalBlockCacheOperator spill : this.spills[partition]) {
+                spill.delete();
+            }
+
+            this.spills[partition] = null;
+        }
+    }
+
+    /**
+     * @return Whether the partitions on disk may be split again at the next level.
+     */
+    public boolean canPartitionAgain() {
+        return this.level + 1 < MAX_LEVEL;
+    }
+
+    /**
+     * @return The number of partitions.
+     */
+    public int getPartitionCount() {
+        return this.partitionCount;
+    }
+
+    /**
+     * @return The number of partitions which have been written to disk.
+     */
+    public int getSpilledCount() {
+        return this.spilled;
+    }
+
+    /**
+     * @return The number of entries held in memory.
+     */
+    public int getResidentCount() {
+        return this.resident;
+    }
+
+    /**
+     * Delete any partitions left on disk and start over with every partition in memory.
+     */
+    public void clear() {
+        if (this.spills != null) {
+            for (int i = 0; i < this.partitionCount; i++) {
+                this.release(i);
+            }
+        }
+
+        this.tables = new TupleHashTable[this.partitionCount];
+        this.spills = new ExternalBlockCacheOperator[this.partitionCount][];
+        this.spillSizes = new int[this.partitionCount][this.sides.length];
+
+        for (int i = 0; i < this.partitionCount; i++) {
+            this.tables[i] = new TupleHashTable(this.keys);
+        }
+
+        this.spilled = 0;
+        this.resident = 0;
+    }
+
+    /**
+     * Write the largest partition in memory out to disk, and open the files of its other sides.
+     */
+    private void spillLargestPartition() {
+        int largest = -1;
+
+        for (int i = 0; i < this.partitionCount; i++) {
+            if (this.tables[i] != null && (largest == -1 || this.tables[i].size() > this.tables[largest].size())) {
+                largest = i;
+            }
+        }
+
+        TupleHashTable table = this.tables[largest];
+
+        this.spills[largest] = new ExternalBlockCacheOperator[this.sides.length];
+
+        for (int side = 0; side < this.sides.length; side++) {
+            String file = this.name + "_" + largest + (this.sides.length > 1 ? "_" + side : "");
+
+            this.spills[largest][side] = new ExternalBlockCacheOperator(this.sides[side], this.tempFolder, file,
+                    this.readerImplementation, this.spillFormat);
+        }
+
+        this.writer.write(largest, table, this.spills[largest][0]);
+
+        this.spillSizes[largest][0] += table.size();
+        this.resident -= table.size();
+        this.tables[largest] = null;
+        this.spilled += 1;
+    }
+
+    /**
+     * @return The number of entries which fit in the pages not used by the writers of the partitions on disk.
+     */
+    private int getResidentCapacity() {
+        return Math.max(1, this.bufferPages - this.spilled * this.sides.length) * this.entriesPerPage;
+    }
+}
@@ -0,0 +1,157 @@
+package db.operators.physical.utility;
+
+import db.datastore.tuple.Tuple;
+import db.operators.physical.Operator;
+import db.operators.physical.extended.TupleComparator;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Merges sorted inputs with a tournament tree of losers, so finding the next tuple takes O(log k) comparisons for k
+ * inputs instead of comparing the heads of every input.
+ * <p>
+ * Each inner node of the tree holds the input which lost the match played there, and the overall winner is kept
+ * apart. Once the winner has been returned, only the matches on the path from its leaf to the root are replayed
+ * against the next tuple of that input. Exhausted inputs lose every match, and ties go to the input which comes
+ * first, so the merge is stable. Matches compare the normalized keys of the heads, which are encoded once per tuple.
+ */
+public class LoserTree {
+    private static final int NONE = -1;
+
+    private final List<? extends Operator> inputs;
+    private final TupleComparator comparator;
+
+    /**
+     * The head tuple of every input, null once it is exhausted.
+     */
+    private final Tuple[] heads;
+
+    /**
+     * The normalized key of the head tuple of every input.
+     */
+    private final long[] keys;
+
+    /**
+     * The loser of the match at every inner node, from 1 to k - 1, and the overall winner at index 0. The leaf of
+     * input i is node k + i.
+     */
+    private final int[] tree;
+
+    /**
+     * @param inputs     the inputs, each sorted according to the comparator.
+     * @param comparator the order of the tuples.
+     */
+    public LoserTree(List<? extends Operator> inputs, TupleComparator comparator) {
+        this.inputs = inputs;
+        this.comparator = comparator;
+        this.heads = new Tuple[inputs.size()];
+        this.keys = new long[inputs.size()];
+        this.tree = new int[Math.max(1, inputs.size())];
+
+        this.build();
+    }
+
+    /**
+     * Read the first tuple of every input and play the whole tournament. A match is only played once both of its
+     * players are known, the first one to arrive waits at the node.
+     */
+    private void build() {
+        Arrays.fill(this.tree, NONE);
+
+        for (int i = 0; i < this.heads.length; i++) {
+            this.advance(i);
+        }
+
+        for (int input = this.heads.length - 1; input >= 0; input--) {
+            int winner = input;
+            int node = (input + this.heads.length) / 2;
+
+            while (node > 0 && this.tree[node] != NONE) {
+                if (this.beats(this.tree[node], winner)) {
+                    int loser = winner;
+                    winner = this.tree[node];
+                    this.tree[node] = loser;
+                }
+
+                node /= 2;
+            }
+
+            if (node > 0) {
+                this.tree[node] = winner;
+            } else {
+                this.tree[0] = winner;
+            }
+        }
+    }
+
+    /**
+     * @return the smallest head tuple of the inputs, without consuming it, or null if every input is exhausted.
+     */
+    public Tuple peek() {
+        return this.heads.length == 0 ? null : this.heads[this.tree[0]];
+    }
+
+    /**
+     * @return the index of the input which holds the smallest head tuple.
+     */
+    public int peekInput() {
+        return this.tree[0];
+    }
+
+    /**
+     * Consume the smallest head tuple of the inputs.
+     *
+     * @return the tuple, or null if every input is exhausted.
+     */
+    public Tuple next() {
+        Tuple result = this.peek();
+
+        if (result == null) {
+            return null;
+        }
+
+        int winner = this.tree[0];
+        this.advance(winner);
+
+        for (int node = (winner + this.heads.length) / 2; node > 0; node /= 2) {
+            if (this.beats(this.tree[node], winner)) {
+                int loser = winner;
+                winner = this.tree[node];
+                this.tree[node] = loser;
+            }
+        }
+
+        this.tree[0] = winner;
+
+        return result;
+    }
+
+    /**
+     * Read the next tuple of an input into its head, along with its normalized key.
+     *
+     * @param input the index of the input.
+     */
+    private void advance(int input) {
+        Tuple head = this.inputs.get(input).getNextTuple();
+
+        this.heads[input] = head;
+        this.keys[input] = head != null ? this.comparator.normalize(head) : 0;
+    }
+
+    /**
+     * @return whether the head of the first input comes before the head of the second one.
+     */
+    private boolean beats(int first, int second) {
+        Tuple a = this.heads[first];
+        Tuple b = this.heads[second];
+
+        if (a == null || b == null) {
+            return b == null && a != null;
+        }
+
+        int result = this.comparator.compare(this.keys[first], a, this.keys[second], b);
+
+        return result < 0 || (result == 0 && first < second);
+    }
+}
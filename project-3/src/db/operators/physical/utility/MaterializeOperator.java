@@ -0,0 +1,323 @@
+package db.operators.physical.utility;
+
+import db.PhysicalPlanConfig.PageFormat;
+import db.PhysicalPlanConfig.ReaderImplementation;
+import db.datastore.Database;
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.operators.UnaryNode;
+import db.operators.physical.AbstractOperator;
+import db.operators.physical.Operator;
+import db.operators.physical.PhysicalTreeVisitor;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A copy of the output of its source, made while the source is read for the first time. Resets are served from the
+ * copy instead of running the source again, which is what the inner relation of a nested loop join needs.
+ * <p>
+ * The copy is kept in memory up to a budget, past it the whole copy is moved to a temporary file.
+ */
+public class MaterializeOperator extends AbstractOperator implements UnaryNode<Operator> {
+    private final Operator source;
+    private final int memoryTuples;
+
+    private final Path tempFolder;
+    private final ReaderImplementation readerImplementation;
+    private final PageFormat pageFormat;
+
+    private final List<TupleBatch> memory;
+    private int memorySize;
+    private ExternalBlockCacheOperator spill;
+
+    /**
+     * Whether the source has been read from, and whether it has been read to the end.
+     */
+    private boolean started;
+    private boolean complete;
+
+    private boolean exhausted;
+    private int readBatch;
+    private int readRow;
+
+    /**
+     * @param source               the operator whose output is copied.
+     * @param memoryPages          the number of pages of tuples kept in memory before moving to a file.
+     * @param tempFolder           the folder of the temporary file.
+     * @param readerImplementation the way pages of the temporary file are read.
+     * @param pageFormat           the format of the temporary file.
+     */
+    public MaterializeOperator(Operator source, int memoryPages, Path tempFolder,
+                               ReaderImplementation readerImplementation, PageFormat pageFormat) {
+        this.source = source;
+        this.memoryTuples = memoryPages * (Database.PAGE_SIZE / 4 / source.getHeader().size());
+        this.tempFolder = tempFolder;
+        this.readerImplementation = readerImplementation;
+        this.pageFormat = pageFormat;
+
+        this.memory = new ArrayList<>();
+        this.memorySize = 0;
+        this.spill = null;
+
+        this.started = false;
+        this.complete = false;
+        this.exhausted = false;
+        this.readBatch = 0;
+        this.readRow = 0;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    protected Tuple generateNextTuple() {
+        if (!this.complete) {
+            this.started = true;
+            Tuple tuple = this.source.getNextTuple();
+
+            if (tuple == null) {
+                this.finish();
+            } else {
+                this.store(tuple);
+            }
+
+            return tuple;
+        }
+
+        if (this.exhausted) {
+            return null;
+        }
+
+        if (this.spill != null) {
+            return this.spill.getNextTuple();
+        }
+
+        if (this.readBatch >= this.memory.size()) {
+            return null;
+        }
+
+        TupleBatch stored = this.memory.get(this.readBatch);
+        Tuple tuple = stored.getTuple(this.readRow++);
+
+        if (this.readRow >= stored.size()) {
+            this.readBatch++;
+            this.readRow = 0;
+        }
+
+        return tuple;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    protected TupleBatch generateNextBatch() {
+        if (!this.complete) {
+            this.started = true;
+            TupleBatch batch = this.source.getNextBatch();
+
+            if (batch == null) {
+                this.finish();
+            } else {
+                this.store(batch);
+            }
+
+            return batch;
+        }
+
+        if (this.exhausted) {
+            return null;
+        }
+
+        if (this.spill != null) {
+            return this.spill.getNextBatch();
+        }
+
+        if (this.readBatch >= this.memory.size()) {
+            return null;
+        }
+
+        // The caller may filter the batch in place, so hand out a copy
+        TupleBatch stored = this.memory.get(this.readBatch++);
+        TupleBatch batch = this.getBatchBuffer();
+        batch.clear();
+        batch.addRows(stored, this.readRow, stored.size());
+        this.readRow = 0;
+
+        return batch;
+    }
+
+    /**
+     * Add a tuple to the copy.
+     */
+    private void store(Tuple tuple) {
+        if (this.spill != null) {
+            this.spill.writeTupleToBuffer(tuple);
+            return;
+        }
+
+        this.lastMemoryBatch().add(tuple);
+        this.memorySize++;
+
+        if (this.memorySize > this.memoryTuples) {
+            this.spillMemory();
+        }
+    }
+
+    /**
+     * Add a batch of tuples to the copy.
+     */
+    private void store(TupleBatch batch) {
+        if (this.spill != null) {
+            for (int row = 0; row < batch.size(); row++) {
+                this.spill.writeTupleToBuffer(batch.getTuple(row));
+            }
+
+            return;
+        }
+
+        int row = 0;
+        while (row < batch.size()) {
+            TupleBatch target = this.lastMemoryBatch();
+            int end = Math.min(batch.size(), row + target.capacity() - target.size());
+
+            target.addRows(batch, row, end);
+            row = end;
+        }
+
+        this.memorySize += batch.size();
+
+        if (this.memorySize > this.memoryTuples) {
+            this.spillMemory();
+        }
+    }
+
+    /**
+     * @return the last batch of the copy in memory, a new one if it is full.
+     */
+    private TupleBatch lastMemoryBatch() {
+        if (this.memory.isEmpty() || this.memory.get(this.memory.size() - 1).isFull()) {
+            this.memory.add(new TupleBatch(this.getHeader().size(), TupleBatch.DEFAULT_CAPACITY));
+        }
+
+        return this.memory.get(this.memory.size() - 1);
+    }
+
+    /**
+     * Move the copy out of memory into a temporary file, the rest of the source is written there too.
+     */
+    private void spillMemory() {
+        this.spill = new ExternalBlockCacheOperator(this.getHeader(), this.tempFolder,
+                "Materialize_" + UUID.randomUUID(), this.readerImplementation, this.pageFormat);
+
+        for (TupleBatch batch : this.memory) {
+            for (int row = 0; row < batch.size(); row++) {
+                this.spill.writeTupleToBuffer(batch.getTuple(row));
+            }
+        }
+
+        this.memory.clear();
+        this.memorySize = 0;
+    }
+
+    /**
+     * Mark the copy as complete once the source has run out.
+     */
+    private void finish() {
+        this.complete = true;
+        this.exhausted = true;
+
+        if (this.spill != null) {
+            this.spill.flush();
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public TableHeader getHeader() {
+        return this.source.getHeader();
+    }
+
+    /**
+     * Once the source has been read from, the rest of it is copied and every later read is served from the copy.
+     *
+     * @inheritDoc
+     */
+    @Override
+    public boolean reset() {
+        this.next = null;
+
+        if (!this.started) {
+            return this.source.reset();
+        }
+
+        if (!this.complete) {
+            TupleBatch batch;
+            while ((batch = this.source.getNextBatch()) != null) {
+                this.store(batch);
+            }
+
+            this.finish();
+        }
+
+        this.exhausted = false;
+        this.readBatch = 0;
+        this.readRow = 0;
+
+        if (this.spill != null) {
+            return this.spill.reset();
+        }
+
+        return true;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void accept(PhysicalTreeVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void close() {
+        this.source.close();
+
+        if (this.spill != null) {
+            this.spill.delete();
+            this.spill = null;
+        }
+
+        this.memory.clear();
+        this.memorySize = 0;
+        this.started = false;
+        this.complete = false;
+        this.exhausted = false;
+        this.readBatch = 0;
+        this.readRow = 0;
+    }
+
+    /**
+     * @return whether the copy has been moved to a temporary file.
+     */
+    public boolean isSpilled() {
+        return this.spill != null;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Operator getChild() {
+        return this.source;
+    }
+}
@@ -0,0 +1,205 @@
+package db.operators.physical.utility;
+
+import db.datastore.Database;
+import db.datastore.tuple.TupleBatch;
+
+import java.util.Arrays;
+
+/**
+ * A buffer of rows stored back to back in a single int array, so holding and sorting them does not create an object
+ * per tuple.
+ * <p>
+ * The rows are sorted through an index of longs, each holding the value of one key column in its high half and the
+ * row in its low half. A least significant digit radix sort distributes the index one byte of the value at a time,
+ * starting from the last key column, and every pass is stable so the rows end up ordered on all the key columns, with
+ * ties left in the order they were added. Bytes which are the same in every row are skipped.
+ * <p>
+ * The index and its buffer take {@link #INDEX_BYTES_PER_ROW} bytes per row on top of the row itself, and are counted
+ * when sizing the arena for a number of pages.
+ */
+public class RowArena {
+    /**
+     * The bytes taken per row by the sort index, a long for the index and one for the buffer it is sorted into.
+     */
+    public static final int INDEX_BYTES_PER_ROW = 16;
+
+    private final int width;
+    private final int capacity;
+
+    private final int[] rows;
+    private long[] index;
+    private long[] indexBuffer;
+    private final int[][] counts;
+
+    private final TupleBatch batch;
+
+    private int size;
+
+    /**
+     * @param width    The number of columns of a row.
+     * @param capacity The number of rows the arena holds.
+     */
+    public RowArena(int width, int capacity) {
+        this.width = width;
+        this.capacity = capacity;
+
+        this.rows = new int[width * capacity];
+        this.index = new long[capacity];
+        this.indexBuffer = new long[capacity];
+        this.counts = new int[4][256];
+
+        this.batch = new TupleBatch(width, Math.min(capacity, TupleBatch.DEFAULT_CAPACITY));
+
+        this.size = 0;
+    }
+
+    /**
+     * Create an arena holding as many rows as fit in the pages, counting the sort index.
+     *
+     * @param width The number of columns of a row.
+     * @param pages The number of pages the arena and its index may take.
+     * @return The arena.
+     */
+    public static RowArena forPages(int width, int pages) {
+        long bytes = (long) pages * Database.PAGE_SIZE;
+
+        return new RowArena(width, (int) Math.max(1, bytes / (4 * width + INDEX_BYTES_PER_ROW)));
+    }
+
+    /**
+     * Copy rows of a batch to the end of the arena, until the batch is used up or the arena is full.
+     *
+     * @param source The batch.
+     * @param from   The first row of the batch to copy.
+     * @return The number of rows copied.
+     */
+    public int add(TupleBatch source, int from) {
+        int count = Math.min(source.size() - from, this.capacity - this.size);
+
+        for (int column = 0; column < this.width; column++) {
+            int[] values = source.columns[column];
+
+            for (int row = 0, offset = this.size * this.width + column; row < count; row++, offset += this.width) {
+                this.rows[offset] = values[from + row];
+            }
+        }
+
+        for (int row = 0; row < count; row++) {
+            this.index[this.size + row] = this.size + row;
+        }
+
+        this.size += count;
+
+        return count;
+    }
+
+    /**
+     * Sort the rows in ascending order of the key columns, compared in the order given.
+     *
+     * @param keys The indices of the key columns.
+     */
+    public void sort(int[] keys) {
+        for (int key = keys.length - 1; key >= 0; key--) {
+            this.sortOnColumn(keys[key]);
+        }
+    }
+
+    /**
+     * Stable sort of the index on one column.
+     *
+     * @param column The index of the column.
+     */
+    private void sortOnColumn(int column) {
+        for (int[] count : this.counts) {
+            Arrays.fill(count, 0);
+        }
+
+        for (int i = 0; i < this.size; i++) {
+            int row = (int) this.index[i];
+
+            // Flipping the sign bit makes the values order as unsigned ints, one byte at a time
+            long value = (this.rows[row * this.width + column] ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+            this.index[i] = value << 32 | row;
+
+            for (int digit = 0; digit < 4; digit++) {
+                this.counts[digit][(int) (value >>> (8 * digit)) & 0xFF]++;
+            }
+        }
+
+        for (int digit = 0; digit < 4; digit++) {
+            int shift = 32 + 8 * digit;
+            int[] offsets = this.counts[digit];
+
+            if (this.size == 0 || offsets[(int) (this.index[0] >>> shift) & 0xFF] == this.size) {
+                continue;
+            }
+
+            int offset = 0;
+            for (int value = 0; value < 256; value++) {
+                int count = offsets[value];
+                offsets[value] = offset;
+                offset += count;
+            }
+
+            for (int i = 0; i < this.size; i++) {
+                long entry = this.index[i];
+                this.indexBuffer[offsets[(int) (entry >>> shift) & 0xFF]++] = entry;
+            }
+
+            long[] sorted = this.indexBuffer;
+            this.indexBuffer = this.index;
+            this.index = sorted;
+        }
+    }
+
+    /**
+     * Write the rows to a run in the order of the index, copying them into batches straight from the arena.
+     *
+     * @param run The run, which must still be open for writing.
+     */
+    public void writeTo(ExternalBlockCacheOperator run) {
+        this.batch.clear();
+
+        for (int i = 0; i < this.size; i++) {
+            int offset = (int) this.index[i] * this.width;
+            int row = this.batch.size();
+
+            for (int column = 0; column < this.width; column++) {
+                this.batch.columns[column][row] = this.rows[offset + column];
+            }
+
+            this.batch.setSize(row + 1);
+
+            if (this.batch.isFull()) {
+                run.writeBatchToBuffer(this.batch);
+                this.batch.clear();
+            }
+        }
+
+        if (!this.batch.isEmpty()) {
+            run.writeBatchToBuffer(this.batch);
+            this.batch.clear();
+        }
+    }
+
+    /**
+     * Remove every row.
+     */
+    public void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * @return The number of rows held.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return Whether no more rows can be added.
+     */
+    public boolean isFull() {
+        return this.size >= this.capacity;
+    }
+}
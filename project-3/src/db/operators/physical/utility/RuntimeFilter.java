@@ -0,0 +1,108 @@
+package db.operators.physical.utility;
+
+import java.util.Arrays;
+
+/**
+ * A filter on the join key of one side of a join, built while the other side of the join is read, which lets a scan
+ * drop the tuples that can not find a match.
+ * <p>
+ * The keys are collected until the build side has been read to its end, then they are put in a Bloom filter sized for
+ * them. Until then the filter lets every tuple through.
+ */
+public class RuntimeFilter {
+    /**
+     * Past this many keys the filter is given up, as it would take too much memory.
+     */
+    private static final int MAX_KEYS = 1 << 22;
+
+    private final int probeColumn;
+
+    private int[] keys;
+    private int keyCount;
+    private BloomFilter filter;
+
+    private long dropped;
+
+    /**
+     * @param probeColumn the index of the key column in the tuples of the filtered scan.
+     */
+    public RuntimeFilter(int probeColumn) {
+        this.probeColumn = probeColumn;
+        this.keys = new int[1024];
+        this.keyCount = 0;
+        this.filter = null;
+        this.dropped = 0;
+    }
+
+    /**
+     * @param key a key of the build side.
+     */
+    public void addKey(int key) {
+        if (this.keys == null || this.filter != null) {
+            return;
+        }
+
+        if (this.keyCount == this.keys.length) {
+            if (this.keyCount >= MAX_KEYS) {
+                this.keys = null;
+                return;
+            }
+
+            this.keys = Arrays.copyOf(this.keys, this.keyCount * 2);
+        }
+
+        this.keys[this.keyCount++] = key;
+    }
+
+    /**
+     * Called once every key of the build side has been added, the filter starts dropping tuples from then on.
+     */
+    public void complete() {
+        if (this.keys == null || this.filter != null) {
+            return;
+        }
+
+        BloomFilter filter = new BloomFilter(this.keyCount);
+
+        for (int i = 0; i < this.keyCount; i++) {
+            filter.add(this.keys[i]);
+        }
+
+        this.filter = filter;
+        this.keys = null;
+    }
+
+    /**
+     * @return whether the filter has been built and can drop tuples.
+     */
+    public boolean isReady() {
+        return this.filter != null;
+    }
+
+    /**
+     * @return the index of the key column in the tuples of the filtered scan.
+     */
+    public int getProbeColumn() {
+        return this.probeColumn;
+    }
+
+    /**
+     * @param key the key of a scanned tuple.
+     * @return false if no tuple of the build side has that key.
+     */
+    public boolean mightMatch(int key) {
+        if (this.filter == null || this.filter.mightContain(key)) {
+            return true;
+        }
+
+        this.dropped++;
+        return false;
+    }
+
+    /**
+     * @return the number of tuples the filter has dropped.
+     */
+    public long getDroppedCount() {
+        return this.dropped;
+    }
+}
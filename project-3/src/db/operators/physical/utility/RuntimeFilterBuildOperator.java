@@ -0,0 +1,115 @@
+package db.operators.physical.utility;
+
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.operators.UnaryNode;
+import db.operators.physical.AbstractOperator;
+import db.operators.physical.Operator;
+import db.operators.physical.PhysicalTreeVisitor;
+
+/**
+ * Passes the tuples of the build side of a join through unchanged, adding their join keys to a runtime filter. The
+ * filter is completed when the source runs out for the first time.
+ */
+public class RuntimeFilterBuildOperator extends AbstractOperator implements UnaryNode<Operator> {
+    private final Operator source;
+    private final int keyColumn;
+    private final RuntimeFilter filter;
+
+    /**
+     * @param source    the build side of the join.
+     * @param keyColumn the index of the join key in the source tuples.
+     * @param filter    the filter to fill.
+     */
+    public RuntimeFilterBuildOperator(Operator source, int keyColumn, RuntimeFilter filter) {
+        this.source = source;
+        this.keyColumn = keyColumn;
+        this.filter = filter;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    protected Tuple generateNextTuple() {
+        Tuple tuple = this.source.getNextTuple();
+
+        if (tuple == null) {
+            this.filter.complete();
+        } else {
+            this.filter.addKey(tuple.fields[this.keyColumn]);
+        }
+
+        return tuple;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    protected TupleBatch generateNextBatch() {
+        TupleBatch batch = this.source.getNextBatch();
+
+        if (batch == null) {
+            this.filter.complete();
+        } else {
+            int[] keys = batch.columns[this.keyColumn];
+
+            for (int row = 0; row < batch.size(); row++) {
+                this.filter.addKey(keys[row]);
+            }
+        }
+
+        return batch;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public TableHeader getHeader() {
+        return this.source.getHeader();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public boolean reset() {
+        return this.source.reset();
+    }
+
+    /**
+     * The filter does not show up in plans, the source is visited in its place.
+     *
+     * @inheritDoc
+     */
+    @Override
+    public void accept(PhysicalTreeVisitor visitor) {
+        this.source.accept(visitor);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void close() {
+        this.source.close();
+    }
+
+    /**
+     * @return the filter being filled.
+     */
+    public RuntimeFilter getFilter() {
+        return this.filter;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Operator getChild() {
+        return this.source;
+    }
+}
@@ -0,0 +1,223 @@
+package db.operators.physical.utility;
+
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * An in-memory hash table of tuples, keyed on some of their columns.
+ * <p>
+ * Tuples with the same hash are chained together through arrays of entry indices, so no objects are created per
+ * entry. Entries are numbered in insertion order, and a chain visits them from the most recently inserted.
+ */
+public class TupleHashTable {
+    private static final int END = -1;
+
+    private final int[] keys;
+
+    private Tuple[] tuples;
+    private int[] hashes;
+    private int[] chain;
+    private int[] buckets;
+    private int size;
+
+    /**
+     * Create an empty table.
+     *
+     * @param keys the indices of the key columns of the stored tuples.
+     */
+    public TupleHashTable(int[] keys) {
+        this.keys = keys;
+        this.clear();
+    }
+
+    /**
+     * Find the column indices of a key header within a tuple header.
+     *
+     * @param keyHeader   the key columns.
+     * @param tupleHeader the header of the tuples.
+     * @return the index of each key column in the tuples.
+     */
+    public static int[] resolveKeys(TableHeader keyHeader, TableHeader tupleHeader) {
+        int[] keys = new int[keyHeader.size()];
+
+        for (int i = 0; i < keys.length; i++) {
+            String alias = keyHeader.tableIdentifiers.get(i);
+            String column = keyHeader.columnNames.get(i);
+
+            Optional<Integer> index = tupleHeader.resolve(alias, column);
+
+            if (index.isPresent()) {
+                keys[i] = index.get();
+            } else {
+                throw new RuntimeException("Key mappings are incorrect. " + alias + "." + column + " has no match.");
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * Hash the key columns of a row.
+     *
+     * @param fields the row.
+     * @param keys   the indices of the key columns.
+     * @return the hash of the key.
+     */
+    public static int hash(int[] fields, int[] keys) {
+        int hash = 1;
+
+        for (int key : keys) {
+            hash = 31 * hash + fields[key];
+        }
+
+        // Spread the bits, as keys are often small consecutive integers
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Add a tuple to the table.
+     *
+     * @param tuple the tuple.
+     */
+    public void insert(Tuple tuple) {
+        this.insert(tuple, hash(tuple.fields, this.keys));
+    }
+
+    /**
+     * Add a tuple to the table, when the hash of its key is already known.
+     *
+     * @param tuple the tuple.
+     * @param hash  the hash of its key.
+     */
+    public void insert(Tuple tuple, int hash) {
+        if (this.size == this.tuples.length) {
+            this.grow();
+        }
+
+        int bucket = hash & (this.buckets.length - 1);
+
+        this.tuples[this.size] = tuple;
+        this.hashes[this.size] = hash;
+        this.chain[this.size] = this.buckets[bucket];
+        this.buckets[bucket] = this.size;
+
+        this.size += 1;
+    }
+
+    /**
+     * Find the first entry whose key matches the key of a probe row.
+     *
+     * @param fields    the probe row.
+     * @param probeKeys the indices of the key columns in the probe row.
+     * @return the entry index, or -1 if no entry matches.
+     */
+    public int find(int[] fields, int[] probeKeys) {
+        return this.find(fields, probeKeys, hash(fields, probeKeys));
+    }
+
+    /**
+     * Find the first entry whose key matches the key of a probe row, when the hash of its key is already known.
+     *
+     * @param fields    the probe row.
+     * @param probeKeys the indices of the key columns in the probe row.
+     * @param hash      the hash of the probe key.
+     * @return the entry index, or -1 if no entry matches.
+     */
+    public int find(int[] fields, int[] probeKeys, int hash) {
+        return this.match(this.buckets[hash & (this.buckets.length - 1)], hash, fields, probeKeys);
+    }
+
+    /**
+     * Find the next entry after a matching entry whose key matches the same probe row.
+     *
+     * @param entry     the previous matching entry.
+     * @param fields    the probe row.
+     * @param probeKeys the indices of the key columns in the probe row.
+     * @return the entry index, or -1 if no more entries match.
+     */
+    public int findNext(int entry, int[] fields, int[] probeKeys) {
+        return this.match(this.chain[entry], this.hashes[entry], fields, probeKeys);
+    }
+
+    /**
+     * @param entry the entry index.
+     * @return the tuple stored in the entry.
+     */
+    public Tuple get(int entry) {
+        return this.tuples[entry];
+    }
+
+    /**
+     * @return the number of tuples in the table.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Remove every tuple from the table.
+     */
+    public void clear() {
+        this.tuples = new Tuple[16];
+        this.hashes = new int[16];
+        this.chain = new int[16];
+        this.buckets = new int[32];
+        this.size = 0;
+
+        Arrays.fill(this.buckets, END);
+    }
+
+    /**
+     * Walk a chain to the first entry with the same key as the probe row.
+     */
+    private int match(int entry, int hash, int[] fields, int[] probeKeys) {
+        while (entry != END) {
+            if (this.hashes[entry] == hash && this.keyEquals(this.tuples[entry].fields, fields, probeKeys)) {
+                return entry;
+            }
+
+            entry = this.chain[entry];
+        }
+
+        return END;
+    }
+
+    /**
+     * Compare the key of a stored row with the key of a probe row.
+     */
+    private boolean keyEquals(int[] stored, int[] probe, int[] probeKeys) {
+        for (int i = 0; i < this.keys.length; i++) {
+            if (stored[this.keys[i]] != probe[probeKeys[i]]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Double the capacity of the table, keeping at most one entry per bucket on average.
+     */
+    private void grow() {
+        int capacity = this.tuples.length * 2;
+
+        this.tuples = Arrays.copyOf(this.tuples, capacity);
+        this.hashes = Arrays.copyOf(this.hashes, capacity);
+        this.chain = Arrays.copyOf(this.chain, capacity);
+        this.buckets = new int[capacity * 2];
+
+        Arrays.fill(this.buckets, END);
+
+        // Insert the entries in order, so that chains still visit the most recent entries first
+        for (int entry = 0; entry < this.size; entry++) {
+            int bucket = this.hashes[entry] & (this.buckets.length - 1);
+
+            this.chain[entry] = this.buckets[bucket];
+            this.buckets[bucket] = entry;
+        }
+    }
+}
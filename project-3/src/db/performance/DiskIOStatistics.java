@@ -1,9 +1,30 @@
 package db.performance;
 
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * A class to store the disk io stats for the system.
+ * <p>
+ * The counters are updated from the read ahead and write behind threads as well as the query thread, so they are
+ * adders rather than plain fields.
  */
 public class DiskIOStatistics {
-    public static Integer reads = 0;
-    public static Integer writes = 0;
+    public static final LongAdder reads = new LongAdder();
+    public static final LongAdder writes = new LongAdder();
+
+    /**
+     * The number of times a reader had to wait for a page which was being read ahead.
+     */
+    public static final LongAdder readAheadStalls = new LongAdder();
+
+    /**
+     * The number of times a writer had to wait for its previous page to be written behind it.
+     */
+    public static final LongAdder writeBehindStalls = new LongAdder();
+
+    /**
+     * The number of page requests which were served by the buffer pool, and which had to go to disk.
+     */
+    public static final LongAdder bufferPoolHits = new LongAdder();
+    public static final LongAdder bufferPoolMisses = new LongAdder();
 }
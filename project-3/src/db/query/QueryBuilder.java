@@ -5,15 +5,19 @@ import db.Utilities.UnionFind;
 import db.Utilities.Utilities;
 import db.datastore.Database;
 import db.datastore.TableHeader;
+import db.operators.Aggregate;
 import db.operators.logical.*;
 import db.query.visitors.WhereDecomposer;
 import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.Function;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.select.*;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static db.Utilities.Utilities.*;
@@ -24,7 +28,8 @@ import static db.Utilities.Utilities.*;
  * This class reads the tokens from the parsed SQL query and generates a tree of {@link LogicalOperator}
  * that can then be used to retrieve all matching records.
  * <p>
- * Supports SELECT-FROM-WHERE queries with some restrictions as well as DISTINCT and ORDER BY.
+ * Supports SELECT-FROM-WHERE queries with some restrictions as well as DISTINCT, ORDER BY, LIMIT and OFFSET, and
+ * GROUP BY with COUNT, SUM, MIN, MAX and AVG.
  */
 public class QueryBuilder {
     private Database db;
@@ -99,8 +104,10 @@ public class QueryBuilder {
         // Build the scan-select-join tree structure
         rootNode = processWhereClause(whereItem);
 
-        // Add projections
-        if (!(selectItems.get(0) instanceof AllColumns)) {
+        // Add aggregation and projections
+        if (query.getGroupByColumnReferences() != null || hasAggregates(selectItems)) {
+            rootNode = processAggregation(rootNode, selectItems, query.getGroupByColumnReferences());
+        } else if (!(selectItems.get(0) instanceof AllColumns)) {
             List<String> tableNames = new ArrayList<>();
             List<String> columnNames = new ArrayList<>();
 
@@ -139,6 +146,14 @@ public class QueryBuilder {
             List<String> columns = new ArrayList<>();
 
             for (OrderByElement element : orderBy) {
+                if (element.getExpression() instanceof Function) {
+                    Aggregate aggregate = Aggregate.fromFunction((Function) element.getExpression());
+
+                    referencedTables.add(aggregate.getResultTable());
+                    columns.add(aggregate.getResultColumn());
+                    continue;
+                }
+
                 Column columnInstance = (Column) element.getExpression();
 
                 String tableId = Utilities.getIdentifier(columnInstance.getTable());
@@ -153,18 +168,103 @@ public class QueryBuilder {
         }
 
         if (isDistinct) {
-            // Current implementation requires sorted queries
-            if (orderBy == null) {
-                // Sort all fields
-                rootNode = new LogicalSortOperator(rootNode, new TableHeader());
+            // The physical planner sorts the tuples itself if it removes duplicates by sorting
+            rootNode = new LogicalDistinctOperator(rootNode);
+        }
+
+        Limit limit = query.getLimit();
+
+        if (limit != null) {
+            if (limit.isRowCountJdbcParameter() || limit.isOffsetJdbcParameter()) {
+                throw new RuntimeException("LIMIT and OFFSET must be constants: " + limit);
             }
 
-            rootNode = new LogicalDistinctOperator(rootNode);
+            // The parser gives a row count of 0 to an OFFSET without a LIMIT, which can not be told apart from
+            // LIMIT 0 OFFSET n, so the far more common form wins
+            boolean unbounded = limit.isLimitAll() || (limit.getRowCount() == 0 && limit.getOffset() > 0);
+            long rowCount = unbounded ? LogicalLimitOperator.ALL : limit.getRowCount();
+
+            if (!unbounded || limit.getOffset() > 0) {
+                rootNode = new LogicalLimitOperator(rootNode, limit.getOffset(), rowCount);
+            }
         }
 
         return rootNode;
     }
 
+    /**
+     * @param selectItems the items of the SELECT clause.
+     * @return whether any of the items is an aggregate function.
+     */
+    private static boolean hasAggregates(List<SelectItem> selectItems) {
+        for (SelectItem item : selectItems) {
+            if (item instanceof SelectExpressionItem && ((SelectExpressionItem) item).getExpression() instanceof Function) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Group the tuples and compute the aggregates of the SELECT clause, then project the result in the order of the
+     * SELECT clause. Columns which are not aggregated have to be grouped on.
+     *
+     * @param rootNode    the SELECT-FROM-WHERE tree.
+     * @param selectItems the items of the SELECT clause.
+     * @param groupBy     the columns of the GROUP BY clause, or null if there is none.
+     * @return the root node of the aggregation.
+     */
+    private LogicalOperator processAggregation(LogicalOperator rootNode, List<SelectItem> selectItems, List<Expression> groupBy) {
+        List<String> groupTables = new ArrayList<>();
+        List<String> groupColumns = new ArrayList<>();
+
+        if (groupBy != null) {
+            for (Expression expression : groupBy) {
+                Column column = (Column) expression;
+
+                groupTables.add(Utilities.getIdentifier(column.getTable()));
+                groupColumns.add(column.getColumnName());
+            }
+        }
+
+        TableHeader groupHeader = new TableHeader(groupTables, groupColumns);
+
+        Map<String, Aggregate> aggregates = new LinkedHashMap<>();
+        List<String> tableNames = new ArrayList<>();
+        List<String> columnNames = new ArrayList<>();
+
+        for (SelectItem item : selectItems) {
+            if (!(item instanceof SelectExpressionItem)) {
+                throw new RuntimeException("Only grouped columns and aggregates can be selected with GROUP BY: " + item);
+            }
+
+            Expression expression = ((SelectExpressionItem) item).getExpression();
+
+            if (expression instanceof Function) {
+                Aggregate aggregate = Aggregate.fromFunction((Function) expression);
+                aggregates.putIfAbsent(aggregate.getName(), aggregate);
+
+                tableNames.add(aggregate.getResultTable());
+                columnNames.add(aggregate.getResultColumn());
+            } else {
+                Column columnRef = (Column) expression;
+                String tableId = Utilities.getIdentifier(columnRef.getTable());
+
+                if (!groupHeader.resolve(tableId, columnRef.getColumnName()).isPresent()) {
+                    throw new RuntimeException("Column " + columnRef + " must be grouped on or aggregated.");
+                }
+
+                tableNames.add(tableId);
+                columnNames.add(columnRef.getColumnName());
+            }
+        }
+
+        rootNode = new LogicalAggregateOperator(rootNode, groupHeader, new ArrayList<>(aggregates.values()));
+
+        return new LogicalProjectOperator(rootNode, new TableHeader(tableNames, columnNames));
+    }
+
     /**
      * Process the WHERE clause, push selections down the tree and add a join operator with leftover expressions.
      *
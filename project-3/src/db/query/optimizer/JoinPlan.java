@@ -4,10 +4,12 @@ import db.PhysicalPlanConfig;
 import db.PhysicalPlanConfig.JoinImplementation;
 import db.Utilities.Pair;
 import db.datastore.Database;
+import db.datastore.IndexInfo;
 import db.operators.logical.LogicalOperator;
+import db.operators.logical.LogicalScanOperator;
 
 import java.util.*;
-import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static java.lang.Math.ceil;
@@ -23,6 +25,21 @@ public class JoinPlan {
     private int cost;
     private int tableCount;
 
+    /**
+     * Whether the join condition of this join holds an equality between the joined relations.
+     */
+    private boolean equiJoin;
+
+    /**
+     * An index on the joined relation over one of its join attributes, or null if it has none.
+     */
+    private IndexInfo joinIndex;
+
+    /**
+     * The number of distinct values of the attribute of the join index.
+     */
+    private int joinIndexVValue;
+
     private JoinPlan parentJoin;
     private Relation joinTable;
 
@@ -105,6 +122,10 @@ public class JoinPlan {
                     int vvalB = this.vvalues.get(joinOn);
 
                     total /= Math.max(vvalA, vvalB);
+
+                    this.equiJoin = true;
+
+                    this.findJoinIndex(intersect);
                 }
             }
         }
@@ -112,6 +133,29 @@ public class JoinPlan {
         return Math.max(1, (int) total);
     }
 
+    /**
+     * Look for an index of the joined relation on one of the given attributes, which an index nested loop join could
+     * probe. Only plain scans qualify, the index is on the whole table.
+     *
+     * @param attributes the qualified join attributes of the joined relation.
+     */
+    private void findJoinIndex(Set<String> attributes) {
+        if (!(this.joinTable.op instanceof LogicalScanOperator)) {
+            return;
+        }
+
+        LogicalScanOperator scan = (LogicalScanOperator) this.joinTable.op;
+
+        for (IndexInfo info : scan.getTable().indices) {
+            String attribute = scan.getTableAlias() + "." + info.attributeName;
+
+            if (attributes.contains(attribute) && (this.joinIndex == null || info.isClustered)) {
+                this.joinIndex = info;
+                this.joinIndexVValue = this.vvalues.get(attribute);
+            }
+        }
+    }
+
     /**
      * @return the estimated cost of the plan.
      */
@@ -126,6 +170,14 @@ public class JoinPlan {
         return estimatedTupleCount;
     }
 
+    /**
+     * @param attribute the qualified attribute name.
+     * @return the estimated number of distinct values of the attribute after the joins, or null if it is unknown.
+     */
+    public Integer getVValue(String attribute) {
+        return this.vvalues.get(attribute);
+    }
+
     /**
      * @return the size of a tuple after the joins have been performed.
      */
@@ -188,7 +240,10 @@ public class JoinPlan {
         List<JoinImplementation> joinImplementations = new ArrayList<>();
         List<Boolean> flipInnerOuterRelations = new ArrayList<>();
 
-        BiFunction<JoinPlan, Relation, Void> recursiveFunction = (parentJoin, table) -> {
+        Consumer<JoinPlan> recursiveFunction = join -> {
+            JoinPlan parentJoin = join.parentJoin;
+            Relation table = join.joinTable;
+
             if (parentJoin != null) {
                 int outerTupleSize = parentJoin.getTupleSize();
                 int outerTupleCount = parentJoin.getEstimatedTupleCount();
@@ -202,13 +257,30 @@ public class JoinPlan {
 
                 int bnljCost = computeBNLJCost(config.joinParameter, outerPages, innerPages);
                 int smjCost = computeSMJCost(config.sortParameter, outerPages, innerPages);
+                int hjCost = computeHJCost(config.hashJoinPages, join.equiJoin, outerPages, innerPages);
+                int hhjCost = computeHHJCost(config.joinParameter, join.equiJoin, outerPages, innerPages);
+                int inljCost = config.useIndices
+                        ? computeINLJCost(join.joinIndex, join.joinIndexVValue, outerPages, outerTupleCount, innerTupleCount, innerTuplesPerPage)
+                        : Integer.MAX_VALUE;
 
                 System.out.println("###################################");
                 System.out.println("smj Cost:    " + smjCost);
                 System.out.println("bnlj Cost:   " + bnljCost);
+                System.out.println("hj Cost:     " + (hjCost == Integer.MAX_VALUE ? "n/a" : hjCost));
+                System.out.println("hhj Cost:    " + (hhjCost == Integer.MAX_VALUE ? "n/a" : hhjCost));
+                System.out.println("inlj Cost:   " + (inljCost == Integer.MAX_VALUE ? "n/a" : inljCost));
                 System.out.println("sort buffer: " + config.sortParameter);
 
-                if (smjCost > bnljCost || config.sortParameter < 3) {
+                if (inljCost < Math.min(Math.min(bnljCost, smjCost), Math.min(hjCost, hhjCost))) {
+                    System.out.println("winner:      INLJ");
+                    joinImplementations.add(JoinImplementation.INLJ);
+                } else if (hjCost <= Math.min(bnljCost, smjCost)) {
+                    System.out.println("winner:      HJ");
+                    joinImplementations.add(JoinImplementation.HJ);
+                } else if (hhjCost < bnljCost && (hhjCost <= smjCost || config.sortParameter < 3)) {
+                    System.out.println("winner:      HHJ");
+                    joinImplementations.add(JoinImplementation.HHJ);
+                } else if (smjCost > bnljCost || config.sortParameter < 3) {
                     System.out.println("winner:      BNLJ");
                     joinImplementations.add(JoinImplementation.BNLJ);
                 } else {
@@ -216,7 +288,10 @@ public class JoinPlan {
                     joinImplementations.add(JoinImplementation.SMJ);
                 }
 
-                if (outerPages > innerPages) {
+                if (joinImplementations.get(joinImplementations.size() - 1) == JoinImplementation.INLJ) {
+                    // The index is on the joined relation, so it has to stay the inner one
+                    flipInnerOuterRelations.add(false);
+                } else if (outerPages > innerPages) {
                     flipInnerOuterRelations.add(true);
                 } else {
                     flipInnerOuterRelations.add(false);
@@ -224,8 +299,6 @@ public class JoinPlan {
 
                 System.out.println("###################################");
             }
-
-            return null;
         };
 
         this.recursePlan(recursiveFunction);
@@ -261,6 +334,78 @@ public class JoinPlan {
         return innerCost + outerCost;
     }
 
+    /**
+     * Estimate the cost of performing an in-memory hash join on the relations, the smaller one is held in memory.
+     *
+     * @param memoryPages the number of pages the hash table may take.
+     * @param equiJoin    whether the relations are joined on an equality.
+     * @param outerPages  the size of the outer relation in pages.
+     * @param innerPages  the size of the inner relation in pages.
+     * @return the estimated cost of the operation, or Integer.MAX_VALUE if a hash join can not be used.
+     */
+    private static int computeHJCost(int memoryPages, boolean equiJoin, int outerPages, int innerPages) {
+        if (!equiJoin || Math.min(outerPages, innerPages) > memoryPages) {
+            return Integer.MAX_VALUE;
+        }
+
+        return outerPages + innerPages;
+    }
+
+    /**
+     * Estimate the cost of performing a hybrid hash join on the relations. The share of the smaller relation which
+     * does not fit in the buffer is written out and read back, along with the same share of the larger relation, once
+     * for every level of partitioning needed.
+     *
+     * @param blockCount the number of buffer pages available to the join operation.
+     * @param equiJoin   whether the relations are joined on an equality.
+     * @param outerPages the size of the outer relation in pages.
+     * @param innerPages the size of the inner relation in pages.
+     * @return the estimated cost of the operation, or Integer.MAX_VALUE if a hash join can not be used.
+     */
+    private static int computeHHJCost(int blockCount, boolean equiJoin, int outerPages, int innerPages) {
+        if (!equiJoin) {
+            return Integer.MAX_VALUE;
+        }
+
+        int memoryPages = Math.max(1, blockCount);
+        int smallerPages = Math.min(outerPages, innerPages);
+
+        if (smallerPages <= memoryPages) {
+            return outerPages + innerPages;
+        }
+
+        int partitions = Math.max(2, memoryPages - 1);
+        int passes = (int) ceil(log(1f * smallerPages / memoryPages) / log(partitions));
+        double spilledShare = 1 - 1f * memoryPages / smallerPages;
+
+        return (int) ceil(outerPages + innerPages + 2 * Math.max(1, passes) * spilledShare * (outerPages + innerPages));
+    }
+
+    /**
+     * Estimate the cost of performing an index nested loop join on the relations. Every outer tuple walks down the
+     * tree, assumed to be 3 levels deep, and reads its matches: one page per match for an unclustered index, and only
+     * the pages they fill for a clustered one.
+     *
+     * @param index              the index on the inner relation, may be null.
+     * @param vvalue             the number of distinct values of the indexed attribute.
+     * @param outerPages         the size of the outer relation in pages.
+     * @param outerTupleCount    the number of tuples in the outer relation.
+     * @param innerTupleCount    the number of tuples in the inner relation.
+     * @param innerTuplesPerPage the number of inner tuples on a page.
+     * @return the estimated cost of the operation, or Integer.MAX_VALUE if there is no index to use.
+     */
+    private static int computeINLJCost(IndexInfo index, int vvalue, int outerPages, int outerTupleCount,
+                                       int innerTupleCount, int innerTuplesPerPage) {
+        if (index == null) {
+            return Integer.MAX_VALUE;
+        }
+
+        double matches = 1.0 * innerTupleCount / Math.max(1, vvalue);
+        double probeCost = 3 + (index.isClustered ? ceil(matches / innerTuplesPerPage) : matches);
+
+        return (int) Math.min(Integer.MAX_VALUE - 1, ceil(outerPages + outerTupleCount * probeCost));
+    }
+
     /**
      * Compute the cost of performing an external sort on the relation.
      *
@@ -280,11 +425,11 @@ public class JoinPlan {
      *
      * @param recursiveFunction the function called on each node.
      */
-    private void recursePlan(BiFunction<JoinPlan, Relation, Void> recursiveFunction) {
+    private void recursePlan(Consumer<JoinPlan> recursiveFunction) {
         if (this.parentJoin != null) {
             this.parentJoin.recursePlan(recursiveFunction);
         }
 
-        recursiveFunction.apply(this.parentJoin, this.joinTable);
+        recursiveFunction.accept(this);
     }
 }
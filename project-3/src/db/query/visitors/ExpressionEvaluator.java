@@ -2,6 +2,7 @@ package db.query.visitors;
 
 import db.datastore.TableHeader;
 import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
 import net.sf.jsqlparser.expression.*;
 import net.sf.jsqlparser.expression.operators.arithmetic.*;
 import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
@@ -11,6 +12,9 @@ import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.statement.select.SubSelect;
 import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 /**
  * An Expression visitor used to determine if a tuple matches a given predicate
  */
@@ -21,8 +25,15 @@ public class ExpressionEvaluator implements ExpressionVisitor {
 
     private Expression expressionRoot;
     private Tuple tuple;
+    private TupleBatch batch;
+    private int row;
     private TableHeader schema;
 
+    /**
+     * Column indexes keyed by the column nodes of the expression, so each column is only resolved once.
+     */
+    private final Map<Column, Integer> columnIndexes;
+
     /**
      * Setup evaluator
      * @param expression The logical expression, assumed to be a AND combination of simple comparison operators
@@ -36,6 +47,7 @@ public class ExpressionEvaluator implements ExpressionVisitor {
 
         this.expressionRoot = expression;
         this.schema = schema;
+        this.columnIndexes = new IdentityHashMap<>();
     }
 
     /**
@@ -47,6 +59,25 @@ public class ExpressionEvaluator implements ExpressionVisitor {
         this.result = false;
         this.value = 0;
         this.tuple = tuple;
+        this.batch = null;
+
+        expressionRoot.accept(this);
+
+        return this.result;
+    }
+
+    /**
+     * Check whether a row of the batch matches this expression
+     * @param batch must match the provided schema
+     * @param row the index of the row in the batch
+     * @return Whether there is a match
+     */
+    public boolean matches(TupleBatch batch, int row) {
+        this.result = false;
+        this.value = 0;
+        this.tuple = null;
+        this.batch = batch;
+        this.row = row;
 
         expressionRoot.accept(this);
 
@@ -65,16 +96,34 @@ public class ExpressionEvaluator implements ExpressionVisitor {
      */
     @Override
     public void visit(Column column) {
-        // TODO: move this computation to object construction
+        Integer index = this.columnIndexes.get(column);
+
+        if (index == null) {
+            index = this.resolveColumn(column);
+            this.columnIndexes.put(column, index);
+        }
 
+        if (index >= 0) {
+            this.value = batch != null ? batch.columns[index][row] : tuple.fields[index];
+        } else {
+            System.out.println(new Exception("Invalid column reference : " + column).getMessage());
+        }
+    }
+
+    /**
+     * Find the index of the column in the schema, the result is cached per column node by the caller.
+     *
+     * @param column the column reference from the expression.
+     * @return the index of the column in the tuple, or -1 if it is not present.
+     */
+    private int resolveColumn(Column column) {
         for (int i = 0; i < schema.columnNames.size(); i++) {
             if (schema.tableIdentifiers.get(i).equals(column.getTable().getName()) && schema.columnNames.get(i).equals(column.getColumnName())) {
-                this.value = tuple.fields.get(i);
-                return;
+                return i;
             }
         }
 
-        System.out.println(new Exception("Invalid column reference : " + column).getMessage());
+        return -1;
     }
 
     /**
@@ -3,6 +3,7 @@ package db.query.visitors;
 import db.Utilities.Pair;
 import db.Utilities.UnionFind;
 import db.Utilities.Utilities;
+import db.operators.Aggregate;
 import db.operators.logical.*;
 import net.sf.jsqlparser.expression.Expression;
 
@@ -10,6 +11,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Print a logical tree to a string.
@@ -148,6 +150,39 @@ public class LogicalTreePrinter implements LogicalTreeVisitor {
         this.depth -= 1;
     }
 
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void visit(LogicalAggregateOperator node) {
+        List<String> columns = node.getGroupHeader().getQualifiedAttributeNames();
+        List<String> aggregates = node.getAggregates().stream().map(Aggregate::getName).collect(Collectors.toList());
+
+        lines.add(pad("Aggregate[" + String.join(", ", columns) + "][" + String.join(", ", aggregates) + "]"));
+
+        this.depth += 1;
+        node.getChild().accept(this);
+        this.depth -= 1;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void visit(LogicalLimitOperator node) {
+        String limit = node.getLimit() == LogicalLimitOperator.ALL ? "ALL" : String.valueOf(node.getLimit());
+
+        if (node.getOffset() == 0) {
+            lines.add(pad("Limit[" + limit + "]"));
+        } else {
+            lines.add(pad("Limit[" + limit + "][offset " + node.getOffset() + "]"));
+        }
+
+        this.depth += 1;
+        node.getChild().accept(this);
+        this.depth -= 1;
+    }
+
     /**
      * Pad the string with the corrent number of spaces.
      * @param lineBody the line to pad
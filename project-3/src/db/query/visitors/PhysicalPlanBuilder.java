@@ -1,24 +1,40 @@
 package db.query.visitors;
 
 import db.PhysicalPlanConfig;
+import db.PhysicalPlanConfig.DistinctImplementation;
 import db.PhysicalPlanConfig.JoinImplementation;
+import db.PhysicalPlanConfig.SortImplementation;
 import db.Utilities.Pair;
 import db.Utilities.Utilities;
+import db.datastore.Database;
+import db.datastore.IndexInfo;
 import db.datastore.TableHeader;
 import db.datastore.TableInfo;
 import db.datastore.index.BTree;
+import db.datastore.stats.ColumnBounds;
+import db.operators.BinaryNode;
+import db.operators.UnaryNode;
 import db.operators.logical.*;
 import db.operators.physical.Operator;
 import db.operators.physical.bag.*;
 import db.operators.physical.extended.DistinctOperator;
 import db.operators.physical.extended.ExternalSortOperator;
+import db.operators.physical.extended.HashAggregateOperator;
+import db.operators.physical.extended.HashDistinctOperator;
 import db.operators.physical.extended.InMemorySortOperator;
+import db.operators.physical.extended.LimitOperator;
+import db.operators.physical.extended.SortAggregateOperator;
 import db.operators.physical.extended.SortOperator;
+import db.operators.physical.extended.TopNOperator;
 import db.operators.physical.physical.IndexScanOperator;
 import db.operators.physical.physical.ScanOperator;
+import db.operators.physical.utility.MaterializeOperator;
+import db.operators.physical.utility.RuntimeFilter;
+import db.operators.physical.utility.RuntimeFilterBuildOperator;
 import db.query.TablePair;
 import db.query.optimizer.JoinOrderOptimizer;
 import db.query.optimizer.JoinPlan;
+import db.query.optimizer.VValues;
 import net.sf.jsqlparser.expression.Expression;
 import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 
@@ -48,6 +64,11 @@ public class PhysicalPlanBuilder implements LogicalTreeVisitor {
      */
     private TableInfo currentTable;
 
+    /**
+     * The plan of the last join built, its estimates are used by the operators above it.
+     */
+    private JoinPlan joinPlan;
+
     private Path temporaryFolder;
     private Path indexesFolder;
 
@@ -64,6 +85,7 @@ public class PhysicalPlanBuilder implements LogicalTreeVisitor {
 
         this.operators = new ArrayDeque<>();
         this.currentTable = null;
+        this.joinPlan = null;
     }
 
     public Operator buildFromLogicalTree(LogicalOperator root) {
@@ -93,6 +115,7 @@ public class PhysicalPlanBuilder implements LogicalTreeVisitor {
 
         JoinOrderOptimizer optimizer = new JoinOrderOptimizer(node);
         JoinPlan joinPlan = optimizer.computeBestJoinOrder();
+        this.joinPlan = joinPlan;
         List<LogicalOperator> joinOrder = joinPlan.getJoinOrder();
 
         Deque<JoinImplementation> joinTypes = new LinkedList<>(joinPlan.getJoinTypes(config));
@@ -202,13 +225,19 @@ public class PhysicalPlanBuilder implements LogicalTreeVisitor {
             }
         }
 
+        if (config.useRuntimeFilters && joinCondition != null && (joinImplementation == JoinImplementation.HJ
+                || joinImplementation == JoinImplementation.HHJ || joinImplementation == JoinImplementation.SMJ)) {
+            // These joins read the whole outer relation before the inner one
+            outer = attachRuntimeFilter(outer, inner, joinCondition);
+        }
+
         switch (joinImplementation) {
             // TODO: find another method of choosing joins
             case TNLJ:
-                join = new TupleNestedJoinOperator(outer, inner, joinCondition);
+                join = new TupleNestedJoinOperator(outer, materializeInner(inner), joinCondition);
                 break;
             case BNLJ:
-                join = new BlockNestedJoinOperator(outer, inner, joinCondition, config.joinParameter);
+                join = createBlockNestedJoin(outer, inner, joinCondition);
                 break;
             case SMJ:
                 SMJHeaderEvaluator smjEval = new SMJHeaderEvaluator(outer.getHeader(), inner.getHeader());
@@ -225,17 +254,42 @@ public class PhysicalPlanBuilder implements LogicalTreeVisitor {
                             leftOpSorted = new InMemorySortOperator(outer, leftSortHeader);
                             rightOpSorted = new InMemorySortOperator(inner, rightSortHeader);
                         } else /* EXTERNAL */ {
-                            leftOpSorted = new ExternalSortOperator(outer, leftSortHeader, config.sortParameter, temporaryFolder);
-                            rightOpSorted = new ExternalSortOperator(inner, rightSortHeader, config.sortParameter, temporaryFolder);
+                            leftOpSorted = new ExternalSortOperator(outer, leftSortHeader, config, temporaryFolder);
+                            rightOpSorted = new ExternalSortOperator(inner, rightSortHeader, config, temporaryFolder);
                         }
 
                         join = new SortMergeJoinOperator(leftOpSorted, rightOpSorted, joinCondition);
                     } else {
                         // when no equijoins, just use BNLJ
-                        join = new BlockNestedJoinOperator(outer, inner, joinCondition, config.joinParameter);
+                        join = createBlockNestedJoin(outer, inner, joinCondition);
                     }
                 } else {
-                    join = new BlockNestedJoinOperator(outer, inner, null, config.joinParameter);
+                    join = createBlockNestedJoin(outer, inner, null);
+                }
+                break;
+            case HJ:
+                if (joinCondition != null && !EquiJoinKeys.fromCondition(joinCondition, outer.getHeader(), inner.getHeader()).isEmpty()) {
+                    join = new HashJoinOperator(outer, inner, joinCondition);
+                } else {
+                    // when no equijoins, just use BNLJ
+                    join = createBlockNestedJoin(outer, inner, joinCondition);
+                }
+                break;
+            case HHJ:
+                if (joinCondition != null && !EquiJoinKeys.fromCondition(joinCondition, outer.getHeader(), inner.getHeader()).isEmpty()) {
+                    join = new HybridHashJoinOperator(outer, inner, joinCondition, config.joinParameter, temporaryFolder,
+                            config.readerImplementation, config.spillFormat);
+                } else {
+                    // when no equijoins, just use BNLJ
+                    join = createBlockNestedJoin(outer, inner, joinCondition);
+                }
+                break;
+            case INLJ:
+                join = createIndexJoin(outer, inner, joinCondition);
+
+                if (join == null) {
+                    // when the inner relation has no usable index, just use BNLJ
+                    join = createBlockNestedJoin(outer, inner, joinCondition);
                 }
                 break;
             default:
@@ -245,6 +299,146 @@ public class PhysicalPlanBuilder implements LogicalTreeVisitor {
         return join;
     }
 
+    /**
+     * @param outer         the outer relation, read one block at a time.
+     * @param inner         the inner relation.
+     * @param joinCondition the join condition, may be null.
+     * @return a block nested loop join using the configured buffer and threads.
+     */
+    private Operator createBlockNestedJoin(Operator outer, Operator inner, Expression joinCondition) {
+        return new BlockNestedJoinOperator(outer, materializeInner(inner), joinCondition, config.joinParameter,
+                config.joinThreads, config.preserveJoinOrder);
+    }
+
+    /**
+     * Wrap the inner relation of a nested loop join so that it is computed once and read back on every rescan. A
+     * plain scan is already cheap to read again, so it is left alone.
+     *
+     * @param inner the inner relation.
+     * @return the operator the join should rescan.
+     */
+    private Operator materializeInner(Operator inner) {
+        if (config.materializePages <= 0 || inner instanceof ScanOperator) {
+            return inner;
+        }
+
+        return new MaterializeOperator(inner, config.materializePages, temporaryFolder, config.readerImplementation,
+                config.spillFormat);
+    }
+
+    /**
+     * Filter the scan which produces an inner join key with the keys of the outer relation, so that inner tuples which
+     * can not be joined are dropped as they are read.
+     *
+     * @param outer         the outer relation, read in full first.
+     * @param inner         the inner relation.
+     * @param joinCondition the join condition.
+     * @return the outer relation, wrapped so that it fills the filter if a scan was found.
+     */
+    private Operator attachRuntimeFilter(Operator outer, Operator inner, Expression joinCondition) {
+        EquiJoinKeys keys = EquiJoinKeys.fromCondition(joinCondition, outer.getHeader(), inner.getHeader());
+        TableHeader innerHeader = inner.getHeader();
+
+        for (int i = 0; i < keys.rightKeys.length; i++) {
+            String alias = innerHeader.tableIdentifiers.get(keys.rightKeys[i]);
+            String column = innerHeader.columnNames.get(keys.rightKeys[i]);
+
+            Operator scan = findScan(inner, alias);
+
+            if (scan == null) {
+                continue;
+            }
+
+            RuntimeFilter filter = new RuntimeFilter(scan.getHeader().resolve(alias, column).get());
+
+            if (scan instanceof ScanOperator) {
+                ((ScanOperator) scan).addRuntimeFilter(filter);
+            } else {
+                ((IndexScanOperator) scan).addRuntimeFilter(filter);
+            }
+
+            return new RuntimeFilterBuildOperator(outer, keys.leftKeys[i], filter);
+        }
+
+        return outer;
+    }
+
+    /**
+     * @param operator the root of the tree to search.
+     * @param alias    the alias of the table.
+     * @return the scan or index scan of the table in the tree, or null if it is not read by a scan.
+     */
+    private static Operator findScan(Operator operator, String alias) {
+        if (operator instanceof ScanOperator || operator instanceof IndexScanOperator) {
+            return operator.getHeader().tableIdentifiers.contains(alias) ? operator : null;
+        }
+
+        if (operator instanceof IndexNestedLoopJoinOperator) {
+            // The inner table of an index join is read through the index, not its scan
+            return findScan(((IndexNestedLoopJoinOperator) operator).getLeft(), alias);
+        }
+
+        if (operator instanceof UnaryNode) {
+            return findScan((Operator) ((UnaryNode<?>) operator).getChild(), alias);
+        }
+
+        if (operator instanceof BinaryNode) {
+            BinaryNode<?> node = (BinaryNode<?>) operator;
+            Operator scan = findScan((Operator) node.getLeft(), alias);
+            return scan != null ? scan : findScan((Operator) node.getRight(), alias);
+        }
+
+        return null;
+    }
+
+    /**
+     * Create an index nested loop join, if the inner relation is a scan of a table with an index on one of the
+     * attributes it is joined on. A selection directly above the scan is folded into the join condition.
+     *
+     * @param outer         the outer relation.
+     * @param inner         the inner relation, probed through the index.
+     * @param joinCondition the join condition.
+     * @return the join, or null if no index can be used.
+     */
+    private Operator createIndexJoin(Operator outer, Operator inner, Expression joinCondition) {
+        if (!config.useIndices || joinCondition == null) {
+            return null;
+        }
+
+        Expression condition = joinCondition;
+
+        if (inner instanceof SelectionOperator && ((SelectionOperator) inner).getChild() instanceof ScanOperator) {
+            condition = joinExpression(condition, ((SelectionOperator) inner).getPredicate());
+            inner = ((SelectionOperator) inner).getChild();
+        }
+
+        if (!(inner instanceof ScanOperator) || ((ScanOperator) inner).getTable().isCompressed()) {
+            return null;
+        }
+
+        ScanOperator scan = (ScanOperator) inner;
+        EquiJoinKeys keys = EquiJoinKeys.fromCondition(condition, outer.getHeader(), scan.getHeader());
+
+        // Prefer a clustered index, its matches share pages
+        IndexInfo bestIndex = null;
+
+        for (IndexInfo info : scan.getTable().indices) {
+            int column = scan.getHeader().columnNames.indexOf(info.attributeName);
+
+            if (IndexNestedLoopJoinOperator.findProbeKey(keys, column) != -1 && (bestIndex == null || info.isClustered)) {
+                bestIndex = info;
+            }
+        }
+
+        if (bestIndex == null) {
+            return null;
+        }
+
+        BTree tree = BTree.createTree(indexesFolder.resolve(bestIndex.tableName + "." + bestIndex.attributeName));
+
+        return new IndexNestedLoopJoinOperator(outer, scan, bestIndex, tree, condition, config.readerImplementation);
+    }
+
     /**
      * @inheritDoc
      */
@@ -253,7 +447,20 @@ public class PhysicalPlanBuilder implements LogicalTreeVisitor {
         // Update leaf node info for future uses
         this.currentTable = node.getTable();
 
-        operators.add(new ScanOperator(node.getTable(), node.getTableAlias()));
+        operators.add(new ScanOperator(node.getTable(), node.getTableAlias(), config.readerImplementation, config.readAheadPages));
+    }
+
+    /**
+     * Create a scan for the source of a selection, which skips the pages the selection can not match.
+     *
+     * @param node      the scan below the selection.
+     * @param predicate the selection predicate.
+     * @return the scan operator.
+     */
+    private Operator createBoundedScan(LogicalScanOperator node, Expression predicate) {
+        ColumnBounds bounds = config.useZoneMaps ? ColumnBounds.fromPredicate(node.getHeader(), predicate) : null;
+
+        return new ScanOperator(node.getTable(), node.getTableAlias(), config.readerImplementation, config.readAheadPages, bounds);
     }
 
     /**
@@ -261,13 +468,19 @@ public class PhysicalPlanBuilder implements LogicalTreeVisitor {
      */
     @Override
     public void visit(LogicalSelectOperator node) {
-        node.getChild().accept(this);
-
         LogicalOperator source = node.getChild();
         boolean singleSource = (source instanceof LogicalScanOperator);
 
+        if (singleSource) {
+            // Build the scan here so that it can skip the pages the predicate can not match
+            this.currentTable = ((LogicalScanOperator) source).getTable();
+            operators.add(createBoundedScan((LogicalScanOperator) source, node.getPredicate()));
+        } else {
+            source.accept(this);
+        }
+
         // If we don't or can't use indices just add a selection operator
-        if (!config.useIndices || !singleSource || this.currentTable.indices.size() == 0) {
+        if (!config.useIndices || !singleSource || this.currentTable.indices.size() == 0 || this.currentTable.isCompressed()) {
             Operator select = new SelectionOperator(operators.pollLast(), node.getPredicate());
             operators.add(select);
             return;
@@ -294,7 +507,8 @@ public class PhysicalPlanBuilder implements LogicalTreeVisitor {
 
             // Replace scan with indexed scan
             Operator op = new IndexScanOperator(this.currentTable, sourceScan.getTableAlias(),
-                    scanEval.getBestIndexInfo(), treeIndex, scanEval.getBestLow(), scanEval.getBestHigh());
+                    scanEval.getBestIndexInfo(), treeIndex, scanEval.getBestLow(), scanEval.getBestHigh(),
+                    config.readerImplementation);
 
             if (leftovers != null) {
                 // Add a selection operator to handle leftovers
@@ -312,20 +526,25 @@ public class PhysicalPlanBuilder implements LogicalTreeVisitor {
     public void visit(LogicalSortOperator node) {
         node.getChild().accept(this);
 
-        Operator sort;
+        operators.add(createSort(operators.pollLast(), node.getSortHeader()));
+    }
 
+    /**
+     * Create the sort of the configured type.
+     *
+     * @param source     the operator whose tuples are sorted.
+     * @param sortHeader the columns to sort on.
+     * @return the sort operator.
+     */
+    private Operator createSort(Operator source, TableHeader sortHeader) {
         switch (config.sortImplementation) {
             case IN_MEMORY:
-                sort = new InMemorySortOperator(operators.pollLast(), node.getSortHeader());
-                break;
+                return new InMemorySortOperator(source, sortHeader);
             case EXTERNAL:
-                sort = new ExternalSortOperator(operators.pollLast(), node.getSortHeader(), config.sortParameter, temporaryFolder);
-                break;
+                return new ExternalSortOperator(source, sortHeader, config, temporaryFolder);
             default:
                 throw new NotImplementedException();
         }
-
-        operators.add(sort);
     }
 
     /**
@@ -346,7 +565,199 @@ public class PhysicalPlanBuilder implements LogicalTreeVisitor {
     public void visit(LogicalDistinctOperator node) {
         node.getChild().accept(this);
 
-        Operator distinct = new DistinctOperator(operators.pollLast());
+        Operator source = operators.pollLast();
+        Operator distinct;
+
+        if (node.getChild() instanceof LogicalSortOperator) {
+            // The ORDER BY already sorts on every column, so duplicates are next to each other
+            distinct = new DistinctOperator(source);
+        } else if (useHashDistinct(node.getChild())) {
+            distinct = new HashDistinctOperator(source, config.sortParameter, temporaryFolder,
+                    config.readerImplementation, config.spillFormat);
+        } else {
+            TableHeader sortHeader = LogicalSortOperator.computeSortHeader(new TableHeader(), source.getHeader());
+            distinct = new DistinctOperator(createSort(source, sortHeader));
+        }
+
         operators.add(distinct);
     }
+
+    /**
+     * Choose between removing duplicates by hashing or by sorting. Hashing only holds the distinct tuples, so it wins
+     * whenever they fit in the sort buffer. Otherwise the partitions which do not fit are written out and read back
+     * once, which is compared with the passes of an external sort if one is configured.
+     *
+     * @param source the logical operator whose duplicates are removed.
+     * @return whether to use a hash distinct.
+     */
+    private boolean useHashDistinct(LogicalOperator source) {
+        if (config.distinctImplementation != null) {
+            return config.distinctImplementation == DistinctImplementation.HASH;
+        }
+
+        double tuples;
+        Map<String, Integer> vvalues = new HashMap<>();
+
+        if (this.currentTable == null && this.joinPlan != null) {
+            tuples = this.joinPlan.getEstimatedTupleCount();
+
+            for (String attribute : source.getHeader().getQualifiedAttributeNames()) {
+                Integer vvalue = this.joinPlan.getVValue(attribute);
+
+                if (vvalue != null) {
+                    vvalues.put(attribute, vvalue);
+                }
+            }
+        } else {
+            LogicalScanOperator scan = Utilities.getLeafScan(source);
+            tuples = scan.getTable().getStats().count;
+            vvalues.putAll(new VValues(scan.getHeader(), scan.getTable().getStats()).getVvalues());
+        }
+
+        double distinct = 1;
+        for (String attribute : source.getHeader().getQualifiedAttributeNames()) {
+            distinct = Math.min(tuples, distinct * vvalues.getOrDefault(attribute, (int) tuples));
+        }
+
+        double tuplesPerPage = Math.max(1, Database.PAGE_SIZE / 4 / source.getHeader().size());
+        double pages = Math.ceil(tuples / tuplesPerPage);
+        double distinctPages = Math.ceil(distinct / tuplesPerPage);
+        int bufferPages = Math.max(1, config.sortParameter);
+
+        if (distinctPages <= bufferPages) {
+            return true;
+        }
+
+        // Without an external sort the whole input would be sorted in memory, so hashing is the only way to spill
+        if (config.sortImplementation != SortImplementation.EXTERNAL) {
+            return true;
+        }
+
+        double hashCost = 2 * pages * (1 - bufferPages / distinctPages);
+        double sortPasses = 1 + Math.ceil(Math.log(Math.max(1, pages / bufferPages)) / Math.log(Math.max(2, bufferPages - 1)));
+
+        return hashCost < 2 * pages * sortPasses;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void visit(LogicalAggregateOperator node) {
+        node.getChild().accept(this);
+
+        Operator source = operators.pollLast();
+        Operator aggregate;
+
+        if (isOrderedOn(source, node.getGroupHeader())) {
+            aggregate = new SortAggregateOperator(source, node.getGroupHeader(), node.getAggregates());
+        } else {
+            aggregate = new HashAggregateOperator(source, node.getGroupHeader(), node.getAggregates(), config.sortParameter,
+                    temporaryFolder, config.readerImplementation, config.spillFormat);
+        }
+
+        operators.add(aggregate);
+    }
+
+    /**
+     * Check whether the tuples of an operator come sorted on some columns, so that tuples with equal values in those
+     * columns are next to each other.
+     *
+     * @param operator the operator.
+     * @param columns  the columns, in any order.
+     * @return whether the columns are a prefix of the order of the tuples.
+     */
+    private static boolean isOrderedOn(Operator operator, TableHeader columns) {
+        Set<String> keys = new HashSet<>(columns.getQualifiedAttributeNames());
+        List<String> order = getOutputOrder(operator);
+
+        return keys.size() <= order.size() && new HashSet<>(order.subList(0, keys.size())).equals(keys);
+    }
+
+    /**
+     * @param operator the operator.
+     * @return the qualified columns the tuples of the operator are known to be sorted on, in order.
+     */
+    private static List<String> getOutputOrder(Operator operator) {
+        if (operator instanceof SortOperator) {
+            return ((SortOperator) operator).getSortHeader().getQualifiedAttributeNames();
+        } else if (operator instanceof SortMergeJoinOperator) {
+            return getOutputOrder(((SortMergeJoinOperator) operator).getLeft());
+        } else if (operator instanceof IndexScanOperator && ((IndexScanOperator) operator).getIndex().isClustered) {
+            // A clustered index scan reads the table file, which is sorted on the indexed attribute
+            TableHeader header = operator.getHeader();
+            int column = header.columnNames.indexOf(((IndexScanOperator) operator).getIndex().attributeName);
+
+            return Collections.singletonList(header.getQualifiedAttributeNames().get(column));
+        } else if (operator instanceof SelectionOperator || operator instanceof ProjectionOperator
+                || operator instanceof DistinctOperator || operator instanceof RuntimeFilterBuildOperator
+                || operator instanceof LimitOperator) {
+            return getOutputOrder((Operator) ((UnaryNode<?>) operator).getChild());
+        }
+
+        return Collections.emptyList();
+    }
+
+    /**
+     * A limit directly over an ORDER BY keeps only the first tuples in a heap instead of sorting the whole relation,
+     * as long as they fit in the sort buffer. Any other limit is pushed below the projections, which keep every tuple,
+     * so that the pipeline under it stops as soon as enough tuples have been read.
+     *
+     * @inheritDoc
+     */
+    @Override
+    public void visit(LogicalLimitOperator node) {
+        long offset = node.getOffset();
+        long limit = node.getLimit();
+        long count = limit > Long.MAX_VALUE - offset ? Long.MAX_VALUE : offset + limit;
+
+        if (node.getChild() instanceof LogicalSortOperator && fitsTopN(node.getHeader(), count)) {
+            LogicalSortOperator sort = (LogicalSortOperator) node.getChild();
+            sort.getChild().accept(this);
+
+            Operator topN = new TopNOperator(operators.pollLast(), sort.getSortHeader(), (int) count);
+            operators.add(offset == 0 ? topN : new LimitOperator(topN, offset, limit));
+        } else {
+            operators.add(createLimit(node.getChild(), offset, limit));
+        }
+    }
+
+    /**
+     * @param header the header of the sorted tuples.
+     * @param count  the number of tuples kept.
+     * @return whether a top-N operator holding that many tuples fits in the memory given to sorts.
+     */
+    private boolean fitsTopN(TableHeader header, long count) {
+        if (count > Integer.MAX_VALUE) {
+            return false;
+        }
+
+        if (config.sortImplementation == IN_MEMORY) {
+            return true;
+        }
+
+        long tuplesPerPage = Math.max(1, Database.PAGE_SIZE / 4 / header.size());
+
+        return count <= (long) config.sortParameter * tuplesPerPage;
+    }
+
+    /**
+     * Build the limit below any projections at the top of a logical tree.
+     *
+     * @param node   the logical operator whose tuples are limited.
+     * @param offset the number of tuples skipped.
+     * @param limit  the maximum number of tuples returned.
+     * @return the root of the physical tree.
+     */
+    private Operator createLimit(LogicalOperator node, long offset, long limit) {
+        if (node instanceof LogicalProjectOperator) {
+            LogicalProjectOperator project = (LogicalProjectOperator) node;
+
+            return new ProjectionOperator(createLimit(project.getChild(), offset, limit), project.getHeader());
+        }
+
+        node.accept(this);
+
+        return new LimitOperator(operators.pollLast(), offset, limit);
+    }
 }
@@ -1,18 +1,25 @@
 package db.query.visitors;
 
+import db.operators.Aggregate;
+import db.operators.logical.LogicalLimitOperator;
 import db.operators.physical.Operator;
 import db.operators.physical.PhysicalTreeVisitor;
 import db.operators.physical.bag.JoinOperator;
 import db.operators.physical.bag.ProjectionOperator;
 import db.operators.physical.bag.SelectionOperator;
+import db.operators.physical.extended.AggregateOperator;
 import db.operators.physical.extended.DistinctOperator;
+import db.operators.physical.extended.HashDistinctOperator;
+import db.operators.physical.extended.LimitOperator;
 import db.operators.physical.extended.SortOperator;
 import db.operators.physical.physical.IndexScanOperator;
 import db.operators.physical.physical.ScanOperator;
 import db.operators.physical.utility.BlockCacheOperator;
+import db.operators.physical.utility.MaterializeOperator;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Print the physical tree structure.
@@ -111,6 +118,14 @@ public class PhysicalTreePrinter implements PhysicalTreeVisitor {
         node.getChild().accept(this);
     }
 
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void visit(MaterializeOperator node) {
+        node.getChild().accept(this);
+    }
+
     /**
      * @inheritDoc
      */
@@ -152,6 +167,51 @@ public class PhysicalTreePrinter implements PhysicalTreeVisitor {
         this.depth -= 1;
     }
 
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void visit(HashDistinctOperator node) {
+        lines.add(pad("HashDupElim"));
+
+        this.depth += 1;
+        node.getChild().accept(this);
+        this.depth -= 1;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void visit(AggregateOperator node) {
+        List<String> columns = node.getGroupHeader().getQualifiedAttributeNames();
+        List<String> aggregates = node.getAggregates().stream().map(Aggregate::getName).collect(Collectors.toList());
+
+        lines.add(pad(node.getAggregateType() + "[" + String.join(", ", columns) + "][" + String.join(", ", aggregates) + "]"));
+
+        this.depth += 1;
+        node.getChild().accept(this);
+        this.depth -= 1;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void visit(LimitOperator node) {
+        String limit = node.getLimit() == LogicalLimitOperator.ALL ? "ALL" : String.valueOf(node.getLimit());
+
+        if (node.getOffset() == 0) {
+            lines.add(pad("Limit[" + limit + "]"));
+        } else {
+            lines.add(pad("Limit[" + limit + "][offset " + node.getOffset() + "]"));
+        }
+
+        this.depth += 1;
+        node.getChild().accept(this);
+        this.depth -= 1;
+    }
+
     /**
      * Pad the line to the correct depth.
      *
@@ -0,0 +1,95 @@
+package db;
+
+import db.GeneralConfig.EvictionImplementation;
+import db.PhysicalPlanConfig.PageFormat;
+import db.PhysicalPlanConfig.ReaderImplementation;
+import db.PhysicalPlanConfig.RunGeneration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class GeneralConfigTest {
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = Files.createTempFile("config", ".txt");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void directoriesOnly() throws Exception {
+        Files.write(file, Arrays.asList("in", "out", "tmp"));
+
+        GeneralConfig config = GeneralConfig.fromFile(file);
+
+        assertThat(config.inputDir, equalTo(Paths.get("in")));
+        assertThat(config.dbPath, equalTo(Paths.get("in", "db")));
+        assertThat(config.tempDir, equalTo(Paths.get("tmp")));
+        assertThat(config.bufferPoolPages, equalTo(0));
+        assertThat(config.evictionImplementation, equalTo(EvictionImplementation.CLOCK));
+        assertThat(config.compressedTables.isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void bufferPoolOptions() throws Exception {
+        Files.write(file, Arrays.asList("in", "out", "tmp", "bufferPoolPages 64", "", "  evictionImplementation   LRU_K"));
+
+        GeneralConfig config = GeneralConfig.fromFile(file);
+
+        assertThat(config.outputDir, equalTo(Paths.get("out")));
+        assertThat(config.bufferPoolPages, equalTo(64));
+        assertThat(config.evictionImplementation, equalTo(EvictionImplementation.LRU_K));
+    }
+
+    @Test
+    public void compressedTables() throws Exception {
+        Files.write(file, Arrays.asList("in", "out", "tmp", "compressedTables Sailors Reserves", "compressedTables Boats"));
+
+        GeneralConfig config = GeneralConfig.fromFile(file);
+
+        assertThat(config.compressedTables, equalTo(new HashSet<>(Arrays.asList("Sailors", "Reserves", "Boats"))));
+    }
+
+    @Test
+    public void planOptions() throws Exception {
+        Files.write(file, Arrays.asList("in", "out", "tmp", "readerImplementation MEMORY_MAPPED", "readAheadPages 8",
+                "spillFormat COMPRESSED", "runGeneration REPLACEMENT_SELECTION", "sortThreads 4", "asyncSortIO true",
+                "joinThreads 2", "materializePages 16"));
+
+        PhysicalPlanConfig config = GeneralConfig.fromFile(file).planConfig;
+
+        assertThat(config.readerImplementation, equalTo(ReaderImplementation.MEMORY_MAPPED));
+        assertThat(config.readAheadPages, equalTo(8));
+        assertThat(config.spillFormat, equalTo(PageFormat.COMPRESSED));
+        assertThat(config.runGeneration, equalTo(RunGeneration.REPLACEMENT_SELECTION));
+        assertThat(config.sortThreads, equalTo(4));
+        assertThat(config.asyncSortIO, equalTo(true));
+        assertThat(config.joinThreads, equalTo(2));
+        assertThat(config.materializePages, equalTo(16));
+
+        // The options never change the shared defaults
+        assertThat(PhysicalPlanConfig.DEFAULT_CONFIG.sortThreads, equalTo(1));
+        assertThat(PhysicalPlanConfig.DEFAULT_CONFIG.spillFormat, equalTo(PageFormat.BINARY));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void unknownOption() throws Exception {
+        Files.write(file, Arrays.asList("in", "out", "tmp", "bufferPool 64"));
+
+        GeneralConfig.fromFile(file);
+    }
+}
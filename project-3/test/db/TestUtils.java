@@ -3,6 +3,7 @@ package db;
 import db.datastore.Database;
 import db.datastore.TableHeader;
 import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
 import db.datastore.tuple.TupleWriter;
 import db.datastore.tuple.binary.BinaryTupleWriter;
 import db.datastore.tuple.string.StringTupleWriter;
@@ -23,6 +24,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.*;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsEqual.equalTo;
@@ -140,6 +142,59 @@ public class TestUtils {
 
         return i;
     }
+
+    /**
+     * Read every tuple of an operator, one at a time.
+     *
+     * @param operator The operator.
+     * @return The tuples, in the order they were returned.
+     */
+    public static List<Tuple> drain(Operator operator) {
+        List<Tuple> tuples = new ArrayList<>();
+
+        Tuple tuple;
+        while ((tuple = operator.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+
+        return tuples;
+    }
+
+    /**
+     * Read every tuple of an operator a batch at a time, checking that no batch is empty or of the wrong width.
+     *
+     * @param operator The operator.
+     * @return The tuples, in the order they were returned.
+     */
+    public static List<Tuple> drainBatches(Operator operator) {
+        List<Tuple> tuples = new ArrayList<>();
+
+        TupleBatch batch;
+        while ((batch = operator.getNextBatch()) != null) {
+            assertThat(batch.isEmpty(), equalTo(false));
+            assertThat(batch.width(), equalTo(operator.getHeader().size()));
+
+            for (int row = 0; row < batch.size(); row++) {
+                tuples.add(batch.getTuple(row));
+            }
+        }
+
+        return tuples;
+    }
+
+    /**
+     * Count the files in a folder, such as the temporary files an operator has left behind.
+     *
+     * @param folder The folder.
+     * @param prefix The start of the names of the files counted, empty to count every file.
+     * @return The number of files.
+     */
+    public static long countFiles(Path folder, String prefix) throws Exception {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+
     public static Map<String, List<Tuple>> populateDatabase(Path dbFolder, List<String> queries, int numColumns, int randRange) {
         return populateDatabase(dbFolder, queries, numColumns, randRange, true);
     }
@@ -297,8 +352,8 @@ public class TestUtils {
         PreparedStatement statement = c.prepareStatement(sql);
 
         for (Tuple tuple : tuples) {
-            for (int i = 0; i < tuple.fields.size(); i++) {
-                statement.setInt(i + 1, tuple.fields.get(i));
+            for (int i = 0; i < tuple.size(); i++) {
+                statement.setInt(i + 1, tuple.get(i));
             }
 
             statement.executeUpdate();
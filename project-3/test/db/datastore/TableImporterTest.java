@@ -0,0 +1,149 @@
+package db.datastore;
+
+import db.TestUtils;
+import db.datastore.stats.ColumnBounds;
+import db.datastore.stats.StatsGatherer;
+import db.datastore.stats.TableStats;
+import db.datastore.stats.ZoneMap;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.binary.BinaryTupleReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class TableImporterTest {
+    private TableInfo table;
+    private Path source;
+
+    @Before
+    public void setUp() throws Exception {
+        Files.createDirectories(TestUtils.TEMP_PATH);
+
+        TableHeader header = new TableHeader(Arrays.asList("Imported", "Imported", "Imported"), Arrays.asList("A", "B", "C"));
+        table = new TableInfo(header, TestUtils.TEMP_PATH.resolve("Imported"), true);
+        source = TestUtils.TEMP_PATH.resolve("Imported_humanreadable");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(table.file);
+        Files.deleteIfExists(ZoneMap.getFile(table.file));
+        Files.deleteIfExists(source);
+    }
+
+    @Test
+    public void matchesBinaryTable() throws Exception {
+        TableInfo boats = Database.loadDatabase(TestUtils.DB_PATH).getTable("Boats");
+
+        TableStats stats = new TableImporter(table, 4)
+                .importFile(TestUtils.DB_PATH.resolve("data").resolve("Boats_humanreadable"));
+
+        assertThat(readAll(table.file), equalTo(readAll(boats.file)));
+        assertThat(Files.size(table.file), equalTo(Files.size(boats.file)));
+
+        TableStats expected = StatsGatherer.gatherStats(boats);
+        assertThat(stats.count, equalTo(expected.count));
+        assertThat(stats.minimums, equalTo(expected.minimums));
+        assertThat(stats.maximums, equalTo(expected.maximums));
+        assertThat(table.getStats(), is(stats));
+    }
+
+    @Test
+    public void parsesBlocksInParallel() throws Exception {
+        Random random = new Random(8);
+        String[] separators = {",", ", ", " ", "\t"};
+        List<Tuple> expected = new ArrayList<>();
+
+        // Enough text for several blocks, with a mix of separators and line endings
+        try (BufferedWriter writer = Files.newBufferedWriter(source)) {
+            for (int i = 0; i < 150_000; i++) {
+                int[] fields = {i, random.nextInt(), i % 11 == 0 ? Integer.MIN_VALUE : Integer.MAX_VALUE - i};
+                expected.add(new Tuple(fields));
+
+                String separator = separators[i % separators.length];
+                writer.write(fields[0] + separator + fields[1] + separator + fields[2]);
+                writer.write(i % 3 == 0 ? "\r\n" : "\n");
+
+                if (i % 1000 == 0) {
+                    writer.write("\n");
+                }
+            }
+        }
+
+        TableStats stats = new TableImporter(table, 3).importFile(source);
+
+        assertThat(readAll(table.file), equalTo(expected));
+        assertThat(stats.count, equalTo(expected.size()));
+        assertThat(stats.minimums[0], equalTo(0));
+        assertThat(stats.maximums[0], equalTo(expected.size() - 1));
+        assertThat(stats.minimums[2], equalTo(Integer.MIN_VALUE));
+
+        ZoneMap built = ZoneMap.build(table);
+        ZoneMap imported = ZoneMap.load(table);
+        assertThat(imported, is(notNullValue()));
+        assertThat(imported.getNumberOfPages(), equalTo(built.getNumberOfPages()));
+
+        ColumnBounds bounds = new ColumnBounds(3);
+        for (int low = 0; low < expected.size(); low += 997) {
+            bounds.low[0] = low;
+            bounds.high[0] = low + 100;
+
+            for (int page = 0; page < built.getNumberOfPages(); page++) {
+                assertThat(imported.mayMatch(page, bounds), equalTo(built.mayMatch(page, bounds)));
+            }
+        }
+    }
+
+    @Test
+    public void replacesLongerTable() throws Exception {
+        Files.write(source, Arrays.asList("1,2,3", "4,5,6"));
+
+        new TableImporter(table, 2).importFile(TestUtils.DB_PATH.resolve("data").resolve("Sailors_humanreadable"));
+        new TableImporter(table, 2).importFile(source);
+
+        assertThat(readAll(table.file), equalTo(Arrays.asList(new Tuple(new int[]{1, 2, 3}), new Tuple(new int[]{4, 5, 6}))));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void rejectsMissingValues() throws Exception {
+        Files.write(source, Arrays.asList("1,2,3", "4,5"));
+
+        new TableImporter(table, 1).importFile(source);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void rejectsOutOfRangeValues() throws Exception {
+        Files.write(source, Arrays.asList("1,2,2147483648"));
+
+        new TableImporter(table, 1).importFile(source);
+    }
+
+    private static List<Tuple> readAll(Path file) {
+        BinaryTupleReader reader = BinaryTupleReader.get(file);
+        List<Tuple> tuples = new ArrayList<>();
+
+        Tuple tuple;
+        while ((tuple = reader.next()) != null) {
+            tuples.add(tuple);
+        }
+
+        assertThat(reader.next(), is(nullValue()));
+        reader.close();
+
+        return tuples;
+    }
+}
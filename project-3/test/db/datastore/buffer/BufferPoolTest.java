@@ -0,0 +1,248 @@
+package db.datastore.buffer;
+
+import db.GeneralConfig.EvictionImplementation;
+import db.TestUtils;
+import db.datastore.Database;
+import db.datastore.TableInfo;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.binary.BinaryTupleReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class BufferPoolTest {
+    private static final int PAGES = 8;
+
+    private Path file;
+    private FileChannel channel;
+
+    @Before
+    public void setUp() throws Exception {
+        Files.createDirectories(TestUtils.TEMP_PATH);
+        file = TestUtils.TEMP_PATH.resolve("BufferPoolTest");
+
+        for (int i = 0; i < PAGES; i++) {
+            writePage(i, i);
+        }
+
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Database.setBufferPool(null);
+
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void hitsAndMisses() throws Exception {
+        BufferPool pool = BufferPool.create(4, EvictionImplementation.CLOCK);
+
+        BufferPool.PinnedPage first = pool.pin(channel, file, 3);
+        assertThat(first.ints.get(0), equalTo(3));
+        pool.unpin(first);
+
+        BufferPool.PinnedPage second = pool.pin(channel, file, 3);
+        assertThat(second.ints.get(0), equalTo(3));
+        pool.unpin(second);
+
+        assertThat(pool.getMisses(), equalTo(1L));
+        assertThat(pool.getHits(), equalTo(1L));
+    }
+
+    @Test
+    public void pastEndOfFile() throws Exception {
+        BufferPool pool = BufferPool.create(4, EvictionImplementation.CLOCK);
+
+        assertThat(pool.pin(channel, file, PAGES), is(nullValue()));
+    }
+
+    @Test
+    public void clockEvictsOldestAfterSweep() throws Exception {
+        BufferPool pool = BufferPool.create(4, EvictionImplementation.CLOCK);
+
+        access(pool, 0, 0, 1, 2, 3, 4);
+
+        // Every frame was referenced, so the hand clears them all and comes back to the first page.
+        assertThat(isCached(pool, 1), is(true));
+        assertThat(isCached(pool, 0), is(false));
+    }
+
+    @Test
+    public void lruKKeepsPagesUsedRepeatedly() throws Exception {
+        BufferPool pool = BufferPool.create(4, EvictionImplementation.LRU_K);
+
+        access(pool, 0, 0, 1, 2, 3, 4);
+
+        // Page 0 has been used twice, the pages used once are evicted first.
+        assertThat(isCached(pool, 0), is(true));
+        assertThat(isCached(pool, 1), is(false));
+    }
+
+    @Test
+    public void pinnedPagesAreNotEvicted() throws Exception {
+        BufferPool pool = BufferPool.create(2, EvictionImplementation.CLOCK);
+
+        BufferPool.PinnedPage zero = pool.pin(channel, file, 0);
+        BufferPool.PinnedPage one = pool.pin(channel, file, 1);
+
+        // Every frame is pinned, the page is read without being cached.
+        BufferPool.PinnedPage two = pool.pin(channel, file, 2);
+        assertThat(two, is(notNullValue()));
+        assertThat(two.ints.get(0), equalTo(2));
+        pool.unpin(two);
+
+        assertThat(zero.ints.get(0), equalTo(0));
+        assertThat(one.ints.get(0), equalTo(1));
+
+        pool.unpin(zero);
+        pool.unpin(one);
+
+        assertThat(isCached(pool, 0), is(true));
+        assertThat(isCached(pool, 1), is(true));
+    }
+
+    @Test
+    public void invalidateDropsStalePages() throws Exception {
+        BufferPool pool = BufferPool.create(4, EvictionImplementation.CLOCK);
+
+        access(pool, 0, 1);
+        writePage(0, 42);
+        pool.invalidate(file);
+
+        BufferPool.PinnedPage page = pool.pin(channel, file, 0);
+        assertThat(page.ints.get(0), equalTo(42));
+        pool.unpin(page);
+
+        assertThat(pool.getHits(), equalTo(0L));
+    }
+
+    @Test
+    public void invalidatePinnedPage() throws Exception {
+        BufferPool pool = BufferPool.create(1, EvictionImplementation.CLOCK);
+
+        BufferPool.PinnedPage page = pool.pin(channel, file, 0);
+        pool.invalidate(file);
+
+        assertThat(page.ints.get(0), equalTo(0));
+        pool.unpin(page);
+
+        // The frame is free again once it is unpinned, so the next page is cached in it.
+        access(pool, 1);
+        assertThat(isCached(pool, 1), is(true));
+    }
+
+    @Test
+    public void concurrentPins() throws Exception {
+        BufferPool pool = BufferPool.create(3, EvictionImplementation.LRU_K);
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        List<Future<?>> readers = new ArrayList<>();
+
+        // Readers race for the same few frames, including pages which are still being read by another reader
+        for (int thread = 0; thread < 4; thread++) {
+            Random random = new Random(thread);
+
+            readers.add(threads.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    int index = random.nextInt(PAGES + 1);
+                    BufferPool.PinnedPage page = pool.pin(channel, file, index);
+
+                    if (index == PAGES) {
+                        assertThat(page, is(nullValue()));
+                    } else {
+                        assertThat(page.ints.get(0), equalTo(index));
+                        pool.unpin(page);
+                    }
+                }
+
+                return null;
+            }));
+        }
+
+        for (Future<?> reader : readers) {
+            reader.get();
+        }
+
+        threads.shutdown();
+
+        assertThat(pool.getHits() + pool.getMisses(), equalTo(4 * 2000L));
+    }
+
+    @Test
+    public void readerThroughPool() throws Exception {
+        TableInfo table = Database.loadDatabase(TestUtils.NEW_DB_PATH).getTable("Boats");
+        List<Tuple> expected = readAll(table);
+
+        BufferPool pool = BufferPool.create(2, EvictionImplementation.LRU_K);
+        Database.setBufferPool(pool);
+
+        assertThat(readAll(table), equalTo(expected));
+        assertThat(readAll(table), equalTo(expected));
+
+        BinaryTupleReader reader = BinaryTupleReader.get(table.file);
+
+        for (int i = 0; i < 500; i++) {
+            int index = (int) (Math.random() * expected.size());
+            reader.seek(index);
+            assertThat("Tuple " + index, reader.next(), equalTo(expected.get(index)));
+        }
+
+        reader.close();
+
+        assertThat(pool.getMisses() > 0, is(true));
+    }
+
+    private List<Tuple> readAll(TableInfo table) {
+        BinaryTupleReader reader = BinaryTupleReader.get(table.file);
+        List<Tuple> tuples = new ArrayList<>();
+
+        Tuple next;
+        while ((next = reader.next()) != null) {
+            tuples.add(next);
+        }
+
+        reader.close();
+
+        return tuples;
+    }
+
+    private void access(BufferPool pool, int... pages) {
+        for (int page : pages) {
+            pool.unpin(pool.pin(channel, file, page));
+        }
+    }
+
+    private boolean isCached(BufferPool pool, int page) {
+        long hits = pool.getHits();
+        access(pool, page);
+        return pool.getHits() > hits;
+    }
+
+    private void writePage(int page, int value) throws Exception {
+        try (FileChannel output = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Database.PAGE_SIZE);
+            buffer.putInt(0, value);
+            output.write(buffer, (long) page * Database.PAGE_SIZE);
+        }
+    }
+}
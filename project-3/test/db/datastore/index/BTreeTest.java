@@ -49,4 +49,29 @@ public class BTreeTest {
         res = indexTree.search(1453);
         assertEquals(null, res);
     }
+
+    @Test
+    public void testBatchSearch() {
+        BTree indexTree = BTree.createTree(indexFile);
+
+        int[] keys = new int[]{2504, 4, 1453, -5, 4, 12000, 9999, 0, 665};
+        DataEntry[] res = indexTree.search(keys);
+
+        assertEquals(keys.length, res.length);
+
+        for (int i = 0; i < keys.length; i++) {
+            DataEntry expected = indexTree.search(keys[i]);
+
+            if (expected == null) {
+                assertEquals(null, res[i]);
+            } else {
+                assertEquals(keys[i], res[i].key);
+                assertEquals(expected.rids.length, res[i].rids.length);
+            }
+        }
+
+        assertEquals(3, res[1].rids.length);
+        assertEquals(6, res[0].rids.length);
+        assertEquals(null, res[2]);
+    }
 }
@@ -0,0 +1,164 @@
+package db.datastore.stats;
+
+import db.PhysicalPlanConfig.ReaderImplementation;
+import db.TestUtils;
+import db.datastore.TableHeader;
+import db.datastore.TableInfo;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.binary.BinaryTupleWriter;
+import db.operators.physical.Operator;
+import db.operators.physical.bag.SelectionOperator;
+import db.operators.physical.physical.ScanOperator;
+import db.performance.DiskIOStatistics;
+import net.sf.jsqlparser.expression.Expression;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class ZoneMapTest {
+    private static final int TUPLES = 20_000;
+
+    private TableInfo table;
+    private List<Tuple> tuples;
+
+    @Before
+    public void setUp() throws Exception {
+        Files.createDirectories(TestUtils.TEMP_PATH);
+
+        TableHeader header = new TableHeader(Arrays.asList("Zones", "Zones", "Zones"), Arrays.asList("A", "B", "C"));
+        table = new TableInfo(header, TestUtils.TEMP_PATH.resolve("Zones"), true);
+        tuples = new ArrayList<>();
+
+        // A is nearly sorted so its pages have narrow ranges, B is spread over every page
+        BinaryTupleWriter writer = BinaryTupleWriter.get(header, table.file);
+
+        for (int i = 0; i < TUPLES; i++) {
+            Tuple tuple = new Tuple(new int[]{i + (i % 7), (i * 7919) % 1000, i % 3});
+            tuples.add(tuple);
+            writer.write(tuple);
+        }
+
+        writer.flush();
+        writer.close();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(table.file);
+        Files.deleteIfExists(ZoneMap.getFile(table.file));
+    }
+
+    @Test
+    public void buildAndLoad() throws Exception {
+        ZoneMap built = ZoneMap.build(table);
+        ZoneMap loaded = ZoneMap.load(table);
+
+        assertThat(loaded, is(notNullValue()));
+        assertThat(loaded.getNumberOfPages(), equalTo(built.getNumberOfPages()));
+        assertThat(loaded.getNumberOfPages(), equalTo((int) (Files.size(table.file) / 4096)));
+
+        ColumnBounds bounds = new ColumnBounds(3);
+        bounds.low[0] = 100;
+        bounds.high[0] = 200;
+
+        for (int page = 0; page < built.getNumberOfPages(); page++) {
+            assertThat(loaded.mayMatch(page, bounds), equalTo(built.mayMatch(page, bounds)));
+        }
+
+        assertThat(built.mayMatch(0, bounds), is(true));
+        assertThat(built.mayMatch(built.getNumberOfPages() - 1, bounds), is(false));
+    }
+
+    @Test
+    public void staleZoneMapIsIgnored() throws Exception {
+        ZoneMap.build(table);
+
+        BinaryTupleWriter writer = BinaryTupleWriter.get(table.header, table.file);
+        for (int i = 0; i < TUPLES * 2; i++) {
+            writer.write(new Tuple(new int[]{i, i, i}));
+        }
+        writer.flush();
+        writer.close();
+
+        assertThat(ZoneMap.load(table), is(nullValue()));
+    }
+
+    @Test
+    public void corruptZoneMapIsIgnored() throws Exception {
+        ZoneMap.build(table);
+
+        Path file = ZoneMap.getFile(table.file);
+        byte[] contents = Files.readAllBytes(file);
+
+        // Cut off in the middle of the page bounds, and then in the middle of the header
+        for (int length : Arrays.asList(contents.length - 3, 20)) {
+            Files.write(file, Arrays.copyOf(contents, length));
+
+            assertThat(ZoneMap.load(table), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void boundsFromPredicate() throws Exception {
+        Expression predicate = where("SELECT * FROM Zones WHERE Zones.A >= 100 AND 300 > Zones.A AND Zones.C = 1 AND Zones.B = Zones.C;");
+        ColumnBounds bounds = ColumnBounds.fromPredicate(table.header, predicate);
+
+        assertThat(bounds.low[0], equalTo(100));
+        assertThat(bounds.high[0], equalTo(299));
+        assertThat(bounds.low[1], equalTo(Integer.MIN_VALUE));
+        assertThat(bounds.high[1], equalTo(Integer.MAX_VALUE));
+        assertThat(bounds.low[2], equalTo(1));
+        assertThat(bounds.high[2], equalTo(1));
+
+        assertThat(ColumnBounds.fromPredicate(table.header, where("SELECT * FROM Zones WHERE Zones.A = Zones.B;")), is(nullValue()));
+    }
+
+    @Test
+    public void scanSkipsPages() throws Exception {
+        table.buildZoneMap();
+
+        Expression predicate = where("SELECT * FROM Zones WHERE Zones.A >= 5000 AND Zones.A <= 6000 AND Zones.B < 500;");
+        ColumnBounds bounds = ColumnBounds.fromPredicate(table.header, predicate);
+
+        List<Tuple> expected = new ArrayList<>();
+        for (Tuple tuple : tuples) {
+            if (tuple.get(0) >= 5000 && tuple.get(0) <= 6000 && tuple.get(1) < 500) {
+                expected.add(tuple);
+            }
+        }
+
+        for (ReaderImplementation implementation : ReaderImplementation.values()) {
+            long reads = DiskIOStatistics.reads.sum();
+            Operator fullScan = new SelectionOperator(new ScanOperator(table, "Zones", implementation, 0), predicate);
+            List<Tuple> full = TestUtils.drain(fullScan);
+            fullScan.close();
+            long fullReads = DiskIOStatistics.reads.sum() - reads;
+
+            reads = DiskIOStatistics.reads.sum();
+            Operator skippingScan = new SelectionOperator(new ScanOperator(table, "Zones", implementation, 0, bounds), predicate);
+            List<Tuple> skipped = TestUtils.drain(skippingScan);
+            skippingScan.close();
+            long skippedReads = DiskIOStatistics.reads.sum() - reads;
+
+            assertThat(implementation.toString(), full, equalTo(expected));
+            assertThat(implementation.toString(), skipped, equalTo(expected));
+            assertThat(implementation + " reads " + skippedReads + " of " + fullReads, skippedReads * 5 < fullReads, is(true));
+        }
+    }
+
+    private static Expression where(String query) {
+        return TestUtils.parseQuery(query).getWhere();
+    }
+}
@@ -43,11 +43,11 @@ public class BinaryTupleReaderTest {
 
             assertThat(peek, notNullValue());
             assertThat(peek, instanceOf(Tuple.class));
-            assertThat(peek.fields.size(), equalTo(table.header.size()));
+            assertThat(peek.size(), equalTo(table.header.size()));
 
             assertThat(next, notNullValue());
             assertThat(next, instanceOf(Tuple.class));
-            assertThat(next.fields.size(), equalTo(table.header.size()));
+            assertThat(next.size(), equalTo(table.header.size()));
 
             assertThat(peek, equalTo(next));
         }
@@ -0,0 +1,168 @@
+package db.datastore.tuple.binary;
+
+import db.datastore.Database;
+import db.datastore.TableInfo;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsNull.notNullValue;
+
+public class MappedBinaryTupleReaderTest {
+    TableInfo table;
+
+    @Before
+    public void setUp() throws Exception {
+        Path inputDir = Paths.get("resources/samples/input/db");
+        inputDir = inputDir.toAbsolutePath();
+        Database database = Database.loadDatabase(inputDir);
+        table = database.getTable("Sailors");
+    }
+
+    @Test
+    public void next() throws Exception {
+        MappedBinaryTupleReader reader = MappedBinaryTupleReader.get(table.file);
+
+        assertThat(reader, notNullValue());
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat("tuple: " + i, reader.hasNext(), equalTo(true));
+
+            Tuple peek = reader.peek();
+            Tuple next = reader.next();
+
+            assertThat(peek, notNullValue());
+            assertThat(peek, instanceOf(Tuple.class));
+            assertThat(peek.size(), equalTo(table.header.size()));
+
+            assertThat(next, notNullValue());
+            assertThat(next, instanceOf(Tuple.class));
+            assertThat(next.size(), equalTo(table.header.size()));
+
+            assertThat(peek, equalTo(next));
+        }
+
+        assertThat(reader.peek(), nullValue());
+        assertThat(reader.next(), nullValue());
+        assertThat(reader.hasNext(), equalTo(false));
+
+
+        reader.close();
+    }
+
+    @Test
+    public void seek() throws Exception {
+        MappedBinaryTupleReader reader = MappedBinaryTupleReader.get(table.file);
+
+        List<Tuple> tuples = new ArrayList<>();
+
+        Tuple next;
+        while ((next = reader.next()) != null) {
+            tuples.add(next);
+        }
+
+        for (int i = 0; i < tuples.size(); i++) {
+            reader.seek(i);
+            assertThat("Peek tuple " + i, reader.peek(), equalTo(tuples.get(i)));
+            assertThat("Next tuple " + i, reader.next(), equalTo(tuples.get(i)));
+        }
+
+        reader.seek(tuples.size() - 1);
+        assertThat(reader.next(), equalTo(tuples.get(tuples.size() - 1)));
+        assertThat(reader.next(), is(nullValue()));
+        reader.seek(0);
+        assertThat(reader.next(), equalTo(tuples.get(0)));
+        assertThat(reader.next(), is(notNullValue()));
+        reader.seek(10);
+        assertThat(reader.next(), equalTo(tuples.get(10)));
+        assertThat(reader.next(), is(notNullValue()));
+        reader.seek(999);
+        assertThat(reader.next(), equalTo(tuples.get(999)));
+        assertThat(reader.next(), is(nullValue()));
+
+        reader.close();
+    }
+
+    @Test
+    public void randomSeek() throws Exception {
+        MappedBinaryTupleReader reader = MappedBinaryTupleReader.get(table.file);
+
+        List<Tuple> tuples = new ArrayList<>();
+
+        Tuple next;
+        while ((next = reader.next()) != null) {
+            tuples.add(next);
+        }
+
+        for (int i = 0; i < 5000; i++) {
+            int index = (int) (Math.random() * tuples.size());
+            reader.seek(index);
+            assertThat("Peek tuple " + index, reader.peek(), equalTo(tuples.get(index)));
+            assertThat("Next tuple " + index, reader.next(), equalTo(tuples.get(index)));
+        }
+
+        for (int i = 0; i < tuples.size(); i++) {
+            reader.seek(i);
+            assertThat("Scan tuple: " + i, reader.next(), equalTo(tuples.get(i)));
+        }
+
+        reader.close();
+    }
+
+    @Test
+    public void pageSeek() throws Exception {
+        BinaryTupleReader expected = BinaryTupleReader.get(table.file);
+        MappedBinaryTupleReader reader = MappedBinaryTupleReader.get(table.file);
+
+        int capacity = (Database.PAGE_SIZE - 8) / 4 / table.header.size();
+
+        for (int i = 0; i < 5000; i++) {
+            int tuple = (int) (Math.random() * 1000);
+            long page = tuple / capacity;
+            long index = tuple % capacity;
+
+            expected.seek(page, index);
+            reader.seek(page, index);
+
+            assertThat("Page " + page + " tuple " + index, reader.next(), equalTo(expected.next()));
+        }
+
+        expected.close();
+        reader.close();
+    }
+
+    @Test
+    public void batch() throws Exception {
+        BinaryTupleReader expected = BinaryTupleReader.get(table.file);
+        MappedBinaryTupleReader reader = MappedBinaryTupleReader.get(table.file);
+
+        TupleBatch batch = new TupleBatch(table.header.size(), 100);
+        int read = 0;
+
+        while (reader.next(batch) > 0) {
+            for (int row = 0; row < batch.size(); row++) {
+                assertThat("Tuple " + (read + row), batch.getTuple(row), equalTo(expected.next()));
+            }
+
+            read += batch.size();
+            batch.clear();
+        }
+
+        assertThat(read, equalTo(1000));
+        assertThat(expected.next(), is(nullValue()));
+
+        expected.close();
+        reader.close();
+    }
+}
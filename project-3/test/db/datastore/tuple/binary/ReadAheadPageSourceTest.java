@@ -0,0 +1,160 @@
+package db.datastore.tuple.binary;
+
+import db.TestUtils;
+import db.datastore.Database;
+import db.datastore.TableInfo;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Check that reading pages ahead on a background thread gives the same tuples as reading them on demand.
+ */
+@RunWith(Parameterized.class)
+public class ReadAheadPageSourceTest {
+    private final int readAheadPages;
+
+    private TableInfo table;
+    private List<Tuple> expected;
+
+    @Parameters(name = "{0} pages")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[]{1}, new Object[]{2}, new Object[]{8});
+    }
+
+    public ReadAheadPageSourceTest(int readAheadPages) {
+        this.readAheadPages = readAheadPages;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Database database = Database.loadDatabase(TestUtils.NEW_DB_PATH);
+        table = database.getTable("Boats");
+
+        BinaryTupleReader reader = BinaryTupleReader.get(table.file);
+        expected = new ArrayList<>();
+
+        Tuple next;
+        while ((next = reader.next()) != null) {
+            expected.add(next);
+        }
+
+        reader.close();
+    }
+
+    @Test
+    public void next() throws Exception {
+        BinaryTupleReader reader = BinaryTupleReader.get(table.file, readAheadPages);
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat("Tuple " + i, reader.next(), equalTo(expected.get(i)));
+        }
+
+        assertThat(reader.next(), is(nullValue()));
+        assertThat(reader.hasNext(), equalTo(false));
+        assertThat(reader.getReadAheadStalls() >= 0, is(true));
+
+        reader.close();
+    }
+
+    @Test
+    public void batch() throws Exception {
+        BinaryTupleReader reader = BinaryTupleReader.get(table.file, readAheadPages);
+        TupleBatch batch = new TupleBatch(table.header.size(), TupleBatch.DEFAULT_CAPACITY);
+        int read = 0;
+
+        while (reader.next(batch) > 0) {
+            for (int row = 0; row < batch.size(); row++) {
+                assertThat("Tuple " + (read + row), batch.getTuple(row), equalTo(expected.get(read + row)));
+            }
+
+            read += batch.size();
+            batch.clear();
+        }
+
+        assertThat(read, equalTo(expected.size()));
+
+        reader.close();
+    }
+
+    @Test
+    public void randomSeek() throws Exception {
+        BinaryTupleReader reader = BinaryTupleReader.get(table.file, readAheadPages);
+
+        for (int i = 0; i < 2000; i++) {
+            int index = (int) (Math.random() * expected.size());
+            reader.seek(index);
+            assertThat("Peek tuple " + index, reader.peek(), equalTo(expected.get(index)));
+            assertThat("Next tuple " + index, reader.next(), equalTo(expected.get(index)));
+        }
+
+        reader.seek(0);
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat("Scan tuple " + i, reader.next(), equalTo(expected.get(i)));
+        }
+
+        assertThat(reader.next(), is(nullValue()));
+
+        reader.close();
+    }
+
+    @Test
+    public void pageFilter() throws Exception {
+        int capacity = (Database.PAGE_SIZE - 8) / 4 / table.header.size();
+
+        List<Tuple> oddPages = new ArrayList<>();
+        for (int i = 0; i < expected.size(); i++) {
+            if (i / capacity % 2 == 1) {
+                oddPages.add(expected.get(i));
+            }
+        }
+
+        // Set before the first page, and once pages have already been read ahead, the current page is read to its end
+        for (boolean started : Arrays.asList(false, true)) {
+            BinaryTupleReader reader = BinaryTupleReader.get(table.file, readAheadPages);
+            List<Tuple> result = new ArrayList<>();
+            List<Tuple> expectedResult = new ArrayList<>();
+
+            if (started) {
+                assertThat(reader.peek(), equalTo(expected.get(0)));
+                expectedResult.addAll(expected.subList(0, capacity));
+            }
+
+            reader.setPageFilter(page -> page % 2 == 1);
+            expectedResult.addAll(oddPages);
+
+            Tuple next;
+            while ((next = reader.next()) != null) {
+                result.add(next);
+            }
+
+            assertThat("Started " + started, result, equalTo(expectedResult));
+
+            reader.close();
+        }
+    }
+
+    @Test
+    public void closeBeforeFinished() throws Exception {
+        BinaryTupleReader reader = BinaryTupleReader.get(table.file, readAheadPages);
+
+        assertThat(reader.next(), equalTo(expected.get(0)));
+
+        reader.close();
+    }
+}
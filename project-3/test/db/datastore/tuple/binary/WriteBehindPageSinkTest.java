@@ -0,0 +1,120 @@
+package db.datastore.tuple.binary;
+
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * Check that writing pages behind the writer on a background thread gives the same file as writing them directly.
+ */
+public class WriteBehindPageSinkTest {
+    private static final TableHeader HEADER = new TableHeader(Arrays.asList("S", "S", "S"), Arrays.asList("A", "B", "C"));
+
+    private List<Tuple> tuples;
+    private Path tempFile;
+
+    @Before
+    public void setUp() throws Exception {
+        Random random = new Random(22);
+
+        // Enough tuples for a few dozen pages, the last of which is partly filled
+        tuples = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            tuples.add(new Tuple(new int[]{i, random.nextInt(), random.nextInt(100)}));
+        }
+
+        tempFile = Files.createTempFile("test", "WriteBehind");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(tempFile);
+    }
+
+    @Test
+    public void writeTuples() throws Exception {
+        BinaryTupleWriter writer = BinaryTupleWriter.get(HEADER, tempFile, true);
+
+        for (Tuple tuple : tuples) {
+            writer.write(tuple);
+        }
+
+        writer.flush();
+        writer.close();
+
+        assertThat(readBack(), equalTo(tuples));
+    }
+
+    @Test
+    public void writeBatches() throws Exception {
+        BinaryTupleWriter writer = BinaryTupleWriter.get(HEADER, tempFile, true);
+        TupleBatch batch = new TupleBatch(HEADER.size(), TupleBatch.DEFAULT_CAPACITY);
+
+        for (Tuple tuple : tuples) {
+            batch.add(tuple);
+
+            if (batch.isFull()) {
+                writer.write(batch);
+                batch.clear();
+            }
+        }
+
+        writer.write(batch);
+        writer.flush();
+        writer.close();
+
+        assertThat(readBack(), equalTo(tuples));
+    }
+
+    @Test
+    public void matchesDirectWrite() throws Exception {
+        Path direct = Files.createTempFile("test", "Direct");
+
+        BinaryTupleWriter behind = BinaryTupleWriter.get(HEADER, tempFile, true);
+        BinaryTupleWriter writer = BinaryTupleWriter.get(HEADER, direct, false);
+
+        for (Tuple tuple : tuples) {
+            behind.write(tuple);
+            writer.write(tuple);
+        }
+
+        behind.flush();
+        behind.close();
+        writer.flush();
+        writer.close();
+
+        assertThat(Arrays.equals(Files.readAllBytes(tempFile), Files.readAllBytes(direct)), is(true));
+
+        Files.deleteIfExists(direct);
+    }
+
+    private List<Tuple> readBack() {
+        BinaryTupleReader reader = BinaryTupleReader.get(tempFile);
+        List<Tuple> result = new ArrayList<>();
+
+        Tuple tuple;
+        while ((tuple = reader.next()) != null) {
+            result.add(tuple);
+        }
+
+        assertThat(reader.next(), is(nullValue()));
+        reader.close();
+
+        return result;
+    }
+}
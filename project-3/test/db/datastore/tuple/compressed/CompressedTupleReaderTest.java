@@ -0,0 +1,231 @@
+package db.datastore.tuple.compressed;
+
+import db.PhysicalPlanConfig;
+import db.PhysicalPlanConfig.PageFormat;
+import db.PhysicalPlanConfig.SortImplementation;
+import db.TestUtils;
+import db.datastore.Database;
+import db.datastore.TableHeader;
+import db.datastore.TableInfo;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.datastore.tuple.binary.BinaryTupleReader;
+import db.operators.physical.Operator;
+import db.operators.physical.extended.ExternalSortOperator;
+import db.operators.physical.physical.ScanOperator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class CompressedTupleReaderTest {
+    private static final TableHeader HEADER = new TableHeader(
+            Arrays.asList("T", "T", "T", "T", "T", "T"),
+            Arrays.asList("Sorted", "Runs", "Small", "Constant", "Random", "Extremes")
+    );
+
+    private Path file;
+    private List<Tuple> tuples;
+
+    @Before
+    public void setUp() throws Exception {
+        Files.createDirectories(TestUtils.TEMP_PATH);
+        file = TestUtils.TEMP_PATH.resolve("Compressed");
+
+        Random random = new Random(5321);
+        int[] extremes = {Integer.MIN_VALUE, Integer.MAX_VALUE, 0, -1};
+
+        tuples = new ArrayList<>();
+        for (int i = 0; i < 30_000; i++) {
+            tuples.add(new Tuple(new int[]{
+                    i * 3 - 40_000,
+                    i / 50,
+                    random.nextInt(100),
+                    7,
+                    random.nextInt(),
+                    extremes[random.nextInt(extremes.length)]
+            }));
+        }
+
+        CompressedTupleWriter writer = CompressedTupleWriter.get(HEADER, file);
+        for (Tuple tuple : tuples) {
+            writer.write(tuple);
+        }
+        writer.flush();
+        writer.close();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void next() throws Exception {
+        CompressedTupleReader reader = CompressedTupleReader.get(file);
+
+        for (int i = 0; i < tuples.size(); i++) {
+            assertThat("Tuple " + i, reader.next(), equalTo(tuples.get(i)));
+        }
+
+        assertThat(reader.next(), is(nullValue()));
+        assertThat(reader.hasNext(), is(false));
+
+        reader.close();
+    }
+
+    @Test
+    public void batch() throws Exception {
+        CompressedTupleReader reader = CompressedTupleReader.get(file);
+        TupleBatch batch = new TupleBatch(HEADER.size(), 1000);
+        int read = 0;
+
+        while (reader.next(batch) > 0) {
+            for (int row = 0; row < batch.size(); row++) {
+                assertThat("Tuple " + (read + row), batch.getTuple(row), equalTo(tuples.get(read + row)));
+            }
+
+            read += batch.size();
+            batch.clear();
+        }
+
+        assertThat(read, equalTo(tuples.size()));
+
+        reader.close();
+    }
+
+    @Test
+    public void batchWriter() throws Exception {
+        TupleBatch batch = new TupleBatch(HEADER.size(), 777);
+        CompressedTupleWriter writer = CompressedTupleWriter.get(HEADER, file);
+
+        for (Tuple tuple : tuples) {
+            batch.add(tuple);
+
+            if (batch.isFull()) {
+                writer.write(batch);
+                batch.clear();
+            }
+        }
+
+        writer.write(batch);
+        writer.flush();
+        writer.close();
+
+        next();
+    }
+
+    @Test
+    public void seek() throws Exception {
+        Random random = new Random(3);
+        CompressedTupleReader reader = CompressedTupleReader.get(file);
+
+        // The first seeks go past the pages which have been read so far
+        reader.seek(tuples.size() - 1);
+        assertThat(reader.next(), equalTo(tuples.get(tuples.size() - 1)));
+        assertThat(reader.next(), is(nullValue()));
+
+        for (int i = 0; i < 2000; i++) {
+            int index = random.nextInt(tuples.size());
+            reader.seek(index);
+            assertThat("Peek tuple " + index, reader.peek(), equalTo(tuples.get(index)));
+            assertThat("Next tuple " + index, reader.next(), equalTo(tuples.get(index)));
+        }
+
+        reader.seek(tuples.size());
+        assertThat(reader.next(), is(nullValue()));
+
+        reader.close();
+    }
+
+    @Test
+    public void compressesSmallRanges() throws Exception {
+        TableInfo boats = Database.loadDatabase(TestUtils.NEW_DB_PATH).getTable("Boats");
+        Path compressed = TestUtils.TEMP_PATH.resolve("BoatsCompressed");
+
+        Operator scan = new ScanOperator(boats);
+        CompressedTupleWriter writer = CompressedTupleWriter.get(boats.header, compressed);
+        scan.dump(writer);
+        writer.flush();
+        writer.close();
+        scan.close();
+
+        assertThat(Files.size(compressed) * 2 < Files.size(boats.file), is(true));
+        assertThat(CompressedTupleReader.isCompressed(compressed), is(true));
+        assertThat(CompressedTupleReader.isCompressed(boats.file), is(false));
+
+        BinaryTupleReader expected = BinaryTupleReader.get(boats.file);
+        CompressedTupleReader actual = CompressedTupleReader.get(compressed);
+
+        Tuple tuple;
+        while ((tuple = expected.next()) != null) {
+            assertThat(actual.next(), equalTo(tuple));
+        }
+        assertThat(actual.next(), is(nullValue()));
+
+        expected.close();
+        actual.close();
+        Files.deleteIfExists(compressed);
+    }
+
+    @Test
+    public void compressTable() throws Exception {
+        Path dbPath = Files.createTempDirectory("compressed-db");
+        Files.createDirectories(dbPath.resolve("data"));
+        Files.write(dbPath.resolve("schema.txt"), Arrays.asList("Boats D E F"));
+        Files.copy(TestUtils.NEW_DB_PATH.resolve("data").resolve("Boats"), dbPath.resolve("data").resolve("Boats"));
+
+        Database database = Database.loadDatabase(dbPath);
+        TableInfo boats = database.getTable("Boats");
+        Operator scan = new ScanOperator(boats);
+        List<Tuple> expected = TestUtils.drain(scan);
+        scan.close();
+
+        assertThat(boats.isCompressed(), is(false));
+
+        database.compressTable("Boats");
+
+        assertThat(boats.isCompressed(), is(true));
+        assertThat(Database.loadDatabase(dbPath).getTable("Boats").isCompressed(), is(true));
+        scan = new ScanOperator(boats, "B");
+        assertThat(TestUtils.drain(scan), equalTo(expected));
+        scan.close();
+        assertThat(boats.getStats().count, equalTo(expected.size()));
+    }
+
+    @Test
+    public void externalSortWithCompressedRuns() throws Exception {
+        TableInfo sailors = Database.loadDatabase(TestUtils.DB_PATH).getTable("Sailors");
+        TableHeader sortHeader = new TableHeader(Arrays.asList("Sailors", "Sailors"), Arrays.asList("B", "A"));
+
+        PhysicalPlanConfig config = new PhysicalPlanConfig(null, SortImplementation.EXTERNAL, 0, 3, false);
+        config.spillFormat = PageFormat.COMPRESSED;
+
+        Operator binary = new ExternalSortOperator(new ScanOperator(sailors), sortHeader, 3, TestUtils.TEMP_PATH);
+        Operator compressed = new ExternalSortOperator(new ScanOperator(sailors), sortHeader, config, TestUtils.TEMP_PATH);
+
+        Tuple tuple;
+        while ((tuple = binary.getNextTuple()) != null) {
+            assertThat(compressed.getNextTuple(), equalTo(tuple));
+        }
+        assertThat(compressed.getNextTuple(), is(nullValue()));
+
+        compressed.reset();
+        binary.reset();
+        assertThat(compressed.getNextTuple(), equalTo(binary.getNextTuple()));
+
+        binary.close();
+        compressed.close();
+    }
+}
@@ -0,0 +1,139 @@
+package db.operators.physical;
+
+import db.TestUtils;
+import db.datastore.Database;
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.operators.physical.bag.BlockNestedJoinOperator;
+import db.operators.physical.bag.ProjectionOperator;
+import db.operators.physical.bag.SelectionOperator;
+import db.operators.physical.bag.SortMergeJoinOperator;
+import db.operators.physical.bag.TupleNestedJoinOperator;
+import db.operators.physical.extended.DistinctOperator;
+import db.operators.physical.extended.ExternalSortOperator;
+import db.operators.physical.extended.InMemorySortOperator;
+import db.operators.physical.physical.ScanOperator;
+import net.sf.jsqlparser.expression.Expression;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Check that the batch interface produces exactly the same tuples, in the same order, as the tuple interface.
+ */
+@RunWith(Parameterized.class)
+public class BatchOperatorTest {
+    private static final Database DB = Database.loadDatabase(TestUtils.DB_PATH);
+
+    private final Supplier<Operator> factory;
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> data() {
+        List<Object[]> operators = new ArrayList<>();
+
+        TableHeader sailorsAB = new TableHeader(Arrays.asList("Sailors", "Sailors"), Arrays.asList("B", "A"));
+        TableHeader sailorsB = new TableHeader(Arrays.asList("Sailors"), Arrays.asList("B"));
+        TableHeader reservesG = new TableHeader(Arrays.asList("Reserves"), Arrays.asList("G"));
+        TableHeader sailorsA = new TableHeader(Arrays.asList("Sailors"), Arrays.asList("A"));
+
+        Expression selection = where("SELECT * FROM Sailors WHERE Sailors.B < 100 AND Sailors.C > 20;");
+        Expression join = where("SELECT * FROM Sailors, Reserves WHERE Sailors.A = Reserves.G;");
+
+        operators.add(new Object[]{"Scan", (Supplier<Operator>) () -> scan("Sailors")});
+        operators.add(new Object[]{"Selection", (Supplier<Operator>) () -> new SelectionOperator(scan("Sailors"), selection)});
+        operators.add(new Object[]{"Projection", (Supplier<Operator>) () -> new ProjectionOperator(scan("Sailors"), sailorsAB)});
+        operators.add(new Object[]{"Projection over Selection", (Supplier<Operator>) () ->
+                new ProjectionOperator(new SelectionOperator(scan("Sailors"), selection), sailorsAB)});
+        operators.add(new Object[]{"In Memory Sort", (Supplier<Operator>) () -> new InMemorySortOperator(scan("Sailors"), sailorsB)});
+        operators.add(new Object[]{"External Sort", (Supplier<Operator>) () ->
+                new ExternalSortOperator(scan("Sailors"), sailorsB, 3, TestUtils.TEMP_PATH)});
+        operators.add(new Object[]{"Distinct", (Supplier<Operator>) () ->
+                new DistinctOperator(new InMemorySortOperator(new ProjectionOperator(scan("Sailors"), sailorsB), sailorsB))});
+        operators.add(new Object[]{"Tuple Nested Loop Join", (Supplier<Operator>) () ->
+                new TupleNestedJoinOperator(scan("Sailors"), scan("Reserves"), join)});
+        operators.add(new Object[]{"Block Nested Loop Join", (Supplier<Operator>) () ->
+                new BlockNestedJoinOperator(scan("Sailors"), scan("Reserves"), join, 2)});
+        operators.add(new Object[]{"Sort Merge Join", (Supplier<Operator>) () ->
+                new SortMergeJoinOperator(
+                        new InMemorySortOperator(scan("Sailors"), sailorsA),
+                        new InMemorySortOperator(scan("Reserves"), reservesG),
+                        join
+                )});
+
+        return operators;
+    }
+
+    public BatchOperatorTest(String name, Supplier<Operator> factory) {
+        this.factory = factory;
+    }
+
+    @Test
+    public void testBatchesMatchTuples() {
+        Operator tupleOperator = factory.get();
+        Operator batchOperator = factory.get();
+
+        List<Tuple> expected = TestUtils.drain(tupleOperator);
+        List<Tuple> actual = TestUtils.drainBatches(batchOperator);
+
+        assertThat(actual.size(), equalTo(expected.size()));
+        assertThat(actual, equalTo(expected));
+
+        tupleOperator.close();
+        batchOperator.close();
+    }
+
+    @Test
+    public void testPeekedTupleIsKept() {
+        Operator reference = factory.get();
+        Operator tested = factory.get();
+
+        List<Tuple> expected = TestUtils.drain(reference);
+
+        Tuple first = tested.peekNextTuple();
+        List<Tuple> actual = TestUtils.drainBatches(tested);
+
+        if (expected.isEmpty()) {
+            assertThat(actual.isEmpty(), is(true));
+        } else {
+            assertThat(actual.get(0), equalTo(first));
+            assertThat(actual, equalTo(expected));
+        }
+
+        reference.close();
+        tested.close();
+    }
+
+    @Test
+    public void testResetAfterBatches() {
+        Operator operator = factory.get();
+
+        List<Tuple> first = TestUtils.drainBatches(operator);
+
+        operator.reset();
+
+        List<Tuple> second = TestUtils.drain(operator);
+
+        assertThat(second, equalTo(first));
+
+        operator.close();
+    }
+
+    private static ScanOperator scan(String table) {
+        return new ScanOperator(DB.getTable(table));
+    }
+
+    private static Expression where(String query) {
+        return TestUtils.parseQuery(query).getWhere();
+    }
+}
@@ -0,0 +1,116 @@
+package db.operators.physical.bag;
+
+import db.TestUtils;
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.operators.DummyOperator;
+import db.operators.physical.Operator;
+import net.sf.jsqlparser.expression.Expression;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class BlockNestedJoinOperatorTest {
+    private static final TableHeader LEFT_HEADER = new TableHeader(Arrays.asList("S", "S"), Arrays.asList("A", "B"));
+    private static final TableHeader RIGHT_HEADER = new TableHeader(Arrays.asList("R", "R"), Arrays.asList("G", "H"));
+
+    private List<Tuple> left;
+    private List<Tuple> right;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(11);
+
+        // Several blocks of left tuples, and more right tuples than fit in a chunk
+        left = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            left.add(new Tuple(new int[]{random.nextInt(1000), random.nextInt(1000)}));
+        }
+
+        right = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            right.add(new Tuple(new int[]{random.nextInt(1000), random.nextInt(1000)}));
+        }
+    }
+
+    @Test
+    public void preservesOrder() {
+        for (String condition : Arrays.asList("S.A < R.G AND S.B > R.H", "S.A = R.G", "S.A + R.H < 100")) {
+            List<Tuple> expected = TestUtils.drain(join(condition, 1, true));
+
+            for (int threads : Arrays.asList(2, 3, 8)) {
+                assertThat(condition + " on " + threads, TestUtils.drain(join(condition, threads, true)), equalTo(expected));
+            }
+        }
+    }
+
+    @Test
+    public void unordered() {
+        List<Tuple> expected = TestUtils.drain(join("S.A < R.G AND S.B > R.H", 1, true));
+        List<Tuple> actual = TestUtils.drain(join("S.A < R.G AND S.B > R.H", 4, false));
+
+        assertThat(expected.isEmpty(), is(false));
+        assertThat(sorted(actual), equalTo(sorted(expected)));
+    }
+
+    @Test
+    public void crossProduct() {
+        left = left.subList(0, 40);
+        right = right.subList(0, 30);
+
+        assertThat(TestUtils.drain(new BlockNestedJoinOperator(leftOperator(), rightOperator(), null, 1, 4, true)),
+                equalTo(TestUtils.drain(new BlockNestedJoinOperator(leftOperator(), rightOperator(), null, 1))));
+    }
+
+    @Test
+    public void batchesAndReset() {
+        List<Tuple> expected = TestUtils.drain(join("S.A < R.G", 1, true));
+        Operator join = join("S.A < R.G", 4, true);
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            List<Tuple> actual = new ArrayList<>();
+
+            // Mix single tuples with batches
+            actual.add(join.getNextTuple());
+
+            TupleBatch batch;
+            while ((batch = join.getNextBatch()) != null) {
+                for (int row = 0; row < batch.size(); row++) {
+                    actual.add(batch.getTuple(row));
+                }
+            }
+
+            assertThat(actual, equalTo(expected));
+            join.reset();
+        }
+    }
+
+    private Operator join(String condition, int threads, boolean preserveOrder) {
+        Expression expression = TestUtils.parseQuery("SELECT * FROM S, R WHERE " + condition + ";").getWhere();
+        return new BlockNestedJoinOperator(leftOperator(), rightOperator(), expression, 1, threads, preserveOrder);
+    }
+
+    private DummyOperator leftOperator() {
+        return new DummyOperator(left, LEFT_HEADER);
+    }
+
+    private DummyOperator rightOperator() {
+        return new DummyOperator(right, RIGHT_HEADER);
+    }
+
+    private static List<Tuple> sorted(List<Tuple> tuples) {
+        List<Tuple> copy = new ArrayList<>(tuples);
+        Collections.sort(copy, (a, b) -> Arrays.toString(a.fields).compareTo(Arrays.toString(b.fields)));
+        return copy;
+    }
+}
@@ -0,0 +1,126 @@
+package db.operators.physical.bag;
+
+import db.TestUtils;
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.operators.DummyOperator;
+import db.operators.physical.Operator;
+import net.sf.jsqlparser.expression.Expression;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class HashJoinOperatorTest {
+    private static final TableHeader LEFT_HEADER = new TableHeader(Arrays.asList("S", "S", "S"), Arrays.asList("A", "B", "C"));
+    private static final TableHeader RIGHT_HEADER = new TableHeader(Arrays.asList("R", "R"), Arrays.asList("G", "H"));
+
+    private List<Tuple> left;
+    private List<Tuple> right;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(42);
+
+        left = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            left.add(new Tuple(new int[]{random.nextInt(50), random.nextInt(5), random.nextInt(100)}));
+        }
+
+        right = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            right.add(new Tuple(new int[]{random.nextInt(60), random.nextInt(5)}));
+        }
+    }
+
+    @Test
+    public void singleKey() {
+        assertJoinMatches("S.A = R.G");
+    }
+
+    @Test
+    public void multipleKeysAndResidual() {
+        assertJoinMatches("R.G = S.A AND S.B = R.H AND S.C < 50");
+    }
+
+    @Test
+    public void batches() {
+        Expression condition = where("S.A = R.G AND S.C > R.H");
+
+        List<Tuple> expected = sorted(TestUtils.drain(new TupleNestedJoinOperator(leftOperator(), rightOperator(), condition)));
+
+        Operator join = new HashJoinOperator(leftOperator(), rightOperator(), condition);
+        List<Tuple> actual = new ArrayList<>();
+
+        TupleBatch batch;
+        while ((batch = join.getNextBatch()) != null) {
+            for (int row = 0; row < batch.size(); row++) {
+                actual.add(batch.getTuple(row));
+            }
+        }
+
+        assertThat(sorted(actual), equalTo(expected));
+    }
+
+    @Test
+    public void reset() {
+        Operator join = new HashJoinOperator(leftOperator(), rightOperator(), where("S.A = R.G"));
+
+        List<Tuple> first = TestUtils.drain(join);
+        join.reset();
+        List<Tuple> second = TestUtils.drain(join);
+
+        assertThat(second, equalTo(first));
+    }
+
+    @Test
+    public void emptyBuildSide() {
+        Operator join = new HashJoinOperator(new DummyOperator(new ArrayList<>(), LEFT_HEADER), rightOperator(), where("S.A = R.G"));
+
+        assertThat(join.getNextTuple(), is(nullValue()));
+        assertThat(join.getNextBatch(), is(nullValue()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void needsAnEquality() {
+        new HashJoinOperator(leftOperator(), rightOperator(), where("S.A < R.G"));
+    }
+
+    private void assertJoinMatches(String condition) {
+        Expression expression = where(condition);
+
+        List<Tuple> expected = TestUtils.drain(new TupleNestedJoinOperator(leftOperator(), rightOperator(), expression));
+        List<Tuple> actual = TestUtils.drain(new HashJoinOperator(leftOperator(), rightOperator(), expression));
+
+        assertThat(expected.isEmpty(), is(false));
+        assertThat(sorted(actual), equalTo(sorted(expected)));
+    }
+
+    private DummyOperator leftOperator() {
+        return new DummyOperator(left, LEFT_HEADER);
+    }
+
+    private DummyOperator rightOperator() {
+        return new DummyOperator(right, RIGHT_HEADER);
+    }
+
+    private static Expression where(String condition) {
+        return TestUtils.parseQuery("SELECT * FROM S, R WHERE " + condition + ";").getWhere();
+    }
+
+    private static List<Tuple> sorted(List<Tuple> tuples) {
+        List<Tuple> copy = new ArrayList<>(tuples);
+        Collections.sort(copy, (a, b) -> Arrays.toString(a.fields).compareTo(Arrays.toString(b.fields)));
+        return copy;
+    }
+}
@@ -0,0 +1,146 @@
+package db.operators.physical.bag;
+
+import db.PhysicalPlanConfig.PageFormat;
+import db.PhysicalPlanConfig.ReaderImplementation;
+import db.TestUtils;
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.operators.DummyOperator;
+import db.operators.physical.Operator;
+import net.sf.jsqlparser.expression.Expression;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class HybridHashJoinOperatorTest {
+    private static final TableHeader LEFT_HEADER = new TableHeader(Arrays.asList("S", "S", "S"), Arrays.asList("A", "B", "C"));
+    private static final TableHeader RIGHT_HEADER = new TableHeader(Arrays.asList("R", "R"), Arrays.asList("G", "H"));
+
+    private Path tempFolder;
+    private List<Tuple> left;
+    private List<Tuple> right;
+
+    @Before
+    public void setUp() throws Exception {
+        tempFolder = TestUtils.TEMP_PATH.resolve("hybrid-hash");
+        Files.createDirectories(tempFolder);
+
+        Random random = new Random(7);
+
+        // About 15 pages of left tuples, so a buffer of a few pages has to spill most partitions
+        left = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            left.add(new Tuple(new int[]{random.nextInt(2000), random.nextInt(4), random.nextInt(100)}));
+        }
+
+        right = new ArrayList<>();
+        for (int i = 0; i < 8000; i++) {
+            right.add(new Tuple(new int[]{random.nextInt(2500), random.nextInt(4)}));
+        }
+    }
+
+    @Test
+    public void spillsPartitions() throws Exception {
+        for (int bufferPages : Arrays.asList(1, 3, 5, 40)) {
+            assertJoinMatches("S.A = R.G", bufferPages, PageFormat.BINARY);
+        }
+
+        assertThat(TestUtils.countFiles(tempFolder, ""), equalTo(0L));
+    }
+
+    @Test
+    public void multipleKeysAndResidual() throws Exception {
+        assertJoinMatches("R.G = S.A AND S.B = R.H AND S.C < 50", 3, PageFormat.BINARY);
+        assertJoinMatches("R.G = S.A AND S.B = R.H AND S.C < 50", 3, PageFormat.COMPRESSED);
+    }
+
+    @Test
+    public void skewedKeys() throws Exception {
+        // Every tuple shares a key, so the partitions can never be split
+        left = left.subList(0, 2000);
+        for (int i = 0; i < left.size(); i++) {
+            left.set(i, new Tuple(new int[]{1, i, 0}));
+        }
+
+        right = right.subList(0, 100);
+        for (int i = 0; i < right.size(); i++) {
+            right.set(i, new Tuple(new int[]{i % 2, i}));
+        }
+
+        assertJoinMatches("S.A = R.G", 3, PageFormat.BINARY);
+        assertThat(TestUtils.countFiles(tempFolder, ""), equalTo(0L));
+    }
+
+    @Test
+    public void batchesAndReset() throws Exception {
+        Expression condition = where("S.A = R.G AND S.C > R.H");
+
+        List<Tuple> expected = sorted(TestUtils.drain(new HashJoinOperator(leftOperator(), rightOperator(), condition)));
+        Operator join = hybridJoin(condition, 3, PageFormat.BINARY);
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            List<Tuple> actual = new ArrayList<>();
+
+            TupleBatch batch;
+            while ((batch = join.getNextBatch()) != null) {
+                for (int row = 0; row < batch.size(); row++) {
+                    actual.add(batch.getTuple(row));
+                }
+            }
+
+            assertThat(sorted(actual), equalTo(expected));
+            join.reset();
+        }
+
+        join.close();
+        assertThat(TestUtils.countFiles(tempFolder, ""), equalTo(0L));
+    }
+
+    private void assertJoinMatches(String condition, int bufferPages, PageFormat spillFormat) {
+        Expression expression = where(condition);
+
+        List<Tuple> expected = TestUtils.drain(new HashJoinOperator(leftOperator(), rightOperator(), expression));
+
+        Operator join = hybridJoin(expression, bufferPages, spillFormat);
+        List<Tuple> actual = TestUtils.drain(join);
+        join.close();
+
+        assertThat(expected.isEmpty(), is(false));
+        assertThat("Buffer of " + bufferPages, sorted(actual), equalTo(sorted(expected)));
+    }
+
+    private Operator hybridJoin(Expression condition, int bufferPages, PageFormat spillFormat) {
+        return new HybridHashJoinOperator(leftOperator(), rightOperator(), condition, bufferPages, tempFolder,
+                ReaderImplementation.CHANNEL, spillFormat);
+    }
+
+    private DummyOperator leftOperator() {
+        return new DummyOperator(left, LEFT_HEADER);
+    }
+
+    private DummyOperator rightOperator() {
+        return new DummyOperator(right, RIGHT_HEADER);
+    }
+
+    private static Expression where(String condition) {
+        return TestUtils.parseQuery("SELECT * FROM S, R WHERE " + condition + ";").getWhere();
+    }
+
+    private static List<Tuple> sorted(List<Tuple> tuples) {
+        List<Tuple> copy = new ArrayList<>(tuples);
+        Collections.sort(copy, (a, b) -> Arrays.toString(a.fields).compareTo(Arrays.toString(b.fields)));
+        return copy;
+    }
+}
@@ -0,0 +1,147 @@
+package db.operators.physical.bag;
+
+import db.PhysicalPlanConfig.ReaderImplementation;
+import db.TestUtils;
+import db.datastore.Database;
+import db.datastore.IndexInfo;
+import db.datastore.TableHeader;
+import db.datastore.TableInfo;
+import db.datastore.index.BTree;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.operators.DummyOperator;
+import db.operators.physical.Operator;
+import db.operators.physical.physical.ScanOperator;
+import net.sf.jsqlparser.expression.Expression;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class IndexNestedLoopJoinOperatorTest {
+    private static final TableHeader OUTER_HEADER = new TableHeader(Arrays.asList("O", "O"), Arrays.asList("X", "Y"));
+
+    private TableInfo boats;
+    private TableInfo sailors;
+    private List<Tuple> outer;
+
+    @Before
+    public void setUp() {
+        Database database = Database.loadDatabase(TestUtils.NEW_DB_PATH);
+        boats = database.getTable("Boats");
+        sailors = database.getTable("Sailors");
+
+        Random random = new Random(3);
+
+        // Repeated keys reuse the previous lookup, keys outside of the tables miss
+        outer = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            int key = random.nextInt(12000) - 1000;
+            outer.add(new Tuple(new int[]{key, random.nextInt(10000)}));
+
+            if (i % 10 == 0) {
+                outer.add(new Tuple(new int[]{key, random.nextInt(10000)}));
+            }
+        }
+
+        // Some tuples which also match on a second attribute of the sailors
+        ScanOperator scan = new ScanOperator(sailors, "Sailors");
+        for (int i = 0; i < 50; i++) {
+            Tuple sailor = scan.getNextTuple();
+            outer.add(new Tuple(new int[]{sailor.fields[0], sailor.fields[1]}));
+        }
+        scan.close();
+    }
+
+    @Test
+    public void unclusteredIndex() {
+        assertJoinMatches(boats, "Boats", "E", "O.X = Boats.E");
+    }
+
+    @Test
+    public void clusteredIndex() {
+        assertJoinMatches(sailors, "Sailors", "A", "Sailors.A = O.X");
+    }
+
+    @Test
+    public void otherKeysAndResidual() {
+        assertJoinMatches(boats, "Boats", "E", "O.X = Boats.E AND O.Y > Boats.D");
+        assertJoinMatches(sailors, "Sailors", "A", "O.X = Sailors.A AND O.Y = Sailors.B");
+    }
+
+    @Test
+    public void batchesAndReset() {
+        Expression condition = where("O.X = Boats.E AND O.Y > Boats.F");
+
+        List<Tuple> expected = sorted(TestUtils.drain(new HashJoinOperator(outerOperator(), new ScanOperator(boats, "Boats"), condition)));
+        Operator join = indexJoin(boats, "Boats", "E", condition);
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            List<Tuple> actual = new ArrayList<>();
+
+            TupleBatch batch;
+            while ((batch = join.getNextBatch()) != null) {
+                for (int row = 0; row < batch.size(); row++) {
+                    actual.add(batch.getTuple(row));
+                }
+            }
+
+            assertThat(sorted(actual), equalTo(expected));
+            join.reset();
+        }
+
+        join.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void needsAnEqualityOnTheIndex() {
+        indexJoin(boats, "Boats", "E", where("O.X = Boats.D"));
+    }
+
+    private void assertJoinMatches(TableInfo table, String alias, String attribute, String condition) {
+        Expression expression = where(condition);
+
+        List<Tuple> expected = TestUtils.drain(new HashJoinOperator(outerOperator(), new ScanOperator(table, alias), expression));
+
+        Operator join = indexJoin(table, alias, attribute, expression);
+        List<Tuple> actual = TestUtils.drain(join);
+        join.close();
+
+        assertThat(expected.isEmpty(), is(false));
+        assertThat(sorted(actual), equalTo(sorted(expected)));
+    }
+
+    private Operator indexJoin(TableInfo table, String alias, String attribute, Expression condition) {
+        IndexInfo index = table.indices.stream()
+                .filter(info -> info.attributeName.equals(attribute))
+                .findFirst()
+                .get();
+
+        BTree tree = BTree.createTree(TestUtils.EXPECTED_INDEXES.resolve(table.tableName + "." + attribute));
+
+        return new IndexNestedLoopJoinOperator(outerOperator(), new ScanOperator(table, alias), index, tree, condition,
+                ReaderImplementation.CHANNEL);
+    }
+
+    private DummyOperator outerOperator() {
+        return new DummyOperator(outer, OUTER_HEADER);
+    }
+
+    private static Expression where(String condition) {
+        return TestUtils.parseQuery("SELECT * FROM O, Boats, Sailors WHERE " + condition + ";").getWhere();
+    }
+
+    private static List<Tuple> sorted(List<Tuple> tuples) {
+        List<Tuple> copy = new ArrayList<>(tuples);
+        Collections.sort(copy, (a, b) -> Arrays.toString(a.fields).compareTo(Arrays.toString(b.fields)));
+        return copy;
+    }
+}
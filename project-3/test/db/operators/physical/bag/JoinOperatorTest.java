@@ -49,6 +49,8 @@ public class JoinOperatorTest {
 
         operators.add(new Object[]{"Tuple Nested Loop Join", tuple});
         operators.add(new Object[]{"Block Nested Loop Join", block});
+        operators.add(new Object[]{"Parallel Block Nested Loop Join", (TriFunction<Operator, Operator, Expression, JoinOperator>)
+                (left, right, expression) -> new BlockNestedJoinOperator(left, right, expression, 1, 4, true)});
 
         return operators;
     }
@@ -145,7 +147,7 @@ public class JoinOperatorTest {
         while (join.hasNextTuple()) {
             Tuple tuple = join.getNextTuple();
             assertThat(tuple, notNullValue());
-            assertEquals(tuple.fields.get(0), tuple.fields.get(3));
+            assertEquals(tuple.get(0), tuple.get(3));
             i++;
         }
 
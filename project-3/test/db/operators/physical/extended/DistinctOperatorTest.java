@@ -47,20 +47,20 @@ public class DistinctOperatorTest {
     public void testSimpleDistinct() {
         Operator distinct = new DistinctOperator(opA);
 
-        assertEquals(Arrays.asList(100), distinct.getNextTuple().fields);
-        assertEquals(Arrays.asList(200), distinct.getNextTuple().fields);
-        assertEquals(Arrays.asList(300), distinct.getNextTuple().fields);
+        assertEquals(new Tuple(Arrays.asList(100)), distinct.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(200)), distinct.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(300)), distinct.getNextTuple());
     }
 
     @Test
     public void testMultipleDistinct() {
         Operator distinct = new DistinctOperator(opB);
 
-        assertEquals(Arrays.asList(100, 50), distinct.getNextTuple().fields);
-        assertEquals(Arrays.asList(100, 100), distinct.getNextTuple().fields);
-        assertEquals(Arrays.asList(200, 50), distinct.getNextTuple().fields);
-        assertEquals(Arrays.asList(200, 300), distinct.getNextTuple().fields);
-        assertEquals(Arrays.asList(300, 100), distinct.getNextTuple().fields);
-        assertEquals(Arrays.asList(300, 300), distinct.getNextTuple().fields);
+        assertEquals(new Tuple(Arrays.asList(100, 50)), distinct.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(100, 100)), distinct.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(200, 50)), distinct.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(200, 300)), distinct.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(300, 100)), distinct.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(300, 300)), distinct.getNextTuple());
     }
 }
\ No newline at end of file
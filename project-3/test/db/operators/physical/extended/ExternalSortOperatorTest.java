@@ -1,5 +1,8 @@
 package db.operators.physical.extended;
 
+import db.PhysicalPlanConfig;
+import db.PhysicalPlanConfig.RunGeneration;
+import db.PhysicalPlanConfig.SortImplementation;
 import db.TestUtils;
 import db.datastore.Database;
 import db.datastore.TableHeader;
@@ -24,7 +27,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
@@ -32,6 +38,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test reordering of tuples by the sort operator
@@ -64,12 +71,12 @@ public class ExternalSortOperatorTest {
 
         Operator sort = new ExternalSortOperator(opA, header, 3, TestUtils.TEMP_PATH);
 
-        assertEquals(Arrays.asList(2, 1, 3), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(5, 1, 1), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(1, 2, 1), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(1, 2, 3), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(3, 3, 2), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(4, 3, 2), sort.getNextTuple().fields);
+        assertEquals(new Tuple(Arrays.asList(2, 1, 3)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(5, 1, 1)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(1, 2, 1)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(1, 2, 3)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(3, 3, 2)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(4, 3, 2)), sort.getNextTuple());
 
         sort.close();
     }
@@ -83,12 +90,12 @@ public class ExternalSortOperatorTest {
 
         Operator sort = new ExternalSortOperator(opA, header, 3, TestUtils.TEMP_PATH);
 
-        assertEquals(Arrays.asList(5, 1, 1), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(1, 2, 1), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(3, 3, 2), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(4, 3, 2), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(2, 1, 3), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(1, 2, 3), sort.getNextTuple().fields);
+        assertEquals(new Tuple(Arrays.asList(5, 1, 1)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(1, 2, 1)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(3, 3, 2)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(4, 3, 2)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(2, 1, 3)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(1, 2, 3)), sort.getNextTuple());
 
         sort.close();
     }
@@ -175,6 +182,154 @@ public class ExternalSortOperatorTest {
         S.close();
     }
 
+    @Test
+    public void replacementSelection() throws Exception {
+        Random random = new Random(3);
+
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            tuples.add(new Tuple(new int[]{random.nextInt(1000), random.nextInt(), i}));
+        }
+
+        TableHeader sortHeader = LogicalSortOperator.computeSortHeader(new TableHeader(Arrays.asList("Sailors"), Arrays.asList("A")), headerA);
+        List<Tuple> expected = TestUtils.drain(new InMemorySortOperator(new DummyOperator(tuples, headerA), sortHeader));
+
+        // A buffer of 3 pages holds 438 rows of 3 columns along with their sort index, so sorting one buffer at a time
+        // gives 46 runs
+        Path blockFolder = Files.createTempDirectory("block-runs");
+        Operator blockSort = new ExternalSortOperator(new DummyOperator(tuples, headerA), sortHeader,
+                config(3, RunGeneration.BLOCK, 1, false), blockFolder);
+
+        Path replacementFolder = Files.createTempDirectory("replacement-runs");
+        Operator replacementSort = new ExternalSortOperator(new DummyOperator(tuples, headerA), sortHeader,
+                config(3, RunGeneration.REPLACEMENT_SELECTION, 1, false), replacementFolder);
+
+        assertThat(TestUtils.drain(blockSort), equalTo(expected));
+        assertThat(TestUtils.drain(replacementSort), equalTo(expected));
+
+        assertThat(countFirstRuns(blockFolder), equalTo(46L));
+        assertTrue(countFirstRuns(replacementFolder) <= 12);
+
+        blockSort.close();
+        replacementSort.close();
+    }
+
+    @Test
+    public void replacementSelectionNearlySorted() throws Exception {
+        Random random = new Random(4);
+
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            tuples.add(new Tuple(new int[]{i, random.nextInt(), 0}));
+        }
+
+        // Swap tuples which are closer together than the buffer
+        for (int i = 0; i < 2000; i++) {
+            int position = random.nextInt(tuples.size() - 500);
+            Collections.swap(tuples, position, position + random.nextInt(500));
+        }
+
+        TableHeader sortHeader = LogicalSortOperator.computeSortHeader(new TableHeader(Arrays.asList("Sailors"), Arrays.asList("A")), headerA);
+        List<Tuple> expected = TestUtils.drain(new InMemorySortOperator(new DummyOperator(tuples, headerA), sortHeader));
+
+        Path folder = Files.createTempDirectory("replacement-runs");
+        Operator sort = new ExternalSortOperator(new DummyOperator(tuples, headerA), sortHeader,
+                config(3, RunGeneration.REPLACEMENT_SELECTION, 1, false), folder);
+
+        assertThat(TestUtils.drain(sort), equalTo(expected));
+        assertThat(countFirstRuns(folder), equalTo(1L));
+
+        sort.close();
+    }
+
+    @Test
+    public void parallelSort() throws Exception {
+        Random random = new Random(6);
+
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            tuples.add(new Tuple(new int[]{random.nextInt(1000), random.nextInt(), i}));
+        }
+
+        TableHeader sortHeader = new TableHeader(Arrays.asList("Sailors", "Sailors"), Arrays.asList("A", "C"));
+        List<Tuple> expected = TestUtils.drain(new InMemorySortOperator(new DummyOperator(tuples, headerA), sortHeader));
+
+        // With 6 pages and 3 workers, each run of the first pass takes 2 pages and merges are 2 ways until the last
+        for (RunGeneration runGeneration : RunGeneration.values()) {
+            for (int threads : Arrays.asList(2, 3, 8)) {
+                Operator sort = new ExternalSortOperator(new DummyOperator(tuples, headerA), sortHeader,
+                        config(6, runGeneration, threads, false), Files.createTempDirectory("parallel"));
+
+                assertThat(runGeneration + " on " + threads + " threads", TestUtils.drain(sort), equalTo(expected));
+
+                sort.close();
+            }
+        }
+    }
+
+    @Test
+    public void asyncIO() throws Exception {
+        Random random = new Random(7);
+
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            tuples.add(new Tuple(new int[]{random.nextInt(1000), random.nextInt(), i}));
+        }
+
+        TableHeader sortHeader = new TableHeader(Arrays.asList("Sailors", "Sailors"), Arrays.asList("A", "C"));
+        List<Tuple> expected = TestUtils.drain(new InMemorySortOperator(new DummyOperator(tuples, headerA), sortHeader));
+
+        // With 3 pages the runs fall back to synchronous I/O, with 6 pages the last pass merges every run and with 12
+        // pages on 3 threads only 2 workers fit the double buffered merges
+        for (RunGeneration runGeneration : RunGeneration.values()) {
+            for (int bufferSize : Arrays.asList(3, 6, 12)) {
+                for (int threads : Arrays.asList(1, 3)) {
+                    String message = runGeneration + " with " + bufferSize + " pages on " + threads + " threads";
+
+                    Operator sort = new ExternalSortOperator(new DummyOperator(tuples, headerA), sortHeader,
+                            config(bufferSize, runGeneration, threads, true), Files.createTempDirectory("async"));
+
+                    assertThat(message, TestUtils.drain(sort), equalTo(expected));
+
+                    // Rewinding the output restarts its read ahead
+                    sort.reset();
+                    assertThat(message + " after reset", TestUtils.drain(sort), equalTo(expected));
+
+                    sort.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void emptySource() throws Exception {
+        for (RunGeneration runGeneration : RunGeneration.values()) {
+            for (int threads : Arrays.asList(1, 2)) {
+                Operator sort = new ExternalSortOperator(new DummyOperator(new ArrayList<>(), headerA), headerA,
+                        config(3, runGeneration, threads, false), Files.createTempDirectory("empty"));
+
+                assertThat(sort.getNextTuple(), is(nullValue()));
+
+                sort.close();
+            }
+        }
+    }
+
+    private static PhysicalPlanConfig config(int bufferSize, RunGeneration runGeneration, int threads, boolean asyncIO) {
+        PhysicalPlanConfig config = new PhysicalPlanConfig(null, SortImplementation.EXTERNAL, 0, bufferSize, false);
+        config.runGeneration = runGeneration;
+        config.sortThreads = threads;
+        config.asyncSortIO = asyncIO;
+
+        return config;
+    }
+
+    private static long countFirstRuns(Path folder) throws Exception {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.filter(file -> file.getFileName().toString().matches("Sort\\d+_1_\\d+")).count();
+        }
+    }
+
     @After
     public void cleanup() {
 //        Utilities.cleanDirectory(Paths.get(Project3.TEMP_PATH));
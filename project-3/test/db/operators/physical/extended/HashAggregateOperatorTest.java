@@ -0,0 +1,157 @@
+package db.operators.physical.extended;
+
+import db.PhysicalPlanConfig.PageFormat;
+import db.PhysicalPlanConfig.ReaderImplementation;
+import db.TestUtils;
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.operators.Aggregate;
+import db.operators.Aggregate.Type;
+import db.operators.DummyOperator;
+import db.operators.physical.Operator;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class HashAggregateOperatorTest {
+    private static final TableHeader HEADER = new TableHeader(Arrays.asList("S", "S", "S"), Arrays.asList("A", "B", "C"));
+
+    private static final List<Aggregate> AGGREGATES = Arrays.asList(
+            new Aggregate(Type.COUNT, null, null),
+            new Aggregate(Type.SUM, "S", "C"),
+            new Aggregate(Type.MIN, "S", "C"),
+            new Aggregate(Type.MAX, "S", "C"),
+            new Aggregate(Type.AVG, "S", "C")
+    );
+
+    private Path tempFolder;
+    private List<Tuple> tuples;
+
+    @Before
+    public void setUp() throws Exception {
+        tempFolder = TestUtils.TEMP_PATH.resolve("hash-aggregate");
+        Files.createDirectories(tempFolder);
+
+        Random random = new Random(5);
+
+        // About 2500 groups, large sums and negative values
+        tuples = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            tuples.add(new Tuple(new int[]{random.nextInt(50), random.nextInt(50), random.nextInt() / 4}));
+        }
+    }
+
+    @Test
+    public void spillsPartitions() throws Exception {
+        TableHeader groupBy = new TableHeader(Arrays.asList("S", "S"), Arrays.asList("B", "A"));
+
+        for (int bufferPages : Arrays.asList(1, 2, 4, 50)) {
+            Operator aggregate = new HashAggregateOperator(new DummyOperator(tuples, HEADER), groupBy, AGGREGATES,
+                    bufferPages, tempFolder, ReaderImplementation.CHANNEL, PageFormat.BINARY);
+
+            assertThat("Buffer of " + bufferPages, sorted(TestUtils.drain(aggregate)), equalTo(expected(1, 0)));
+            aggregate.close();
+        }
+
+        // The runs of the sorts of the deepest partitions are left to the sort
+        assertThat(TestUtils.countFiles(tempFolder, "Aggregate"), equalTo(0L));
+    }
+
+    @Test
+    public void sortedInput() {
+        TableHeader groupBy = new TableHeader(Arrays.asList("S"), Arrays.asList("A"));
+
+        Operator sorted = new InMemorySortOperator(new DummyOperator(tuples, HEADER), groupBy);
+        Operator aggregate = new SortAggregateOperator(sorted, groupBy, AGGREGATES);
+
+        assertThat(TestUtils.drain(aggregate), equalTo(expected(0)));
+
+        aggregate.reset();
+        assertThat(TestUtils.drain(aggregate), equalTo(expected(0)));
+    }
+
+    @Test
+    public void wholeRelation() {
+        TableHeader groupBy = new TableHeader();
+
+        Operator hash = new HashAggregateOperator(new DummyOperator(tuples, HEADER), groupBy, AGGREGATES, 1,
+                tempFolder, ReaderImplementation.CHANNEL, PageFormat.BINARY);
+        Operator sort = new SortAggregateOperator(new DummyOperator(tuples, HEADER), groupBy, AGGREGATES);
+
+        assertThat(TestUtils.drain(hash), equalTo(expected()));
+        assertThat(TestUtils.drain(sort), equalTo(expected()));
+
+        // An empty relation still has a count
+        List<Tuple> empty = Collections.singletonList(new Tuple(new int[]{0, 0, 0, 0, 0}));
+
+        hash = new HashAggregateOperator(new DummyOperator(new ArrayList<>(), HEADER), groupBy, AGGREGATES, 1,
+                tempFolder, ReaderImplementation.CHANNEL, PageFormat.BINARY);
+        sort = new SortAggregateOperator(new DummyOperator(new ArrayList<>(), HEADER), groupBy, AGGREGATES);
+
+        assertThat(TestUtils.drain(hash), equalTo(empty));
+        assertThat(TestUtils.drain(sort), equalTo(empty));
+    }
+
+    /**
+     * Compute the aggregates of every group directly.
+     *
+     * @param groupColumns the columns of the group key, in order.
+     * @return the groups sorted on their key.
+     */
+    private List<Tuple> expected(int... groupColumns) {
+        Map<List<Integer>, List<Integer>> groups = new HashMap<>();
+
+        for (Tuple tuple : tuples) {
+            List<Integer> key = new ArrayList<>();
+            for (int column : groupColumns) {
+                key.add(tuple.fields[column]);
+            }
+
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(tuple.fields[2]);
+        }
+
+        List<Tuple> results = new ArrayList<>();
+
+        for (Map.Entry<List<Integer>, List<Integer>> group : groups.entrySet()) {
+            List<Integer> values = group.getValue();
+            long sum = values.stream().mapToLong(Integer::longValue).sum();
+
+            List<Integer> fields = new ArrayList<>(group.getKey());
+            fields.add(values.size());
+            fields.add((int) sum);
+            fields.add(Collections.min(values));
+            fields.add(Collections.max(values));
+            fields.add((int) (sum / values.size()));
+
+            results.add(new Tuple(fields));
+        }
+
+        return sorted(results);
+    }
+
+    private static List<Tuple> sorted(List<Tuple> tuples) {
+        List<Tuple> copy = new ArrayList<>(tuples);
+        Collections.sort(copy, (a, b) -> {
+            for (int i = 0; i < a.fields.length; i++) {
+                if (a.fields[i] != b.fields[i]) {
+                    return Integer.compare(a.fields[i], b.fields[i]);
+                }
+            }
+
+            return 0;
+        });
+        return copy;
+    }
+}
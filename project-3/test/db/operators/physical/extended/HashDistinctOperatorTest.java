@@ -0,0 +1,114 @@
+package db.operators.physical.extended;
+
+import db.PhysicalPlanConfig.PageFormat;
+import db.PhysicalPlanConfig.ReaderImplementation;
+import db.TestUtils;
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.operators.DummyOperator;
+import db.operators.physical.Operator;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class HashDistinctOperatorTest {
+    private static final TableHeader HEADER = new TableHeader(Arrays.asList("S", "S"), Arrays.asList("A", "B"));
+
+    private Path tempFolder;
+    private List<Tuple> tuples;
+
+    @Before
+    public void setUp() throws Exception {
+        tempFolder = TestUtils.TEMP_PATH.resolve("hash-distinct");
+        Files.createDirectories(tempFolder);
+
+        Random random = new Random(11);
+
+        // About 3000 distinct tuples, which is around 9 pages
+        tuples = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            tuples.add(new Tuple(new int[]{random.nextInt(100), random.nextInt(30)}));
+        }
+    }
+
+    @Test
+    public void fewDistinctTuples() {
+        List<Tuple> few = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            few.add(new Tuple(new int[]{i % 3, i % 2}));
+        }
+
+        tuples = few;
+        assertDistinct(1);
+    }
+
+    @Test
+    public void spillsPartitions() throws Exception {
+        for (int bufferPages : Arrays.asList(1, 2, 4, 20)) {
+            assertDistinct(bufferPages);
+        }
+
+        assertThat(TestUtils.countFiles(tempFolder, ""), equalTo(0L));
+    }
+
+    @Test
+    public void batchesAndReset() throws Exception {
+        Operator distinct = new HashDistinctOperator(new DummyOperator(tuples, HEADER), 2, tempFolder,
+                ReaderImplementation.CHANNEL, PageFormat.BINARY);
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            List<Tuple> actual = new ArrayList<>();
+
+            TupleBatch batch;
+            while ((batch = distinct.getNextBatch()) != null) {
+                for (int row = 0; row < batch.size(); row++) {
+                    actual.add(batch.getTuple(row));
+                }
+            }
+
+            assertThat(sorted(actual), equalTo(expected()));
+            distinct.reset();
+        }
+
+        distinct.close();
+        assertThat(TestUtils.countFiles(tempFolder, ""), equalTo(0L));
+    }
+
+    private void assertDistinct(int bufferPages) {
+        Operator distinct = new HashDistinctOperator(new DummyOperator(tuples, HEADER), bufferPages, tempFolder,
+                ReaderImplementation.CHANNEL, PageFormat.BINARY);
+
+        List<Tuple> actual = new ArrayList<>();
+
+        Tuple tuple;
+        while ((tuple = distinct.getNextTuple()) != null) {
+            actual.add(tuple);
+        }
+
+        distinct.close();
+
+        assertThat("Buffer of " + bufferPages, sorted(actual), equalTo(expected()));
+    }
+
+    private List<Tuple> expected() {
+        return sorted(new ArrayList<>(new LinkedHashSet<>(tuples)));
+    }
+
+    private static List<Tuple> sorted(List<Tuple> tuples) {
+        List<Tuple> copy = new ArrayList<>(tuples);
+        Collections.sort(copy, (a, b) -> Arrays.toString(a.fields).compareTo(Arrays.toString(b.fields)));
+        return copy;
+    }
+}
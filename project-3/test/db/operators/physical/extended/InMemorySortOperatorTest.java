@@ -49,12 +49,12 @@ public class InMemorySortOperatorTest {
         TableHeader sortHeader = LogicalSortOperator.computeSortHeader(header, headerA);
         Operator sort = new InMemorySortOperator(opA, sortHeader);
 
-        assertEquals(Arrays.asList(2, 1, 3), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(5, 1, 1), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(1, 2, 1), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(1, 2, 3), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(3, 3, 2), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(4, 3, 2), sort.getNextTuple().fields);
+        assertEquals(new Tuple(Arrays.asList(2, 1, 3)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(5, 1, 1)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(1, 2, 1)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(1, 2, 3)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(3, 3, 2)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(4, 3, 2)), sort.getNextTuple());
     }
 
     @Test
@@ -67,12 +67,12 @@ public class InMemorySortOperatorTest {
         TableHeader sortHeader = LogicalSortOperator.computeSortHeader(header, headerA);
         Operator sort = new InMemorySortOperator(opA, sortHeader);
 
-        assertEquals(Arrays.asList(5, 1, 1), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(1, 2, 1), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(3, 3, 2), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(4, 3, 2), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(2, 1, 3), sort.getNextTuple().fields);
-        assertEquals(Arrays.asList(1, 2, 3), sort.getNextTuple().fields);
+        assertEquals(new Tuple(Arrays.asList(5, 1, 1)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(1, 2, 1)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(3, 3, 2)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(4, 3, 2)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(2, 1, 3)), sort.getNextTuple());
+        assertEquals(new Tuple(Arrays.asList(1, 2, 3)), sort.getNextTuple());
     }
 
     @Test
@@ -0,0 +1,67 @@
+package db.operators.physical.extended;
+
+import db.TestUtils;
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.operators.DummyOperator;
+import db.operators.physical.Operator;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class LimitOperatorTest {
+    private static final TableHeader HEADER = new TableHeader(Arrays.asList("S", "S"), Arrays.asList("A", "B"));
+
+    private List<Tuple> tuples;
+    private int pulled;
+
+    @Before
+    public void setUp() {
+        tuples = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            tuples.add(new Tuple(new int[]{i, -i}));
+        }
+
+        pulled = 0;
+    }
+
+    @Test
+    public void ranges() {
+        // Ranges which start and end inside batches, on their edges and past the end of the source
+        long[][] ranges = {{0, 0}, {0, 10}, {5, 10}, {1000, 2000}, {1024, 1024}, {2990, 100}, {4000, 10}, {0, 5000}};
+
+        for (long[] range : ranges) {
+            int from = (int) Math.min(range[0], tuples.size());
+            int to = (int) Math.min(range[0] + range[1], tuples.size());
+            List<Tuple> expected = tuples.subList(from, to);
+
+            Operator limit = new LimitOperator(new DummyOperator(tuples, HEADER), range[0], range[1]);
+            assertThat(Arrays.toString(range), TestUtils.drain(limit), equalTo(expected));
+
+            limit.reset();
+            assertThat(Arrays.toString(range) + " in batches", TestUtils.drainBatches(limit), equalTo(expected));
+        }
+    }
+
+    @Test
+    public void stopsEarly() {
+        Operator source = new DummyOperator(tuples, HEADER) {
+            @Override
+            protected Tuple generateNextTuple() {
+                pulled++;
+                return super.generateNextTuple();
+            }
+        };
+
+        Operator limit = new LimitOperator(source, 3, 5);
+
+        assertThat(TestUtils.drain(limit).size(), equalTo(5));
+        assertThat(pulled, equalTo(8));
+    }
+}
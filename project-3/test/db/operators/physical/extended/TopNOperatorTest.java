@@ -0,0 +1,65 @@
+package db.operators.physical.extended;
+
+import db.TestUtils;
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.operators.DummyOperator;
+import db.operators.logical.LogicalSortOperator;
+import db.operators.physical.Operator;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class TopNOperatorTest {
+    private static final TableHeader HEADER = new TableHeader(Arrays.asList("S", "S", "S"), Arrays.asList("A", "B", "C"));
+
+    private List<Tuple> tuples;
+    private TableHeader sortHeader;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(11);
+
+        // Few distinct values, so ties are broken on the other columns
+        tuples = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            tuples.add(new Tuple(new int[]{random.nextInt(20), random.nextInt(), random.nextInt(5)}));
+        }
+
+        sortHeader = LogicalSortOperator.computeSortHeader(new TableHeader(Arrays.asList("S"), Arrays.asList("C")), HEADER);
+    }
+
+    @Test
+    public void matchesSort() {
+        List<Tuple> sorted = TestUtils.drain(new InMemorySortOperator(new DummyOperator(tuples, HEADER), sortHeader));
+
+        for (int count : Arrays.asList(0, 1, 7, 1024, 1500, 5000, 6000)) {
+            List<Tuple> expected = sorted.subList(0, Math.min(count, sorted.size()));
+
+            Operator topN = new TopNOperator(new DummyOperator(tuples, HEADER), sortHeader, count);
+            assertThat("Top " + count, TestUtils.drain(topN), equalTo(expected));
+
+            topN.reset();
+            assertThat("Top " + count + " after reset", TestUtils.drainBatches(topN), equalTo(expected));
+        }
+    }
+
+    @Test
+    public void seek() {
+        List<Tuple> sorted = TestUtils.drain(new InMemorySortOperator(new DummyOperator(tuples, HEADER), sortHeader));
+
+        TopNOperator topN = new TopNOperator(new DummyOperator(tuples, HEADER), sortHeader, 100);
+        TestUtils.drain(topN);
+
+        topN.seek(40);
+        assertThat(topN.getNextTuple(), equalTo(sorted.get(40)));
+        assertThat(topN.getTupleIndex(), equalTo(40L));
+    }
+}
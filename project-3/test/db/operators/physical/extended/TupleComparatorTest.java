@@ -0,0 +1,133 @@
+package db.operators.physical.extended;
+
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class TupleComparatorTest {
+    private static final TableHeader HEADER = new TableHeader(Arrays.asList("S", "S", "S", "S"), Arrays.asList("A", "B", "C", "D"));
+
+    private static final int[] VALUES = {Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -2, -1, 0, 1, 2, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+
+    private List<Tuple> tuples;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(23);
+
+        // Mostly extreme values, which are where a packed key would overflow or lose its sign
+        tuples = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            int[] fields = new int[4];
+
+            for (int column = 0; column < 3; column++) {
+                fields[column] = random.nextBoolean() ? VALUES[random.nextInt(VALUES.length)] : random.nextInt();
+            }
+
+            fields[3] = i;
+            tuples.add(new Tuple(fields));
+        }
+    }
+
+    @Test
+    public void normalizedKeysMatchComparison() {
+        for (List<String> columns : Arrays.asList(Arrays.asList("B"), Arrays.asList("C", "A"), Arrays.asList("A", "C", "B"))) {
+            TupleComparator comparator = new TupleComparator(sortHeader(columns), HEADER);
+
+            for (int i = 1; i < tuples.size(); i++) {
+                Tuple a = tuples.get(i - 1);
+                Tuple b = tuples.get(i);
+
+                int expected = Integer.signum(comparator.compare(a, b));
+                int actual = Integer.signum(comparator.compare(comparator.normalize(a), a, comparator.normalize(b), b));
+
+                assertThat(columns + " " + a + " and " + b, actual, equalTo(expected));
+            }
+        }
+    }
+
+    @Test
+    public void sortIsStable() {
+        for (List<String> columns : Arrays.asList(Arrays.asList("B"), Arrays.asList("C", "A"), Arrays.asList("A", "C", "B"))) {
+            TupleComparator comparator = new TupleComparator(sortHeader(columns), HEADER);
+
+            List<Tuple> expected = new ArrayList<>(tuples);
+            expected.sort(comparator);
+
+            List<Tuple> sorted = new ArrayList<>(tuples);
+            comparator.sort(sorted);
+
+            assertThat(columns.toString(), sorted, equalTo(expected));
+        }
+    }
+
+    @Test
+    public void radixSortWithFewDistinctKeys() {
+        Random random = new Random(24);
+
+        // Long groups of equal normalized keys, which are then ordered on the third column
+        List<Tuple> duplicates = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            duplicates.add(new Tuple(new int[]{random.nextInt(3) - 1, random.nextInt(4), random.nextInt(5), i}));
+        }
+
+        for (List<String> columns : Arrays.asList(Arrays.asList("A"), Arrays.asList("A", "B"), Arrays.asList("B", "A", "C"))) {
+            TupleComparator comparator = new TupleComparator(sortHeader(columns), HEADER);
+
+            List<Tuple> expected = new ArrayList<>(duplicates);
+            expected.sort(comparator);
+
+            List<Tuple> sorted = new ArrayList<>(duplicates);
+            comparator.sort(sorted);
+
+            assertThat(columns.toString(), sorted, equalTo(expected));
+        }
+    }
+
+    @Test
+    public void sizesAroundRadixThreshold() {
+        TupleComparator comparator = new TupleComparator(sortHeader(Arrays.asList("C", "B", "A")), HEADER);
+
+        for (int size : Arrays.asList(0, 1, 2, 511, 512, 513)) {
+            List<Tuple> expected = new ArrayList<>(tuples.subList(0, size));
+            expected.sort(comparator);
+
+            List<Tuple> sorted = new ArrayList<>(tuples.subList(0, size));
+            comparator.sort(sorted);
+
+            assertThat(size + " tuples", sorted, equalTo(expected));
+        }
+    }
+
+    @Test
+    public void differentLayouts() {
+        TableHeader right = new TableHeader(Arrays.asList("R", "R"), Arrays.asList("X", "Y"));
+        TableHeader rightSort = new TableHeader(Arrays.asList("R", "R"), Arrays.asList("Y", "X"));
+
+        TupleComparator comparator = new TupleComparator(sortHeader(Arrays.asList("A", "B")), HEADER, rightSort, right);
+
+        Tuple left = new Tuple(new int[]{-5, 7, 0, 0});
+
+        assertThat(comparator.normalize(left), equalTo(comparator.normalizeRight(new Tuple(new int[]{7, -5}))));
+        assertThat(comparator.compare(comparator.normalize(left), left, comparator.normalizeRight(new Tuple(new int[]{8, -5})), null) < 0, equalTo(true));
+    }
+
+    private static TableHeader sortHeader(List<String> columns) {
+        List<String> aliases = new ArrayList<>();
+
+        for (String ignored : columns) {
+            aliases.add("S");
+        }
+
+        return new TableHeader(aliases, columns);
+    }
+}
@@ -84,7 +84,7 @@ public class IndexScanOperatorTest {
             Tuple tuple = boatsOperator.getNextTuple();
             assertThat("not null", tuple, notNullValue());
             assertThat("class", tuple, instanceOf(Tuple.class));
-            assertThat("size", tuple.fields.size(), is(3));
+            assertThat("size", tuple.size(), is(3));
         }
 
         boatsOperator.close();
@@ -96,7 +96,7 @@ public class IndexScanOperatorTest {
             Tuple tuple = boatsOperator.getNextTuple();
             assertThat("not null", tuple, notNullValue());
             assertThat("class", tuple, instanceOf(Tuple.class));
-            assertThat("size", tuple.fields.size(), is(3));
+            assertThat("size", tuple.size(), is(3));
         }
     }
 
@@ -112,11 +112,11 @@ public class IndexScanOperatorTest {
 
             assertThat(peek, notNullValue());
             assertThat(peek, instanceOf(Tuple.class));
-            assertThat(peek.fields.size(), equalTo(boatsTable.header.size()));
+            assertThat(peek.size(), equalTo(boatsTable.header.size()));
 
             assertThat(next, notNullValue());
             assertThat(next, instanceOf(Tuple.class));
-            assertThat(next.fields.size(), equalTo(boatsTable.header.size()));
+            assertThat(next.size(), equalTo(boatsTable.header.size()));
 
             assertThat(peek, equalTo(next));
         }
@@ -9,7 +9,6 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
-import java.util.List;
 
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.junit.Assert.assertEquals;
@@ -29,16 +28,16 @@ public class ScanOperatorTest {
     public void testScan() {
         ScanOperator scan = new ScanOperator(sailorsTable);
 
-        List<Integer> tuple1 = Arrays.asList(64, 113, 139);
-        List<Integer> tuple2 = Arrays.asList(181, 128, 129);
-        List<Integer> tuple3 = Arrays.asList(147, 45, 118);
+        Tuple tuple1 = new Tuple(Arrays.asList(64, 113, 139));
+        Tuple tuple2 = new Tuple(Arrays.asList(181, 128, 129));
+        Tuple tuple3 = new Tuple(Arrays.asList(147, 45, 118));
 
         Tuple nextTuple = scan.getNextTuple();
 
         assertThat(nextTuple, notNullValue());
-        assertEquals(tuple1, nextTuple.fields);
-        assertEquals(tuple2, scan.getNextTuple().fields);
-        assertEquals(tuple3, scan.getNextTuple().fields);
+        assertEquals(tuple1, nextTuple);
+        assertEquals(tuple2, scan.getNextTuple());
+        assertEquals(tuple3, scan.getNextTuple());
 
         scan.close();
     }
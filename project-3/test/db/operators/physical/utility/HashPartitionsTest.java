@@ -0,0 +1,157 @@
+package db.operators.physical.utility;
+
+import db.PhysicalPlanConfig.PageFormat;
+import db.PhysicalPlanConfig.ReaderImplementation;
+import db.TestUtils;
+import db.datastore.Database;
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertTrue;
+
+public class HashPartitionsTest {
+    private static final TableHeader LEFT = new TableHeader(Arrays.asList("S", "S"), Arrays.asList("A", "B"));
+    private static final TableHeader RIGHT = new TableHeader(Arrays.asList("R"), Arrays.asList("C"));
+
+    private static final int[] KEYS = {0};
+
+    private Path tempFolder;
+
+    @Before
+    public void setUp() throws Exception {
+        tempFolder = TestUtils.TEMP_PATH.resolve("hash-partitions");
+        Files.createDirectories(tempFolder);
+    }
+
+    @Test
+    public void keepsWithinBuffer() {
+        int entriesPerPage = (Database.PAGE_SIZE / 4 - 2) / LEFT.size();
+
+        for (int bufferPages : Arrays.asList(1, 3, 5, 12)) {
+            for (TableHeader[] sides : Arrays.asList(new TableHeader[]{LEFT}, new TableHeader[]{LEFT, RIGHT})) {
+                HashPartitions partitions = create(sides, bufferPages, 0);
+                String message = bufferPages + " pages with " + sides.length + " sides";
+
+                if (bufferPages > 2 * sides.length) {
+                    assertTrue(message, partitions.getPartitionCount() * sides.length < bufferPages);
+                }
+
+                for (int i = 0; i < 8000; i++) {
+                    add(partitions, new Tuple(new int[]{i, i}));
+
+                    // Every file of a partition on disk holds a page for its writer
+                    int pages = Math.max(1, bufferPages - partitions.getSpilledCount() * sides.length);
+                    assertTrue(message, partitions.getResidentCount() <= pages * entriesPerPage);
+                }
+
+                assertTrue(message, partitions.getSpilledCount() > 0);
+                partitions.clear();
+            }
+        }
+    }
+
+    @Test
+    public void spilledTuplesAreKept() throws Exception {
+        HashPartitions partitions = create(new TableHeader[]{LEFT, RIGHT}, 3, 0);
+        Random random = new Random(10);
+
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Tuple tuple = new Tuple(new int[]{random.nextInt(), i});
+            tuples.add(tuple);
+            add(partitions, tuple);
+        }
+
+        Set<Tuple> found = new HashSet<>();
+
+        for (int partition = 0; partition < partitions.getPartitionCount(); partition++) {
+            if (partitions.isSpilled(partition)) {
+                partitions.write(partition, 1, new Tuple(new int[]{partition}));
+                partitions.flush(partition);
+
+                List<Tuple> spilled = TestUtils.drain(partitions.getSpill(partition, 0));
+                assertThat(spilled.size(), equalTo(partitions.getSpillSize(partition, 0)));
+                assertThat(TestUtils.drain(partitions.getSpill(partition, 1)).size(), equalTo(1));
+
+                found.addAll(spilled);
+            } else {
+                TupleHashTable table = partitions.get(partition);
+
+                for (int entry = 0; entry < table.size(); entry++) {
+                    found.add(table.get(entry));
+                }
+            }
+
+            partitions.release(partition);
+        }
+
+        assertThat(found, equalTo(new HashSet<>(tuples)));
+        assertThat(TestUtils.countFiles(tempFolder, "Test"), equalTo(0L));
+    }
+
+    @Test
+    public void clearDeletesFiles() throws Exception {
+        HashPartitions partitions = create(new TableHeader[]{LEFT}, 2, 0);
+
+        for (int i = 0; i < 3000; i++) {
+            add(partitions, new Tuple(new int[]{i, i}));
+        }
+
+        assertTrue(partitions.getSpilledCount() > 0);
+
+        partitions.clear();
+
+        assertThat(partitions.getSpilledCount(), equalTo(0));
+        assertThat(partitions.getResidentCount(), equalTo(0));
+        assertThat(TestUtils.countFiles(tempFolder, "Test"), equalTo(0L));
+    }
+
+    @Test
+    public void levelsUseDifferentBits() {
+        HashPartitions first = create(new TableHeader[]{LEFT}, 9, 0);
+        HashPartitions second = create(new TableHeader[]{LEFT}, 9, 1);
+
+        // The hashes which share a partition at one level are spread over the partitions at the next
+        Set<Integer> spread = new HashSet<>();
+
+        for (int hash = 0; hash < 10000; hash++) {
+            if (first.partitionOf(hash) == 0) {
+                spread.add(second.partitionOf(hash));
+            }
+        }
+
+        assertThat(spread.size(), equalTo(second.getPartitionCount()));
+        assertTrue(first.canPartitionAgain());
+        assertTrue(!create(new TableHeader[]{LEFT}, 9, HashPartitions.MAX_LEVEL - 1).canPartitionAgain());
+    }
+
+    private HashPartitions create(TableHeader[] sides, int bufferPages, int level) {
+        return new HashPartitions("Test", KEYS, sides, bufferPages, level, tempFolder, ReaderImplementation.CHANNEL,
+                PageFormat.BINARY);
+    }
+
+    private static void add(HashPartitions partitions, Tuple tuple) {
+        int hash = TupleHashTable.hash(tuple.fields, KEYS);
+        int partition = partitions.partitionOf(hash);
+
+        if (partitions.get(partition) != null) {
+            partitions.get(partition).insert(tuple, hash);
+            partitions.entryAdded();
+        } else {
+            partitions.write(partition, 0, tuple);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package db.operators.physical.utility;
+
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.operators.DummyOperator;
+import db.operators.physical.extended.TupleComparator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class LoserTreeTest {
+    private static final TableHeader HEADER = new TableHeader(Arrays.asList("S", "S"), Arrays.asList("A", "B"));
+    private static final TableHeader SORT_HEADER = new TableHeader(Arrays.asList("S"), Arrays.asList("A"));
+
+    @Test
+    public void mergesInputs() {
+        Random random = new Random(8);
+        TupleComparator comparator = new TupleComparator(SORT_HEADER, HEADER);
+
+        for (int inputCount : Arrays.asList(1, 2, 3, 5, 8, 17, 64)) {
+            List<DummyOperator> inputs = new ArrayList<>();
+            List<Tuple> expected = new ArrayList<>();
+
+            for (int input = 0; input < inputCount; input++) {
+                // Some inputs are empty, and the few distinct values make ties common
+                List<Tuple> tuples = new ArrayList<>();
+                int size = random.nextInt(4) == 0 ? 0 : random.nextInt(200);
+
+                for (int i = 0; i < size; i++) {
+                    tuples.add(new Tuple(new int[]{random.nextInt(50), input}));
+                }
+
+                tuples.sort(comparator);
+                expected.addAll(tuples);
+                inputs.add(new DummyOperator(tuples, HEADER));
+            }
+
+            // A stable sort keeps tied tuples in the order of their inputs
+            Collections.sort(expected, comparator);
+
+            LoserTree tree = new LoserTree(inputs, comparator);
+            List<Tuple> merged = new ArrayList<>();
+
+            while (tree.peek() != null) {
+                assertThat(tree.peek().fields[1], equalTo(tree.peekInput()));
+                merged.add(tree.next());
+            }
+
+            assertThat(inputCount + " inputs", merged, equalTo(expected));
+            assertThat(tree.next(), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void noInputs() {
+        LoserTree tree = new LoserTree(new ArrayList<DummyOperator>(), new TupleComparator(SORT_HEADER, HEADER));
+
+        assertThat(tree.peek(), is(nullValue()));
+        assertThat(tree.next(), is(nullValue()));
+    }
+}
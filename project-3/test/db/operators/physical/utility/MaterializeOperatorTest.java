@@ -0,0 +1,117 @@
+package db.operators.physical.utility;
+
+import db.PhysicalPlanConfig.PageFormat;
+import db.PhysicalPlanConfig.ReaderImplementation;
+import db.TestUtils;
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.operators.DummyOperator;
+import db.operators.physical.Operator;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class MaterializeOperatorTest {
+    private static final TableHeader HEADER = new TableHeader(Arrays.asList("R", "R"), Arrays.asList("G", "H"));
+
+    private Path tempFolder;
+    private List<Tuple> tuples;
+    private int sourceResets;
+
+    @Before
+    public void setUp() throws Exception {
+        tempFolder = TestUtils.TEMP_PATH.resolve("materialize");
+        Files.createDirectories(tempFolder);
+
+        // About 6 pages of tuples
+        tuples = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            tuples.add(new Tuple(new int[]{i, i % 7}));
+        }
+
+        sourceResets = 0;
+    }
+
+    @Test
+    public void inMemory() throws Exception {
+        MaterializeOperator materialize = materialize(10, PageFormat.BINARY);
+
+        assertReadsBackTwice(materialize);
+        assertThat(materialize.isSpilled(), is(false));
+        assertThat(sourceResets, equalTo(0));
+
+        materialize.close();
+    }
+
+    @Test
+    public void spills() throws Exception {
+        for (PageFormat format : PageFormat.values()) {
+            MaterializeOperator materialize = materialize(2, format);
+
+            assertReadsBackTwice(materialize);
+            assertThat(materialize.isSpilled(), is(true));
+            assertThat(sourceResets, equalTo(0));
+
+            materialize.close();
+            assertThat(TestUtils.countFiles(tempFolder, "Materialize"), equalTo(0L));
+        }
+    }
+
+    @Test
+    public void resetBeforeTheEnd() {
+        MaterializeOperator materialize = materialize(2, PageFormat.BINARY);
+
+        for (int i = 0; i < 100; i++) {
+            materialize.getNextTuple();
+        }
+
+        materialize.reset();
+
+        assertThat(TestUtils.drainBatches(materialize), equalTo(tuples));
+        assertThat(sourceResets, equalTo(0));
+
+        materialize.close();
+    }
+
+    @Test
+    public void resetBeforeReading() {
+        MaterializeOperator materialize = materialize(2, PageFormat.BINARY);
+        materialize.reset();
+
+        assertThat(sourceResets, equalTo(1));
+        assertThat(TestUtils.drain(materialize), equalTo(tuples));
+
+        materialize.close();
+    }
+
+    private void assertReadsBackTwice(Operator materialize) {
+        assertThat(TestUtils.drain(materialize), equalTo(tuples));
+
+        materialize.reset();
+        assertThat(TestUtils.drainBatches(materialize), equalTo(tuples));
+
+        materialize.reset();
+        assertThat(TestUtils.drain(materialize), equalTo(tuples));
+    }
+
+    private MaterializeOperator materialize(int memoryPages, PageFormat format) {
+        DummyOperator source = new DummyOperator(tuples, HEADER) {
+            @Override
+            public boolean reset() {
+                sourceResets++;
+                return super.reset();
+            }
+        };
+
+        return new MaterializeOperator(source, memoryPages, tempFolder, ReaderImplementation.CHANNEL, format);
+    }
+}
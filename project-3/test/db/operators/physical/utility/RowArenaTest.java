@@ -0,0 +1,118 @@
+package db.operators.physical.utility;
+
+import db.datastore.Database;
+import db.datastore.TableHeader;
+import db.datastore.tuple.Tuple;
+import db.datastore.tuple.TupleBatch;
+import db.operators.physical.extended.TupleComparator;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertTrue;
+
+public class RowArenaTest {
+    private static final TableHeader HEADER = new TableHeader(Arrays.asList("S", "S", "S"), Arrays.asList("A", "B", "C"));
+
+    private static final int[] VALUES = {Integer.MIN_VALUE, -300, -1, 0, 1, 255, 256, 65536, Integer.MAX_VALUE};
+
+    @Test
+    public void sortsLikeComparator() throws Exception {
+        Random random = new Random(25);
+
+        // Extreme values and few distinct values in the first column, the last column keeps the input order
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            tuples.add(new Tuple(new int[]{random.nextInt(4), VALUES[random.nextInt(VALUES.length)], i}));
+        }
+
+        for (List<String> columns : Arrays.asList(Arrays.asList("A"), Arrays.asList("B", "A"), Arrays.asList("A", "B"))) {
+            TableHeader sortHeader = new TableHeader(Arrays.asList("S", "S").subList(0, columns.size()), columns);
+
+            List<Tuple> expected = new ArrayList<>(tuples);
+            expected.sort(new TupleComparator(sortHeader, HEADER));
+
+            RowArena arena = new RowArena(HEADER.size(), tuples.size());
+            add(arena, tuples);
+            arena.sort(TupleHashTable.resolveKeys(sortHeader, HEADER));
+
+            assertThat(columns.toString(), write(arena), equalTo(expected));
+        }
+    }
+
+    @Test
+    public void fillsUpFromBatches() throws Exception {
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            tuples.add(new Tuple(new int[]{-i, i, 0}));
+        }
+
+        RowArena arena = new RowArena(HEADER.size(), 1000);
+        TupleBatch batch = toBatch(tuples);
+
+        int copied = arena.add(batch, 0);
+
+        assertThat(copied, equalTo(1000));
+        assertTrue(arena.isFull());
+        assertThat(arena.add(batch, copied), equalTo(0));
+
+        arena.clear();
+        assertThat(arena.add(batch, copied), equalTo(500));
+
+        // Without a sort the rows are written in the order they were added
+        assertThat(write(arena), equalTo(tuples.subList(1000, 1500)));
+    }
+
+    @Test
+    public void forPagesCountsTheIndex() {
+        RowArena arena = RowArena.forPages(HEADER.size(), 2);
+        int expected = 2 * Database.PAGE_SIZE / (4 * HEADER.size() + RowArena.INDEX_BYTES_PER_ROW);
+
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < expected + 10; i++) {
+            tuples.add(new Tuple(new int[]{i, i, i}));
+        }
+
+        assertThat(arena.add(toBatch(tuples), 0), equalTo(expected));
+    }
+
+    private static void add(RowArena arena, List<Tuple> tuples) {
+        for (int from = 0; from < tuples.size(); from += TupleBatch.DEFAULT_CAPACITY) {
+            TupleBatch batch = toBatch(tuples.subList(from, Math.min(tuples.size(), from + TupleBatch.DEFAULT_CAPACITY)));
+            assertThat(arena.add(batch, 0), equalTo(batch.size()));
+        }
+    }
+
+    private static TupleBatch toBatch(List<Tuple> tuples) {
+        TupleBatch batch = new TupleBatch(HEADER.size(), tuples.size());
+
+        for (Tuple tuple : tuples) {
+            batch.add(tuple);
+        }
+
+        return batch;
+    }
+
+    private static List<Tuple> write(RowArena arena) throws Exception {
+        ExternalBlockCacheOperator run = new ExternalBlockCacheOperator(HEADER, Files.createTempDirectory("arena"));
+        arena.writeTo(run);
+        run.flush();
+
+        List<Tuple> result = new ArrayList<>();
+
+        Tuple tuple;
+        while ((tuple = run.getNextTuple()) != null) {
+            result.add(tuple);
+        }
+
+        run.delete();
+
+        return result;
+    }
+}
@@ -0,0 +1,124 @@
+package db.operators.physical.utility;
+
+import db.TestUtils;
+import db.datastore.Database;
+import db.datastore.TableHeader;
+import db.datastore.TableInfo;
+import db.datastore.tuple.Tuple;
+import db.operators.DummyOperator;
+import db.operators.physical.Operator;
+import db.operators.physical.physical.ScanOperator;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertTrue;
+
+public class RuntimeFilterTest {
+    private static final TableHeader BUILD_HEADER = new TableHeader(Arrays.asList("B", "B"), Arrays.asList("X", "Y"));
+
+    private TableInfo sailors;
+    private List<Tuple> build;
+    private Set<Integer> buildKeys;
+
+    @Before
+    public void setUp() {
+        sailors = Database.loadDatabase(TestUtils.NEW_DB_PATH).getTable("Sailors");
+
+        Random random = new Random(5);
+
+        build = new ArrayList<>();
+        buildKeys = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            int key = random.nextInt(10000);
+            build.add(new Tuple(new int[]{i, key}));
+            buildKeys.add(key);
+        }
+    }
+
+    @Test
+    public void bloomFilterHasNoFalseNegatives() {
+        Random random = new Random(1);
+        BloomFilter filter = new BloomFilter(10000);
+
+        Set<Integer> added = new HashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            int key = random.nextInt();
+            filter.add(key);
+            added.add(key);
+        }
+
+        int falsePositives = 0;
+        for (int key = 0; key < 100000; key++) {
+            if (added.contains(key)) {
+                assertThat(filter.mightContain(key), is(true));
+            } else if (filter.mightContain(key)) {
+                falsePositives++;
+            }
+        }
+
+        for (int key : added) {
+            assertThat(filter.mightContain(key), is(true));
+        }
+
+        assertTrue("False positives: " + falsePositives, falsePositives < 2000);
+    }
+
+    @Test
+    public void scanDropsTuplesOnceBuilt() {
+        for (boolean batches : Arrays.asList(true, false)) {
+            Function<Operator, List<Tuple>> drain = batches ? TestUtils::drainBatches : TestUtils::drain;
+            RuntimeFilter filter = new RuntimeFilter(1);
+            ScanOperator scan = new ScanOperator(sailors, "Sailors");
+            scan.addRuntimeFilter(filter);
+
+            // Nothing is dropped before the build side has been read
+            int total = drain.apply(new ScanOperator(sailors, "Sailors")).size();
+            assertThat(drain.apply(scan).size(), equalTo(total));
+
+            drain.apply(new RuntimeFilterBuildOperator(new DummyOperator(build, BUILD_HEADER), 1, filter));
+            assertThat(filter.isReady(), is(true));
+
+            scan.reset();
+            List<Tuple> filtered = drain.apply(scan);
+
+            List<Tuple> expected = new ArrayList<>();
+            for (Tuple tuple : drain.apply(new ScanOperator(sailors, "Sailors"))) {
+                if (buildKeys.contains(tuple.fields[1])) {
+                    expected.add(tuple);
+                }
+            }
+
+            for (Tuple tuple : expected) {
+                assertThat(filtered.contains(tuple), is(true));
+            }
+
+            assertTrue(filtered.size() < total / 10);
+            assertThat(filter.getDroppedCount(), equalTo((long) (total - filtered.size())));
+        }
+    }
+
+    @Test
+    public void tooManyKeysDisablesTheFilter() {
+        RuntimeFilter filter = new RuntimeFilter(0);
+
+        for (int key = 0; key < (1 << 22) + 1; key++) {
+            filter.addKey(key);
+        }
+
+        filter.complete();
+
+        assertThat(filter.isReady(), is(false));
+        assertThat(filter.mightMatch(-1), is(true));
+    }
+}
@@ -91,16 +91,16 @@ public class IndexPerformanceTest {
 
     @Before
     public void setUp() throws Exception {
-        DiskIOStatistics.reads = 0;
-        DiskIOStatistics.writes = 0;
+        DiskIOStatistics.reads.reset();
+        DiskIOStatistics.writes.reset();
     }
 
     @After
     public void tearDown() throws Exception {
         this.actualResult.close();
 
-        System.out.println("Reads: " + DiskIOStatistics.reads);
-        System.out.println("Write: " + DiskIOStatistics.writes);
+        System.out.println("Reads: " + DiskIOStatistics.reads.sum());
+        System.out.println("Write: " + DiskIOStatistics.writes.sum());
     }
 
     @Ignore
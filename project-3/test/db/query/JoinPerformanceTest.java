@@ -75,8 +75,8 @@ public class JoinPerformanceTest {
 
     @Before
     public void setUp() throws Exception {
-        DiskIOStatistics.reads = 0;
-        DiskIOStatistics.writes = 0;
+        DiskIOStatistics.reads.reset();
+        DiskIOStatistics.writes.reset();
     }
 
     @After
@@ -97,8 +97,8 @@ public class JoinPerformanceTest {
 
         long elapsedTime = System.currentTimeMillis() - startTime;
         System.out.println(this.join + " (blockSize=" + this.blockSize + ") " + outputRows + " rows found, took " + elapsedTime + " ms");
-        System.out.println("Reads: " + DiskIOStatistics.reads);
-        System.out.println("Write: " + DiskIOStatistics.writes);
+        System.out.println("Reads: " + DiskIOStatistics.reads.sum());
+        System.out.println("Write: " + DiskIOStatistics.writes.sum());
         System.out.println("Temp: " + this.tempDir);
     }
 }
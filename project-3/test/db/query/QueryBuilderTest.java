@@ -5,6 +5,8 @@ import db.DatabaseStructure;
 import db.TestUtils;
 import db.Utilities.UnionFind;
 import db.datastore.Database;
+import db.datastore.tuple.Tuple;
+import db.operators.logical.LogicalLimitOperator;
 import db.operators.logical.LogicalOperator;
 import db.operators.physical.Operator;
 import db.operators.physical.bag.JoinOperator;
@@ -12,7 +14,11 @@ import db.operators.physical.bag.ProjectionOperator;
 import db.operators.physical.bag.SelectionOperator;
 import db.operators.physical.bag.TupleNestedJoinOperator;
 import db.operators.physical.extended.DistinctOperator;
+import db.operators.physical.extended.HashAggregateOperator;
+import db.operators.physical.extended.HashDistinctOperator;
+import db.operators.physical.extended.LimitOperator;
 import db.operators.physical.extended.SortOperator;
+import db.operators.physical.extended.TopNOperator;
 import db.operators.physical.physical.ScanOperator;
 import db.query.visitors.PhysicalPlanBuilder;
 import net.sf.jsqlparser.statement.select.PlainSelect;
@@ -21,6 +27,8 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -198,8 +206,12 @@ public class QueryBuilderTest {
     public void testDistinct() {
         PlainSelect tokens = TestUtils.parseQuery("SELECT DISTINCT Sailors.B FROM Sailors;");
 
+        PhysicalPlanConfig config = new PhysicalPlanConfig(PhysicalPlanConfig.JoinImplementation.TNLJ, PhysicalPlanConfig.SortImplementation.IN_MEMORY);
+        config.distinctImplementation = PhysicalPlanConfig.DistinctImplementation.SORT;
+
         LogicalOperator logRoot = logicalBuilder.buildQuery(tokens);
-        Operator root = physicalBuilder.buildFromLogicalTree(logRoot);
+        Operator root = new PhysicalPlanBuilder(config, TestUtils.TEMP_PATH, TestUtils.DB_PATH.resolve("indexes"))
+                .buildFromLogicalTree(logRoot);
 
         assertTrue(root instanceof DistinctOperator);
 
@@ -210,6 +222,166 @@ public class QueryBuilderTest {
         root.close();
     }
 
+    @Test
+    public void testHashDistinct() {
+        // Sailors.B takes 200 values out of 1000 tuples, so the planner removes duplicates with a hash table
+        PlainSelect tokens = TestUtils.parseQuery("SELECT DISTINCT Sailors.B FROM Sailors;");
+
+        LogicalOperator logRoot = logicalBuilder.buildQuery(tokens);
+        Operator root = physicalBuilder.buildFromLogicalTree(logRoot);
+
+        assertTrue(root instanceof HashDistinctOperator);
+
+        Set<Tuple> seen = new HashSet<>();
+        Tuple tuple;
+        while ((tuple = root.getNextTuple()) != null) {
+            assertTrue(seen.add(tuple));
+        }
+
+        assertEquals(200, seen.size());
+
+        root.close();
+    }
+
+    @Test
+    public void testHashDistinctWithoutExternalSort() {
+        // The 1000 distinct sailors do not fit in a single page, but an in memory sort cannot spill at all
+        PlainSelect tokens = TestUtils.parseQuery("SELECT DISTINCT * FROM Sailors;");
+
+        PhysicalPlanConfig config = new PhysicalPlanConfig(PhysicalPlanConfig.JoinImplementation.TNLJ, PhysicalPlanConfig.SortImplementation.IN_MEMORY);
+        config.sortParameter = 1;
+
+        LogicalOperator logRoot = logicalBuilder.buildQuery(tokens);
+        Operator root = new PhysicalPlanBuilder(config, TestUtils.TEMP_PATH, TestUtils.DB_PATH.resolve("indexes"))
+                .buildFromLogicalTree(logRoot);
+
+        assertTrue(root instanceof HashDistinctOperator);
+
+        Set<Tuple> seen = new HashSet<>();
+        Tuple tuple;
+        while ((tuple = root.getNextTuple()) != null) {
+            assertTrue(seen.add(tuple));
+        }
+
+        assertEquals(1000, seen.size());
+
+        root.close();
+    }
+
+    @Test
+    public void testGroupBy() {
+        PlainSelect tokens = TestUtils.parseQuery("SELECT Sailors.B, COUNT(*) FROM Sailors GROUP BY Sailors.B;");
+
+        LogicalOperator logRoot = logicalBuilder.buildQuery(tokens);
+        Operator root = physicalBuilder.buildFromLogicalTree(logRoot);
+
+        // The scan is not ordered on Sailors.B, so the groups are hashed
+        assertTrue(root instanceof ProjectionOperator);
+        assertTrue(((ProjectionOperator) root).getChild() instanceof HashAggregateOperator);
+
+        int groups = 0;
+        int count = 0;
+        Tuple tuple;
+        while ((tuple = root.getNextTuple()) != null) {
+            groups += 1;
+            count += tuple.fields[1];
+        }
+
+        assertEquals(200, groups);
+        assertEquals(1000, count);
+
+        root.close();
+    }
+
+    @Test
+    public void testLimit() {
+        PlainSelect tokens = TestUtils.parseQuery("SELECT Sailors.A FROM Sailors WHERE Sailors.B < 100 LIMIT 5;");
+
+        LogicalOperator logRoot = logicalBuilder.buildQuery(tokens);
+        Operator root = physicalBuilder.buildFromLogicalTree(logRoot);
+
+        // The projection keeps every tuple, so the limit goes right above the selection
+        assertTrue(root instanceof ProjectionOperator);
+        assertTrue(((ProjectionOperator) root).getChild() instanceof LimitOperator);
+
+        int count = 0;
+        while (root.getNextTuple() != null) {
+            count += 1;
+        }
+
+        assertEquals(5, count);
+
+        root.close();
+    }
+
+    @Test
+    public void testOffsetWithoutLimit() {
+        // Both an OFFSET on its own and LIMIT ALL skip the first tuples and return all the others
+        for (String clause : Arrays.asList("OFFSET 5", "LIMIT ALL OFFSET 5")) {
+            PlainSelect tokens = TestUtils.parseQuery("SELECT * FROM Sailors ORDER BY Sailors.A " + clause + ";");
+
+            LogicalOperator logRoot = logicalBuilder.buildQuery(tokens);
+            assertTrue(logRoot instanceof LogicalLimitOperator);
+            assertEquals(LogicalLimitOperator.ALL, ((LogicalLimitOperator) logRoot).getLimit());
+
+            Operator root = physicalBuilder.buildFromLogicalTree(logRoot);
+
+            int count = 0;
+            while (root.getNextTuple() != null) {
+                count += 1;
+            }
+
+            assertEquals(clause, countSailors() - 5, count);
+
+            root.close();
+        }
+    }
+
+    @Test
+    public void testLimitAll() {
+        PlainSelect tokens = TestUtils.parseQuery("SELECT * FROM Sailors LIMIT ALL;");
+
+        LogicalOperator logRoot = logicalBuilder.buildQuery(tokens);
+        assertTrue(!(logRoot instanceof LogicalLimitOperator));
+    }
+
+    private int countSailors() {
+        ScanOperator scan = new ScanOperator(DB.getTable("Sailors"));
+
+        int count = 0;
+        while (scan.getNextTuple() != null) {
+            count += 1;
+        }
+
+        scan.close();
+
+        return count;
+    }
+
+    @Test
+    public void testTopN() {
+        PlainSelect tokens = TestUtils.parseQuery("SELECT * FROM Sailors ORDER BY Sailors.B LIMIT 10 OFFSET 2;");
+
+        LogicalOperator logRoot = logicalBuilder.buildQuery(tokens);
+        Operator root = physicalBuilder.buildFromLogicalTree(logRoot);
+
+        assertTrue(root instanceof LimitOperator);
+        assertTrue(((LimitOperator) root).getChild() instanceof TopNOperator);
+
+        int count = 0;
+        int previous = Integer.MIN_VALUE;
+        Tuple tuple;
+        while ((tuple = root.getNextTuple()) != null) {
+            assertTrue(previous <= tuple.fields[1]);
+            previous = tuple.fields[1];
+            count += 1;
+        }
+
+        assertEquals(10, count);
+
+        root.close();
+    }
+
     @Test
     public void testUnionFind() throws Exception {
         PlainSelect tokens = TestUtils.parseQuery("SELECT * FROM Sailors, Boats WHERE Boats.D < 4 AND Boats.D = Sailors.A AND Sailors.A = Boats.E And Sailors.B = Boats.F And Boats.F > 6 AND Boats.F <= 95;");
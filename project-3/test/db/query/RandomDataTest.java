@@ -2,6 +2,7 @@ package db.query;
 
 import db.PhysicalPlanConfig;
 import db.PhysicalPlanConfig.JoinImplementation;
+import db.PhysicalPlanConfig.RunGeneration;
 import db.TestUtils;
 import db.datastore.Database;
 import db.datastore.tuple.Tuple;
@@ -60,6 +61,14 @@ public class RandomDataTest {
             "SELECT * FROM Sailors, Boats WHERE Sailors.B < 100 AND Boats.F > 900 AND Boats.F < 1000;", // one unclustered one clustered
             "SELECT * FROM Sailors, Boats WHERE Sailors.B < 100 AND Boats.E > 900 AND Boats.E < 1000;", // both unclustered
             "SELECT * FROM Sailors, Boats WHERE Sailors.C < 100 AND Boats.D > 900 AND Boats.D < 1000;", // both no indices
+            "SELECT S.B, COUNT(*), SUM(S.C), MIN(S.A), MAX(S.A), AVG(S.C) FROM Sailors S GROUP BY S.B;",
+            "SELECT R.H, COUNT(*), SUM(S.B) FROM Sailors S, Reserves R WHERE S.A = R.G GROUP BY R.H;",
+            "SELECT COUNT(*), MIN(B.E), AVG(B.F) FROM Boats B;",
+            "SELECT S.A, COUNT(*), MAX(R.H) FROM Sailors S, Reserves R WHERE S.A = R.G GROUP BY S.A ORDER BY S.A;",
+            "SELECT * FROM Sailors S ORDER BY S.B, S.A, S.C LIMIT 25;",
+            "SELECT S.A, R.H FROM Sailors S, Reserves R WHERE S.A = R.G ORDER BY S.A, R.H LIMIT 40 OFFSET 10;",
+            "SELECT * FROM Boats B ORDER BY B.D, B.E, B.F LIMIT 2000 OFFSET 5;", // too many for a small sort buffer
+            "SELECT DISTINCT S.B FROM Sailors S ORDER BY S.B LIMIT 30;",
     };
 
     private static final int[] blockSizes = new int[]{1, 3, 11, 100};
@@ -83,8 +92,15 @@ public class RandomDataTest {
                 for (int blockSize : blockSizes) {
                     // Neither sorting nor joining can handle tiny buffers.
                     if (blockSize >= 3) {
+                        // The other external sorts build their runs one block at a time on a single thread, without
+                        // double buffering
+                        PhysicalPlanConfig config = new PhysicalPlanConfig(null, SortImplementation.EXTERNAL, blockSize, blockSize, useIndices);
+                        config.runGeneration = RunGeneration.REPLACEMENT_SELECTION;
+                        config.sortThreads = 2;
+                        config.asyncSortIO = true;
+
                         testCases.add(new Object[]{
-                                new PhysicalPlanConfig(null, SortImplementation.EXTERNAL, blockSize, blockSize, useIndices),
+                                config,
                                 results.get(query),
                                 query,
                                 null,